@@ -0,0 +1,71 @@
+package com.nocturnals.budget.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ways of totalling ledger amounts in memory: BigDecimal additions, the same grouped by category, and summing the
+ * unscaled cents as longs, which is exact while every amount has two decimal places.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AmountAggregationBenchmark {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private BigDecimal[] amounts;
+    private long[] categories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(size);
+        amounts = new BigDecimal[size];
+        categories = new long[size];
+        for(int i = 0; i < size; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextInt(50_000) + 1, 2);
+            categories[i] = random.nextInt(LedgerFixture.CATEGORIES) + 1;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal streamReduce() {
+        return Arrays.stream(amounts).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal loop() {
+        BigDecimal total = BigDecimal.ZERO;
+        for(BigDecimal amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal unscaledCents() {
+        long cents = 0;
+        for(BigDecimal amount : amounts) {
+            cents = Math.addExact(cents, amount.setScale(2).unscaledValue().longValueExact());
+        }
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> groupedByCategory() {
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for(int i = 0; i < amounts.length; i++) {
+            totals.merge(categories[i], amounts[i], BigDecimal::add);
+        }
+        return totals;
+    }
+}
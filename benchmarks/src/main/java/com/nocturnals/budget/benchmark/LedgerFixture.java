@@ -0,0 +1,43 @@
+package com.nocturnals.budget.benchmark;
+
+import com.nocturnals.budget.BudgetAppApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+
+/**
+ * Shared setup: the application on the perf profile's seeded in-memory ledger, and fixed vocabulary for the
+ * benchmarks that build their transactions in memory.
+ */
+final class LedgerFixture {
+    static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    static final int DAYS = 5 * 365;
+    static final int ACCOUNTS = 20;
+    static final int CATEGORIES = 12;
+    static final String[] MERCHANTS = {"Blue Harbor Coffee", "Pinecrest Pharmacy", "Northside Grocers",
+            "Lakeside Bakery", "Metro Transit", "City Power", "Summit Fitness", "Riverbend Books", "Oakwood Hardware",
+            "Granite Telecom", "Sunrise Diner", "Maple Dental", "Harbor Freight Tools", "Westfield Cinema",
+            "Cedar Insurance", "Brightline Fuel", "Golden Wok", "Silver Screen Streaming", "Evergreen Rent",
+            "Payroll Pinecrest Ltd"};
+
+    private LedgerFixture() {
+    }
+
+    /**
+     * Boots the perf profile, which generates {@code rows} ledger rows on startup. {@code args} are passed on as
+     * extra command line properties.
+     */
+    static ConfigurableApplicationContext start(int rows, String... args) {
+        String[] arguments = new String[args.length + 1];
+        arguments[0] = "--budget.perf.rows=" + rows;
+        System.arraycopy(args, 0, arguments, 1, args.length);
+        return new SpringApplicationBuilder(BudgetAppApplication.class)
+                .profiles("perf", "benchmark")
+                .run(arguments);
+    }
+
+    static String description(String merchant, int store) {
+        return merchant + " " + store + " POS";
+    }
+}
@@ -0,0 +1,75 @@
+package com.nocturnals.budget.benchmark;
+
+import com.nocturnals.budget.db.dao.LedgerImportService;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import throughput, reported in rows per second. Each invocation imports a fresh set of transactions through
+ * {@link LedgerImportService#importAll}, so the balance, budget and index listeners run as they do in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerImportBenchmark {
+    private static final int ROWS = 5_000;
+
+    private ConfigurableApplicationContext context;
+    private LedgerImportService ledgerImportService;
+    private List<Long> accountIds;
+    private List<Long> categoryIds;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = LedgerFixture.start(0);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        accountIds = jdbcTemplate.queryForList("select id from account", Long.class);
+        categoryIds = jdbcTemplate.queryForList("select id from category", Long.class);
+        ledgerImportService = context.getBean(LedgerImportService.class);
+        random = new Random(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ImportResult> importAll() {
+        List<Transaction> transactions = new ArrayList<>(ROWS);
+        for(int i = 0; i < ROWS; i++) {
+            Account account = new Account();
+            account.setId(accountIds.get(random.nextInt(accountIds.size())));
+            Category category = new Category();
+            category.setId(categoryIds.get(random.nextInt(categoryIds.size())));
+            Transaction transaction = new Transaction();
+            transaction.setDescription(LedgerFixture.description(
+                    LedgerFixture.MERCHANTS[random.nextInt(LedgerFixture.MERCHANTS.length)], random.nextInt(100)));
+            transaction.setAmount(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2));
+            transaction.setTransactionDate(Date.valueOf(LedgerFixture.FIRST_DAY.plusDays(
+                    random.nextInt(LedgerFixture.DAYS))));
+            transaction.setIsExpense(true);
+            transaction.setAccount(account);
+            transaction.setCategory(category);
+            transactions.add(transaction);
+        }
+        return ledgerImportService.importAll(transactions);
+    }
+}
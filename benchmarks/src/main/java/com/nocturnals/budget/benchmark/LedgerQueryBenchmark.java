@@ -0,0 +1,107 @@
+package com.nocturnals.budget.benchmark;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ledger reads through {@link LedgerService} against the perf profile's generated H2 ledger. Larger ledgers need a
+ * larger heap for the forked JVM, e.g. {@code -p rows=10000000 -jvmArgs -Xmx8g}.
+ * <p>
+ * {@code schema} compares the migrated schema and its ledger indexes ({@code migrations}) with the bare tables
+ * Hibernate generates ({@code hibernate}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerQueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"migrations", "hibernate"})
+    public String schema;
+
+    private ConfigurableApplicationContext context;
+    private LedgerService ledgerService;
+    private LedgerFilter accountMonth;
+    private LedgerFilter descriptionIndexed;
+    private LedgerFilter descriptionScanned;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "hibernate".equals(schema)
+                ? LedgerFixture.start(rows, "--spring.flyway.enabled=false", "--spring.jpa.hibernate.ddl-auto=create")
+                : LedgerFixture.start(rows);
+        ledgerService = context.getBean(LedgerService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        Long busiestAccount = jdbcTemplate.queryForList("select account_id from ledger group by account_id "
+                + "order by count(*) desc", Long.class).get(0);
+        LocalDate month = LocalDate.now().minusMonths(6).withDayOfMonth(1);
+        accountMonth = LedgerFilter.builder()
+                .accountId(busiestAccount)
+                .startDate(Date.valueOf(month))
+                .endDate(Date.valueOf(month.plusMonths(1)))
+                .build();
+        // The most frequent description still small enough for the index to answer
+        String description = jdbcTemplate.queryForList("select description from ledger group by description "
+                + "having count(*) <= 1000 order by count(*) desc", String.class).get(0);
+        descriptionIndexed = LedgerFilter.builder()
+                .description(description)
+                .descriptionMatch(DescriptionMatch.TOKEN)
+                .build();
+        descriptionScanned = LedgerFilter.builder()
+                .description(description)
+                .descriptionMatch(DescriptionMatch.CONTAINS)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TransactionView> filterByAccountAndMonth() {
+        return ledgerService.search(accountMonth, LedgerExpansion.NONE);
+    }
+
+    @Benchmark
+    public LedgerPage<TransactionView> firstPageExpanded() {
+        return ledgerService.findPage(LedgerFilter.builder().build(), null, LedgerService.DEFAULT_PAGE_SIZE,
+                EnumSet.allOf(LedgerExpansion.class));
+    }
+
+    @Benchmark
+    public List<TransactionView> descriptionFromIndex() {
+        return ledgerService.search(descriptionIndexed, LedgerExpansion.NONE);
+    }
+
+    @Benchmark
+    public List<TransactionView> descriptionFromLike() {
+        return ledgerService.search(descriptionScanned, LedgerExpansion.NONE);
+    }
+
+    @Benchmark
+    public List<LedgerAggregate> aggregateByCategoryAndMonth() {
+        return ledgerService.aggregate(LedgerFilter.builder().build(),
+                EnumSet.of(LedgerDimension.CATEGORY, LedgerDimension.MONTH));
+    }
+}
@@ -0,0 +1,107 @@
+package com.nocturnals.budget.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.AccountType;
+import com.nocturnals.budget.db.entity.Bank;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON rendering of a page of transactions with their account (and its bank and type) and category embedded, both
+ * as entities and as the views the ledger API returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Transaction> transactions;
+    private List<TransactionView> views;
+    private List<TransactionView> expandedViews;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Random random = new Random(size);
+        Timestamp now = Timestamp.valueOf(LedgerFixture.FIRST_DAY.atStartOfDay());
+        List<Account> accounts = new ArrayList<>();
+        for(long i = 1; i <= LedgerFixture.ACCOUNTS; i++) {
+            Bank bank = new Bank();
+            bank.setId(i);
+            bank.setName("Bank " + i);
+            AccountType accountType = new AccountType();
+            accountType.setId(i % 3 + 1);
+            accountType.setType("Type " + (i % 3 + 1));
+            accounts.add(Account.builder().id(i).name("Account " + i).balance(BigDecimal.valueOf(125_000, 2))
+                    .bank(bank).accountType(accountType).createdAt(now).updatedAt(now).version(1L).build());
+        }
+        List<Category> categories = new ArrayList<>();
+        for(long i = 1; i <= LedgerFixture.CATEGORIES; i++) {
+            Category category = new Category();
+            category.setId(i);
+            category.setName("Category " + i);
+            category.setBudget(BigDecimal.valueOf(50_000, 2));
+            category.setRemainingBudget(BigDecimal.valueOf(12_345, 2));
+            category.setCreatedAt(now);
+            category.setUpdatedAt(now);
+            categories.add(category);
+        }
+        transactions = new ArrayList<>(size);
+        for(long id = 1; id <= size; id++) {
+            Transaction transaction = new Transaction();
+            transaction.setId(id);
+            transaction.setDescription(LedgerFixture.description(
+                    LedgerFixture.MERCHANTS[random.nextInt(LedgerFixture.MERCHANTS.length)], random.nextInt(100)));
+            transaction.setAmount(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2));
+            transaction.setTransactionDate(Date.valueOf(LedgerFixture.FIRST_DAY.plusDays(
+                    random.nextInt(LedgerFixture.DAYS))));
+            transaction.setIsExpense(true);
+            transaction.setIsRecurring(false);
+            transaction.setAccount(accounts.get(random.nextInt(accounts.size())));
+            transaction.setCategory(categories.get(random.nextInt(categories.size())));
+            transaction.setCreatedAt(now);
+            transaction.setUpdatedAt(now);
+            transactions.add(transaction);
+        }
+        views = transactions.stream().map(TransactionView::of).toList();
+        expandedViews = transactions.stream()
+                .map(transaction -> TransactionView.of(transaction, EnumSet.allOf(LedgerExpansion.class)))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] entities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] views() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public byte[] expandedViews() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(expandedViews);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nocturnals.budget.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * In-process caches for reference data, computed loan schedules and forecasts. Each cache is bounded by a Caffeine
+ * spec read from {@code budget.cache.<name>.spec}, falling back to {@code budget.cache.spec}, and records hit/miss
+ * statistics for the actuator metrics. Puts and evictions issued by the cache annotations inside a transaction are
+ * applied when it commits, so a reader can never cache a row that is about to be rolled back or keep one that a
+ * commit just changed.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+    public static final String BANKS = "banks";
+    public static final String ACCOUNT_TYPES = "account-types";
+    public static final String ACCOUNTS = "accounts";
+    public static final String ACCOUNT_IDS = "account-ids";
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY_IDS = "category-ids";
+    public static final String LOAN_SCHEDULES = "loan-schedules";
+    public static final String FORECASTS = "forecasts";
+
+    private static final List<String> CACHES = List.of(BANKS, ACCOUNT_TYPES, ACCOUNTS, ACCOUNT_IDS, CATEGORIES,
+            CATEGORY_IDS, LOAN_SCHEDULES, FORECASTS);
+
+    @Bean
+    public CacheManager cacheManager(Environment environment) {
+        String defaultSpec = environment.getProperty("budget.cache.spec", "maximumSize=1000,expireAfterWrite=10m");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.from(defaultSpec).recordStats());
+        for(String name : CACHES) {
+            String spec = environment.getProperty("budget.cache." + name + ".spec", defaultSpec);
+            cacheManager.registerCustomCache(name, Caffeine.from(spec).recordStats().build());
+        }
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,45 @@
+package com.nocturnals.budget.configuration;
+
+import com.nocturnals.budget.diagnostics.ExplainPlanCapture;
+import com.nocturnals.budget.diagnostics.SlowQueryListener;
+import com.nocturnals.budget.diagnostics.SlowQueryLog;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's data sources in a proxy that times every statement for the slow-query log. Turn it off
+ * with {@code budget.diagnostics.slow-query.enabled=false}. All proxies share one {@link ExplainPlanCapture}, whose
+ * thread stops with the context.
+ */
+@Configuration
+@ConditionalOnProperty(name = "budget.diagnostics.slow-query.enabled", matchIfMissing = true)
+public class DataSourceProxyConfiguration {
+
+    @Bean
+    public ExplainPlanCapture explainPlanCapture() {
+        return new ExplainPlanCapture();
+    }
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourceProxy(ObjectProvider<SlowQueryLog> slowQueryLog,
+                                                             ObjectProvider<ExplainPlanCapture> explainPlanCapture) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(new SlowQueryListener(slowQueryLog, explainPlanCapture, dataSource))
+                        .build();
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.nocturnals.budget.configuration;
+
+import com.nocturnals.budget.db.replica.ReplicaRouter;
+import com.nocturnals.budget.db.replica.StickyReadFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the read replicas listed in {@code budget.datasource.replica.urls}. The primary
+ * pool is built from {@code spring.datasource.*} as usual; replicas share its pool settings and credentials unless
+ * {@code budget.datasource.replica.username} and {@code .password} say otherwise.
+ * <p>
+ * Connections are opened lazily, so the routing decision is made after the transaction manager has marked the
+ * connection read-only. Reads outside a transaction, and reads joining a read-write one, stay on the primary.
+ */
+@Configuration
+@ConditionalOnExpression("!'${budget.datasource.replica.urls:}'.isBlank()")
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSourceProperties properties, Environment environment,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${budget.datasource.replica.urls}") List<String> urls,
+                                       @Value("${budget.datasource.replica.username:${spring.datasource.username:}}")
+                                       String username,
+                                       @Value("${budget.datasource.replica.password:${spring.datasource.password:}}")
+                                       String password,
+                                       @Value("${budget.datasource.replica.sticky:PT5S}") Duration sticky,
+                                       @Value("${budget.datasource.replica.retry:PT30S}") Duration retry,
+                                       @Value("${budget.datasource.replica.connection-timeout:PT1S}")
+                                       Duration connectionTimeout) {
+        HikariDataSource primary = pool(properties.initializeDataSourceBuilder(), environment, meterRegistry);
+        if(primary.getPoolName() == null) {
+            primary.setPoolName(ReplicaRouter.PRIMARY);
+        }
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for(String url : urls) {
+            HikariDataSource replica = pool(properties.initializeDataSourceBuilder().url(url.trim())
+                    .username(username).password(password), environment, meterRegistry);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRouter(primary, replicas, sticky, retry, meterRegistry);
+    }
+
+    private static HikariDataSource pool(DataSourceBuilder<?> builder, Environment environment,
+                                         MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = builder.type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaRouter replicaRouter) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRouter.primary());
+        dataSource.setReadOnlyDataSource(replicaRouter.readOnly());
+        return dataSource;
+    }
+
+    @Bean
+    public StickyReadFilter stickyReadFilter(ReplicaRouter replicaRouter,
+                                             @Value("${budget.datasource.replica.sticky:PT5S}") Duration sticky) {
+        return new StickyReadFilter(replicaRouter, sticky);
+    }
+
+    /**
+     * Reports which replicas are taking reads. Losing them all degrades reads onto the primary rather than failing
+     * them, so that shows as UNKNOWN instead of DOWN.
+     */
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaRouter replicaRouter) {
+        return () -> {
+            Map<String, Boolean> replicas = replicaRouter.replicas();
+            Health.Builder health = replicas.containsValue(true) ? Health.up() : Health.unknown();
+            replicas.forEach((name, up) -> health.withDetail(name, up ? "UP" : "DOWN"));
+            return health.build();
+        };
+    }
+}
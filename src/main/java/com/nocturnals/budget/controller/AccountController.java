@@ -1,23 +1,32 @@
 package com.nocturnals.budget.controller;
 
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService;
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService.Interval;
 import com.nocturnals.budget.db.dao.AccountService;
 import com.nocturnals.budget.db.entity.Account;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("api/v1/account")
 public class AccountController {
     AccountService accountService;
+    AccountBalanceHistoryService accountBalanceHistoryService;
 
     @Autowired
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService,
+                             AccountBalanceHistoryService accountBalanceHistoryService) {
         this.accountService = accountService;
+        this.accountBalanceHistoryService = accountBalanceHistoryService;
     }
 
     @PostMapping
@@ -26,6 +35,8 @@ public class AccountController {
             return ResponseEntity.ok(accountService.save(account));
         } catch (DataIntegrityViolationException e) {
             return ResponseEntity.badRequest().body("Account name must be unique");
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Account was modified concurrently");
         }
     }
 
@@ -57,6 +68,43 @@ public class AccountController {
         return ResponseEntity.ok(accountService.findAll());
     }
 
+    /**
+     * End-of-day balance on {@code date}, or every {@code interval} (day, week or month) from {@code from} to
+     * {@code to}. Undated ledger rows are not part of the history.
+     */
+    @GetMapping("/balance-history")
+    public ResponseEntity<Object> balanceHistory(
+            @RequestParam("account-id") Long id,
+            @RequestParam(value = "date", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @RequestParam(value = "interval", defaultValue = "day") String interval) {
+        Interval step;
+        try {
+            step = Interval.valueOf(interval.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Interval must be one of day, week or month");
+        }
+        Object history;
+        try {
+            if(date != null) {
+                history = accountBalanceHistoryService.balanceOn(id, date);
+            } else if(from != null && to != null) {
+                history = accountBalanceHistoryService.history(id, from, to, step);
+            } else {
+                return ResponseEntity.badRequest().body("Either date or both from and to must be provided");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return history == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(history);
+    }
+
+    @PostMapping("/balance-history/rebuild")
+    public ResponseEntity<Object> rebuildBalanceHistory() {
+        return ResponseEntity.ok(accountBalanceHistoryService.rebuild());
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Object> deleteById(@PathVariable Long id) {
         try {
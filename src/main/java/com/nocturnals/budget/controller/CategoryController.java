@@ -1,6 +1,7 @@
 package com.nocturnals.budget.controller;
 
 import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dto.CategoryBudget;
 import com.nocturnals.budget.db.entity.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -50,6 +51,16 @@ public class CategoryController {
         }
     }
 
+    @GetMapping("/{id}/budget")
+    public ResponseEntity<Object> findBudget(@PathVariable Long id) {
+        CategoryBudget budget = categoryService.findBudget(id);
+        if(budget == null) {
+            return ResponseEntity.notFound().build();
+        } else {
+            return ResponseEntity.ok(budget);
+        }
+    }
+
     @GetMapping("/all")
     public ResponseEntity<Object> findAll() {
         return ResponseEntity.ok(categoryService.findAll());
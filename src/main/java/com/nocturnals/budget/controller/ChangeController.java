@@ -0,0 +1,91 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dao.ChangeEventService;
+import com.nocturnals.budget.db.dto.ChangePage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ordered feed of committed changes to transactions, accounts and categories. A consumer copies everything once,
+ * starting from the {@code checkpoint} read just before, and then long-polls for the changes after the checkpoint
+ * each response returns. A 410 means the events after the consumer's checkpoint have been purged and it has to copy
+ * everything again.
+ */
+@RestController
+@RequestMapping("api/v1/changes")
+public class ChangeController {
+    static final Duration MAX_WAIT = Duration.ofSeconds(30);
+
+    private final ChangeEventService changeEventService;
+
+    @Autowired
+    public ChangeController(ChangeEventService changeEventService) {
+        this.changeEventService = changeEventService;
+    }
+
+    /**
+     * Changes after {@code after}, waiting up to {@code wait} (e.g. {@code 20s}) for some when there are none yet.
+     * The wait is asynchronous: the servlet thread is released and the response is written when the relay publishes
+     * or the wait runs out.
+     */
+    @GetMapping
+    public DeferredResult<ResponseEntity<Object>> changes(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "wait", defaultValue = "0s") String wait) {
+        Duration waitFor = parseWait(wait);
+        if(waitFor == null || waitFor.isNegative() || waitFor.compareTo(MAX_WAIT) > 0) {
+            return answered(ResponseEntity.badRequest()
+                    .body("Wait must be between 0 and " + MAX_WAIT.toSeconds() + "s"));
+        }
+        if(!changeEventService.isRetained(after)) {
+            return answered(ResponseEntity.status(HttpStatus.GONE)
+                    .body("Changes after " + after + " are no longer kept"));
+        }
+        CompletableFuture<ChangePage> page;
+        try {
+            page = changeEventService.awaitChanges(after, limit, waitFor);
+        } catch (IllegalArgumentException e) {
+            return answered(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+        DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>(waitFor.isPositive()
+                ? waitFor.toMillis() : null);
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(new ChangePage(List.of(), after))));
+        result.onCompletion(() -> page.cancel(false));
+        page.whenComplete((changes, failure) -> {
+            if(failure != null) {
+                result.setErrorResult(failure);
+            } else {
+                result.setResult(ResponseEntity.ok(changes));
+            }
+        });
+        return result;
+    }
+
+    private static Duration parseWait(String wait) {
+        try {
+            return DurationStyle.detectAndParse(wait);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static DeferredResult<ResponseEntity<Object>> answered(ResponseEntity<Object> response) {
+        DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    @GetMapping("/checkpoint")
+    public ResponseEntity<Object> checkpoint() {
+        return ResponseEntity.ok(changeEventService.checkpoint());
+    }
+}
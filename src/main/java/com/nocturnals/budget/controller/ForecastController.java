@@ -0,0 +1,33 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dao.ForecastService;
+import com.nocturnals.budget.db.dto.ForecastRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Cash-flow forecasts from today. The posted request names the accounts (all of them when omitted), the number of
+ * months (12 by default) and the scenarios to compare (the baseline alone by default).
+ */
+@RestController
+@RequestMapping("api/v1/forecast")
+public class ForecastController {
+    private final ForecastService forecastService;
+
+    @Autowired
+    public ForecastController(ForecastService forecastService) {
+        this.forecastService = forecastService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Object> forecast(@RequestBody ForecastRequest request) {
+        try {
+            return ResponseEntity.ok(forecastService.forecast(request, LocalDate.now()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,78 +1,207 @@
 package com.nocturnals.budget.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nocturnals.budget.db.dao.DescriptionSearchService;
+import com.nocturnals.budget.db.dao.LedgerImportService;
 import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dao.StatementImportService;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
 import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.ingest.StatementFormat;
+import com.nocturnals.budget.ingest.StatementOptions;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.math.BigDecimal;
-import java.sql.Date;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("api/v1/transaction")
 public class LedgerController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final String APPLICATION_OFX_VALUE = "application/x-ofx";
+
     private final LedgerService ledgerService;
+    private final LedgerImportService ledgerImportService;
+    private final StatementImportService statementImportService;
+    private final DescriptionSearchService descriptionSearchService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public LedgerController(LedgerService ledgerService) {
+    public LedgerController(LedgerService ledgerService, LedgerImportService ledgerImportService,
+                            StatementImportService statementImportService,
+                            DescriptionSearchService descriptionSearchService, ObjectMapper objectMapper) {
         this.ledgerService = ledgerService;
+        this.ledgerImportService = ledgerImportService;
+        this.statementImportService = statementImportService;
+        this.descriptionSearchService = descriptionSearchService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
     public ResponseEntity<Object> saveTransaction(@RequestBody Transaction transaction) {
         try {
-            return ResponseEntity.ok(ledgerService.save(transaction));
+            return ResponseEntity.ok(TransactionView.of(ledgerService.save(transaction)));
         } catch (DataIntegrityViolationException e) {
             return ResponseEntity.badRequest().body("Transaction description must be unique");
         }
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> bulkImport(@RequestBody List<Transaction> transactions) {
+        return ResponseEntity.ok(ledgerImportService.importAll(transactions));
+    }
+
+    /**
+     * Streams an NDJSON or CSV body through the importer batch by batch and answers with one NDJSON result per row,
+     * so neither the request nor the response is held in memory.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> bulkImportStream(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, HttpServletRequest request) {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        StreamingResponseBody body = outputStream -> {
+            Reader reader = new InputStreamReader(request.getInputStream(), charset);
+            if(MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+                ledgerImportService.importNdjson(reader, result -> writeLine(outputStream, result));
+            } else {
+                ledgerImportService.importCsv(reader, result -> writeLine(outputStream, result));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Imports a bank statement export. The account parameter names the account for every entry; without it CSV rows
+     * name their own account and OFX entries use the statement's account id as the account name.
+     */
+    @PostMapping(value = "/statement", consumes = {TEXT_CSV_VALUE, APPLICATION_OFX_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importStatement(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestParam(value = "account", required = false) String account,
+            @RequestParam(value = "date-format", required = false) String dateFormat,
+            HttpServletRequest request) {
+        StatementFormat format = MediaType.valueOf(APPLICATION_OFX_VALUE).isCompatibleWith(contentType)
+                ? StatementFormat.OFX : StatementFormat.CSV;
+        StatementOptions options = StatementOptions.of(account, dateFormat, contentType.getCharset());
+        StreamingResponseBody body = outputStream -> statementImportService.importStream(request.getInputStream(),
+                format, options, result -> writeLine(outputStream, result));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Transactions reference their account and category by id; {@code expand=account,category} embeds them instead,
+     * fetched by the same statement. The page and stream endpoints accept the same parameter. Descriptions are matched
+     * as a substring by default; {@code description-match} opts into prefix, token or fuzzy matching word by word
+     * through the search index.
+     * <p>
+     * Without an id this returns at most {@link LedgerService#DEFAULT_PAGE_SIZE} rows in (transaction date, id)
+     * order; when there are more, a {@code Link} header points at the next page of {@code /page}, which is the way to
+     * read past the first page.
+     */
     @GetMapping
     public ResponseEntity<Object> getTransaction(
             @RequestParam(value = "transaction-id", required = false) Long id,
-            @RequestParam(value = "description", required = false) String description,
-            @RequestParam(value = "start-date", required = false) Date startDate,
-            @RequestParam(value = "end-date", required = false) Date endDate,
-            @RequestParam(value = "is-expense", required = false) Boolean isExpense,
-            @RequestParam(value = "is-recurring", required = false) Boolean isRecurring,
-            @RequestParam(value = "recurring-date", required = false) Integer recurringDate,
-            @RequestParam(value = "account-id", required = false) Long accountId,
-            @RequestParam(value = "category-id", required = false) Long categoryId,
-            @RequestParam(value = "start-amount", required = false) BigDecimal startingAmount,
-            @RequestParam(value = "end-amount", required = false) BigDecimal endingAmount,
-            @RequestParam(value = "amount-comparison", required = false) String amountComparison) {
-        List<Transaction> transactions;
+            @RequestParam(value = "expand", required = false) List<String> expand,
+            LedgerQueryParams params) {
+        Set<LedgerExpansion> expansions = LedgerExpansion.parse(expand);
+        List<TransactionView> transactions;
+        String next = null;
         if(id != null) {
-            Transaction transaction = ledgerService.findById(id);
+            TransactionView transaction = ledgerService.findById(id, expansions);
             if(transaction == null) {
                 return ResponseEntity.notFound().build();
             }
             transactions = Collections.singletonList(transaction);
-        } else if(description != null) {
-            transactions = ledgerService.findByDescription(description, startDate, endDate);
-        } else if(accountId != null || categoryId != null) {
-            transactions = ledgerService.findByAccountAndCategory(accountId, categoryId, startDate, endDate);
-        } else if(startDate != null) {
-            transactions = ledgerService.findByDateRange(startDate, endDate);
-        } else if(isExpense != null || isRecurring != null || recurringDate != null) {
-            transactions = ledgerService.findByIsRecurringAndIsExpense(isRecurring, isExpense, recurringDate);
-        } else if(startingAmount != null) {
-            transactions = ledgerService.findByAmount(startingAmount, endingAmount,amountComparison);
         } else {
-            transactions = ledgerService.findAll();
+            LedgerPage<TransactionView> page = ledgerService.findPage(params.toFilter(), null,
+                    LedgerService.DEFAULT_PAGE_SIZE, expansions);
+            transactions = page.items();
+            next = page.next();
         }
         if(transactions == null || transactions.isEmpty()) {
             return ResponseEntity.badRequest().body("No transactions found");
+        } else if(next != null) {
+            String link = ServletUriComponentsBuilder.fromCurrentRequest().path("/page")
+                    .replaceQueryParam("cursor", next).build().toUriString();
+            return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"").body(transactions);
         } else {
             return ResponseEntity.ok(transactions);
         }
     }
 
+    /**
+     * Totals the transactions matching the usual filters, grouped by any of account, category, expense and one of
+     * day, week or month, e.g. {@code group-by=category,month}.
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<Object> aggregate(LedgerQueryParams params,
+                                            @RequestParam(value = "group-by", required = false) List<String> groupBy) {
+        return ResponseEntity.ok(ledgerService.aggregate(params.toFilter(), LedgerDimension.parse(groupBy)));
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<Object> getTransactionPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "page-size", required = false) Integer pageSize,
+            @RequestParam(value = "expand", required = false) List<String> expand,
+            LedgerQueryParams params) {
+        LedgerCursor position = cursor == null ? null : LedgerCursor.decode(cursor);
+        return ResponseEntity.ok(ledgerService.findPage(params.toFilter(), position, LedgerService.pageSize(pageSize),
+                LedgerExpansion.parse(expand)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactions(
+            @RequestParam(value = "chunk-size", required = false) Integer chunkSize,
+            @RequestParam(value = "expand", required = false) List<String> expand,
+            LedgerQueryParams params) {
+        LedgerFilter filter = params.toFilter();
+        Set<LedgerExpansion> expansions = LedgerExpansion.parse(expand);
+        int size = LedgerService.pageSize(chunkSize);
+        StreamingResponseBody body = outputStream -> ledgerService.streamAll(filter, size, expansions, chunk -> {
+            chunk.forEach(transaction -> writeLine(outputStream, transaction));
+            try {
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Re-reads every description into the search index and answers with the number of rows indexed. Description
+     * searches scan the table while it runs.
+     */
+    @PostMapping("/description-index/rebuild")
+    public ResponseEntity<Object> rebuildDescriptionIndex() {
+        return ResponseEntity.ok(descriptionSearchService.rebuild());
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Object> deleteTransaction(@PathVariable Long id) {
         try {
@@ -82,4 +211,18 @@ public class LedgerController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private void writeLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Object> handleInvalidQuery(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -0,0 +1,39 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import org.springframework.web.bind.annotation.BindParam;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+public record LedgerQueryParams(
+        String description,
+        @BindParam("description-match") String descriptionMatch,
+        @BindParam("start-date") Date startDate,
+        @BindParam("end-date") Date endDate,
+        @BindParam("is-expense") Boolean isExpense,
+        @BindParam("is-recurring") Boolean isRecurring,
+        @BindParam("recurring-date") Integer recurringDate,
+        @BindParam("account-id") Long accountId,
+        @BindParam("category-id") Long categoryId,
+        @BindParam("start-amount") BigDecimal startingAmount,
+        @BindParam("end-amount") BigDecimal endingAmount,
+        @BindParam("amount-comparison") String amountComparison) {
+
+    public LedgerFilter toFilter() {
+        return LedgerFilter.builder()
+                .description(description)
+                .descriptionMatch(description == null ? null
+                        : DescriptionMatch.parse(descriptionMatch, DescriptionMatch.CONTAINS))
+                .startDate(startDate)
+                .endDate(endDate)
+                .isExpense(isExpense)
+                .isRecurring(isRecurring)
+                .recurringDate(recurringDate)
+                .accountId(accountId)
+                .categoryId(categoryId)
+                .build()
+                .withAmount(startingAmount, endingAmount, amountComparison);
+    }
+}
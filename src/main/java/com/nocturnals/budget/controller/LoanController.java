@@ -0,0 +1,95 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dao.LoanService;
+import com.nocturnals.budget.loan.Compounding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Loan schedules and projections. {@code compounding} is one of annual, semi-annual, quarterly, monthly or daily and
+ * defaults to monthly; {@code as-of} defaults to today.
+ */
+@RestController
+@RequestMapping("api/v1/loan")
+public class LoanController {
+    private static final String COMPOUNDING = "Compounding must be one of annual, semi-annual, quarterly, monthly "
+            + "or daily";
+
+    private final LoanService loanService;
+
+    @Autowired
+    public LoanController(LoanService loanService) {
+        this.loanService = loanService;
+    }
+
+    @GetMapping("/schedule")
+    public ResponseEntity<Object> schedule(
+            @RequestParam("account-id") Long accountId,
+            @RequestParam(value = "compounding", defaultValue = "monthly") String compounding) {
+        Compounding parsed = parse(compounding);
+        if(parsed == null) {
+            return ResponseEntity.badRequest().body(COMPOUNDING);
+        }
+        try {
+            return found(loanService.schedule(accountId, parsed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Repayments to date applied to the installments due by {@code as-of}.
+     */
+    @GetMapping("/reconciliation")
+    public ResponseEntity<Object> reconcile(
+            @RequestParam("account-id") Long accountId,
+            @RequestParam(value = "as-of", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate asOf,
+            @RequestParam(value = "compounding", defaultValue = "monthly") String compounding) {
+        Compounding parsed = parse(compounding);
+        if(parsed == null) {
+            return ResponseEntity.badRequest().body(COMPOUNDING);
+        }
+        try {
+            return found(loanService.reconcile(accountId, asOf != null ? asOf : LocalDate.now(), parsed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Outstanding balance, payoff date and remaining interest for each loan account in the posted list of ids.
+     * Ids that are not loan accounts are left out.
+     */
+    @PostMapping("/projections")
+    public ResponseEntity<Object> project(
+            @RequestBody List<Long> accountIds,
+            @RequestParam(value = "as-of", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate asOf,
+            @RequestParam(value = "compounding", defaultValue = "monthly") String compounding) {
+        Compounding parsed = parse(compounding);
+        if(parsed == null) {
+            return ResponseEntity.badRequest().body(COMPOUNDING);
+        }
+        try {
+            return ResponseEntity.ok(loanService.project(accountIds, asOf != null ? asOf : LocalDate.now(), parsed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static Compounding parse(String compounding) {
+        try {
+            return Compounding.parse(compounding);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<Object> found(Object body) {
+        return body == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,53 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dao.LedgerRollupService;
+import com.nocturnals.budget.db.dao.LedgerRollupService.Grouping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("api/v1/summary")
+public class SummaryController {
+    private static final int DEFAULT_MONTHS = 12;
+
+    private final LedgerRollupService ledgerRollupService;
+
+    @Autowired
+    public SummaryController(LedgerRollupService ledgerRollupService) {
+        this.ledgerRollupService = ledgerRollupService;
+    }
+
+    /**
+     * Monthly income and expense totals, by default for the last twelve months. {@code group-by} is one of period,
+     * account or category.
+     */
+    @GetMapping
+    public ResponseEntity<Object> summarize(
+            @RequestParam(value = "account-id", required = false) Long accountId,
+            @RequestParam(value = "category-id", required = false) Long categoryId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(value = "group-by", defaultValue = "period") String groupBy) {
+        Grouping grouping;
+        try {
+            grouping = Grouping.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Group by must be one of period, account or category");
+        }
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(DEFAULT_MONTHS - 1);
+        if(start.isAfter(end)) {
+            return ResponseEntity.badRequest().body("From must not be after to");
+        }
+        return ResponseEntity.ok(ledgerRollupService.summarize(accountId, categoryId, start, end, grouping));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Object> rebuild() {
+        return ResponseEntity.ok(ledgerRollupService.rebuild());
+    }
+}
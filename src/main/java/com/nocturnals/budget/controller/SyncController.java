@@ -0,0 +1,46 @@
+package com.nocturnals.budget.controller;
+
+import com.nocturnals.budget.db.dao.SyncService;
+import com.nocturnals.budget.db.dto.SyncResource;
+import com.nocturnals.budget.db.dto.SyncWatermark;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Incremental sync of one resource at a time. A client starts without a watermark, which returns every row, and then
+ * sends the watermark of each response to get only the rows changed and the ids deleted since. A 410 means deletions
+ * after the client's watermark have been purged and it has to sync from scratch.
+ */
+@RestController
+@RequestMapping("api/v1/sync")
+public class SyncController {
+    private final SyncService syncService;
+
+    @Autowired
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * @param resource one of {@code account}, {@code category}, {@code bank}, {@code account-type} or
+     *                 {@code transaction}
+     */
+    @GetMapping("/{resource}")
+    public ResponseEntity<Object> sync(@PathVariable("resource") String resource,
+                                       @RequestParam(value = "watermark", required = false) String watermark,
+                                       @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        try {
+            SyncResource syncResource = SyncResource.parse(resource);
+            SyncWatermark since = watermark == null ? null : SyncWatermark.decode(watermark);
+            if(!syncService.isRetained(since)) {
+                return ResponseEntity.status(HttpStatus.GONE)
+                        .body("Deletions since this watermark are no longer kept; sync again without one");
+            }
+            return ResponseEntity.ok(syncService.changes(syncResource, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
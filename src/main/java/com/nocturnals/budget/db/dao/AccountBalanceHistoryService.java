@@ -0,0 +1,205 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.AccountBalancePoint;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerDayTotal;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.entity.AccountBalanceSnapshot;
+import com.nocturnals.budget.db.repository.AccountBalanceSnapshotRepository;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps an end-of-day {@link AccountBalanceSnapshot} for every day an account has dated ledger rows, inside each
+ * ledger write transaction, and answers point-in-time balance questions from them. Undated rows count towards
+ * {@code Account.balance} but have no day to be placed on, so the history leaves them out.
+ */
+@Service
+public class AccountBalanceHistoryService implements LedgerWriteListener {
+    public static final int MAX_POINTS = 1000;
+
+    private static final String SHIFT = "update account_balance_snapshot set ledger_total = ledger_total + ? "
+            + "where account_id = ? and balance_date >= ?";
+    private static final String INSERT = "insert into account_balance_snapshot "
+            + "(account_id, balance_date, ledger_total) values (?, ?, ?)";
+    private static final String LATEST = "select balance_date, ledger_total from account_balance_snapshot "
+            + "where account_id = ? and balance_date = (select max(balance_date) from account_balance_snapshot "
+            + "where account_id = ? and balance_date <= ?)";
+
+    private final AccountBalanceSnapshotRepository snapshotRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountBalanceHistoryService(AccountBalanceSnapshotRepository snapshotRepository,
+                                        AccountRepository accountRepository, LedgerRepository ledgerRepository,
+                                        LedgerArchiveRepository ledgerArchiveRepository,
+                                        LedgerArchiveService ledgerArchiveService, JdbcTemplate jdbcTemplate) {
+        this.snapshotRepository = snapshotRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public enum Interval {
+        DAY, WEEK, MONTH;
+
+        LocalDate step(LocalDate from, int steps) {
+            return switch(this) {
+                case DAY -> from.plusDays(steps);
+                case WEEK -> from.plusWeeks(steps);
+                case MONTH -> from.plusMonths(steps);
+            };
+        }
+    }
+
+    private record Snapshot(Date date, BigDecimal ledgerTotal) {
+    }
+
+    /**
+     * Adds each day's net change to that day's snapshot and every later one of the account, so a back-dated row only
+     * rewrites the account's history from its own date on. The affected accounts are locked first, in id order:
+     * creating a day's snapshot copies the one before it, which must not change until the transaction ends.
+     */
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Map<Long, Map<Date, BigDecimal>> deltas = new TreeMap<>();
+        for(LedgerChange change : changes) {
+            add(deltas, change.before(), true);
+            add(deltas, change.after(), false);
+        }
+        deltas.values().forEach(days -> days.values().removeIf(delta -> delta.signum() == 0));
+        deltas.values().removeIf(Map::isEmpty);
+        if(deltas.isEmpty()) {
+            return;
+        }
+        accountRepository.lockByIds(deltas.keySet());
+        deltas.forEach((accountId, days) -> days.forEach((day, delta) -> apply(accountId, day, delta)));
+    }
+
+    private static void add(Map<Long, Map<Date, BigDecimal>> deltas, LedgerEntry entry, boolean reverse) {
+        if(entry == null || entry.accountId() == null || entry.transactionDate() == null || entry.amount() == null) {
+            return;
+        }
+        BigDecimal amount = entry.signedAmount();
+        deltas.computeIfAbsent(entry.accountId(), accountId -> new TreeMap<>())
+                .merge(entry.transactionDate(), reverse ? amount.negate() : amount, BigDecimal::add);
+    }
+
+    private void apply(Long accountId, Date day, BigDecimal delta) {
+        Snapshot latest = latest(accountId, day);
+        if(latest == null || !latest.date().toLocalDate().equals(day.toLocalDate())) {
+            jdbcTemplate.update(INSERT, accountId, day, latest == null ? BigDecimal.ZERO : latest.ledgerTotal());
+        }
+        jdbcTemplate.update(SHIFT, delta, accountId, day);
+    }
+
+    private Snapshot latest(Long accountId, Date day) {
+        List<Snapshot> rows = jdbcTemplate.query(LATEST, (rs, rowNum) -> new Snapshot(rs.getDate(1),
+                rs.getBigDecimal(2)), accountId, accountId, day);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * The account's balance at the end of {@code date}, or null if there is no such account.
+     */
+    @Transactional(readOnly = true)
+    public AccountBalancePoint balanceOn(Long accountId, LocalDate date) {
+        List<AccountBalancePoint> points = history(accountId, date, date, Interval.DAY);
+        return points == null ? null : points.get(0);
+    }
+
+    /**
+     * End-of-day balances from {@code from} every {@code interval} up to {@code to}, read as the latest snapshot at
+     * or before {@code from} followed by one range scan of the snapshots up to the last point. Returns null if there
+     * is no such account.
+     */
+    @Transactional(readOnly = true)
+    public List<AccountBalancePoint> history(Long accountId, LocalDate from, LocalDate to, Interval interval) {
+        if(from.isAfter(to)) {
+            throw new IllegalArgumentException("From must not be after to");
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        for(LocalDate date = from; !date.isAfter(to); date = interval.step(from, dates.size())) {
+            if(dates.size() == MAX_POINTS) {
+                throw new IllegalArgumentException("A balance history is limited to " + MAX_POINTS + " points");
+            }
+            dates.add(date);
+        }
+        List<AccountBalance> opening = accountRepository.findOpeningBalances(List.of(accountId));
+        if(opening.isEmpty()) {
+            return null;
+        }
+        BigDecimal openingBalance = opening.get(0).balance() == null ? BigDecimal.ZERO : opening.get(0).balance();
+
+        Date start = Date.valueOf(from);
+        AccountBalanceSnapshot base = snapshotRepository
+                .findFirstByAccountIdAndBalanceDateLessThanEqualOrderByBalanceDateDesc(accountId, start);
+        Iterator<AccountBalanceSnapshot> later = snapshotRepository
+                .findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(accountId, start,
+                        Date.valueOf(dates.get(dates.size() - 1)))
+                .iterator();
+        BigDecimal ledgerTotal = base == null ? BigDecimal.ZERO : base.getLedgerTotal();
+        AccountBalanceSnapshot next = later.hasNext() ? later.next() : null;
+        List<AccountBalancePoint> points = new ArrayList<>(dates.size());
+        for(LocalDate date : dates) {
+            Date day = Date.valueOf(date);
+            while(next != null && !next.getBalanceDate().after(day)) {
+                ledgerTotal = next.getLedgerTotal();
+                next = later.hasNext() ? later.next() : null;
+            }
+            points.add(new AccountBalancePoint(day, openingBalance.add(ledgerTotal)));
+        }
+        return points;
+    }
+
+    /**
+     * Recomputes every snapshot from the ledger and its archive. Like the rollup rebuild, it should run while the
+     * ledger is quiet.
+     */
+    @Transactional
+    public int rebuild() {
+        Date archivedBefore = ledgerArchiveService.archivedBefore();
+        List<LedgerDayTotal> rows = new ArrayList<>();
+        if(archivedBefore == null) {
+            rows.addAll(ledgerRepository.sumByDay());
+        } else {
+            rows.addAll(ledgerRepository.sumActiveByDay(archivedBefore));
+            rows.addAll(ledgerArchiveRepository.sumByDay(archivedBefore));
+        }
+        Map<Long, Map<Date, BigDecimal>> totals = new TreeMap<>();
+        for(LedgerDayTotal row : rows) {
+            totals.computeIfAbsent(row.accountId(), accountId -> new TreeMap<>())
+                    .merge(row.transactionDate(), row.total(), BigDecimal::add);
+        }
+        List<Object[]> batch = new ArrayList<>();
+        totals.forEach((accountId, days) -> {
+            BigDecimal running = BigDecimal.ZERO;
+            for(Map.Entry<Date, BigDecimal> day : days.entrySet()) {
+                running = running.add(day.getValue());
+                batch.add(new Object[]{accountId, day.getKey(), running});
+            }
+        });
+        jdbcTemplate.update("delete from account_balance_snapshot");
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        return batch.size();
+    }
+}
@@ -0,0 +1,143 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.StoredBalance;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code Account.balance} equal to the opening balance plus the signed sum of the account's ledger rows,
+ * archived ones included.
+ */
+@Service
+public class AccountBalanceService implements LedgerWriteListener {
+    private final AccountRepository accountRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final EntityManager entityManager;
+    private final ReadThroughCache accounts;
+
+    public AccountBalanceService(AccountRepository accountRepository, LedgerRepository ledgerRepository,
+                                 LedgerArchiveRepository ledgerArchiveRepository,
+                                 LedgerArchiveService ledgerArchiveService, EntityManager entityManager,
+                                 ReferenceCaches referenceCaches) {
+        this.accountRepository = accountRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.entityManager = entityManager;
+        this.accounts = referenceCaches.accounts();
+    }
+
+    /**
+     * Applies one atomic {@code balance = balance + delta} update per affected account. Accounts are updated in id
+     * order so concurrent batches touching the same accounts cannot deadlock. Cached copies are dropped on commit, and
+     * an account already loaded in this transaction is refreshed, since the bulk update bypasses it.
+     */
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        for(LedgerChange change : changes) {
+            add(deltas, change.before(), true);
+            add(deltas, change.after(), false);
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        deltas.forEach((accountId, delta) -> {
+            if(delta.signum() != 0) {
+                accountRepository.applyBalanceDelta(accountId, delta, now);
+                refresh(accountId);
+                accounts.evict(accountId);
+            }
+        });
+    }
+
+    private void refresh(Long accountId) {
+        Account account = entityManager.getReference(Account.class, accountId);
+        if(Hibernate.isInitialized(account)) {
+            entityManager.refresh(account);
+        }
+    }
+
+    private static void add(Map<Long, BigDecimal> deltas, LedgerEntry entry, boolean reverse) {
+        if(entry == null || entry.accountId() == null) {
+            return;
+        }
+        BigDecimal amount = entry.signedAmount();
+        deltas.merge(entry.accountId(), reverse ? amount.negate() : amount, BigDecimal::add);
+    }
+
+    /**
+     * Compares the stored balance of up to {@code chunkSize} accounts after {@code afterId} with their ledger sums,
+     * optionally repairing mismatches. Repairs only apply if the stored balance and version have not moved since they
+     * were read.
+     */
+    @Transactional
+    public ReconciliationChunk reconcile(Long afterId, int chunkSize, boolean repair) {
+        List<StoredBalance> stored = accountRepository.findBalancesAfter(afterId, PageRequest.ofSize(chunkSize));
+        if(stored.isEmpty()) {
+            return new ReconciliationChunk(null, List.of());
+        }
+        List<Long> ids = stored.stream().map(StoredBalance::accountId).toList();
+        Map<Long, BigDecimal> opening = balancesById(accountRepository.findOpeningBalances(ids));
+        Date archivedBefore = ledgerArchiveService.archivedBefore();
+        List<AccountBalance> sums = new ArrayList<>();
+        if(archivedBefore == null) {
+            sums.addAll(ledgerRepository.sumByAccount(ids));
+        } else {
+            sums.addAll(ledgerRepository.sumActiveByAccount(ids, archivedBefore));
+            sums.addAll(ledgerArchiveRepository.sumByAccount(ids, archivedBefore));
+        }
+        Map<Long, BigDecimal> ledger = balancesById(sums);
+        List<BalanceMismatch> mismatches = new ArrayList<>();
+        for(StoredBalance account : stored) {
+            BigDecimal expected = opening.getOrDefault(account.accountId(), BigDecimal.ZERO)
+                    .add(ledger.getOrDefault(account.accountId(), BigDecimal.ZERO));
+            BigDecimal actual = account.balance() == null ? BigDecimal.ZERO : account.balance();
+            if(actual.compareTo(expected) != 0) {
+                boolean repaired = repair && account.balance() != null
+                        && accountRepository.repairBalance(account.accountId(), account.balance(), account.version(),
+                        expected, Timestamp.from(Instant.now())) == 1;
+                if(repaired) {
+                    accounts.evict(account.accountId());
+                }
+                mismatches.add(new BalanceMismatch(account.accountId(), actual, expected, repaired));
+            }
+        }
+        return new ReconciliationChunk(ids.get(ids.size() - 1), mismatches);
+    }
+
+    private static Map<Long, BigDecimal> balancesById(List<AccountBalance> balances) {
+        return balances.stream()
+                .filter(balance -> balance.balance() != null)
+                .collect(Collectors.toMap(AccountBalance::accountId, AccountBalance::balance, BigDecimal::add));
+    }
+
+    public record BalanceMismatch(Long accountId, BigDecimal stored, BigDecimal expected, boolean repaired) {
+    }
+
+    /**
+     * @param lastAccountId id to resume from, or null once every account has been checked
+     */
+    public record ReconciliationChunk(Long lastAccountId, List<BalanceMismatch> mismatches) {
+    }
+}
@@ -1,37 +1,98 @@
 package com.nocturnals.budget.db.dao;
 
+import com.nocturnals.budget.db.dao.ChangeEventService.Operation;
+import com.nocturnals.budget.db.dto.AccountView;
+import com.nocturnals.budget.db.dto.SyncResource;
 import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.ChangeEvent;
 import com.nocturnals.budget.db.repository.AccountRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+/**
+ * Accounts are cached by id, and names are cached as a pointer to the id, so a balance change only has to evict the
+ * one entry {@link AccountBalanceService} knows the id of.
+ */
 @Service
 public class AccountService {
     private final AccountRepository accountRepository;
+    private final ChangeEventService changeEventService;
+    private final SyncService syncService;
+    private final ReadThroughCache accounts;
+    private final ReadThroughCache accountIds;
 
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository, ChangeEventService changeEventService,
+                          SyncService syncService, ReferenceCaches referenceCaches) {
         this.accountRepository = accountRepository;
+        this.changeEventService = changeEventService;
+        this.syncService = syncService;
+        this.accounts = referenceCaches.accounts();
+        this.accountIds = referenceCaches.accountIds();
     }
 
+    /**
+     * The balance of an existing account is owned by the ledger, so updates keep the stored value. A new account's
+     * balance is taken as its opening balance. Updates sent without a version behave as last-writer-wins.
+     */
+    @Transactional
     public Account save(Account account) {
-        return accountRepository.save(account);
+        Operation operation = account.getId() == null ? Operation.CREATED : Operation.UPDATED;
+        if(account.getId() == null) {
+            account.setOpeningBalance(account.getBalance());
+        } else {
+            accountRepository.findById(account.getId()).ifPresent(current -> {
+                account.setBalance(current.getBalance());
+                account.setOpeningBalance(current.getOpeningBalance());
+                if(account.getVersion() == null) {
+                    account.setVersion(current.getVersion());
+                }
+            });
+        }
+        Account saved = accountRepository.save(account);
+        changeEventService.record(ChangeEvent.ACCOUNT, saved.getId(), operation, AccountView.of(saved));
+        accounts.evict(saved.getId());
+        accountIds.clear();
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Account findById(Long id) {
-        return accountRepository.findById(id).orElse(null);
+        return accounts.get(id, () -> accountRepository.findById(id).orElse(null));
     }
 
+    @Transactional(readOnly = true)
     public Account findByName(String name) {
-        return accountRepository.findByNameIgnoreCase(name);
+        Long id = findIdByName(name);
+        return id == null ? null : findById(id);
     }
 
+    /**
+     * Resolves a name case-insensitively. Unknown names are remembered too, until the next account is saved.
+     */
+    @Transactional(readOnly = true)
+    public Long findIdByName(String name) {
+        return accountIds.get(name.toLowerCase(), () -> {
+            Account account = accountRepository.findByNameIgnoreCase(name);
+            return account == null ? null : account.getId();
+        });
+    }
+
+    @Transactional(readOnly = true)
     public Iterable<Account> findAll() {
         return accountRepository.findAll();
     }
 
+    @Transactional
     public void deleteById(Long id) {
-        accountRepository.deleteById(id);
+        accountRepository.findById(id).ifPresent(account -> {
+            accountRepository.delete(account);
+            changeEventService.record(ChangeEvent.ACCOUNT, id, Operation.DELETED, null);
+            syncService.tombstone(SyncResource.ACCOUNT, id);
+        });
+        accounts.evict(id);
+        accountIds.clear();
     }
 
 }
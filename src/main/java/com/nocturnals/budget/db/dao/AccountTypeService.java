@@ -1,34 +1,53 @@
 package com.nocturnals.budget.db.dao;
 
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.dto.SyncResource;
 import com.nocturnals.budget.db.entity.AccountType;
 import com.nocturnals.budget.db.repository.AccountTypeRepository;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@CacheConfig(cacheNames = CacheConfiguration.ACCOUNT_TYPES)
 public class AccountTypeService {
     private final AccountTypeRepository accountTypeRepository;
+    private final SyncService syncService;
 
-    public AccountTypeService(AccountTypeRepository accountTypeRepository) {
+    public AccountTypeService(AccountTypeRepository accountTypeRepository, SyncService syncService) {
         this.accountTypeRepository = accountTypeRepository;
+        this.syncService = syncService;
     }
 
+    @Cacheable(key = "'type:' + #type")
     public AccountType findByType(String type) {
         return accountTypeRepository.findByType(type);
     }
+
+    @CacheEvict(allEntries = true)
     public AccountType save(AccountType accountType) {
         return accountTypeRepository.save(accountType);
     }
 
+    @Cacheable(key = "'id:' + #id")
     public AccountType findById(Long id) {
         return accountTypeRepository.findById(id).orElse(null);
     }
 
+    @Cacheable(key = "'all'")
     public Iterable<AccountType> findAll() {
         return accountTypeRepository.findAll();
     }
 
+    @Transactional
+    @CacheEvict(allEntries = true)
     public void deleteById(Long id) {
-        accountTypeRepository.deleteById(id);
+        accountTypeRepository.findById(id).ifPresent(accountType -> {
+            accountTypeRepository.delete(accountType);
+            syncService.tombstone(SyncResource.ACCOUNT_TYPE, id);
+        });
     }
 
 }
@@ -1,36 +1,57 @@
 package com.nocturnals.budget.db.dao;
 
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.dto.SyncResource;
 import com.nocturnals.budget.db.entity.Bank;
 import com.nocturnals.budget.db.repository.BankRepository;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+/**
+ * Banks rarely change, so every lookup is served from the {@code banks} cache and any write clears it.
+ */
 @Service
+@CacheConfig(cacheNames = CacheConfiguration.BANKS)
 public class BankService{
     private final BankRepository bankRepository;
+    private final SyncService syncService;
 
-    public BankService(BankRepository bankRepository) {
+    public BankService(BankRepository bankRepository, SyncService syncService) {
         this.bankRepository = bankRepository;
+        this.syncService = syncService;
     }
 
+    @CacheEvict(allEntries = true)
     public Bank save(Bank bank) {
         return bankRepository.save(bank);
     }
 
+    @Cacheable(key = "'id:' + #id")
     public Bank findById(Long id) {
         return bankRepository.findById(id).orElse(null);
     }
 
+    @Cacheable(key = "'name:' + #name?.toLowerCase()")
     public Bank findByName(String name) {
         return bankRepository.findByNameIgnoreCase(name).orElse(null);
     }
 
+    @Cacheable(key = "'all'")
     public List<Bank> findAll() {
         return bankRepository.findAll();
     }
 
+    @Transactional
+    @CacheEvict(allEntries = true)
     public void deleteById(Long id) {
-        bankRepository.deleteById(id);
+        bankRepository.findById(id).ifPresent(bank -> {
+            bankRepository.delete(bank);
+            syncService.tombstone(SyncResource.BANK, id);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,203 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.CategoryBudget;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.entity.Category;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks how much of each category's monthly budget is left. Expense writes accumulate in memory by category and
+ * transaction month and are flushed to {@code category.remaining_budget} in batches; readers see the stored value minus
+ * whatever is still pending. Pending spend is kept in a {@link ConcurrentHashMap} whose per-bin locking stripes
+ * contention across categories, so concurrent postings to different categories never block each other.
+ * <p>
+ * Spend booked late against an earlier month still counts for rolling budgets, whose leftover carried it forward, and
+ * is dropped for the others, which were reset since. Spend dated after the current month is not tracked.
+ */
+@Service
+public class CategoryBudgetService implements LedgerWriteListener {
+    private static final String APPLY_SPEND = "update category set remaining_budget = "
+            + "coalesce(remaining_budget, budget, 0) - ?, updated_at = ? "
+            + "where id = ? and (budget_period is null or budget_period = ? or is_rolling_budget = ?)";
+    private static final String ROLLOVER = "update category set remaining_budget = case when is_rolling_budget = ? "
+            + "then coalesce(remaining_budget, 0) + coalesce(budget, 0) * case when budget_period is null then 1 "
+            + "else ? - (budget_period / 100 * 12 + budget_period % 100) end else budget end, budget_period = ?, "
+            + "updated_at = ? where budget_period is null or budget_period < ?";
+
+    private final Map<Pending, BigDecimal> pendingSpend = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadThroughCache categories;
+    private volatile int rolledPeriod;
+
+    public CategoryBudgetService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ReferenceCaches referenceCaches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categories = referenceCaches.categories();
+    }
+
+    private record Pending(Long categoryId, int period) {
+    }
+
+    public static int currentPeriod() {
+        return period(YearMonth.now());
+    }
+
+    public static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    /**
+     * Spend only becomes pending once the ledger write commits, so rolled back postings never reach the counters.
+     */
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Map<Pending, BigDecimal> spend = new HashMap<>();
+        int current = currentPeriod();
+        for(LedgerChange change : changes) {
+            add(spend, change.before(), true, current);
+            add(spend, change.after(), false, current);
+        }
+        if(spend.isEmpty()) {
+            return;
+        }
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addPending(spend);
+                }
+            });
+        } else {
+            addPending(spend);
+        }
+    }
+
+    private static void add(Map<Pending, BigDecimal> spend, LedgerEntry entry, boolean reverse, int current) {
+        if(entry == null || entry.categoryId() == null || !entry.expense() || entry.amount() == null) {
+            return;
+        }
+        int period = periodOf(entry.transactionDate(), current);
+        if(period > current) {
+            return;
+        }
+        spend.merge(new Pending(entry.categoryId(), period), reverse ? entry.amount().negate() : entry.amount(),
+                BigDecimal::add);
+    }
+
+    private static int periodOf(Date date, int current) {
+        return date == null ? current : period(YearMonth.from(date.toLocalDate()));
+    }
+
+    private void addPending(Map<Pending, BigDecimal> spend) {
+        spend.forEach((key, amount) -> pendingSpend.merge(key, amount, BigDecimal::add));
+    }
+
+    /**
+     * Pending spend that will count against the category in its stored period.
+     */
+    public BigDecimal pendingSpend(Category category) {
+        BigDecimal total = BigDecimal.ZERO;
+        for(Map.Entry<Pending, BigDecimal> entry : pendingSpend.entrySet()) {
+            if(entry.getKey().categoryId().equals(category.getId()) && counts(category, entry.getKey().period())) {
+                total = total.add(entry.getValue());
+            }
+        }
+        return total;
+    }
+
+    private static boolean counts(Category category, int period) {
+        Integer budgetPeriod = category.getBudgetPeriod();
+        return budgetPeriod == null || budgetPeriod == period
+                || Boolean.TRUE.equals(category.getIsRollingBudget()) && period < budgetPeriod;
+    }
+
+    public CategoryBudget budgetOf(Category category) {
+        BigDecimal stored = category.getRemainingBudget() != null ? category.getRemainingBudget()
+                : category.getBudget() != null ? category.getBudget() : BigDecimal.ZERO;
+        return new CategoryBudget(category.getId(), category.getBudget(),
+                stored.subtract(pendingSpend(category)), category.getBudgetPeriod());
+    }
+
+    /**
+     * Writes pending spend in one JDBC batch, after starting the current period if this node has not yet, so spend
+     * from a new month is never applied to the month before and then reset. Spend from a month this node has not
+     * rolled over to stays pending. If the batch does not commit, the drained amounts are put back so the next flush
+     * retries them.
+     */
+    public int flush() {
+        if(rolledPeriod != currentPeriod()) {
+            roll();
+        }
+        int rolled = rolledPeriod;
+        Map<Pending, BigDecimal> drained = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>();
+        Timestamp now = Timestamp.from(Instant.now());
+        for(Pending key : pendingSpend.keySet()) {
+            if(key.period() > rolled) {
+                continue;
+            }
+            BigDecimal amount = pendingSpend.remove(key);
+            if(amount != null && amount.signum() != 0) {
+                drained.put(key, amount);
+                batch.add(new Object[]{amount, now, key.categoryId(), key.period(), true});
+            }
+        }
+        if(batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(APPLY_SPEND, batch));
+        } catch (RuntimeException e) {
+            addPending(drained);
+            throw e;
+        }
+        drained.keySet().forEach(key -> categories.evict(key.categoryId()));
+        return batch.size();
+    }
+
+    /**
+     * Starts the current budget period for every category not yet moved to it, then flushes. Rolling budgets carry
+     * their leftover (or overspend) forward and gain one budget for each month elapsed since their last period; the
+     * rest reset to the full budget. Safe to run more than once per period.
+     */
+    public int rollover() {
+        int updated = roll();
+        flush();
+        return updated;
+    }
+
+    private int roll() {
+        YearMonth month = YearMonth.now();
+        int period = period(month);
+        int updated = jdbcTemplate.update(ROLLOVER, true, month.getYear() * 12 + month.getMonthValue(), period,
+                Timestamp.from(Instant.now()), period);
+        rolledPeriod = period;
+        categories.clear();
+        return updated;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
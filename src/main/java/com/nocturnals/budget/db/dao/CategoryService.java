@@ -1,35 +1,102 @@
 package com.nocturnals.budget.db.dao;
 
+import com.nocturnals.budget.db.dao.ChangeEventService.Operation;
+import com.nocturnals.budget.db.dto.CategoryBudget;
+import com.nocturnals.budget.db.dto.CategoryView;
+import com.nocturnals.budget.db.dto.SyncResource;
 import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.ChangeEvent;
 import com.nocturnals.budget.db.repository.CategoryRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
 
 @Service
 public class CategoryService {
     private final CategoryRepository categoryRepository;
+    private final CategoryBudgetService categoryBudgetService;
+    private final ChangeEventService changeEventService;
+    private final SyncService syncService;
+    private final ReadThroughCache categories;
+    private final ReadThroughCache categoryIds;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryBudgetService categoryBudgetService,
+                           ChangeEventService changeEventService, SyncService syncService,
+                           ReferenceCaches referenceCaches) {
         this.categoryRepository = categoryRepository;
+        this.categoryBudgetService = categoryBudgetService;
+        this.changeEventService = changeEventService;
+        this.syncService = syncService;
+        this.categories = referenceCaches.categories();
+        this.categoryIds = referenceCaches.categoryIds();
     }
 
+    /**
+     * Remaining budget is maintained from the ledger: a new category starts the current period with its full budget,
+     * and changing the budget of an existing one shifts what is left by the same amount.
+     */
+    @Transactional
     public Category save(Category category) {
-        return categoryRepository.save(category);
+        Operation operation = category.getId() == null ? Operation.CREATED : Operation.UPDATED;
+        if(category.getId() == null) {
+            category.setRemainingBudget(category.getBudget());
+            category.setBudgetPeriod(CategoryBudgetService.currentPeriod());
+        } else {
+            categoryRepository.findById(category.getId()).ifPresent(current -> {
+                BigDecimal remaining = current.getRemainingBudget();
+                if(remaining != null && category.getBudget() != null && current.getBudget() != null) {
+                    remaining = remaining.add(category.getBudget().subtract(current.getBudget()));
+                }
+                category.setRemainingBudget(remaining);
+                category.setBudgetPeriod(current.getBudgetPeriod());
+            });
+        }
+        Category saved = categoryRepository.save(category);
+        changeEventService.record(ChangeEvent.CATEGORY, saved.getId(), operation, CategoryView.of(saved));
+        categories.evict(saved.getId());
+        categoryIds.clear();
+        return saved;
+    }
+
+    public CategoryBudget findBudget(Long id) {
+        Category category = findById(id);
+        return category == null ? null : categoryBudgetService.budgetOf(category);
     }
 
+    /**
+     * Served from the {@code categories} cache, which {@link CategoryBudgetService} evicts whenever it writes a
+     * remaining budget.
+     */
     public Category findById(Long id) {
-        return categoryRepository.findById(id).orElse(null);
+        return categories.get(id, () -> categoryRepository.findById(id).orElse(null));
     }
 
+    /**
+     * Resolves a name case-insensitively, like account names. Unknown names are remembered too, until the next
+     * category is saved.
+     */
     public Category findByName(String name) {
-        return categoryRepository.findByName(name);
+        Long id = categoryIds.get(name.toLowerCase(), () -> {
+            Category category = categoryRepository.findByNameIgnoreCase(name);
+            return category == null ? null : category.getId();
+        });
+        return id == null ? null : findById(id);
     }
 
     public Iterable<Category> findAll() {
         return categoryRepository.findAll();
     }
 
+    @Transactional
     public void deleteById(Long id) {
-        categoryRepository.deleteById(id);
+        categoryRepository.findById(id).ifPresent(category -> {
+            categoryRepository.delete(category);
+            changeEventService.record(ChangeEvent.CATEGORY, id, Operation.DELETED, null);
+            syncService.tombstone(SyncResource.CATEGORY, id);
+        });
+        categories.evict(id);
+        categoryIds.clear();
     }
 
 }
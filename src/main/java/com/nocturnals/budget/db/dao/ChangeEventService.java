@@ -0,0 +1,247 @@
+package com.nocturnals.budget.db.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nocturnals.budget.db.dto.ChangeEventView;
+import com.nocturnals.budget.db.dto.ChangePage;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.entity.ChangeEvent;
+import com.nocturnals.budget.db.repository.ChangeEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change feed over a transactional outbox. Mutations write their event into {@code change_event} inside their own
+ * transaction, so an event exists exactly when its change committed. Outbox ids are not a usable order, because
+ * transactions commit in a different order than they insert, so a relay running on one node at a time numbers the
+ * committed events as it finds them. A consumer that remembers the last number it saw never misses or repeats one.
+ * <p>
+ * Readers waiting for new events hold no thread: they are registered as waiters, answered when this node's relay
+ * publishes and otherwise checked every {@code budget.changes.poll}, so waits also end when another node is relaying.
+ */
+@Service
+public class ChangeEventService implements LedgerWriteListener {
+    public static final String JOB = "change-relay";
+    public static final int MAX_PAGE = 1000;
+
+    private static final String INSERT = "insert into change_event (resource, resource_id, operation, payload, "
+            + "created_at) values (?, ?, ?, ?, current_timestamp)";
+    private static final String ASSIGN = "update change_event set sequence_number = ? where id = ?";
+
+    public enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final ChangeEventRepository changeEventRepository;
+    private final JobLeaseService jobLeaseService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration leaseDuration;
+    private final Duration retention;
+    private final int batchSize;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicLong relays = new AtomicLong();
+
+    public ChangeEventService(ChangeEventRepository changeEventRepository, JobLeaseService jobLeaseService,
+                              JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${budget.changes.lease:PT30S}") Duration leaseDuration,
+                              @Value("${budget.changes.retention:P7D}") Duration retention,
+                              @Value("${budget.changes.batch-size:1000}") int batchSize) {
+        this.changeEventRepository = changeEventRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.leaseDuration = leaseDuration;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        List<Object[]> rows = new ArrayList<>(changes.size());
+        for(LedgerChange change : changes) {
+            if(change.after() == null) {
+                rows.add(row(ChangeEvent.TRANSACTION, change.before().id(), Operation.DELETED, null));
+            } else {
+                rows.add(row(ChangeEvent.TRANSACTION, change.after().id(),
+                        change.before() == null ? Operation.CREATED : Operation.UPDATED, change.after()));
+            }
+        }
+        write(rows);
+    }
+
+    /**
+     * Writes one event. Must be called inside the transaction making the change, so the two commit or roll back
+     * together.
+     *
+     * @param payload serialized as the event's JSON payload; null for deletions
+     */
+    public void record(String resource, Long resourceId, Operation operation, Object payload) {
+        write(Collections.singletonList(row(resource, resourceId, operation, payload)));
+    }
+
+    private Object[] row(String resource, Long resourceId, Operation operation, Object payload) {
+        try {
+            return new Object[]{resource, resourceId, operation.name(),
+                    payload == null ? null : objectMapper.writeValueAsString(payload)};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the " + resource + " " + resourceId + " change", e);
+        }
+    }
+
+    private void write(List<Object[]> rows) {
+        if(rows.isEmpty()) {
+            return;
+        }
+        if(!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Change events must be written in the transaction making the change");
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    private record Waiter(long after, int limit, long deadline, CompletableFuture<ChangePage> page) {
+    }
+
+    /**
+     * Numbers every committed event not yet published, in outbox order, and answers this node's waiting readers.
+     * Returns -1 without doing anything while another node holds the relay lease. The lease is kept between runs so
+     * the relay stays on one node until that node stops.
+     */
+    public int relay() {
+        if(!jobLeaseService.tryAcquire(JOB, leaseDuration)) {
+            return -1;
+        }
+        int total = 0;
+        int published;
+        do {
+            published = transactionTemplate.execute(status -> publishBatch());
+            total += published;
+        } while(published == batchSize);
+        if(total > 0) {
+            relays.incrementAndGet();
+            waiters.forEach(this::check);
+        }
+        return total;
+    }
+
+    private int publishBatch() {
+        List<Long> pending = changeEventRepository.findPendingIds(PageRequest.of(0, batchSize));
+        if(pending.isEmpty()) {
+            return 0;
+        }
+        Long last = changeEventRepository.findLastSequenceNumber();
+        long next = last == null ? 0 : last;
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for(Long id : pending) {
+            rows.add(new Object[]{++next, id});
+        }
+        jdbcTemplate.batchUpdate(ASSIGN, rows);
+        if(!jobLeaseService.complete(JOB, Date.valueOf(LocalDate.now()))) {
+            throw new IllegalStateException("Lost the " + JOB + " lease while publishing change events");
+        }
+        return pending.size();
+    }
+
+    /**
+     * Up to {@code limit} events after {@code after}, in order.
+     */
+    public ChangePage changes(long after, int limit) {
+        if(limit < 1 || limit > MAX_PAGE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE);
+        }
+        return page(after, limit);
+    }
+
+    /**
+     * Like {@link #changes(long, int)}, but with none available yet the returned page completes once some are
+     * published, or empty after {@code wait}. No thread is held meanwhile; cancelling the future stops the wait.
+     */
+    public CompletableFuture<ChangePage> awaitChanges(long after, int limit, Duration wait) {
+        long seen = relays.get();
+        ChangePage page = changes(after, limit);
+        if(!page.events().isEmpty() || !wait.isPositive()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        Waiter waiter = new Waiter(after, limit, System.nanoTime() + wait.toNanos(), new CompletableFuture<>());
+        waiters.add(waiter);
+        waiter.page().whenComplete((result, failure) -> waiters.remove(waiter));
+        if(relays.get() != seen) {
+            check(waiter);
+        }
+        return waiter.page();
+    }
+
+    /**
+     * Answers waiting readers whose events another node has published, and those whose wait is over.
+     */
+    public void pollWaiters() {
+        waiters.forEach(this::check);
+    }
+
+    private void check(Waiter waiter) {
+        if(waiter.page().isDone()) {
+            return;
+        }
+        try {
+            ChangePage page = page(waiter.after(), waiter.limit());
+            if(!page.events().isEmpty() || System.nanoTime() - waiter.deadline() >= 0) {
+                waiter.page().complete(page);
+            }
+        } catch (RuntimeException e) {
+            waiter.page().completeExceptionally(e);
+        }
+    }
+
+    private ChangePage page(long after, int limit) {
+        List<ChangeEventView> events = changeEventRepository.findPublishedAfter(after, PageRequest.of(0, limit));
+        return new ChangePage(events, events.isEmpty() ? after : events.get(events.size() - 1).sequence());
+    }
+
+    /**
+     * Where a consumer that has just copied everything should start following the feed.
+     */
+    public long checkpoint() {
+        Long last = changeEventRepository.findLastSequenceNumber();
+        return last == null ? 0 : last;
+    }
+
+    /**
+     * Whether every event after {@code after} is still kept. If not, the consumer has to copy everything again.
+     */
+    public boolean isRetained(long after) {
+        Long first = changeEventRepository.findFirstSequenceNumber();
+        return first == null || after >= first - 1;
+    }
+
+    /**
+     * Deletes published events older than {@code budget.changes.retention}.
+     */
+    public int purge() {
+        return transactionTemplate.execute(status -> {
+            Long last = changeEventRepository.findLastSequenceNumber();
+            return last == null ? 0 : changeEventRepository.deletePublishedBefore(
+                    Timestamp.from(Instant.now().minus(retention)), last);
+        });
+    }
+}
@@ -0,0 +1,259 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.ChangeEventView;
+import com.nocturnals.budget.db.dto.ChangePage;
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerDescription;
+import com.nocturnals.budget.db.entity.ChangeEvent;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.search.DescriptionIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps the {@link DescriptionIndex} in step with the ledger and answers description searches from it. The index is
+ * built when the application starts and updated once each ledger write on this node commits; writes made on other
+ * nodes reach it through the change feed, see {@link #follow()}. Until it is built, or after an update fails,
+ * searches report that the index cannot answer and callers scan instead.
+ */
+@Service
+public class DescriptionSearchService implements LedgerWriteListener {
+    private static final Logger log = LoggerFactory.getLogger(DescriptionSearchService.class);
+
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final ChangeEventService changeEventService;
+    private final TransactionTemplate primaryTemplate;
+    private final DescriptionIndex index;
+    private final int maxMatches;
+    private final int chunkSize;
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+    private volatile long position;
+
+    /**
+     * @param maxMatches largest id list handed back to callers, which bind it as query parameters; SQL Server
+     *                   accepts at most 2100 parameters per statement
+     */
+    public DescriptionSearchService(LedgerRepository ledgerRepository,
+                                    LedgerArchiveRepository ledgerArchiveRepository,
+                                    ChangeEventService changeEventService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${budget.search.max-matches:2000}") int maxMatches,
+                                    @Value("${budget.search.rebuild-chunk-size:1000}") int chunkSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.changeEventService = changeEventService;
+        this.primaryTemplate = new TransactionTemplate(transactionManager);
+        this.maxMatches = maxMatches;
+        this.chunkSize = chunkSize;
+        try {
+            this.index = new DescriptionIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Map<Long, String> updates = new LinkedHashMap<>();
+        for(LedgerChange change : changes) {
+            if(change.after() != null) {
+                updates.put(change.after().id(), change.after().description());
+            } else if(change.before() != null) {
+                updates.put(change.before().id(), null);
+            }
+        }
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(updates);
+                }
+            });
+        } else {
+            apply(updates);
+        }
+    }
+
+    private void apply(Map<Long, String> updates) {
+        if(rebuilding) {
+            changedDuringRebuild.addAll(updates.keySet());
+        }
+        try {
+            for(Map.Entry<Long, String> update : updates.entrySet()) {
+                index.put(update.getKey(), update.getValue());
+            }
+            index.refresh();
+        } catch (IOException e) {
+            ready = false;
+            log.warn("Description index update failed; description searches will scan until it is rebuilt", e);
+        }
+    }
+
+    /**
+     * Returns the ids of the rows whose description matches, or null when the index cannot answer: it is not built,
+     * more than {@code budget.search.max-matches} rows match, or a {@code CONTAINS} text is too short to narrow.
+     * {@code CONTAINS} ids are candidates the caller still has to match against the description.
+     */
+    public List<Long> search(String text, DescriptionMatch match) {
+        if(!ready) {
+            return null;
+        }
+        try {
+            List<Long> ids = index.search(text, match, maxMatches + 1);
+            return ids == null || ids.size() > maxMatches ? null : ids;
+        } catch (IOException e) {
+            log.warn("Description index search failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Re-indexes every ledger and archive row. Rows written while the scan runs are read again once it finishes, so
+     * the result does not depend on which of the two saw them first. A row in both while the archive job moves it is
+     * indexed once per copy under the same id. Serialised with a lock rather than a monitor so a virtual thread
+     * waiting on the scan's queries does not hold its carrier.
+     */
+    public int rebuild() {
+        rebuildLock.lock();
+        ready = false;
+        changedDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            long checkpoint = changeEventService.checkpoint();
+            index.clear();
+            int count = index(ledgerRepository::findDescriptionsAfter)
+                    + index(ledgerArchiveRepository::findDescriptionsAfter);
+            rebuilding = false;
+            reindex(new ArrayList<>(changedDuringRebuild));
+            index.refresh();
+            position = checkpoint;
+            ready = true;
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuilding = false;
+            rebuildLock.unlock();
+        }
+    }
+
+    private int index(BiFunction<Long, Pageable, List<LedgerDescription>> source) throws IOException {
+        int count = 0;
+        long afterId = Long.MIN_VALUE;
+        List<LedgerDescription> chunk;
+        do {
+            chunk = source.apply(afterId, PageRequest.ofSize(chunkSize));
+            for(LedgerDescription row : chunk) {
+                index.put(row.id(), row.description());
+                afterId = row.id();
+            }
+            count += chunk.size();
+        } while(chunk.size() == chunkSize);
+        return count;
+    }
+
+    private void reindex(List<Long> ids) throws IOException {
+        for(int start = 0; start < ids.size(); start += maxMatches) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + maxMatches));
+            Set<Long> missing = new HashSet<>(chunk);
+            List<LedgerDescription> rows = new ArrayList<>(ledgerRepository.findDescriptions(chunk));
+            rows.addAll(ledgerArchiveRepository.findDescriptions(chunk));
+            for(LedgerDescription row : rows) {
+                index.put(row.id(), row.description());
+                missing.remove(row.id());
+            }
+            for(Long id : missing) {
+                index.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the ledger rows named by change events published since the last follow or rebuild, including other
+     * nodes' writes. Rows are read inside a read-write transaction so the primary answers, not a replica that may not
+     * have the write yet. Once the feed no longer holds every event since then the index is rebuilt instead. Does
+     * nothing until the index is built. Returns the number of rows read again.
+     */
+    public int follow() {
+        rebuildLock.lock();
+        try {
+            if(!ready) {
+                return 0;
+            }
+            if(!changeEventService.isRetained(position)) {
+                log.info("Change feed was purged past the description index; rebuilding it");
+                return rebuild();
+            }
+            int count = 0;
+            ChangePage page;
+            do {
+                page = changeEventService.changes(position, ChangeEventService.MAX_PAGE);
+                List<Long> ids = page.events().stream()
+                        .filter(event -> ChangeEvent.TRANSACTION.equals(event.resource()))
+                        .map(ChangeEventView::resourceId)
+                        .distinct()
+                        .toList();
+                primaryTemplate.executeWithoutResult(status -> {
+                    try {
+                        reindex(ids);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                index.refresh();
+                position = page.checkpoint();
+                count += ids.size();
+            } while(page.events().size() == ChangeEventService.MAX_PAGE);
+            return count;
+        } catch (IOException | UncheckedIOException e) {
+            ready = false;
+            log.warn("Description index update failed; description searches will scan until it is rebuilt", e);
+            return 0;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            log.info("Indexed {} ledger descriptions", rebuild());
+        } catch (RuntimeException e) {
+            log.error("Could not build the description index; description searches will scan", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+    }
+}
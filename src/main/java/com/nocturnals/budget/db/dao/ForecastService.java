@@ -0,0 +1,239 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.CashFlowForecast;
+import com.nocturnals.budget.db.dto.CashFlowForecast.AccountForecast;
+import com.nocturnals.budget.db.dto.ForecastRequest;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerRollupTotal;
+import com.nocturnals.budget.db.dto.RecurringTemplate;
+import com.nocturnals.budget.db.entity.LedgerRollup;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.db.repository.LedgerRollupRepository;
+import com.nocturnals.budget.db.repository.RecurringOccurrenceRepository;
+import com.nocturnals.budget.forecast.AccountCashFlows;
+import com.nocturnals.budget.forecast.AccountCashFlows.CategoryHistory;
+import com.nocturnals.budget.forecast.CashFlowSimulation;
+import com.nocturnals.budget.forecast.ForecastScenario;
+import com.nocturnals.budget.forecast.ForecastTask;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Projects account balances forward month by month. The scheduled part comes from the recurring templates; the
+ * variable part is simulated from the last {@code budget.forecast.lookback-months} complete months of rollups, less
+ * the rows the templates posted in them. Every account and scenario is simulated on a dedicated fork/join pool, and
+ * finished forecasts are kept until the next ledger write commits.
+ * <p>
+ * The lookback window is assumed to be newer than the archive boundary: postings that were archived are still in the
+ * rollups but can no longer be told apart from variable rows.
+ */
+@Service
+public class ForecastService implements LedgerWriteListener {
+    public static final int MAX_MONTHS = 60;
+    public static final int MAX_SCENARIOS = 10;
+    public static final int DEFAULT_MONTHS = 12;
+
+    private static final long SEED = 20240101L;
+
+    private final AccountRepository accountRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerRollupRepository ledgerRollupRepository;
+    private final RecurringOccurrenceRepository recurringOccurrenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadThroughCache forecasts;
+    private final ForkJoinPool pool;
+    private final int paths;
+    private final int lookback;
+
+    public ForecastService(AccountRepository accountRepository, LedgerRepository ledgerRepository,
+                           LedgerRollupRepository ledgerRollupRepository,
+                           RecurringOccurrenceRepository recurringOccurrenceRepository,
+                           PlatformTransactionManager transactionManager, CacheManager cacheManager,
+                           @Value("${budget.forecast.paths:1000}") int paths,
+                           @Value("${budget.forecast.lookback-months:12}") int lookback,
+                           @Value("${budget.forecast.parallelism:0}") int parallelism) {
+        this.accountRepository = accountRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerRollupRepository = ledgerRollupRepository;
+        this.recurringOccurrenceRepository = recurringOccurrenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.forecasts = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.FORECASTS));
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.paths = paths;
+        this.lookback = lookback;
+    }
+
+    private record ForecastKey(List<Long> accountIds, int months, List<ForecastScenario> scenarios,
+                               LocalDate asOf) {
+    }
+
+    private record HistoryKey(long categoryId, boolean expense) {
+    }
+
+    /**
+     * Forecasts the month ends from {@code asOf}'s onwards. Accounts that do not exist are left out.
+     */
+    public CashFlowForecast forecast(ForecastRequest request, LocalDate asOf) {
+        int months = request.months() == null ? DEFAULT_MONTHS : request.months();
+        if(months < 1 || months > MAX_MONTHS) {
+            throw new IllegalArgumentException("Months must be between 1 and " + MAX_MONTHS);
+        }
+        List<ForecastScenario> scenarios = request.scenarios() == null || request.scenarios().isEmpty()
+                ? List.of(ForecastScenario.BASELINE) : List.copyOf(request.scenarios());
+        if(scenarios.size() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("At most " + MAX_SCENARIOS + " scenarios can be forecast at once");
+        }
+        if(scenarios.stream().map(ForecastScenario::name).distinct().count() < scenarios.size()) {
+            throw new IllegalArgumentException("Scenario names must be unique");
+        }
+        List<Long> accountIds = request.accountIds() == null ? null : request.accountIds().stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+        ForecastKey key = new ForecastKey(accountIds, months, scenarios, asOf);
+        return forecasts.get(key, () -> compute(key));
+    }
+
+    private CashFlowForecast compute(ForecastKey key) {
+        List<AccountCashFlows> accounts = transactionTemplate.execute(status -> load(key));
+        CashFlowSimulation simulation = new CashFlowSimulation(key.asOf(), key.months(), paths, lookback, SEED);
+        List<AccountForecast[]> results = new ArrayList<>();
+        List<ForkJoinTask<double[][]>> tasks = new ArrayList<>();
+        for(ForecastScenario scenario : key.scenarios()) {
+            AccountForecast[] forecasts = new AccountForecast[accounts.size()];
+            results.add(forecasts);
+            tasks.add(pool.submit(new ForecastTask(simulation, scenario, accounts, forecasts)));
+        }
+        double[] scheduled = new double[key.months()];
+        for(AccountCashFlows account : accounts) {
+            for(int i = 0; i < scheduled.length; i++) {
+                scheduled[i] += account.scheduled()[i];
+            }
+        }
+        List<CashFlowForecast.Scenario> scenarios = new ArrayList<>();
+        for(int s = 0; s < tasks.size(); s++) {
+            double[][] total = tasks.get(s).join();
+            scenarios.add(new CashFlowForecast.Scenario(key.scenarios().get(s).name(),
+                    simulation.points(scheduled, total), List.of(results.get(s))));
+        }
+        return new CashFlowForecast(key.asOf(), key.months(), paths, scenarios);
+    }
+
+    private List<AccountCashFlows> load(ForecastKey key) {
+        List<AccountBalance> balances = key.accountIds() == null ? accountRepository.findBalances()
+                : key.accountIds().isEmpty() ? List.of() : accountRepository.findBalances(key.accountIds());
+        Map<Long, double[]> postings = new LinkedHashMap<>();
+        Map<Long, Map<HistoryKey, double[]>> history = new HashMap<>();
+        for(AccountBalance balance : balances) {
+            postings.put(balance.accountId(), new double[key.months()]);
+            history.put(balance.accountId(), new HashMap<>());
+        }
+        YearMonth current = YearMonth.from(key.asOf());
+        YearMonth first = current.minusMonths(lookback);
+        for(RecurringTemplate template : ledgerRepository.findTemplates()) {
+            double[] scheduled = postings.get(template.accountId());
+            if(scheduled == null) {
+                continue;
+            }
+            for(int i = 0; i < scheduled.length; i++) {
+                LocalDate due = dueDate(template, current.plusMonths(i));
+                if(due != null && due.isAfter(key.asOf()) && (template.transactionDate() == null
+                        || due.isAfter(template.transactionDate().toLocalDate()))) {
+                    scheduled[i] += template.signedAmount().doubleValue();
+                }
+            }
+            if(template.transactionDate() != null) {
+                addHistory(history, first, template.accountId(), template.categoryId(), template.isExpense(),
+                        YearMonth.from(template.transactionDate().toLocalDate()), template.amount().negate());
+            }
+        }
+        if(lookback > 0) {
+            YearMonth last = current.minusMonths(1);
+            for(LedgerRollup rollup : ledgerRollupRepository.findByPeriodBetween(period(first), period(last))) {
+                addHistory(history, first, rollup.getAccountId(), rollup.getCategoryId(), rollup.getIsExpense(),
+                        YearMonth.of(rollup.getPeriod() / 100, rollup.getPeriod() % 100), rollup.getTotal());
+            }
+            for(LedgerRollupTotal posted : recurringOccurrenceRepository.sumPostedByMonth(
+                    Date.valueOf(first.atDay(1)), Date.valueOf(last.atEndOfMonth()))) {
+                addHistory(history, first, posted.accountId(), posted.categoryId(), posted.isExpense(),
+                        YearMonth.of(posted.year(), posted.month()), posted.total().negate());
+            }
+        }
+        List<AccountCashFlows> accounts = new ArrayList<>(balances.size());
+        for(AccountBalance balance : balances) {
+            double start = balance.balance() == null ? 0 : balance.balance().doubleValue();
+            double[] scheduled = postings.get(balance.accountId());
+            double running = start;
+            for(int i = 0; i < scheduled.length; i++) {
+                running += scheduled[i];
+                scheduled[i] = running;
+            }
+            List<CategoryHistory> categories = new ArrayList<>();
+            history.get(balance.accountId()).forEach((category, totals) ->
+                    categories.add(new CategoryHistory(category.categoryId(), category.expense(), totals)));
+            accounts.add(new AccountCashFlows(balance.accountId(), start, scheduled, categories));
+        }
+        return accounts;
+    }
+
+    /**
+     * When the template posts in {@code month}, clamped to the month's last day like the posting job does.
+     */
+    private static LocalDate dueDate(RecurringTemplate template, YearMonth month) {
+        int day = template.recurringDate();
+        return day < 1 ? null : month.atDay(Math.min(day, month.lengthOfMonth()));
+    }
+
+    private void addHistory(Map<Long, Map<HistoryKey, double[]>> history, YearMonth first, Long accountId,
+                            Long categoryId, Boolean expense, YearMonth month, BigDecimal amount) {
+        Map<HistoryKey, double[]> categories = history.get(accountId);
+        int index = (month.getYear() - first.getYear()) * 12 + month.getMonthValue() - first.getMonthValue();
+        if(categories == null || index < 0 || index >= lookback || amount == null) {
+            return;
+        }
+        HistoryKey key = new HistoryKey(categoryId == null ? LedgerRollup.NONE : categoryId,
+                Boolean.TRUE.equals(expense));
+        categories.computeIfAbsent(key, k -> new double[lookback])[index] += amount.doubleValue();
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    /**
+     * Any committed ledger write can move a balance, a schedule or the history, so every forecast is dropped.
+     */
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        if(!changes.isEmpty()) {
+            forecasts.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
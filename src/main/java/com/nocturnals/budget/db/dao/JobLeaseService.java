@@ -0,0 +1,71 @@
+package com.nocturnals.budget.db.dao;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Database-backed leases for jobs that must run on one node at a time. Expiry is judged by the database clock, so
+ * nodes with skewed clocks still agree on when a lease has lapsed.
+ */
+@Service
+public class JobLeaseService {
+    private static final String TAKE = "update job_lease set owner = ?, expires_at = ? "
+            + "where name = ? and (owner = ? or owner is null or expires_at is null or expires_at < ?)";
+    private static final String INSERT = "insert into job_lease (name, owner, expires_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+
+    public JobLeaseService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    /**
+     * Takes or extends the lease for {@code ttl}. Returns false while another node holds an unexpired lease.
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        Timestamp now = now();
+        Timestamp expires = Timestamp.from(now.toInstant().plus(ttl));
+        if(jdbcTemplate.update(TAKE, owner, expires, name, owner, now) > 0) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(INSERT, name, owner, expires) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records progress, but only while this node still holds the lease; a false result means another node has taken
+     * over and the caller's transaction should not commit.
+     */
+    public boolean complete(String name, Date lastCompleted) {
+        return jdbcTemplate.update("update job_lease set last_completed = ? where name = ? and owner = ?",
+                lastCompleted, name, owner) > 0;
+    }
+
+    public Date lastCompleted(String name) {
+        List<Date> dates = jdbcTemplate.queryForList("select last_completed from job_lease where name = ?",
+                Date.class, name);
+        return dates.isEmpty() ? null : dates.get(0);
+    }
+
+    public void release(String name) {
+        jdbcTemplate.update("update job_lease set owner = null, expires_at = null where name = ? and owner = ?",
+                name, owner);
+    }
+
+    private Timestamp now() {
+        return jdbcTemplate.queryForObject("select current_timestamp", Timestamp.class);
+    }
+}
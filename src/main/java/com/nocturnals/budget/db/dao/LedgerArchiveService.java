@@ -0,0 +1,221 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.entity.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Moves closed years out of {@code ledger} into the read-only {@code ledger_archive}, one month at a time, oldest
+ * first. Recurring templates stay in the ledger so they can still be edited and posted.
+ * <p>
+ * A month is moved in two steps. It is first copied, which advances the archive boundary: readers take rows before
+ * the boundary from the archive and the rest from the ledger. The ledger rows are purged by a later run, once
+ * {@code budget.archive.grace} has passed; that must be longer than {@code budget.archive.refresh}, how long a node
+ * goes on using the boundary it last read, so nodes still reading the month from the ledger find it there.
+ */
+@Service
+public class LedgerArchiveService {
+    public static final String JOB = "ledger-archive";
+
+    private static final String COLUMNS = "id, description, amount, transaction_date, is_expense, is_recurring, "
+            + "recurring_date, account_id, category_id, created_at, updated_at";
+    private static final String IN_MONTH = " transaction_date >= ? and transaction_date < ? "
+            + "and (is_recurring is null or is_recurring = false)";
+    private static final String COPY = "insert into ledger_archive (" + COLUMNS + ") select " + COLUMNS
+            + " from ledger where" + IN_MONTH;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobLeaseService jobLeaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final int keepYears;
+    private final Duration grace;
+    private final Duration refresh;
+    private final Duration leaseDuration;
+    private volatile Boundary boundary;
+
+    public LedgerArchiveService(JdbcTemplate jdbcTemplate, JobLeaseService jobLeaseService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${budget.archive.keep-years:2}") int keepYears,
+                                @Value("${budget.archive.grace:PT10M}") Duration grace,
+                                @Value("${budget.archive.refresh:PT1M}") Duration refresh,
+                                @Value("${budget.archive.lease:PT10M}") Duration leaseDuration) {
+        if(grace.compareTo(refresh) < 0) {
+            throw new IllegalArgumentException("budget.archive.grace must not be shorter than budget.archive.refresh");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobLeaseService = jobLeaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keepYears = keepYears;
+        this.grace = grace;
+        this.refresh = refresh;
+        this.leaseDuration = leaseDuration;
+    }
+
+    private record Boundary(Date archivedBefore, long readAt) {
+    }
+
+    /**
+     * @param archivedBefore the archive boundary after the run, or null if nothing has been archived
+     */
+    public record ArchiveRun(int copiedMonths, long copiedRows, int purgedMonths, Date archivedBefore) {
+    }
+
+    /**
+     * First day not yet archived, or null while the archive is empty. Read from the database at most once per
+     * {@code budget.archive.refresh}.
+     */
+    public Date archivedBefore() {
+        Boundary current = boundary;
+        if(current == null || System.nanoTime() - current.readAt() >= refresh.toNanos()) {
+            Integer period = jdbcTemplate.queryForObject("select max(period) from ledger_archive_period",
+                    Integer.class);
+            current = new Boundary(period == null ? null : Date.valueOf(month(period).plusMonths(1).atDay(1)),
+                    System.nanoTime());
+            boundary = current;
+        }
+        return current.archivedBefore();
+    }
+
+    /**
+     * Whether a row with this date and recurring flag belongs in the archive.
+     */
+    public boolean isArchived(Date transactionDate, Boolean isRecurring) {
+        Date archivedBefore = archivedBefore();
+        return archivedBefore != null && transactionDate != null && transactionDate.before(archivedBefore)
+                && !Boolean.TRUE.equals(isRecurring);
+    }
+
+    /**
+     * Rejects a write that would change archived data. The only row allowed to land in an archived period is a
+     * recurring template that stops recurring; the caller moves it with {@link #archive(Long)}.
+     */
+    public void checkWritable(Transaction before, Transaction after) {
+        boolean template = before != null && Boolean.TRUE.equals(before.getIsRecurring());
+        if(before != null && !template && isArchived(before.getTransactionDate(), before.getIsRecurring())
+                || after != null && !template && isArchived(after.getTransactionDate(), after.getIsRecurring())) {
+            throw new IllegalArgumentException("Transactions dated before " + archivedBefore()
+                    + " are archived and cannot be changed");
+        }
+    }
+
+    /**
+     * Moves one ledger row into the archive. Must run inside the transaction that wrote it. While the row's month is
+     * copied but not yet purged, the ledger keeps it like every other row of that month, and the purge removes it.
+     */
+    public void archive(Transaction transaction) {
+        jdbcTemplate.update("insert into ledger_archive (" + COLUMNS + ") select " + COLUMNS
+                + " from ledger where id = ?", transaction.getId());
+        YearMonth month = YearMonth.from(transaction.getTransactionDate().toLocalDate());
+        Integer unpurged = jdbcTemplate.queryForObject("select count(*) from ledger_archive_period "
+                + "where period = ? and purged_at is null", Integer.class, period(month));
+        if(unpurged == 0) {
+            jdbcTemplate.update("delete from ledger where id = ?", transaction.getId());
+        }
+    }
+
+    public boolean exists(Long id) {
+        return !jdbcTemplate.queryForList("select id from ledger_archive where id = ?", Long.class, id).isEmpty();
+    }
+
+    /**
+     * Purges the copied months whose grace period is over, then copies every month before January of the year
+     * {@code budget.archive.keep-years} before {@code today}. Returns null without doing anything while another node
+     * holds the lease.
+     */
+    public ArchiveRun run(LocalDate today) {
+        if(!jobLeaseService.tryAcquire(JOB, leaseDuration)) {
+            return null;
+        }
+        try {
+            int purged = 0;
+            Timestamp copiedBefore = Timestamp.from(jdbcTemplate.queryForObject("select current_timestamp",
+                    Timestamp.class).toInstant().minus(grace));
+            for(Integer period : jdbcTemplate.queryForList("select period from ledger_archive_period "
+                    + "where purged_at is null and archived_at <= ? order by period", Integer.class, copiedBefore)) {
+                renewLease();
+                transactionTemplate.executeWithoutResult(status -> purge(month(period)));
+                purged++;
+            }
+
+            YearMonth cutoff = YearMonth.of(today.getYear() - keepYears, 1);
+            int copied = 0;
+            long rows = 0;
+            for(YearMonth month = next(); month != null && month.isBefore(cutoff); month = month.plusMonths(1)) {
+                renewLease();
+                YearMonth copying = month;
+                rows += transactionTemplate.execute(status -> copy(copying));
+                copied++;
+            }
+            boundary = null;
+            return new ArchiveRun(copied, rows, purged, archivedBefore());
+        } finally {
+            jobLeaseService.release(JOB);
+        }
+    }
+
+    /**
+     * The month after the last one archived, or the month of the oldest ledger row when nothing has been.
+     */
+    private YearMonth next() {
+        Integer period = jdbcTemplate.queryForObject("select max(period) from ledger_archive_period", Integer.class);
+        if(period != null) {
+            return month(period).plusMonths(1);
+        }
+        Date oldest = jdbcTemplate.queryForObject("select min(transaction_date) from ledger "
+                + "where is_recurring is null or is_recurring = false", Date.class);
+        return oldest == null ? null : YearMonth.from(oldest.toLocalDate());
+    }
+
+    private int copy(YearMonth month) {
+        List<Object> range = range(month);
+        int rows = jdbcTemplate.update(COPY, range.toArray());
+        jdbcTemplate.update("insert into ledger_archive_period (period, row_count, archived_at) "
+                + "values (?, ?, current_timestamp)", period(month), rows);
+        return rows;
+    }
+
+    /**
+     * Replaces the month's archived copy with the ledger's version of it, then deletes the month from the ledger.
+     * Until the purge every archived row of the month is still in the ledger, so the ledger is authoritative: this
+     * picks up rows that nodes which had not yet seen the month move updated, and drops the ones they deleted or
+     * moved to another month.
+     */
+    private void purge(YearMonth month) {
+        Object[] range = range(month).toArray();
+        jdbcTemplate.update("delete from ledger_archive where transaction_date >= ? and transaction_date < ?", range);
+        jdbcTemplate.update(COPY, range);
+        jdbcTemplate.update("delete from ledger where" + IN_MONTH, range);
+        Long rows = jdbcTemplate.queryForObject("select count(*) from ledger_archive "
+                + "where transaction_date >= ? and transaction_date < ?", Long.class, range);
+        jdbcTemplate.update("update ledger_archive_period set row_count = ?, purged_at = current_timestamp "
+                + "where period = ?", rows, period(month));
+    }
+
+    private void renewLease() {
+        if(!jobLeaseService.tryAcquire(JOB, leaseDuration)) {
+            throw new IllegalStateException("Lost the " + JOB + " lease");
+        }
+    }
+
+    private static List<Object> range(YearMonth month) {
+        return List.of(Date.valueOf(month.atDay(1)), Date.valueOf(month.plusMonths(1).atDay(1)));
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static YearMonth month(int period) {
+        return YearMonth.of(period / 100, period % 100);
+    }
+}
@@ -0,0 +1,253 @@
+package com.nocturnals.budget.db.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.CategoryRepository;
+import com.nocturnals.budget.ingest.CsvReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Inserts transactions in batches: each batch resolves its account and category references with one query apiece and
+ * is written through {@link LedgerService#insertAll}, which lets Hibernate send the inserts as JDBC batches.
+ */
+@Service
+public class LedgerImportService {
+    private final LedgerService ledgerService;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final AccountRepository accountRepository;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public LedgerImportService(LedgerService ledgerService, LedgerArchiveService ledgerArchiveService,
+                               AccountRepository accountRepository, CategoryRepository categoryRepository,
+                               ObjectMapper objectMapper, @Value("${budget.import.batch-size:500}") int batchSize) {
+        this.ledgerService = ledgerService;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.accountRepository = accountRepository;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public record ImportRow(long row, Transaction transaction, String error) {
+
+        public static ImportRow of(long row, Transaction transaction) {
+            return new ImportRow(row, transaction, null);
+        }
+
+        public static ImportRow invalid(long row, String error) {
+            return new ImportRow(row, null, error);
+        }
+    }
+
+    public List<ImportResult> importAll(List<Transaction> transactions) {
+        List<ImportResult> results = new ArrayList<>(transactions.size());
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        for(int i = 0; i < transactions.size(); i++) {
+            batch.add(ImportRow.of(i + 1, transactions.get(i)));
+            if(batch.size() == batchSize) {
+                results.addAll(importBatch(batch));
+                batch.clear();
+            }
+        }
+        results.addAll(importBatch(batch));
+        return results;
+    }
+
+    /**
+     * Imports newline-delimited JSON, one transaction per line. Lines that do not parse are reported and skipped.
+     */
+    public void importNdjson(Reader input, Consumer<ImportResult> results) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while((line = reader.readLine()) != null) {
+            lineNumber++;
+            if(line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(ImportRow.of(lineNumber, objectMapper.readValue(line, Transaction.class)));
+            } catch (JsonProcessingException e) {
+                batch.add(ImportRow.invalid(lineNumber, "Invalid JSON: " + e.getOriginalMessage()));
+            }
+            if(batch.size() == batchSize) {
+                importBatch(batch).forEach(results);
+                batch.clear();
+            }
+        }
+        importBatch(batch).forEach(results);
+    }
+
+    /**
+     * Imports CSV with a header row. Recognised columns are description, amount, transaction_date (yyyy-mm-dd),
+     * is_expense, is_recurring, recurring_date, account_id and category_id; others are ignored. Row numbers count the
+     * header as row 1.
+     */
+    public void importCsv(Reader input, Consumer<ImportResult> results) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(input));
+        List<String> header = reader.next();
+        if(header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for(int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        List<String> fields;
+        while((fields = reader.next()) != null) {
+            if(fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            batch.add(fromCsv(reader.recordNumber(), columns, fields));
+            if(batch.size() == batchSize) {
+                importBatch(batch).forEach(results);
+                batch.clear();
+            }
+        }
+        importBatch(batch).forEach(results);
+    }
+
+    private static ImportRow fromCsv(long row, Map<String, Integer> columns, List<String> fields) {
+        try {
+            Transaction transaction = new Transaction();
+            transaction.setDescription(column(columns, fields, "description"));
+            String amount = column(columns, fields, "amount");
+            transaction.setAmount(amount == null ? null : new BigDecimal(amount));
+            String date = column(columns, fields, "transaction_date");
+            transaction.setTransactionDate(date == null ? null : Date.valueOf(date));
+            String isExpense = column(columns, fields, "is_expense");
+            transaction.setIsExpense(isExpense == null ? null : Boolean.valueOf(isExpense));
+            String isRecurring = column(columns, fields, "is_recurring");
+            transaction.setIsRecurring(isRecurring == null ? null : Boolean.valueOf(isRecurring));
+            String recurringDate = column(columns, fields, "recurring_date");
+            transaction.setRecurringDate(recurringDate == null ? null : Integer.valueOf(recurringDate));
+            String accountId = column(columns, fields, "account_id");
+            if(accountId != null) {
+                Account account = new Account();
+                account.setId(Long.valueOf(accountId));
+                transaction.setAccount(account);
+            }
+            String categoryId = column(columns, fields, "category_id");
+            if(categoryId != null) {
+                Category category = new Category();
+                category.setId(Long.valueOf(categoryId));
+                transaction.setCategory(category);
+            }
+            return ImportRow.of(row, transaction);
+        } catch (IllegalArgumentException e) {
+            return ImportRow.invalid(row, "Invalid value: " + e.getMessage());
+        }
+    }
+
+    private static String column(Map<String, Integer> columns, List<String> fields, String name) {
+        Integer index = columns.get(name);
+        if(index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Validates the rows, checks every referenced account and category exists with one query each, and inserts the
+     * valid rows in a single transaction. If that transaction fails, every row of the batch is reported as failed.
+     */
+    public List<ImportResult> importBatch(List<ImportRow> rows) {
+        if(rows.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> accountIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        for(ImportRow row : rows) {
+            if(row.transaction() != null) {
+                accountIds.add(accountId(row.transaction()));
+                categoryIds.add(categoryId(row.transaction()));
+            }
+        }
+        accountIds.remove(null);
+        categoryIds.remove(null);
+        Set<Long> knownAccounts = accountIds.isEmpty() ? Set.of()
+                : new HashSet<>(accountRepository.findExistingIds(accountIds));
+        Set<Long> knownCategories = categoryIds.isEmpty() ? Set.of()
+                : new HashSet<>(categoryRepository.findExistingIds(categoryIds));
+
+        ImportResult[] results = new ImportResult[rows.size()];
+        List<Transaction> valid = new ArrayList<>(rows.size());
+        List<Integer> validIndexes = new ArrayList<>(rows.size());
+        for(int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            String error = row.error() != null ? row.error() : validate(row.transaction(), knownAccounts,
+                    knownCategories);
+            if(error != null) {
+                results[i] = ImportResult.failed(row.row(), error);
+            } else {
+                valid.add(row.transaction());
+                validIndexes.add(i);
+            }
+        }
+        if(!valid.isEmpty()) {
+            try {
+                List<Transaction> saved = ledgerService.insertAll(valid);
+                for(int i = 0; i < saved.size(); i++) {
+                    int index = validIndexes.get(i);
+                    results[index] = ImportResult.saved(rows.get(index).row(), saved.get(i).getId());
+                }
+            } catch (DataAccessException e) {
+                String error = "Batch failed: " + e.getMostSpecificCause().getMessage();
+                for(int index : validIndexes) {
+                    results[index] = ImportResult.failed(rows.get(index).row(), error);
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    private String validate(Transaction transaction, Set<Long> knownAccounts, Set<Long> knownCategories) {
+        if(transaction.getId() != null) {
+            return "Transaction id must not be set";
+        } else if(transaction.getAmount() == null) {
+            return "Amount is required";
+        } else if(transaction.getTransactionDate() == null) {
+            return "Transaction date is required";
+        } else if(ledgerArchiveService.isArchived(transaction.getTransactionDate(), transaction.getIsRecurring())) {
+            return "Transactions dated before " + ledgerArchiveService.archivedBefore() + " are archived";
+        } else if(accountId(transaction) != null && !knownAccounts.contains(accountId(transaction))) {
+            return "Account " + accountId(transaction) + " does not exist";
+        } else if(categoryId(transaction) != null && !knownCategories.contains(categoryId(transaction))) {
+            return "Category " + categoryId(transaction) + " does not exist";
+        }
+        return null;
+    }
+
+    private static Long accountId(Transaction transaction) {
+        return transaction.getAccount() == null ? null : transaction.getAccount().getId();
+    }
+
+    private static Long categoryId(Transaction transaction) {
+        return transaction.getCategory() == null ? null : transaction.getCategory().getId();
+    }
+}
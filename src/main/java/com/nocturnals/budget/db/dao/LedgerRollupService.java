@@ -0,0 +1,201 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.LedgerRollupTotal;
+import com.nocturnals.budget.db.dto.LedgerSummary;
+import com.nocturnals.budget.db.entity.LedgerRollup;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.db.repository.LedgerRollupRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains {@link LedgerRollup} rows inside each ledger write transaction, so monthly reports read one row per
+ * account, category and month instead of every transaction. Undated rows are not rolled up.
+ */
+@Service
+public class LedgerRollupService implements LedgerWriteListener {
+    private static final String ADD = "update ledger_rollup set total = total + ?, entry_count = entry_count + ? "
+            + "where account_id = ? and category_id = ? and period = ? and is_expense = ?";
+    private static final String INSERT = "insert into ledger_rollup "
+            + "(total, entry_count, account_id, category_id, period, is_expense) values (?, ?, ?, ?, ?, ?)";
+
+    private final LedgerRollupRepository ledgerRollupRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerRollupService(LedgerRollupRepository ledgerRollupRepository, LedgerRepository ledgerRepository,
+                               LedgerArchiveRepository ledgerArchiveRepository,
+                               LedgerArchiveService ledgerArchiveService, JdbcTemplate jdbcTemplate) {
+        this.ledgerRollupRepository = ledgerRollupRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public enum Grouping {
+        PERIOD, ACCOUNT, CATEGORY
+    }
+
+    private record RollupKey(long accountId, long categoryId, int period, boolean expense)
+            implements Comparable<RollupKey> {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparingLong(RollupKey::accountId)
+                .thenComparingLong(RollupKey::categoryId)
+                .thenComparingInt(RollupKey::period)
+                .thenComparing(RollupKey::expense);
+
+        @Override
+        public int compareTo(RollupKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record SummaryKey(int period, long dimension) implements Comparable<SummaryKey> {
+        @Override
+        public int compareTo(SummaryKey other) {
+            int order = Integer.compare(period, other.period);
+            return order != 0 ? order : Long.compare(dimension, other.dimension);
+        }
+    }
+
+    private record Delta(BigDecimal total, long count) {
+        Delta plus(Delta other) {
+            return new Delta(total.add(other.total), count + other.count);
+        }
+    }
+
+    /**
+     * Applies one update per affected rollup, inserting it when the month has no row yet. Rollups are touched in key
+     * order so concurrent writers cannot deadlock, and a writer that loses the race to insert retries as an update.
+     */
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Map<RollupKey, Delta> deltas = new TreeMap<>();
+        for(LedgerChange change : changes) {
+            add(deltas, change.before(), true);
+            add(deltas, change.after(), false);
+        }
+        deltas.forEach((key, delta) -> {
+            if(delta.count() != 0 || delta.total().signum() != 0) {
+                apply(key, delta);
+            }
+        });
+    }
+
+    private static void add(Map<RollupKey, Delta> deltas, LedgerEntry entry, boolean reverse) {
+        if(entry == null || entry.transactionDate() == null || entry.amount() == null) {
+            return;
+        }
+        RollupKey key = new RollupKey(orNone(entry.accountId()), orNone(entry.categoryId()),
+                period(YearMonth.from(entry.transactionDate().toLocalDate())), entry.expense());
+        deltas.merge(key, reverse ? new Delta(entry.amount().negate(), -1) : new Delta(entry.amount(), 1),
+                Delta::plus);
+    }
+
+    private void apply(RollupKey key, Delta delta) {
+        Object[] args = {delta.total(), delta.count(), key.accountId(), key.categoryId(), key.period(), key.expense()};
+        if(jdbcTemplate.update(ADD, args) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT, args);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(ADD, args);
+        }
+    }
+
+    /**
+     * Recomputes every rollup from the ledger and its archive. Writes committed while the rebuild runs may be counted
+     * twice or not at all, so run it when the ledger is quiet.
+     */
+    @Transactional
+    public int rebuild() {
+        Date archivedBefore = ledgerArchiveService.archivedBefore();
+        List<LedgerRollupTotal> rows = new ArrayList<>();
+        if(archivedBefore == null) {
+            rows.addAll(ledgerRepository.sumByMonth());
+        } else {
+            rows.addAll(ledgerRepository.sumActiveByMonth(archivedBefore));
+            rows.addAll(ledgerArchiveRepository.sumByMonth(archivedBefore));
+        }
+        Map<RollupKey, Delta> totals = new TreeMap<>();
+        for(LedgerRollupTotal row : rows) {
+            RollupKey key = new RollupKey(orNone(row.accountId()), orNone(row.categoryId()),
+                    row.year() * 100 + row.month(), Boolean.TRUE.equals(row.isExpense()));
+            totals.merge(key, new Delta(row.total(), row.entryCount()), Delta::plus);
+        }
+        List<Object[]> batch = new ArrayList<>(totals.size());
+        totals.forEach((key, delta) -> batch.add(new Object[]{delta.total(), delta.count(), key.accountId(),
+                key.categoryId(), key.period(), key.expense()}));
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        return batch.size();
+    }
+
+    /**
+     * Totals income and expense per month between {@code from} and {@code to} inclusive, optionally restricted to an
+     * account and/or category and broken down by account or category. Id 0 stands for rows without one.
+     */
+    @Transactional(readOnly = true)
+    public List<LedgerSummary> summarize(Long accountId, Long categoryId, YearMonth from, YearMonth to,
+                                         Grouping grouping) {
+        int start = period(from);
+        int end = period(to);
+        List<LedgerRollup> rollups;
+        if(accountId != null && categoryId != null) {
+            rollups = ledgerRollupRepository.findByAccountIdAndCategoryIdAndPeriodBetween(accountId, categoryId,
+                    start, end);
+        } else if(accountId != null) {
+            rollups = ledgerRollupRepository.findByAccountIdAndPeriodBetween(accountId, start, end);
+        } else if(categoryId != null) {
+            rollups = ledgerRollupRepository.findByCategoryIdAndPeriodBetween(categoryId, start, end);
+        } else {
+            rollups = ledgerRollupRepository.findByPeriodBetween(start, end);
+        }
+
+        Map<SummaryKey, LedgerSummary> summaries = new TreeMap<>();
+        for(LedgerRollup rollup : rollups) {
+            if(rollup.getEntryCount() == 0) {
+                continue;
+            }
+            Long dimension = switch(grouping) {
+                case ACCOUNT -> rollup.getAccountId();
+                case CATEGORY -> rollup.getCategoryId();
+                case PERIOD -> null;
+            };
+            BigDecimal income = rollup.getIsExpense() ? BigDecimal.ZERO : rollup.getTotal();
+            BigDecimal expense = rollup.getIsExpense() ? rollup.getTotal() : BigDecimal.ZERO;
+            summaries.merge(new SummaryKey(rollup.getPeriod(), dimension == null ? 0 : dimension),
+                    new LedgerSummary(rollup.getPeriod(), grouping == Grouping.ACCOUNT ? dimension : null,
+                            grouping == Grouping.CATEGORY ? dimension : null, income, expense,
+                            income.subtract(expense), rollup.getEntryCount()),
+                    (a, b) -> new LedgerSummary(a.period(), a.accountId(), a.categoryId(), a.income().add(b.income()),
+                            a.expense().add(b.expense()), a.net().add(b.net()), a.count() + b.count()));
+        }
+        return new ArrayList<>(summaries.values());
+    }
+
+    private static long orNone(Long id) {
+        return id == null ? LedgerRollup.NONE : id;
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+}
@@ -1,148 +1,331 @@
 package com.nocturnals.budget.db.dao;
 
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.ArchivedTransaction;
+import com.nocturnals.budget.db.entity.Category;
 import com.nocturnals.budget.db.entity.Transaction;
 import com.nocturnals.budget.db.repository.LedgerRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.sql.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 @Service
 public class LedgerService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final LedgerRepository ledgerRepository;
+    private final EntityManager entityManager;
+    private final List<LedgerWriteListener> listeners;
+    private final DescriptionSearchService descriptionSearchService;
+    private final MeterRegistry meterRegistry;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final TransactionTemplate readTemplate;
 
-    public LedgerService(LedgerRepository ledgerRepository) {
+    public LedgerService(LedgerRepository ledgerRepository, EntityManager entityManager,
+                         List<LedgerWriteListener> listeners, DescriptionSearchService descriptionSearchService,
+                         MeterRegistry meterRegistry, LedgerArchiveService ledgerArchiveService,
+                         PlatformTransactionManager transactionManager) {
         this.ledgerRepository = ledgerRepository;
+        this.entityManager = entityManager;
+        this.listeners = listeners;
+        this.descriptionSearchService = descriptionSearchService;
+        this.meterRegistry = meterRegistry;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
     }
 
-    public Transaction save(Transaction transaction) {
-        return ledgerRepository.save(transaction);
+    /**
+     * How a query's description filter was answered: there was none, the index supplied the ids, or the database
+     * matched it as a substring.
+     */
+    private record RoutedFilter(LedgerFilter filter, String description) {
+    }
+
+    /**
+     * Time spent during a measured read on work that is not the read itself, such as writing streamed rows to the
+     * client, which is left out of the recorded duration.
+     */
+    private static final class Excluded {
+        private long nanos;
+
+        void run(Runnable work) {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
     }
 
-    public Transaction findById(Long id) {
-        return ledgerRepository.findById(id).orElse(null);
+    public static int pageSize(Integer requested) {
+        if(requested == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
     }
 
-    public List<Transaction> findTransactionsByDate(Date date) {
-        return ledgerRepository.findByTransactionDate(date);
+    /**
+     * Rows in archived periods cannot be changed, except that a recurring template from one can stop recurring, which
+     * moves it to the archive.
+     */
+    @Transactional
+    public Transaction save(Transaction transaction) {
+        Transaction existing = transaction.getId() == null ? null
+                : ledgerRepository.findById(transaction.getId()).orElse(null);
+        if(existing == null && transaction.getId() != null && ledgerArchiveService.exists(transaction.getId())) {
+            throw new IllegalArgumentException("Transaction " + transaction.getId() + " is archived");
+        }
+        ledgerArchiveService.checkWritable(existing, transaction);
+        LedgerEntry before = existing == null ? null : LedgerEntry.of(existing);
+        resolveReferences(transaction);
+        Transaction saved = ledgerRepository.save(transaction);
+        publish(List.of(new LedgerChange(before, LedgerEntry.of(saved))));
+        if(ledgerArchiveService.isArchived(saved.getTransactionDate(), saved.getIsRecurring())) {
+            ledgerRepository.flush();
+            ledgerArchiveService.archive(saved);
+        }
+        return saved;
     }
-    public List<Transaction> findTransactionsByDescription(String description) {
-        return ledgerRepository.findByDescriptionContainingIgnoreCase(description);
+
+    /**
+     * Inserts new transactions in one transaction. Sequence-generated ids let Hibernate group the inserts into JDBC
+     * batches, and listeners see the whole set at once. The persistence context is cleared afterwards so repeated
+     * batches in one request do not accumulate managed entities.
+     */
+    @Transactional
+    public List<Transaction> insertAll(List<Transaction> transactions) {
+        transactions.forEach(transaction -> ledgerArchiveService.checkWritable(null, transaction));
+        transactions.forEach(this::resolveReferences);
+        List<Transaction> saved = ledgerRepository.saveAll(transactions);
+        ledgerRepository.flush();
+        publish(saved.stream().map(transaction -> new LedgerChange(null, LedgerEntry.of(transaction))).toList());
+        entityManager.flush();
+        entityManager.clear();
+        return saved;
     }
 
-    public List<Transaction> findTransactionsByDateRange(Date startDate, Date endDate) {
-        return ledgerRepository.findByTransactionDateBetween(startDate, endDate);
+    /**
+     * Loads one transaction, from the archive if it is no longer in the ledger, with the expanded associations
+     * fetched by the same statement.
+     */
+    @Transactional(readOnly = true)
+    public TransactionView findById(Long id, Set<LedgerExpansion> expand) {
+        Transaction transaction = find(Transaction.class, id, expand);
+        if(transaction == null) {
+            ArchivedTransaction archived = find(ArchivedTransaction.class, id, expand);
+            transaction = archived == null ? null : archived.toTransaction();
+        }
+        return transaction == null ? null : TransactionView.of(transaction, expand);
     }
 
-    public List<Transaction> findAll() {
-        return ledgerRepository.findAll();
+    private <T> T find(Class<T> type, Long id, Set<LedgerExpansion> expand) {
+        EntityGraph<T> graph = entityManager.createEntityGraph(type);
+        expand.forEach(expansion -> graph.addAttributeNodes(expansion.attribute()));
+        return entityManager.find(type, id, Map.of("jakarta.persistence.fetchgraph", graph));
     }
 
+    @Transactional
     public void deleteById(Long id) {
-        ledgerRepository.deleteById(id);
+        Transaction transaction = ledgerRepository.findById(id).orElse(null);
+        if(transaction == null && ledgerArchiveService.exists(id)) {
+            throw new IllegalArgumentException("Transaction " + id + " is archived");
+        } else if(transaction == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        ledgerArchiveService.checkWritable(transaction, null);
+        ledgerRepository.delete(transaction);
+        publish(List.of(new LedgerChange(LedgerEntry.of(transaction), null)));
     }
 
-    public List<Transaction> findByDescription(String description, Date startDate, Date endDate) {
-        if(startDate != null) {
-            if(endDate != null) {
-                return ledgerRepository.findByDescriptionContainingIgnoreCaseAndTransactionDateBetween(description,
-                        startDate, endDate);
-            } else {
-                return ledgerRepository.findByDescriptionContainingIgnoreCaseAndTransactionDate(description, startDate);
-            }
-        } else {
-            return ledgerRepository.findByDescriptionContainingIgnoreCase(description);
+    @Transactional(readOnly = true)
+    public List<TransactionView> search(LedgerFilter filter, Set<LedgerExpansion> expand) {
+        return measured("search", filter, routed -> views(ledgerRepository.search(routed, expand), expand),
+                List::size);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LedgerAggregate> aggregate(LedgerFilter filter, Set<LedgerDimension> groupBy) {
+        return measured("aggregate", filter, routed -> ledgerRepository.aggregate(routed, groupBy), List::size);
+    }
+
+    @Transactional(readOnly = true)
+    public LedgerPage<TransactionView> findPage(LedgerFilter filter, LedgerCursor cursor, int pageSize,
+                                                Set<LedgerExpansion> expand) {
+        return measured("page", filter, routed -> page(routed, cursor, pageSize, expand), page -> page.items().size());
+    }
+
+    private LedgerPage<TransactionView> page(LedgerFilter filter, LedgerCursor cursor, int pageSize,
+                                             Set<LedgerExpansion> expand) {
+        List<Transaction> rows = ledgerRepository.search(filter, cursor, pageSize + 1, expand);
+        if(rows.size() <= pageSize) {
+            return new LedgerPage<>(views(rows, expand), null);
         }
+        List<Transaction> items = rows.subList(0, pageSize);
+        return new LedgerPage<>(views(items, expand), LedgerCursor.after(items.get(pageSize - 1)).encode());
     }
 
-    public List<Transaction> findByAccountAndCategory(Long accountId, Long categoryId, Date startDate, Date endDate) {
-        if(accountId != null) {
-            if (categoryId != null) {
-                if(startDate != null) {
-                    if(endDate != null) {
-                        return ledgerRepository.findByAccount_IdAndCategory_IdAndTransactionDateBetween(accountId,
-                                categoryId, startDate, endDate);
-                    } else {
-                        return ledgerRepository.findByAccount_IdAndCategory_IdAndTransactionDate(accountId, categoryId,
-                                startDate);
-                    }
-                } else {
-                    return ledgerRepository.findByAccount_IdAndCategory_Id(accountId, categoryId);
-                }
-            } else {
-                if(startDate != null) {
-                    if(endDate != null) {
-                        return ledgerRepository.findByAccount_IdAndTransactionDateBetween(accountId, startDate, endDate);
-                    } else {
-                        return ledgerRepository.findByAccount_IdAndTransactionDate(accountId, startDate);
-                    }
-                } else {
-                    return ledgerRepository.findByAccount_Id(accountId);
-                }
-            }
-        } else {
-            if(startDate != null) {
-                if(endDate != null) {
-                    return ledgerRepository.findByCategory_IdAndTransactionDateBetween(categoryId, startDate, endDate);
-                } else {
-                    return ledgerRepository.findByCategory_IdAndTransactionDate(categoryId, startDate);
+    private record Chunk(List<TransactionView> views, LedgerCursor last) {
+    }
+
+    /**
+     * Walks every matching row in keyset order, handing each chunk to the consumer. Each chunk is read in its own
+     * read-only transaction, so no connection is held while the consumer writes it out and the persistence context
+     * never holds more than one chunk. Rows committed during the walk are seen if they sort after the cursor. The
+     * recorded duration covers reading the chunks, not the time the consumer spends on them.
+     */
+    public void streamAll(LedgerFilter filter, int chunkSize, Set<LedgerExpansion> expand,
+                          Consumer<List<TransactionView>> consumer) {
+        measured("stream", filter, (resolved, excluded) -> {
+            int streamed = 0;
+            LedgerCursor cursor = null;
+            Chunk chunk;
+            do {
+                LedgerCursor after = cursor;
+                chunk = readTemplate.execute(status -> {
+                    List<Transaction> rows = ledgerRepository.search(resolved, after, chunkSize, expand);
+                    return new Chunk(views(rows, expand),
+                            rows.isEmpty() ? null : LedgerCursor.after(rows.get(rows.size() - 1)));
+                });
+                List<TransactionView> views = chunk.views();
+                if(views.isEmpty()) {
+                    break;
                 }
-            } else {
-                return ledgerRepository.findByCategory_Id(categoryId);
-            }
+                excluded.run(() -> consumer.accept(views));
+                streamed += views.size();
+                cursor = chunk.last();
+            } while(chunk.views().size() == chunkSize);
+            return streamed;
+        }, Integer::intValue);
+    }
+
+    private <T> T measured(String operation, LedgerFilter filter, Function<LedgerFilter, T> query,
+                           ToIntFunction<T> rows) {
+        return measured(operation, filter, (resolved, excluded) -> query.apply(resolved), rows);
+    }
+
+    /**
+     * Runs a read, recording its duration under {@code budget.ledger.query} whether it succeeds or fails, and the
+     * number of rows it returned under {@code budget.ledger.rows}. Both are tagged with the operation, how the filter
+     * was routed and whether the archive was read; the timer also carries the outcome and the exception's class.
+     */
+    private <T> T measured(String operation, LedgerFilter filter, BiFunction<LedgerFilter, Excluded, T> query,
+                           ToIntFunction<T> rows) {
+        long start = System.nanoTime();
+        Excluded excluded = new Excluded();
+        RoutedFilter routed = null;
+        LedgerFilter resolved = null;
+        String outcome = "success";
+        String exception = "none";
+        try {
+            routed = indexed(filter);
+            resolved = routed.filter().toBuilder()
+                    .archivedBefore(ledgerArchiveService.archivedBefore())
+                    .build();
+            T result = query.apply(resolved, excluded);
+            summary(operation, filter, routed, resolved).record(rows.applyAsInt(result));
+            return result;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder("budget.ledger.query")
+                    .tags(tags(filter, routed, resolved))
+                    .tags("operation", operation, "outcome", outcome, "exception", exception)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start - excluded.nanos, TimeUnit.NANOSECONDS);
         }
     }
 
-    public List<Transaction> findByDateRange(Date startDate, Date endDate) {
-        if(endDate != null) {
-            return ledgerRepository.findByTransactionDateBetween(startDate, endDate);
-        } else {
-            return ledgerRepository.findByTransactionDate(startDate);
+    private DistributionSummary summary(String operation, LedgerFilter filter, RoutedFilter routed,
+                                        LedgerFilter resolved) {
+        return DistributionSummary.builder("budget.ledger.rows")
+                .baseUnit("rows")
+                .tags(tags(filter, routed, resolved))
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static Tags tags(LedgerFilter filter, RoutedFilter routed, LedgerFilter resolved) {
+        String dates = filter.hasDateBounds() ? "bounded" : "open";
+        String archive = resolved == null ? "unknown" : resolved.archivedBefore() == null ? "none"
+                : resolved.readsArchive() ? "read" : "pruned";
+        return Tags.of("description", routed == null ? "unknown" : routed.description(), "dates", dates,
+                "archive", archive);
+    }
+
+    /**
+     * Narrows a description filter to the ids the description index matched. A word-based filter is replaced by
+     * them; a substring filter keeps its description so the database confirms each candidate. When the index cannot
+     * answer, the description is matched as a substring over the whole table instead.
+     */
+    private RoutedFilter indexed(LedgerFilter filter) {
+        if(filter.description() == null) {
+            return new RoutedFilter(filter, "none");
+        }
+        boolean substring = filter.matchesDescriptionAsSubstring();
+        List<Long> ids = descriptionSearchService.search(filter.description(),
+                substring ? DescriptionMatch.CONTAINS : filter.descriptionMatch());
+        if(ids == null) {
+            return new RoutedFilter(filter, "scan");
         }
+        LedgerFilter.LedgerFilterBuilder narrowed = filter.toBuilder().ids(ids);
+        if(!substring) {
+            narrowed.description(null).descriptionMatch(null);
+        }
+        return new RoutedFilter(narrowed.build(), "index");
     }
 
-    public List<Transaction> findByIsRecurringAndIsExpense(Boolean isRecurring, Boolean isExpense, Integer recurringDate) {
-        if(isRecurring != null) {
-            if(isExpense != null) {
-                if(recurringDate != null) {
-                    return ledgerRepository.findByIsExpenseAndRecurringDate(recurringDate, isExpense);
-                } else {
-                    return ledgerRepository.findByIsRecurringAndIsExpense(isRecurring, isExpense);
-                }
-            } else if (recurringDate != null) {
-                return ledgerRepository.findByRecurringDate(recurringDate);
-            } else {
-                return ledgerRepository.findByIsRecurring(isRecurring);
-            }
-        } else if(isExpense != null) {
-            if(recurringDate != null) {
-                return ledgerRepository.findByIsExpenseAndRecurringDate(recurringDate, isExpense);
-            } else {
-                return ledgerRepository.findByIsExpense(isExpense);
-            }
-        } else if(recurringDate != null) {
-            return ledgerRepository.findByRecurringDate(recurringDate);
+    private static List<TransactionView> views(List<Transaction> transactions, Set<LedgerExpansion> expand) {
+        return transactions.stream().map(transaction -> TransactionView.of(transaction, expand)).toList();
+    }
+
+    private void publish(List<LedgerChange> changes) {
+        for(LedgerWriteListener listener : listeners) {
+            listener.onLedgerChanges(changes);
         }
-        return null;
-    }
-
-    public List<Transaction> findByAmount(BigDecimal startingAmount, BigDecimal endingAmount, String amountComparison) {
-        if(startingAmount != null) {
-            if(endingAmount != null) {
-               return ledgerRepository.findByAmountBetween(startingAmount, endingAmount);
-            } else if (amountComparison != null) {
-                if(amountComparison.toLowerCase().contains("greater")) {
-                    return ledgerRepository.findByAmountGreaterThanOrEqual(startingAmount);
-                } else if (amountComparison.toLowerCase().contains("lesser")) {
-                    return ledgerRepository.findByAmountLessThanOrEqual(startingAmount);
-                } else if (amountComparison.toLowerCase().contains("equal")) {
-                    return ledgerRepository.findByAmount(startingAmount);
-                }
-            } else {
-                return ledgerRepository.findByAmount(startingAmount);
-            }
+    }
+
+    /**
+     * Replaces the id-only account and category sent by clients with managed references, so the foreign keys are
+     * written without loading either row.
+     */
+    private void resolveReferences(Transaction transaction) {
+        if(transaction.getAccount() != null && transaction.getAccount().getId() != null) {
+            transaction.setAccount(entityManager.getReference(Account.class, transaction.getAccount().getId()));
+        }
+        if(transaction.getCategory() != null && transaction.getCategory().getId() != null) {
+            transaction.setCategory(entityManager.getReference(Category.class, transaction.getCategory().getId()));
         }
-        return null;
     }
 }
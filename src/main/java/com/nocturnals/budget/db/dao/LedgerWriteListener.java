@@ -0,0 +1,14 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.LedgerChange;
+
+import java.util.List;
+
+/**
+ * Maintains state derived from the ledger. Invoked by {@link LedgerService} inside the write transaction, once per
+ * batch of changes, so implementations can aggregate before touching the database.
+ */
+public interface LedgerWriteListener {
+
+    void onLedgerChanges(List<LedgerChange> changes);
+}
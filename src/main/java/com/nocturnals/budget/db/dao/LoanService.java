@@ -0,0 +1,162 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.LoanProjection;
+import com.nocturnals.budget.db.dto.LoanReconciliation;
+import com.nocturnals.budget.db.dto.LoanReconciliation.Status;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.loan.AmortizationSchedule;
+import com.nocturnals.budget.loan.AmortizationSchedule.Installment;
+import com.nocturnals.budget.loan.AmortizationSchedule.Payoff;
+import com.nocturnals.budget.loan.Compounding;
+import com.nocturnals.budget.loan.LoanTerms;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Amortization schedules, repayment reconciliation and payoff projections for loan accounts. Schedules are cached by
+ * {@link LoanTerms}. Repayments are the credits on the loan account, read from the ledger and its archive.
+ */
+@Service
+public class LoanService {
+    public static final int MAX_BATCH = 1000;
+
+    private final AccountRepository accountRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final ReadThroughCache schedules;
+
+    public LoanService(AccountRepository accountRepository, LedgerRepository ledgerRepository,
+                       LedgerArchiveRepository ledgerArchiveRepository, LedgerArchiveService ledgerArchiveService,
+                       CacheManager cacheManager) {
+        this.accountRepository = accountRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.schedules = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.LOAN_SCHEDULES));
+    }
+
+    public AmortizationSchedule schedule(LoanTerms terms) {
+        return schedules.get(terms, () -> AmortizationSchedule.of(terms));
+    }
+
+    /**
+     * The account's schedule, or null if there is no such account. Fails if it is not a loan with complete terms.
+     */
+    @Transactional(readOnly = true)
+    public AmortizationSchedule schedule(Long accountId, Compounding compounding) {
+        Account account = accountRepository.findById(accountId).orElse(null);
+        return account == null ? null : schedule(LoanTerms.of(account, compounding));
+    }
+
+    /**
+     * Applies the repayments made up to {@code asOf} to the installments due by then, or returns null if there is no
+     * such account.
+     */
+    @Transactional(readOnly = true)
+    public LoanReconciliation reconcile(Long accountId, LocalDate asOf, Compounding compounding) {
+        AmortizationSchedule schedule = schedule(accountId, compounding);
+        if(schedule == null) {
+            return null;
+        }
+        BigDecimal paid = credits(List.of(accountId), asOf).getOrDefault(accountId, BigDecimal.ZERO);
+        BigDecimal unapplied = paid;
+        BigDecimal scheduled = BigDecimal.ZERO;
+        List<LoanReconciliation.Installment> installments = new ArrayList<>();
+        for(Installment installment : schedule.installments()) {
+            if(installment.dueDate().isAfter(asOf)) {
+                break;
+            }
+            BigDecimal applied = unapplied.min(installment.payment()).max(BigDecimal.ZERO);
+            unapplied = unapplied.subtract(applied);
+            scheduled = scheduled.add(installment.payment());
+            Status status = applied.compareTo(installment.payment()) == 0 ? Status.PAID
+                    : applied.signum() > 0 ? Status.PARTIAL : Status.MISSED;
+            installments.add(new LoanReconciliation.Installment(installment.number(), installment.dueDate(),
+                    installment.payment(), applied, status));
+        }
+        return new LoanReconciliation(accountId, asOf, scheduled, paid, scheduled.subtract(paid), installments);
+    }
+
+    /**
+     * Projects every loan account among {@code accountIds} with three queries whatever their number: one for the
+     * accounts and one each for their repayments in the ledger and the archive. Ids of missing accounts, accounts
+     * that are not loans and loans with incomplete terms are left out of the result.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanProjection> project(Collection<Long> accountIds, LocalDate asOf, Compounding compounding) {
+        if(accountIds.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH + " loans can be projected at once");
+        }
+        Map<Long, LoanTerms> loans = new HashMap<>();
+        for(Account account : accountRepository.findAllById(accountIds)) {
+            try {
+                loans.put(account.getId(), LoanTerms.of(account, compounding));
+            } catch (IllegalArgumentException e) {
+                // not a loan, or one whose terms are incomplete
+            }
+        }
+        Map<Long, BigDecimal> credits = loans.isEmpty() ? Map.of() : credits(loans.keySet(), asOf);
+        List<LoanProjection> projections = new ArrayList<>(loans.size());
+        for(Long accountId : accountIds) {
+            LoanTerms terms = loans.remove(accountId);
+            if(terms != null) {
+                projections.add(project(accountId, schedule(terms), credits.getOrDefault(accountId, BigDecimal.ZERO),
+                        asOf));
+            }
+        }
+        return projections;
+    }
+
+    private static LoanProjection project(Long accountId, AmortizationSchedule schedule, BigDecimal paid,
+                                          LocalDate asOf) {
+        BigDecimal scheduled = BigDecimal.ZERO;
+        BigDecimal scheduledInterest = BigDecimal.ZERO;
+        int due = 0;
+        for(Installment installment : schedule.installments()) {
+            if(installment.dueDate().isAfter(asOf)) {
+                scheduledInterest = scheduledInterest.add(installment.interest());
+            } else {
+                scheduled = scheduled.add(installment.payment());
+                due = installment.number();
+            }
+        }
+        BigDecimal outstanding = schedule.balanceOn(asOf).add(scheduled).subtract(paid).max(BigDecimal.ZERO);
+        Payoff payoff = schedule.payoff(outstanding, due);
+        List<Installment> installments = schedule.installments();
+        return new LoanProjection(accountId, asOf, schedule.payment(), paid, outstanding, payoff.date(),
+                payoff.interest(), installments.get(installments.size() - 1).dueDate(), scheduledInterest);
+    }
+
+    private Map<Long, BigDecimal> credits(Collection<Long> accountIds, LocalDate asOf) {
+        Date until = Date.valueOf(asOf);
+        Date archivedBefore = ledgerArchiveService.archivedBefore();
+        List<AccountBalance> sums = new ArrayList<>();
+        if(archivedBefore == null) {
+            sums.addAll(ledgerRepository.sumCreditsByAccount(accountIds, until));
+        } else {
+            sums.addAll(ledgerRepository.sumActiveCreditsByAccount(accountIds, until, archivedBefore));
+            sums.addAll(ledgerArchiveRepository.sumCreditsByAccount(accountIds, until, archivedBefore));
+        }
+        Map<Long, BigDecimal> credits = new HashMap<>();
+        sums.stream()
+                .filter(sum -> sum.balance() != null)
+                .forEach(sum -> credits.merge(sum.accountId(), sum.balance(), BigDecimal::add));
+        return credits;
+    }
+}
@@ -0,0 +1,80 @@
+package com.nocturnals.budget.db.dao;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through view of a Spring cache. Misses are loaded without holding any lock, so a load waiting on JDBC never
+ * pins a virtual thread to its carrier. Every eviction bumps a generation counter, and a load that overlapped one is
+ * dropped again after it is stored, so a reader cannot re-cache a row that a commit has just changed. Evictions
+ * requested inside a transaction apply once it commits. That ordering is handled here, so a transaction-aware cache
+ * is unwrapped: deferring the put as well would defeat the generation check. Values can be passed through a copy
+ * function on the way in and on the way out, so that mutable entities are never shared between callers.
+ */
+public class ReadThroughCache {
+    private final Cache cache;
+    private final UnaryOperator<Object> copy;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReadThroughCache(Cache cache) {
+        this(cache, UnaryOperator.identity());
+    }
+
+    /**
+     * The cache keeps {@code copy} of each loaded value and every hit returns a fresh {@code copy} of what it keeps,
+     * so neither the session that loaded a value nor a caller changing what it was given can alter what the next
+     * caller reads. {@code copy} must accept {@code null}.
+     */
+    public ReadThroughCache(Cache cache, UnaryOperator<Object> copy) {
+        this.cache = cache instanceof TransactionAwareCacheDecorator decorator ? decorator.getTargetCache() : cache;
+        this.copy = copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Supplier<T> loader) {
+        Cache.ValueWrapper cached = cache.get(key);
+        if(cached != null) {
+            return (T) copy.apply(cached.get());
+        }
+        long seen = generation.get();
+        T value = loader.get();
+        cache.put(key, copy.apply(value));
+        if(generation.get() != seen) {
+            cache.evict(key);
+        }
+        return value;
+    }
+
+    public void evict(Object key) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.evict(key);
+        });
+    }
+
+    public void clear() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.db.repository.RecurringOccurrenceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Posts recurring transactions. A ledger row with {@code isRecurring} set is a template that repeats on day
+ * {@code recurringDate} of every month after its own transaction date; days past the end of a short month fall on
+ * its last day. Each occurrence becomes an ordinary ledger row, recorded in {@code recurring_occurrence} so it is
+ * never posted twice.
+ */
+@Service
+public class RecurringTransactionService {
+    public static final String JOB = "recurring-transactions";
+
+    private static final String INSERT_OCCURRENCE = "insert into recurring_occurrence "
+            + "(template_id, occurrence_date, ledger_id) values (?, ?, ?)";
+
+    private final LedgerRepository ledgerRepository;
+    private final RecurringOccurrenceRepository recurringOccurrenceRepository;
+    private final LedgerService ledgerService;
+    private final JobLeaseService jobLeaseService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration leaseDuration;
+    private final int maxCatchUpDays;
+    private final int batchSize;
+
+    public RecurringTransactionService(LedgerRepository ledgerRepository,
+                                       RecurringOccurrenceRepository recurringOccurrenceRepository,
+                                       LedgerService ledgerService, JobLeaseService jobLeaseService,
+                                       JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       @Value("${budget.recurring.lease:PT5M}") Duration leaseDuration,
+                                       @Value("${budget.recurring.max-catch-up-days:31}") int maxCatchUpDays,
+                                       @Value("${budget.recurring.batch-size:1000}") int batchSize) {
+        this.ledgerRepository = ledgerRepository;
+        this.recurringOccurrenceRepository = recurringOccurrenceRepository;
+        this.ledgerService = ledgerService;
+        this.jobLeaseService = jobLeaseService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseDuration = leaseDuration;
+        this.maxCatchUpDays = maxCatchUpDays;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param from first day posted, or null if there was nothing to do
+     */
+    public record RecurringRun(LocalDate from, LocalDate to, int posted) {
+    }
+
+    /**
+     * Posts every day from the one after the last completed run up to {@code today}, at most
+     * {@code budget.recurring.max-catch-up-days} back, one transaction per day. Returns null without doing anything
+     * while another node holds the lease.
+     */
+    public RecurringRun run(LocalDate today) {
+        if(!jobLeaseService.tryAcquire(JOB, leaseDuration)) {
+            return null;
+        }
+        try {
+            Date lastCompleted = jobLeaseService.lastCompleted(JOB);
+            LocalDate from = lastCompleted == null ? today : lastCompleted.toLocalDate().plusDays(1);
+            LocalDate earliest = today.minusDays(maxCatchUpDays - 1L);
+            if(from.isBefore(earliest)) {
+                from = earliest;
+            }
+            if(from.isAfter(today)) {
+                return new RecurringRun(null, today, 0);
+            }
+            int posted = 0;
+            for(LocalDate day = from; !day.isAfter(today); day = day.plusDays(1)) {
+                if(!jobLeaseService.tryAcquire(JOB, leaseDuration)) {
+                    throw new IllegalStateException("Lost the " + JOB + " lease before " + day);
+                }
+                LocalDate due = day;
+                posted += transactionTemplate.execute(status -> post(due));
+            }
+            return new RecurringRun(from, today, posted);
+        } finally {
+            jobLeaseService.release(JOB);
+        }
+    }
+
+    /**
+     * Posts the templates due on {@code day} that have not been posted for it yet, in batches of JDBC inserts, and
+     * marks the day completed. Must run inside a transaction.
+     */
+    int post(LocalDate day) {
+        Date date = Date.valueOf(day);
+        List<Transaction> templates = ledgerRepository.findRecurringTemplates(daysDue(day), date);
+        int posted = 0;
+        for(int start = 0; start < templates.size(); start += batchSize) {
+            List<Transaction> batch = templates.subList(start, Math.min(templates.size(), start + batchSize));
+            Set<Long> done = new HashSet<>(recurringOccurrenceRepository.findPostedTemplateIds(date,
+                    batch.stream().map(Transaction::getId).toList()));
+            List<Long> templateIds = new ArrayList<>();
+            List<Transaction> occurrences = new ArrayList<>();
+            for(Transaction template : batch) {
+                if(!done.contains(template.getId())) {
+                    templateIds.add(template.getId());
+                    occurrences.add(occurrence(template, date));
+                }
+            }
+            if(occurrences.isEmpty()) {
+                continue;
+            }
+            List<Transaction> saved = ledgerService.insertAll(occurrences);
+            List<Object[]> rows = new ArrayList<>(saved.size());
+            for(int i = 0; i < saved.size(); i++) {
+                rows.add(new Object[]{templateIds.get(i), date, saved.get(i).getId()});
+            }
+            jdbcTemplate.batchUpdate(INSERT_OCCURRENCE, rows);
+            posted += saved.size();
+        }
+        if(!jobLeaseService.complete(JOB, date)) {
+            throw new IllegalStateException("Lost the " + JOB + " lease while posting " + day);
+        }
+        return posted;
+    }
+
+    /**
+     * Day-of-month values due on {@code day}: its own, plus every later one on the last day of the month.
+     */
+    static List<Integer> daysDue(LocalDate day) {
+        int last = day.lengthOfMonth() == day.getDayOfMonth() ? 31 : day.getDayOfMonth();
+        return IntStream.rangeClosed(day.getDayOfMonth(), last).boxed().toList();
+    }
+
+    private static Transaction occurrence(Transaction template, Date date) {
+        Transaction occurrence = new Transaction();
+        occurrence.setDescription(template.getDescription());
+        occurrence.setAmount(template.getAmount());
+        occurrence.setIsExpense(template.getIsExpense());
+        occurrence.setIsRecurring(false);
+        occurrence.setTransactionDate(date);
+        occurrence.setAccount(template.getAccount());
+        occurrence.setCategory(template.getCategory());
+        return occurrence;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.AccountType;
+import com.nocturnals.budget.db.entity.Bank;
+import com.nocturnals.budget.db.entity.Category;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * The account and category caches, shared by the services that read them and the ledger listeners that change the
+ * cached balances and budgets. Accounts and categories are cached as detached copies and handed out as fresh copies,
+ * without their ledger collections, so a managed entity is never shared between sessions or callers.
+ */
+@Component
+public class ReferenceCaches {
+    private final ReadThroughCache accounts;
+    private final ReadThroughCache accountIds;
+    private final ReadThroughCache categories;
+    private final ReadThroughCache categoryIds;
+
+    public ReferenceCaches(CacheManager cacheManager) {
+        this.accounts = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.ACCOUNTS),
+                account -> copy((Account) account));
+        this.accountIds = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.ACCOUNT_IDS));
+        this.categories = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.CATEGORIES),
+                category -> copy((Category) category));
+        this.categoryIds = new ReadThroughCache(cacheManager.getCache(CacheConfiguration.CATEGORY_IDS));
+    }
+
+    public ReadThroughCache accounts() {
+        return accounts;
+    }
+
+    public ReadThroughCache accountIds() {
+        return accountIds;
+    }
+
+    public ReadThroughCache categories() {
+        return categories;
+    }
+
+    public ReadThroughCache categoryIds() {
+        return categoryIds;
+    }
+
+    static Account copy(Account account) {
+        if(account == null) {
+            return null;
+        }
+        Account copy = new Account();
+        copy.setId(account.getId());
+        copy.setName(account.getName());
+        copy.setBalance(account.getBalance());
+        copy.setOpeningBalance(account.getOpeningBalance());
+        copy.setIsLoanAccount(account.getIsLoanAccount());
+        copy.setTotalAmount(account.getTotalAmount());
+        copy.setInterestRate(account.getInterestRate());
+        copy.setStartDate(copy(account.getStartDate()));
+        copy.setEndDate(copy(account.getEndDate()));
+        copy.setBank(copy(account.getBank()));
+        copy.setAccountType(copy(account.getAccountType()));
+        copy.setCreatedAt(copy(account.getCreatedAt()));
+        copy.setUpdatedAt(copy(account.getUpdatedAt()));
+        copy.setVersion(account.getVersion());
+        return copy;
+    }
+
+    static Category copy(Category category) {
+        if(category == null) {
+            return null;
+        }
+        Category copy = new Category();
+        copy.setId(category.getId());
+        copy.setName(category.getName());
+        copy.setBudget(category.getBudget());
+        copy.setRemainingBudget(category.getRemainingBudget());
+        copy.setIsRollingBudget(category.getIsRollingBudget());
+        copy.setBudgetPeriod(category.getBudgetPeriod());
+        copy.setCreatedAt(copy(category.getCreatedAt()));
+        copy.setUpdatedAt(copy(category.getUpdatedAt()));
+        return copy;
+    }
+
+    private static Bank copy(Bank bank) {
+        if(bank == null) {
+            return null;
+        }
+        Bank copy = new Bank();
+        copy.setId(bank.getId());
+        copy.setName(bank.getName());
+        copy.setCreatedAt(copy(bank.getCreatedAt()));
+        copy.setUpdatedAt(copy(bank.getUpdatedAt()));
+        return copy;
+    }
+
+    private static AccountType copy(AccountType accountType) {
+        if(accountType == null) {
+            return null;
+        }
+        AccountType copy = new AccountType();
+        copy.setId(accountType.getId());
+        copy.setType(accountType.getType());
+        copy.setCreatedAt(copy(accountType.getCreatedAt()));
+        copy.setUpdatedAt(copy(accountType.getUpdatedAt()));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Date> T copy(T date) {
+        return date == null ? null : (T) date.clone();
+    }
+}
@@ -0,0 +1,177 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dao.LedgerImportService.ImportRow;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.LedgerFingerprint;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.ingest.MappedFileReader;
+import com.nocturnals.budget.ingest.StatementFormat;
+import com.nocturnals.budget.ingest.StatementLine;
+import com.nocturnals.budget.ingest.StatementOptions;
+import com.nocturnals.budget.ingest.StatementParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Imports bank statements. The file is parsed through a memory-mapped window and committed batch by batch through
+ * {@link LedgerImportService#importBatch}, so memory use does not grow with the file. Entries matching a ledger row
+ * that existed before the import started are reported as duplicates instead of inserted; identical entries are
+ * matched one to one, so a statement listing the same purchase twice keeps both unless the ledger has both already.
+ */
+@Service
+public class StatementImportService {
+    private final LedgerImportService ledgerImportService;
+    private final LedgerRepository ledgerRepository;
+    private final AccountService accountService;
+    private final int batchSize;
+
+    public StatementImportService(LedgerImportService ledgerImportService, LedgerRepository ledgerRepository,
+                                  AccountService accountService,
+                                  @Value("${budget.import.batch-size:500}") int batchSize) {
+        this.ledgerImportService = ledgerImportService;
+        this.ledgerRepository = ledgerRepository;
+        this.accountService = accountService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Spools the upload to a temporary file before importing it, so nothing is committed for an upload that is cut
+     * off half way.
+     */
+    public void importStream(InputStream input, StatementFormat format, StatementOptions options,
+                             Consumer<ImportResult> results) throws IOException {
+        Path file = Files.createTempFile("statement-", "." + format.name().toLowerCase());
+        try {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            importFile(file, format, options, results);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    public void importFile(Path file, StatementFormat format, StatementOptions options,
+                           Consumer<ImportResult> results) throws IOException {
+        Timestamp started = Timestamp.from(Instant.now());
+        Set<Long> matched = new HashSet<>();
+        try(MappedFileReader reader = new MappedFileReader(file, options.charset())) {
+            StatementParser parser = format.open(new BufferedReader(reader), options);
+            List<StatementLine> batch = new ArrayList<>(batchSize);
+            StatementLine line;
+            while((line = parser.next()) != null) {
+                batch.add(line);
+                if(batch.size() == batchSize) {
+                    importBatch(batch, started, matched).forEach(results);
+                    batch.clear();
+                }
+            }
+            importBatch(batch, started, matched).forEach(results);
+        }
+    }
+
+    /**
+     * @param matched ids of existing rows already claimed as duplicates by earlier batches of the same file, so an
+     *                entry in a later batch cannot claim one again
+     */
+    private List<ImportResult> importBatch(List<StatementLine> lines, Timestamp started, Set<Long> matched) {
+        if(lines.isEmpty()) {
+            return List.of();
+        }
+        ImportResult[] results = new ImportResult[lines.size()];
+        Transaction[] transactions = new Transaction[lines.size()];
+        Set<Long> accountIds = new HashSet<>();
+        LocalDate start = null;
+        LocalDate end = null;
+        for(int i = 0; i < lines.size(); i++) {
+            StatementLine line = lines.get(i);
+            if(line.error() != null) {
+                results[i] = ImportResult.failed(line.row(), line.error());
+                continue;
+            } else if(line.account() == null) {
+                results[i] = ImportResult.failed(line.row(), "Account is required");
+                continue;
+            }
+            Long accountId = accountService.findIdByName(line.account());
+            if(accountId == null) {
+                results[i] = ImportResult.failed(line.row(), "Account " + line.account() + " does not exist");
+                continue;
+            }
+            transactions[i] = toTransaction(line, accountId);
+            accountIds.add(accountId);
+            start = start == null || line.date().isBefore(start) ? line.date() : start;
+            end = end == null || line.date().isAfter(end) ? line.date() : end;
+        }
+        if(accountIds.isEmpty()) {
+            return List.of(results);
+        }
+
+        Map<LedgerFingerprint, Deque<Long>> existing = new HashMap<>();
+        for(LedgerEntry entry : ledgerRepository.findEntries(accountIds, Date.valueOf(start), Date.valueOf(end),
+                started)) {
+            if(matched.contains(entry.id())) {
+                continue;
+            }
+            existing.computeIfAbsent(LedgerFingerprint.of(entry), key -> new ArrayDeque<>()).add(entry.id());
+        }
+        List<ImportRow> rows = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for(int i = 0; i < transactions.length; i++) {
+            if(transactions[i] == null) {
+                continue;
+            }
+            Deque<Long> matches = existing.get(LedgerFingerprint.of(LedgerEntry.of(transactions[i])));
+            if(matches != null && !matches.isEmpty()) {
+                Long duplicateOf = matches.poll();
+                matched.add(duplicateOf);
+                results[i] = ImportResult.duplicate(lines.get(i).row(), duplicateOf);
+            } else {
+                rows.add(ImportRow.of(lines.get(i).row(), transactions[i]));
+                indexes.add(i);
+            }
+        }
+        List<ImportResult> imported = ledgerImportService.importBatch(rows);
+        for(int i = 0; i < imported.size(); i++) {
+            results[indexes.get(i)] = imported.get(i);
+        }
+        return List.of(results);
+    }
+
+    private static Transaction toTransaction(StatementLine line, Long accountId) {
+        Account account = new Account();
+        account.setId(accountId);
+        Transaction transaction = new Transaction();
+        transaction.setAccount(account);
+        transaction.setDescription(line.description());
+        transaction.setTransactionDate(Date.valueOf(line.date()));
+        transaction.setAmount(line.amount().abs());
+        transaction.setIsExpense(line.amount().signum() < 0);
+        transaction.setIsRecurring(false);
+        return transaction;
+    }
+}
@@ -0,0 +1,222 @@
+package com.nocturnals.budget.db.dao;
+
+import com.nocturnals.budget.db.dto.LedgerChange;
+import com.nocturnals.budget.db.dto.SyncPage;
+import com.nocturnals.budget.db.dto.SyncResource;
+import com.nocturnals.budget.db.dto.SyncWatermark;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.ArchivedTransaction;
+import com.nocturnals.budget.db.entity.SyncTombstone;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import com.nocturnals.budget.db.repository.AccountTypeRepository;
+import com.nocturnals.budget.db.repository.BankRepository;
+import com.nocturnals.budget.db.repository.CategoryRepository;
+import com.nocturnals.budget.db.repository.LedgerArchiveRepository;
+import com.nocturnals.budget.db.repository.LedgerRepository;
+import com.nocturnals.budget.db.repository.SyncTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Incremental sync over {@code updated_at}. Each resource is read in (updated_at, id) order from a client's
+ * watermark, and deletions come from tombstones written in the deleting transaction, read in (deleted_at, id) order.
+ * <p>
+ * A row is stamped when it is flushed, not when it commits, so a slow transaction can commit a stamp older than rows
+ * already handed out. Pages therefore stop at {@code budget.sync.settle} before now, which has to cover the longest
+ * write transaction plus the replicas' lag, since these reads may be served by a replica.
+ */
+@Service
+public class SyncService implements LedgerWriteListener {
+    public static final int MAX_PAGE = 1000;
+
+    private static final String INSERT = "insert into sync_tombstone (resource, resource_id, deleted_at) "
+            + "values (?, ?, ?)";
+    private static final Comparator<Changed> ORDER = Comparator.comparing(Changed::updatedAt)
+            .thenComparingLong(Changed::id);
+
+    private final AccountRepository accountRepository;
+    private final CategoryRepository categoryRepository;
+    private final BankRepository bankRepository;
+    private final AccountTypeRepository accountTypeRepository;
+    private final LedgerRepository ledgerRepository;
+    private final LedgerArchiveRepository ledgerArchiveRepository;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final Duration settle;
+    private final Duration retention;
+
+    public SyncService(AccountRepository accountRepository, CategoryRepository categoryRepository,
+                       BankRepository bankRepository, AccountTypeRepository accountTypeRepository,
+                       LedgerRepository ledgerRepository, LedgerArchiveRepository ledgerArchiveRepository,
+                       LedgerArchiveService ledgerArchiveService, SyncTombstoneRepository syncTombstoneRepository,
+                       JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${budget.sync.settle:PT15S}") Duration settle,
+                       @Value("${budget.sync.tombstone-retention:P90D}") Duration retention) {
+        this.accountRepository = accountRepository;
+        this.categoryRepository = categoryRepository;
+        this.bankRepository = bankRepository;
+        this.accountTypeRepository = accountTypeRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerArchiveRepository = ledgerArchiveRepository;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.syncTombstoneRepository = syncTombstoneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.settle = settle;
+        this.retention = retention;
+    }
+
+    private record Changed(Timestamp updatedAt, long id, Object item) {
+    }
+
+    @Override
+    public void onLedgerChanges(List<LedgerChange> changes) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>();
+        for(LedgerChange change : changes) {
+            if(change.after() == null) {
+                rows.add(new Object[]{SyncResource.TRANSACTION.path(), change.before().id(), now});
+            }
+        }
+        write(rows);
+    }
+
+    /**
+     * Records a deletion. Must be called inside the deleting transaction, so the tombstone exists exactly when the
+     * row is gone.
+     */
+    public void tombstone(SyncResource resource, Long id) {
+        write(Collections.singletonList(new Object[]{resource.path(), id, Timestamp.from(Instant.now())}));
+    }
+
+    private void write(List<Object[]> rows) {
+        if(rows.isEmpty()) {
+            return;
+        }
+        if(!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Tombstones must be written in the transaction deleting the row");
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    /**
+     * Up to {@code limit} rows changed and up to {@code limit} ids deleted after {@code since}. Without a watermark
+     * every row is returned, and the deletions start from now. Once every deletion up to the horizon has been sent,
+     * the deletion position moves to the horizon, so a client that sees no deletions keeps a watermark that is
+     * retained.
+     */
+    public SyncPage changes(SyncResource resource, SyncWatermark since, int limit) {
+        if(limit < 1 || limit > MAX_PAGE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE);
+        }
+        Timestamp until = Timestamp.from(Instant.now().minus(settle));
+        SyncWatermark from = since == null ? SyncWatermark.initial(until) : since;
+        Pageable page = PageRequest.of(0, limit);
+        return readTemplate.execute(status -> {
+            List<Changed> changed = changed(resource, from, until, page);
+            List<SyncTombstone> deleted = syncTombstoneRepository.findDeletedAfter(resource.path(),
+                    from.deletedAt(), from.deletedId(), until, page);
+            Changed lastChanged = changed.isEmpty() ? null : changed.get(changed.size() - 1);
+            boolean moreDeleted = deleted.size() == limit;
+            Timestamp deletedAt = from.deletedAt();
+            long deletedId = from.deletedId();
+            if(moreDeleted) {
+                SyncTombstone last = deleted.get(deleted.size() - 1);
+                deletedAt = last.getDeletedAt();
+                deletedId = last.getId();
+            } else if(!deletedAt.after(until)) {
+                deletedAt = until;
+                deletedId = Long.MAX_VALUE;
+            }
+            SyncWatermark next = new SyncWatermark(
+                    lastChanged == null ? from.changedAt() : lastChanged.updatedAt(),
+                    lastChanged == null ? from.changedId() : lastChanged.id(), deletedAt, deletedId);
+            return new SyncPage(changed.stream().map(Changed::item).toList(),
+                    deleted.stream().map(SyncTombstone::getResourceId).toList(), next.encode(),
+                    changed.size() == limit || moreDeleted);
+        });
+    }
+
+    private List<Changed> changed(SyncResource resource, SyncWatermark from, Timestamp until, Pageable page) {
+        Timestamp after = from.changedAt();
+        long afterId = from.changedId();
+        return switch(resource) {
+            case ACCOUNT -> accountRepository.findChangedAfter(after, afterId, until, page).stream()
+                    .map(account -> changed(account.getUpdatedAt(), account.getId(), account)).toList();
+            case CATEGORY -> categoryRepository.findChangedAfter(after, afterId, until, page).stream()
+                    .map(category -> changed(category.getUpdatedAt(), category.getId(), category)).toList();
+            case BANK -> bankRepository.findChangedAfter(after, afterId, until, page).stream()
+                    .map(bank -> changed(bank.getUpdatedAt(), bank.getId(), bank)).toList();
+            case ACCOUNT_TYPE -> accountTypeRepository.findChangedAfter(after, afterId, until, page).stream()
+                    .map(type -> changed(type.getUpdatedAt(), type.getId(), type)).toList();
+            case TRANSACTION -> transactions(after, afterId, until, page);
+        };
+    }
+
+    private static Changed changed(Timestamp updatedAt, Long id, Object item) {
+        return new Changed(updatedAt, id, item);
+    }
+
+    /**
+     * Ledger rows, and archived ones once there is an archive. A month being archived is in both tables with the
+     * same stamp for a while, so the two are merged and each id is kept once.
+     */
+    private List<Changed> transactions(Timestamp after, long afterId, Timestamp until, Pageable page) {
+        List<Changed> rows = new ArrayList<>();
+        for(Transaction transaction : ledgerRepository.findChangedAfter(after, afterId, until, page)) {
+            rows.add(changed(transaction.getUpdatedAt(), transaction.getId(), TransactionView.of(transaction)));
+        }
+        if(ledgerArchiveService.archivedBefore() == null) {
+            return rows;
+        }
+        for(ArchivedTransaction archived : ledgerArchiveRepository.findChangedAfter(after, afterId, until, page)) {
+            rows.add(changed(archived.getUpdatedAt(), archived.getId(), TransactionView.of(archived.toTransaction())));
+        }
+        rows.sort(ORDER);
+        List<Changed> merged = new ArrayList<>(page.getPageSize());
+        for(Changed row : rows) {
+            if(merged.size() == page.getPageSize()) {
+                break;
+            }
+            if(merged.isEmpty() || merged.get(merged.size() - 1).id() != row.id()) {
+                merged.add(row);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Whether every deletion after {@code since} is still kept. If not, the client has to sync from scratch.
+     */
+    public boolean isRetained(SyncWatermark since) {
+        return since == null || !since.deletedAt().before(Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    /**
+     * Deletes tombstones older than {@code budget.sync.tombstone-retention}.
+     */
+    public int purge() {
+        return writeTemplate.execute(status ->
+                syncTombstoneRepository.deleteBefore(Timestamp.from(Instant.now().minus(retention))));
+    }
+}
@@ -0,0 +1,6 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+
+public record AccountBalance(Long accountId, BigDecimal balance) {
+}
@@ -0,0 +1,10 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * An account's balance at the end of {@code date}.
+ */
+public record AccountBalancePoint(Date date, BigDecimal balance) {
+}
@@ -0,0 +1,12 @@
+package com.nocturnals.budget.db.dto;
+
+import com.nocturnals.budget.db.entity.Account;
+
+import java.math.BigDecimal;
+
+public record AccountView(Long id, String name, BigDecimal balance, Boolean isLoanAccount) {
+
+    public static AccountView of(Account account) {
+        return new AccountView(account.getId(), account.getName(), account.getBalance(), account.getIsLoanAccount());
+    }
+}
@@ -0,0 +1,25 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Month-end balances projected from {@code asOf}, per account and in total, under each requested scenario.
+ */
+public record CashFlowForecast(LocalDate asOf, int months, int paths, List<Scenario> scenarios) {
+
+    public record Scenario(String name, List<Point> total, List<AccountForecast> accounts) {
+    }
+
+    public record AccountForecast(Long accountId, List<Point> points) {
+    }
+
+    /**
+     * @param scheduled balance if only the recurring templates posted
+     * @param expected  mean over the simulated paths
+     */
+    public record Point(LocalDate date, BigDecimal scheduled, BigDecimal expected, BigDecimal p10, BigDecimal p50,
+                        BigDecimal p90) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+
+public record CategoryBudget(Long categoryId, BigDecimal budget, BigDecimal remainingBudget, Integer budgetPeriod) {
+}
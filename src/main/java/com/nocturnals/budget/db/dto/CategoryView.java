@@ -0,0 +1,14 @@
+package com.nocturnals.budget.db.dto;
+
+import com.nocturnals.budget.db.entity.Category;
+
+import java.math.BigDecimal;
+
+public record CategoryView(Long id, String name, BigDecimal budget, BigDecimal remainingBudget,
+                           Boolean isRollingBudget) {
+
+    public static CategoryView of(Category category) {
+        return new CategoryView(category.getId(), category.getName(), category.getBudget(),
+                category.getRemainingBudget(), category.getIsRollingBudget());
+    }
+}
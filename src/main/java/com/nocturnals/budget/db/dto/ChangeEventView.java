@@ -0,0 +1,12 @@
+package com.nocturnals.budget.db.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.sql.Timestamp;
+
+/**
+ * A published change. The payload is the changed row as JSON, or null for a deletion.
+ */
+public record ChangeEventView(Long sequence, String resource, Long resourceId, String operation,
+                              @JsonRawValue String payload, Timestamp createdAt) {
+}
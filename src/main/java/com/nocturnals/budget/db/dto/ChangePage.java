@@ -0,0 +1,10 @@
+package com.nocturnals.budget.db.dto;
+
+import java.util.List;
+
+/**
+ * @param checkpoint position to ask for changes after next time: the last event's, or the one asked for when
+ *                   there were none
+ */
+public record ChangePage(List<ChangeEventView> events, long checkpoint) {
+}
@@ -0,0 +1,25 @@
+package com.nocturnals.budget.db.dto;
+
+/**
+ * How a description filter matches. {@code CONTAINS} is the original case-insensitive substring match, narrowed by
+ * the description index to rows sharing the text's three-character sequences and confirmed by the database; the
+ * others are answered by the index alone and match whole words: {@code TOKEN} every word exactly, {@code PREFIX}
+ * every word as the start of a word, and {@code FUZZY} every word within a small edit distance.
+ */
+public enum DescriptionMatch {
+    CONTAINS, PREFIX, TOKEN, FUZZY;
+
+    /**
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static DescriptionMatch parse(String name, DescriptionMatch defaultMatch) {
+        if(name == null || name.isBlank()) {
+            return defaultMatch;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Description match must be contains, prefix, token or fuzzy");
+        }
+    }
+}
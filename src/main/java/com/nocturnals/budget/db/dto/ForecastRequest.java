@@ -0,0 +1,13 @@
+package com.nocturnals.budget.db.dto;
+
+import com.nocturnals.budget.forecast.ForecastScenario;
+
+import java.util.List;
+
+/**
+ * @param accountIds accounts to forecast; all of them when null
+ * @param months     month ends to project, starting with the current month's
+ * @param scenarios  scenarios to run; the baseline alone when null or empty
+ */
+public record ForecastRequest(List<Long> accountIds, Integer months, List<ForecastScenario> scenarios) {
+}
@@ -0,0 +1,23 @@
+package com.nocturnals.budget.db.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one imported row: the id of the created transaction, the reason the row was rejected, or the existing
+ * transaction it duplicates.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportResult(long row, Long id, String error, Long duplicateOf) {
+
+    public static ImportResult saved(long row, Long id) {
+        return new ImportResult(row, id, null, null);
+    }
+
+    public static ImportResult failed(long row, String error) {
+        return new ImportResult(row, null, error, null);
+    }
+
+    public static ImportResult duplicate(long row, Long existingId) {
+        return new ImportResult(row, null, null, existingId);
+    }
+}
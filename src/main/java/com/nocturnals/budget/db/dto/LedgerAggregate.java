@@ -0,0 +1,15 @@
+package com.nocturnals.budget.db.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals for one group of ledger rows. Only the grouped dimensions are present; {@code period} is a day
+ * (2024-03-05), ISO week (2024-W10) or month (2024-03). {@code net} counts expenses as negative, the other amounts are
+ * unsigned.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LedgerAggregate(Long accountId, Long categoryId, String period, Boolean isExpense, Long count,
+                              BigDecimal sum, BigDecimal net, BigDecimal avg, BigDecimal min, BigDecimal max) {
+}
@@ -0,0 +1,7 @@
+package com.nocturnals.budget.db.dto;
+
+/**
+ * A single ledger mutation: {@code before} is null for inserts and {@code after} is null for deletes.
+ */
+public record LedgerChange(LedgerEntry before, LedgerEntry after) {
+}
@@ -0,0 +1,38 @@
+package com.nocturnals.budget.db.dto;
+
+import com.nocturnals.budget.db.entity.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset page, ordered by (transaction_date, id).
+ * Rows without a transaction date sort first, matching SQL Server's ordering of nulls.
+ */
+public record LedgerCursor(Date transactionDate, Long id) {
+
+    private static final String NO_DATE = "-";
+
+    public static LedgerCursor after(Transaction transaction) {
+        return new LedgerCursor(transaction.getTransactionDate(), transaction.getId());
+    }
+
+    public String encode() {
+        String date = transactionDate == null ? NO_DATE : transactionDate.toString();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((date + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LedgerCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(':');
+            String date = value.substring(0, separator);
+            Long id = Long.valueOf(value.substring(separator + 1));
+            return new LedgerCursor(NO_DATE.equals(date) ? null : Date.valueOf(date), id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
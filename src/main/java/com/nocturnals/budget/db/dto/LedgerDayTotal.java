@@ -0,0 +1,10 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Signed sum of one account's ledger rows on one day.
+ */
+public record LedgerDayTotal(Long accountId, Date transactionDate, BigDecimal total) {
+}
@@ -0,0 +1,4 @@
+package com.nocturnals.budget.db.dto;
+
+public record LedgerDescription(Long id, String description) {
+}
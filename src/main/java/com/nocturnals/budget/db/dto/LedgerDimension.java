@@ -0,0 +1,35 @@
+package com.nocturnals.budget.db.dto;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What ledger aggregates can be grouped by. At most one of the date dimensions may be used at a time.
+ */
+public enum LedgerDimension {
+    ACCOUNT, CATEGORY, DAY, WEEK, MONTH, EXPENSE;
+
+    private static final Set<LedgerDimension> DATES = EnumSet.of(DAY, WEEK, MONTH);
+
+    /**
+     * @throws IllegalArgumentException for an unknown name or more than one date dimension
+     */
+    public static EnumSet<LedgerDimension> parse(List<String> names) {
+        EnumSet<LedgerDimension> dimensions = EnumSet.noneOf(LedgerDimension.class);
+        if(names == null) {
+            return dimensions;
+        }
+        for(String name : names) {
+            try {
+                dimensions.add(valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cannot group by " + name);
+            }
+        }
+        if(dimensions.stream().filter(DATES::contains).count() > 1) {
+            throw new IllegalArgumentException("Group by at most one of day, week or month");
+        }
+        return dimensions;
+    }
+}
@@ -0,0 +1,38 @@
+package com.nocturnals.budget.db.dto;
+
+import com.nocturnals.budget.db.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Detached copy of the fields of a ledger row that derived state (balances, budgets, rollups) and
+ * duplicate detection depend on.
+ */
+public record LedgerEntry(Long id, Long accountId, Long categoryId, BigDecimal amount, Boolean isExpense,
+                          Date transactionDate, String description) {
+
+    public static LedgerEntry of(Transaction transaction) {
+        return new LedgerEntry(transaction.getId(),
+                transaction.getAccount() == null ? null : transaction.getAccount().getId(),
+                transaction.getCategory() == null ? null : transaction.getCategory().getId(),
+                transaction.getAmount(),
+                transaction.getIsExpense(),
+                transaction.getTransactionDate(),
+                transaction.getDescription());
+    }
+
+    public boolean expense() {
+        return Boolean.TRUE.equals(isExpense);
+    }
+
+    /**
+     * Effect of this row on its account balance: expenses debit, everything else credits.
+     */
+    public BigDecimal signedAmount() {
+        if(amount == null) {
+            return BigDecimal.ZERO;
+        }
+        return expense() ? amount.negate() : amount;
+    }
+}
@@ -0,0 +1,43 @@
+package com.nocturnals.budget.db.dto;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Associations a ledger read may embed in full instead of by id. Expanded associations are fetch-joined by the same
+ * statement that reads the transactions.
+ */
+public enum LedgerExpansion {
+    ACCOUNT("account"), CATEGORY("category");
+
+    public static final Set<LedgerExpansion> NONE = EnumSet.noneOf(LedgerExpansion.class);
+
+    private final String attribute;
+
+    LedgerExpansion(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static Set<LedgerExpansion> parse(List<String> names) {
+        if(names == null || names.isEmpty()) {
+            return NONE;
+        }
+        EnumSet<LedgerExpansion> expansions = EnumSet.noneOf(LedgerExpansion.class);
+        for(String name : names) {
+            try {
+                expansions.add(valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cannot expand " + name);
+            }
+        }
+        return expansions;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nocturnals.budget.db.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Ledger search criteria; every non-null field narrows the result. A start date without an end date matches that
+ * single day, as the original date filters did. The description is matched as a substring unless
+ * {@code descriptionMatch} says otherwise; {@code ids} restricts the result to rows the description index matched.
+ * {@code archivedBefore} is set by the service, never by clients: rows dated before it are read from the archive.
+ */
+@Builder(toBuilder = true)
+public record LedgerFilter(String description, DescriptionMatch descriptionMatch, Date startDate, Date endDate,
+                           Boolean isExpense, Boolean isRecurring, Integer recurringDate, Long accountId,
+                           Long categoryId, BigDecimal minAmount, BigDecimal maxAmount, List<Long> ids,
+                           Date archivedBefore) {
+
+    public static final LedgerFilter NONE = LedgerFilter.builder().build();
+
+    public boolean matchesDescriptionAsSubstring() {
+        return descriptionMatch == null || descriptionMatch == DescriptionMatch.CONTAINS;
+    }
+
+    public boolean hasDateBounds() {
+        return startDate != null || endDate != null;
+    }
+
+    /**
+     * Whether matching rows may be in the archive. Recurring templates are never archived, and a range starting on
+     * or after the archive boundary lies wholly in the ledger.
+     */
+    public boolean readsArchive() {
+        return archivedBefore != null && !Boolean.TRUE.equals(isRecurring)
+                && (startDate == null || startDate.before(archivedBefore));
+    }
+
+    /**
+     * Applies the legacy start-amount / end-amount / amount-comparison request parameters to this filter.
+     */
+    public LedgerFilter withAmount(BigDecimal startingAmount, BigDecimal endingAmount, String amountComparison) {
+        if(startingAmount == null) {
+            return this;
+        }
+        LedgerFilterBuilder builder = toBuilder().minAmount(startingAmount).maxAmount(startingAmount);
+        if(endingAmount != null) {
+            return builder.maxAmount(endingAmount).build();
+        }
+        if(amountComparison != null) {
+            String comparison = amountComparison.toLowerCase();
+            if(comparison.contains("greater")) {
+                return builder.maxAmount(null).build();
+            } else if(comparison.contains("lesser")) {
+                return builder.minAmount(null).build();
+            } else if(!comparison.contains("equal")) {
+                throw new IllegalArgumentException("Amount comparison must be greater, lesser or equal");
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * What makes two ledger rows the same bank transaction: account, date, signed amount and description, compared
+ * ignoring amount scale, case and runs of whitespace.
+ */
+public record LedgerFingerprint(Long accountId, LocalDate transactionDate, BigDecimal amount, String description) {
+
+    public static LedgerFingerprint of(LedgerEntry entry) {
+        return new LedgerFingerprint(entry.accountId(),
+                entry.transactionDate() == null ? null : entry.transactionDate().toLocalDate(),
+                entry.signedAmount().stripTrailingZeros(),
+                entry.description() == null ? "" : entry.description().trim().replaceAll("\\s+", " ").toLowerCase());
+    }
+}
@@ -0,0 +1,6 @@
+package com.nocturnals.budget.db.dto;
+
+import java.util.List;
+
+public record LedgerPage<T>(List<T> items, String next) {
+}
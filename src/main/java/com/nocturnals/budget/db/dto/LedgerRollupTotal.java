@@ -0,0 +1,7 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+
+public record LedgerRollupTotal(Long accountId, Long categoryId, Integer year, Integer month, Boolean isExpense,
+                                BigDecimal total, Long entryCount) {
+}
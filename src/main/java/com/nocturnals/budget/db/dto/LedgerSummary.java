@@ -0,0 +1,13 @@
+package com.nocturnals.budget.db.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals for one month, optionally broken down by account or category.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LedgerSummary(Integer period, Long accountId, Long categoryId, BigDecimal income, BigDecimal expense,
+                            BigDecimal net, Long count) {
+}
@@ -0,0 +1,15 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Where a loan stands on {@code asOf} and where it ends if the scheduled payment keeps being made. The outstanding
+ * balance is the schedule's, less anything paid ahead or plus anything in arrears.
+ *
+ * @param payoffDate null if the payment no longer covers the interest on the outstanding balance
+ */
+public record LoanProjection(Long accountId, LocalDate asOf, BigDecimal payment, BigDecimal paidToDate,
+                             BigDecimal outstanding, LocalDate payoffDate, BigDecimal remainingInterest,
+                             LocalDate scheduledPayoffDate, BigDecimal scheduledRemainingInterest) {
+}
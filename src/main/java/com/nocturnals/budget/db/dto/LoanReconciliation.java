@@ -0,0 +1,21 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A loan's repayments to date set against its schedule. Payments are applied to the oldest installment first.
+ *
+ * @param arrears scheduled amount not yet paid; negative when the loan is paid ahead
+ */
+public record LoanReconciliation(Long accountId, LocalDate asOf, BigDecimal scheduledToDate, BigDecimal paidToDate,
+                                 BigDecimal arrears, List<Installment> installments) {
+
+    public enum Status {
+        PAID, PARTIAL, MISSED
+    }
+
+    public record Installment(int number, LocalDate dueDate, BigDecimal scheduled, BigDecimal paid, Status status) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * The fields of a recurring template that decide when it posts and what each posting does to its account.
+ */
+public record RecurringTemplate(Long id, Long accountId, Long categoryId, BigDecimal amount, Boolean isExpense,
+                                Date transactionDate, Integer recurringDate) {
+
+    public BigDecimal signedAmount() {
+        return Boolean.TRUE.equals(isExpense) ? amount.negate() : amount;
+    }
+}
@@ -0,0 +1,9 @@
+package com.nocturnals.budget.db.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * An account's stored balance with the version it was read at, so a repair can tell whether it has moved since.
+ */
+public record StoredBalance(Long accountId, BigDecimal balance, Long version) {
+}
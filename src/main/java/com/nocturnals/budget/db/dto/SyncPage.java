@@ -0,0 +1,10 @@
+package com.nocturnals.budget.db.dto;
+
+import java.util.List;
+
+/**
+ * Rows changed and ids deleted since the watermark the client sent, oldest first, with the watermark to send next.
+ * {@code hasMore} means the client should ask again straight away.
+ */
+public record SyncPage(List<?> items, List<Long> deleted, String watermark, boolean hasMore) {
+}
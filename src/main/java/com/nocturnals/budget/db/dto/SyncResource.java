@@ -0,0 +1,31 @@
+package com.nocturnals.budget.db.dto;
+
+/**
+ * What incremental sync can be asked for, by the name used in its path and in tombstones.
+ */
+public enum SyncResource {
+    ACCOUNT("account"), CATEGORY("category"), BANK("bank"), ACCOUNT_TYPE("account-type"),
+    TRANSACTION("transaction");
+
+    private final String path;
+
+    SyncResource(String path) {
+        this.path = path;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static SyncResource parse(String path) {
+        for(SyncResource resource : values()) {
+            if(resource.path.equalsIgnoreCase(path)) {
+                return resource;
+            }
+        }
+        throw new IllegalArgumentException("Cannot sync " + path);
+    }
+}
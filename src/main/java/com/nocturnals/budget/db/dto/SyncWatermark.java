@@ -0,0 +1,40 @@
+package com.nocturnals.budget.db.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * How far a client has synced one resource: the (updated_at, id) of the last changed row and the (deleted_at, id) of
+ * the last tombstone it was sent. Handed out as an opaque token.
+ */
+public record SyncWatermark(Timestamp changedAt, long changedId, Timestamp deletedAt, long deletedId) {
+
+    /**
+     * Where a client without a watermark starts: every row there is, and only the deletions after {@code horizon},
+     * since everything deleted before is already missing from the rows.
+     */
+    public static SyncWatermark initial(Timestamp horizon) {
+        return new SyncWatermark(Timestamp.from(Instant.EPOCH), 0, horizon, 0);
+    }
+
+    public String encode() {
+        String value = changedAt.toInstant() + "," + changedId + "," + deletedAt.toInstant() + "," + deletedId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncWatermark decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(",");
+            if(parts.length != 4) {
+                throw new IllegalArgumentException("Invalid watermark");
+            }
+            return new SyncWatermark(Timestamp.from(Instant.parse(parts[0])), Long.parseLong(parts[1]),
+                    Timestamp.from(Instant.parse(parts[2])), Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid watermark", e);
+        }
+    }
+}
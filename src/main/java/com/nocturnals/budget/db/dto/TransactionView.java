@@ -0,0 +1,38 @@
+package com.nocturnals.budget.db.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.nocturnals.budget.db.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Set;
+
+/**
+ * What the ledger API returns for a transaction. Account and category are referenced by id; they are embedded only
+ * when expanded, and must then have been fetched with the transaction, so rendering a view never touches the database.
+ */
+public record TransactionView(Long id, String description, BigDecimal amount, Date transactionDate, Boolean isExpense,
+                              Boolean isRecurring, Integer recurringDate, Long accountId, Long categoryId,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) AccountView account,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) CategoryView category,
+                              Timestamp createdAt, Timestamp updatedAt) {
+
+    public static TransactionView of(Transaction transaction) {
+        return of(transaction, LedgerExpansion.NONE);
+    }
+
+    public static TransactionView of(Transaction transaction, Set<LedgerExpansion> expand) {
+        boolean hasAccount = transaction.getAccount() != null;
+        boolean hasCategory = transaction.getCategory() != null;
+        return new TransactionView(transaction.getId(), transaction.getDescription(), transaction.getAmount(),
+                transaction.getTransactionDate(), transaction.getIsExpense(), transaction.getIsRecurring(),
+                transaction.getRecurringDate(),
+                hasAccount ? transaction.getAccount().getId() : null,
+                hasCategory ? transaction.getCategory().getId() : null,
+                hasAccount && expand.contains(LedgerExpansion.ACCOUNT) ? AccountView.of(transaction.getAccount()) : null,
+                hasCategory && expand.contains(LedgerExpansion.CATEGORY)
+                        ? CategoryView.of(transaction.getCategory()) : null,
+                transaction.getCreatedAt(), transaction.getUpdatedAt());
+    }
+}
@@ -1,10 +1,14 @@
 package com.nocturnals.budget.db.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -29,6 +33,8 @@ public class Account {
     String name;
     @Builder.Default
     BigDecimal balance = BigDecimal.valueOf(0.0);
+    @Column(name = "opening_balance")
+    BigDecimal openingBalance;
     @Column(name = "is_loan_account")
     Boolean isLoanAccount;
     @Column(name = "total_amount")
@@ -51,6 +57,13 @@ public class Account {
     @LastModifiedDate
     @Column(name = "updated_at")
     Timestamp updatedAt;
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    Long version;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "account")
     private List<Transaction> transactions;
 }
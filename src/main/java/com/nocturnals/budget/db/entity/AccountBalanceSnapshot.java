@@ -0,0 +1,32 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Signed sum of an account's dated ledger rows up to and including {@code balanceDate}, without the opening balance.
+ * Rows exist only for days the account had activity; the balance on any other day is that of the latest row before
+ * it.
+ */
+@Entity
+@Table(name = "account_balance_snapshot", uniqueConstraints = @UniqueConstraint(name = "uk_account_balance_snapshot",
+        columnNames = {"account_id", "balance_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    Long id;
+    @Column(name = "account_id", nullable = false)
+    Long accountId;
+    @Column(name = "balance_date", nullable = false)
+    Date balanceDate;
+    @Column(name = "ledger_total", nullable = false)
+    BigDecimal ledgerTotal;
+}
@@ -1,7 +1,12 @@
 package com.nocturnals.budget.db.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,6 +17,8 @@ import java.util.List;
 @Entity
 @Table(name = "account_type")
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "account_type")
 @Data
 public class AccountType {
     @Id
@@ -25,6 +32,9 @@ public class AccountType {
     @LastModifiedDate
     @Column(name = "updated_at")
     Timestamp updatedAt;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "accountType")
     private List<Account> accounts;
 }
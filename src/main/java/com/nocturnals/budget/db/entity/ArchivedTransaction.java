@@ -0,0 +1,67 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * A ledger row from a closed period, moved out of {@code ledger} by the archive job. Archived rows keep their ids
+ * and are never written through the application again.
+ */
+@Entity
+@Immutable
+@Table(name = "ledger_archive")
+@Data
+public class ArchivedTransaction {
+    @Id
+    Long id;
+    String description;
+    BigDecimal amount;
+    @Column(name = "transaction_date")
+    Date transactionDate;
+    @Column(name = "is_expense")
+    Boolean isExpense;
+    @Column(name = "is_recurring")
+    Boolean isRecurring;
+    @Column(name = "recurring_date")
+    Integer recurringDate;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", referencedColumnName = "id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    Account account;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", referencedColumnName = "id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    Category category;
+    @Column(name = "created_at")
+    Timestamp createdAt;
+    @Column(name = "updated_at")
+    Timestamp updatedAt;
+
+    /**
+     * Copies this row into an unmanaged {@link Transaction}, so archived and active rows share one read path.
+     */
+    public Transaction toTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setDescription(description);
+        transaction.setAmount(amount);
+        transaction.setTransactionDate(transactionDate);
+        transaction.setIsExpense(isExpense);
+        transaction.setIsRecurring(isRecurring);
+        transaction.setRecurringDate(recurringDate);
+        transaction.setAccount(account);
+        transaction.setCategory(category);
+        transaction.setCreatedAt(createdAt);
+        transaction.setUpdatedAt(updatedAt);
+        return transaction;
+    }
+}
@@ -1,8 +1,13 @@
 package com.nocturnals.budget.db.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -15,6 +20,8 @@ import java.util.List;
 @Entity
 @Table(name = "bank")
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bank")
 @Data
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Bank {
@@ -29,6 +36,9 @@ public class Bank {
     @LastModifiedDate
     @Column(name = "updated_at")
     Timestamp updatedAt;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "bank")
     private List<Account> accounts;
 }
@@ -1,7 +1,10 @@
 package com.nocturnals.budget.db.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -25,12 +28,17 @@ public class Category {
     BigDecimal remainingBudget;
     @Column(name = "is_rolling_budget")
     Boolean isRollingBudget;
+    @Column(name = "budget_period")
+    Integer budgetPeriod;
     @CreatedDate
     @Column(name = "created_at")
     Timestamp createdAt;
     @LastModifiedDate
     @Column(name = "updated_at")
     Timestamp updatedAt;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "category")
     private List<Transaction> transactions;
 }
@@ -0,0 +1,36 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * Outbox row describing one committed change to a transaction, account or category. It is written in the same
+ * transaction as the change; {@code sequenceNumber} stays null until the relay publishes it, and from then on gives
+ * the event's place in the change feed.
+ */
+@Entity
+@Table(name = "change_event", indexes = @Index(name = "ix_change_event_sequence", columnList = "sequence_number"))
+@Data
+public class ChangeEvent {
+    public static final String TRANSACTION = "transaction";
+    public static final String ACCOUNT = "account";
+    public static final String CATEGORY = "category";
+
+    @Id
+    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    Long id;
+    @Column(length = 32, nullable = false)
+    String resource;
+    @Column(name = "resource_id", nullable = false)
+    Long resourceId;
+    @Column(length = 16, nullable = false)
+    String operation;
+    @Column(length = 4000)
+    String payload;
+    @Column(name = "created_at", nullable = false)
+    Timestamp createdAt;
+    @Column(name = "sequence_number")
+    Long sequenceNumber;
+}
@@ -0,0 +1,26 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * Lets one application node at a time run a scheduled job. The holder keeps the lease until {@code expiresAt}, so a
+ * node that dies mid-run only blocks the job until then. {@code lastCompleted} records how far the job has got.
+ */
+@Entity
+@Table(name = "job_lease")
+@Data
+public class JobLease {
+    @Id
+    @Column(length = 100)
+    String name;
+    @Column(length = 200)
+    String owner;
+    @Column(name = "expires_at")
+    Timestamp expiresAt;
+    @Column(name = "last_completed")
+    Date lastCompleted;
+}
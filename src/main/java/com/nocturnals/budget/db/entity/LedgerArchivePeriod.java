@@ -0,0 +1,24 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * One month copied into {@code ledger_archive}, as {@code yyyymm}. Rows stay in {@code ledger} as well until
+ * {@code purgedAt} is set, which the archive job does once every node has seen the month move.
+ */
+@Entity
+@Table(name = "ledger_archive_period")
+@Data
+public class LedgerArchivePeriod {
+    @Id
+    Integer period;
+    @Column(name = "row_count", nullable = false)
+    Long rowCount;
+    @Column(name = "archived_at", nullable = false)
+    Timestamp archivedAt;
+    @Column(name = "purged_at")
+    Timestamp purgedAt;
+}
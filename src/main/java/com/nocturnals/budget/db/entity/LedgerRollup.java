@@ -0,0 +1,38 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Running total of the ledger rows sharing an account, category, month and expense flag. Rows without an account or
+ * category are kept under id 0 so the key columns stay non-null and uniquely indexable.
+ */
+@Entity
+@Table(name = "ledger_rollup", uniqueConstraints = @UniqueConstraint(name = "uk_ledger_rollup_key",
+        columnNames = {"account_id", "category_id", "period", "is_expense"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerRollup {
+    public static final long NONE = 0L;
+
+    @Id
+    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    Long id;
+    @Column(name = "account_id", nullable = false)
+    Long accountId;
+    @Column(name = "category_id", nullable = false)
+    Long categoryId;
+    @Column(nullable = false)
+    Integer period;
+    @Column(name = "is_expense", nullable = false)
+    Boolean isExpense;
+    @Column(nullable = false)
+    BigDecimal total;
+    @Column(name = "entry_count", nullable = false)
+    Long entryCount;
+}
@@ -0,0 +1,26 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Date;
+
+/**
+ * Records that a recurring template has been posted for a date. The unique key makes posting idempotent: a second
+ * attempt for the same template and date fails instead of adding another ledger row.
+ */
+@Entity
+@Table(name = "recurring_occurrence", uniqueConstraints = @UniqueConstraint(name = "uk_recurring_occurrence",
+        columnNames = {"template_id", "occurrence_date"}))
+@Data
+public class RecurringOccurrence {
+    @Id
+    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    Long id;
+    @Column(name = "template_id", nullable = false)
+    Long templateId;
+    @Column(name = "occurrence_date", nullable = false)
+    Date occurrenceDate;
+    @Column(name = "ledger_id")
+    Long ledgerId;
+}
@@ -0,0 +1,26 @@
+package com.nocturnals.budget.db.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * Records that a row was deleted, so incremental sync can tell clients to drop it. Written in the deleting
+ * transaction and purged once older than {@code budget.sync.tombstone-retention}.
+ */
+@Entity
+@Table(name = "sync_tombstone",
+        indexes = @Index(name = "ix_sync_tombstone_deleted", columnList = "resource, deleted_at, id"))
+@Data
+public class SyncTombstone {
+    @Id
+    @GeneratedValue(strategy = jakarta.persistence.GenerationType.IDENTITY)
+    Long id;
+    @Column(length = 32, nullable = false)
+    String resource;
+    @Column(name = "resource_id", nullable = false)
+    Long resourceId;
+    @Column(name = "deleted_at", nullable = false)
+    Timestamp deletedAt;
+}
@@ -0,0 +1,183 @@
+package com.nocturnals.budget.db.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Chooses where a read-only transaction's connection comes from. Replicas are taken in turn, skipping any that
+ * failed to hand out a connection within the last {@code retry}; with none available the primary serves the read.
+ * <p>
+ * For {@code sticky} after a caller commits a read-write transaction, that caller's reads go to the primary, so it
+ * sees its own save even while the replicas are behind. The window should cover the replicas' usual lag. A caller is
+ * whatever {@link #bind} ties to the current thread, such as a client carrying a token between requests; the deadline
+ * is wall-clock time so such a token can be honoured by any node. Other callers keep reading replicas, and so do
+ * threads with no caller bound, such as scheduled jobs, which leaves nothing behind on pooled threads.
+ */
+public class ReplicaRouter implements TransactionExecutionListener, AutoCloseable {
+    public static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long stickyMillis;
+    private final long retryNanos;
+    private final Counter primaryReads;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Caller> caller = new ThreadLocal<>();
+
+    public ReplicaRouter(HikariDataSource primary, List<HikariDataSource> replicas, Duration sticky, Duration retry,
+                         MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for(HikariDataSource replica : replicas) {
+            this.replicas.add(new Replica(replica, reads(meterRegistry, replica.getPoolName())));
+        }
+        this.stickyMillis = sticky.toMillis();
+        this.retryNanos = retry.toNanos();
+        this.primaryReads = reads(meterRegistry, PRIMARY);
+    }
+
+    private static Counter reads(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("budget.datasource.reads")
+                .description("Read-only transactions by the data source that served them")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static final class Caller {
+        private final LongConsumer onWrite;
+        private long primaryUntil;
+
+        private Caller(long primaryUntil, LongConsumer onWrite) {
+            this.primaryUntil = primaryUntil;
+            this.onWrite = onWrite;
+        }
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private final Counter reads;
+        private volatile long downUntil;
+        private volatile boolean down;
+
+        private Replica(HikariDataSource dataSource, Counter reads) {
+            this.dataSource = dataSource;
+            this.reads = reads;
+        }
+
+        private boolean available(long now) {
+            return !down || now - downUntil >= 0;
+        }
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    /**
+     * The data source {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} hands read-only
+     * connections out of.
+     */
+    public DataSource readOnly() {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+            }
+        };
+    }
+
+    private Connection connection() throws SQLException {
+        if(isSticky()) {
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for(int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if(!replica.available(now)) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.down = false;
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                replica.downUntil = System.nanoTime() + retryNanos;
+                replica.down = true;
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Whether the current caller's reads go to the primary.
+     */
+    public boolean isSticky() {
+        Caller current = caller.get();
+        return current != null && System.currentTimeMillis() < current.primaryUntil;
+    }
+
+    /**
+     * Makes the current thread act for a caller whose reads go to the primary until {@code primaryUntil}, in epoch
+     * milliseconds, capped at one sticky window from now. Each later write by the thread extends that and passes the
+     * new deadline to {@code onWrite}. Undone by {@link #release()}.
+     */
+    public void bind(long primaryUntil, LongConsumer onWrite) {
+        caller.set(new Caller(Math.min(primaryUntil, System.currentTimeMillis() + stickyMillis), onWrite));
+    }
+
+    public void release() {
+        caller.remove();
+    }
+
+    /**
+     * Whether each replica is currently taking reads, by pool name.
+     */
+    public Map<String, Boolean> replicas() {
+        long now = System.nanoTime();
+        Map<String, Boolean> states = new LinkedHashMap<>();
+        replicas.forEach(replica -> states.put(replica.dataSource.getPoolName(), replica.available(now)));
+        return states;
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if(commitFailure == null && transaction.isNewTransaction() && !transaction.isReadOnly()) {
+            Caller current = caller.get();
+            if(current != null) {
+                current.primaryUntil = System.currentTimeMillis() + stickyMillis;
+                current.onWrite.accept(current.primaryUntil);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+        primary.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.nocturnals.budget.db.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Carries a client's read-your-writes window between requests. A request that commits a write is answered with a
+ * cookie holding the time until which that client reads from the primary, and requests bringing the cookie back are
+ * routed accordingly, whichever node or thread serves them.
+ */
+public class StickyReadFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "budget-primary-until";
+
+    private final ReplicaRouter replicaRouter;
+    private final Duration sticky;
+
+    public StickyReadFilter(ReplicaRouter replicaRouter, Duration sticky) {
+        this.replicaRouter = replicaRouter;
+        this.sticky = sticky;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        replicaRouter.bind(primaryUntil(request), until -> {
+            if(!response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(sticky.toSeconds(), 1));
+                response.addCookie(cookie);
+            }
+        });
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            replicaRouter.release();
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        if(request.getCookies() == null) {
+            return 0;
+        }
+        for(Cookie cookie : request.getCookies()) {
+            if(COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
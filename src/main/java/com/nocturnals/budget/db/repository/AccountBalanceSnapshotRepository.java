@@ -0,0 +1,18 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.entity.AccountBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSnapshotRepository extends JpaRepository<AccountBalanceSnapshot, Long> {
+
+    AccountBalanceSnapshot findFirstByAccountIdAndBalanceDateLessThanEqualOrderByBalanceDateDesc(Long accountId,
+                                                                                                 Date date);
+
+    List<AccountBalanceSnapshot> findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(Long accountId, Date from,
+                                                                                        Date to);
+}
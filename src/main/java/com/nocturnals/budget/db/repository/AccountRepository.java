@@ -1,13 +1,65 @@
 package com.nocturnals.budget.db.repository;
 
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.StoredBalance;
 import com.nocturnals.budget.db.entity.Account;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
     Account findByNameIgnoreCase(String name);
+
+    /**
+     * Bulk updates skip auditing, so they stamp {@code updatedAt} themselves for incremental sync to see the change.
+     */
+    @Modifying
+    @Query("update Account a set a.balance = coalesce(a.balance, 0) + :delta, a.version = a.version + 1, "
+            + "a.updatedAt = :updatedAt where a.id = :id")
+    int applyBalanceDelta(Long id, BigDecimal delta, Timestamp updatedAt);
+
+    @Modifying
+    @Query("update Account a set a.balance = :expected, a.version = a.version + 1, a.updatedAt = :updatedAt "
+            + "where a.id = :id and a.balance = :observed and a.version = :version")
+    int repairBalance(Long id, BigDecimal observed, Long version, BigDecimal expected, Timestamp updatedAt);
+
+    @Query("select new com.nocturnals.budget.db.dto.StoredBalance(a.id, a.balance, a.version) from Account a "
+            + "where a.id > :afterId order by a.id")
+    List<StoredBalance> findBalancesAfter(Long afterId, Pageable pageable);
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(a.id, a.balance) from Account a order by a.id")
+    List<AccountBalance> findBalances();
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(a.id, a.balance) from Account a "
+            + "where a.id in :ids order by a.id")
+    List<AccountBalance> findBalances(Collection<Long> ids);
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(a.id, a.openingBalance) from Account a "
+            + "where a.id in :ids")
+    List<AccountBalance> findOpeningBalances(List<Long> ids);
+
+    @Query("select a.id from Account a where a.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * Takes a write lock on each account, in id order, until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.id from Account a where a.id in :ids order by a.id")
+    List<Long> lockByIds(Collection<Long> ids);
+
+    @Query("select a from Account a where (a.updatedAt > :after or (a.updatedAt = :after and a.id > :afterId)) "
+            + "and a.updatedAt <= :until order by a.updatedAt, a.id")
+    List<Account> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
 }
@@ -1,10 +1,19 @@
 package com.nocturnals.budget.db.repository;
 
 import com.nocturnals.budget.db.entity.AccountType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.List;
+
 @Repository
 public interface AccountTypeRepository extends JpaRepository<AccountType, Long> {
     AccountType findByType(String name);
+
+    @Query("select t from AccountType t where (t.updatedAt > :after or (t.updatedAt = :after and t.id > :afterId)) "
+            + "and t.updatedAt <= :until order by t.updatedAt, t.id")
+    List<AccountType> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
 }
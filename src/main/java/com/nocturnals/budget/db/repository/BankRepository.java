@@ -1,13 +1,21 @@
 package com.nocturnals.budget.db.repository;
 
 import com.nocturnals.budget.db.entity.Bank;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BankRepository extends JpaRepository<Bank, Long> {
 
     Optional<Bank> findByNameIgnoreCase(String name);
+
+    @Query("select b from Bank b where (b.updatedAt > :after or (b.updatedAt = :after and b.id > :afterId)) "
+            + "and b.updatedAt <= :until order by b.updatedAt, b.id")
+    List<Bank> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
 }
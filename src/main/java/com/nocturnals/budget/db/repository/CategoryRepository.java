@@ -1,10 +1,23 @@
 package com.nocturnals.budget.db.repository;
 
 import com.nocturnals.budget.db.entity.Category;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
-    Category findByName(String name);
+    Category findByNameIgnoreCase(String name);
+
+    @Query("select c.id from Category c where c.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("select c from Category c where (c.updatedAt > :after or (c.updatedAt = :after and c.id > :afterId)) "
+            + "and c.updatedAt <= :until order by c.updatedAt, c.id")
+    List<Category> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
 }
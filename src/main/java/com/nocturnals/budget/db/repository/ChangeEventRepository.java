@@ -0,0 +1,38 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.dto.ChangeEventView;
+import com.nocturnals.budget.db.entity.ChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface ChangeEventRepository extends JpaRepository<ChangeEvent, Long> {
+
+    @Query("select e.id from ChangeEvent e where e.sequenceNumber is null order by e.id")
+    List<Long> findPendingIds(Pageable pageable);
+
+    @Query("select max(e.sequenceNumber) from ChangeEvent e")
+    Long findLastSequenceNumber();
+
+    @Query("select min(e.sequenceNumber) from ChangeEvent e")
+    Long findFirstSequenceNumber();
+
+    @Query("select new com.nocturnals.budget.db.dto.ChangeEventView(e.sequenceNumber, e.resource, e.resourceId, "
+            + "e.operation, e.payload, e.createdAt) from ChangeEvent e where e.sequenceNumber > :after "
+            + "order by e.sequenceNumber")
+    List<ChangeEventView> findPublishedAfter(long after, Pageable pageable);
+
+    /**
+     * Deletes published events created before {@code before}, always keeping the latest so the oldest retained
+     * position stays known.
+     */
+    @Modifying
+    @Query("delete from ChangeEvent e where e.createdAt < :before and e.sequenceNumber < :last")
+    int deletePublishedBefore(Timestamp before, long last);
+}
@@ -0,0 +1,61 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.LedgerDayTotal;
+import com.nocturnals.budget.db.dto.LedgerDescription;
+import com.nocturnals.budget.db.dto.LedgerRollupTotal;
+import com.nocturnals.budget.db.entity.ArchivedTransaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Whole-archive reads for the jobs that recompute derived totals. Rows dated on or after {@code archivedBefore} are
+ * copies of a month still being moved and are counted from the ledger instead.
+ */
+@Repository
+public interface LedgerArchiveRepository extends JpaRepository<ArchivedTransaction, Long> {
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) "
+            + "from ArchivedTransaction t where t.account.id in :accountIds and t.transactionDate < :archivedBefore "
+            + "group by t.account.id")
+    List<AccountBalance> sumByAccount(List<Long> accountIds, Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, sum(t.amount)) "
+            + "from ArchivedTransaction t where t.account.id in :accountIds and t.transactionDate <= :asOf "
+            + "and t.transactionDate < :archivedBefore and (t.isExpense is null or t.isExpense = false) "
+            + "group by t.account.id")
+    List<AccountBalance> sumCreditsByAccount(Collection<Long> accountIds, Date asOf, Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerRollupTotal(t.account.id, t.category.id, "
+            + "year(t.transactionDate), month(t.transactionDate), t.isExpense, sum(t.amount), count(t)) "
+            + "from ArchivedTransaction t where t.transactionDate < :archivedBefore and t.amount is not null "
+            + "group by t.account.id, t.category.id, year(t.transactionDate), month(t.transactionDate), t.isExpense")
+    List<LedgerRollupTotal> sumByMonth(Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDayTotal(t.account.id, t.transactionDate, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) from ArchivedTransaction t "
+            + "where t.account.id is not null and t.transactionDate < :archivedBefore and t.amount is not null "
+            + "group by t.account.id, t.transactionDate")
+    List<LedgerDayTotal> sumByDay(Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDescription(t.id, t.description) "
+            + "from ArchivedTransaction t where t.id > :afterId order by t.id")
+    List<LedgerDescription> findDescriptionsAfter(Long afterId, Pageable pageable);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDescription(t.id, t.description) "
+            + "from ArchivedTransaction t where t.id in :ids")
+    List<LedgerDescription> findDescriptions(Collection<Long> ids);
+
+    @Query("select t from ArchivedTransaction t "
+            + "where (t.updatedAt > :after or (t.updatedAt = :after and t.id > :afterId)) "
+            + "and t.updatedAt <= :until order by t.updatedAt, t.id")
+    List<ArchivedTransaction> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
+}
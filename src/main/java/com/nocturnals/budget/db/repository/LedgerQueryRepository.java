@@ -0,0 +1,31 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.entity.Transaction;
+
+import java.util.List;
+import java.util.Set;
+
+public interface LedgerQueryRepository {
+
+    /**
+     * @param expand associations to fetch-join; the others are left as uninitialized id-only references
+     */
+    List<Transaction> search(LedgerFilter filter, Set<LedgerExpansion> expand);
+
+    /**
+     * Returns up to {@code limit} rows matching the filter that come after the cursor in (transaction_date, id)
+     * order, or the first rows when the cursor is null.
+     */
+    List<Transaction> search(LedgerFilter filter, LedgerCursor cursor, int limit, Set<LedgerExpansion> expand);
+
+    /**
+     * Sums, counts and min/max amounts of the rows matching the filter, one result per combination of the grouped
+     * dimensions, ordered by those dimensions.
+     */
+    List<LedgerAggregate> aggregate(LedgerFilter filter, Set<LedgerDimension> groupBy);
+}
@@ -0,0 +1,376 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.entity.ArchivedTransaction;
+import com.nocturnals.budget.db.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes every supplied ledger filter into a single JPQL statement. The statement text depends only on which
+ * criteria are present, so it is rendered once per shape and cached; identical text lets Hibernate reuse its query
+ * plan and the driver reuse the prepared statement, with all values bound as parameters.
+ * <p>
+ * When the filter carries an archive boundary, the archive is queried too unless the filter's dates rule it out,
+ * and the two results are merged in (transaction_date, id) order. Each side only returns the rows it owns, so a
+ * month that is in both while the archive job moves it is not counted twice.
+ */
+public class LedgerQueryRepositoryImpl implements LedgerQueryRepository {
+    private static final Comparator<Transaction> KEYSET = Comparator
+            .comparing(Transaction::getTransactionDate, Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(Transaction::getId);
+    private static final Comparator<LedgerAggregate> GROUP_ORDER = Comparator
+            .comparing(LedgerAggregate::accountId, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .thenComparing(LedgerAggregate::categoryId, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+            .thenComparing(LedgerAggregate::period, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(LedgerAggregate::isExpense, Comparator.nullsFirst(Comparator.<Boolean>naturalOrder()));
+
+    private static final String KEYSET_ORDER = " order by t.transactionDate, t.id";
+    private static final String UNDATED_ORDER = " order by t.id";
+
+    private static final String AGGREGATES = "sum(t.amount), "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end), count(t), min(t.amount), max(t.amount)";
+
+    private final Map<Integer, String> plans = new ConcurrentHashMap<>();
+    private final Map<Integer, String> aggregatePlans = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    enum Store {
+        LEDGER("Transaction", Transaction.class),
+        ARCHIVE("ArchivedTransaction", ArchivedTransaction.class);
+
+        private final String entity;
+        private final Class<?> type;
+
+        Store(String entity, Class<?> type) {
+            this.entity = entity;
+            this.type = type;
+        }
+    }
+
+    enum Criterion {
+        DESCRIPTION("lower(t.description) like :description escape '\\'"),
+        ON_DATE("t.transactionDate = :startDate"),
+        FROM_DATE("t.transactionDate >= :startDate"),
+        TO_DATE("t.transactionDate <= :endDate"),
+        EXPENSE("t.isExpense = :isExpense"),
+        RECURRING("t.isRecurring = :isRecurring"),
+        RECURRING_DATE("t.recurringDate = :recurringDate"),
+        ACCOUNT("t.account.id = :accountId"),
+        CATEGORY("t.category.id = :categoryId"),
+        MIN_AMOUNT("t.amount >= :minAmount"),
+        MAX_AMOUNT("t.amount <= :maxAmount"),
+        IDS("t.id in :ids"),
+        UNDATED_AFTER("t.transactionDate is null and t.id > :cursorId"),
+        DATED("t.transactionDate is not null"),
+        DATED_AFTER("(t.transactionDate > :cursorDate or (t.transactionDate = :cursorDate and t.id > :cursorId))"),
+        ACTIVE(LedgerRepository.ACTIVE),
+        ARCHIVED("t.transactionDate < :archivedBefore");
+
+        private final String clause;
+
+        Criterion(String clause) {
+            this.clause = clause;
+        }
+    }
+
+    @Override
+    public List<Transaction> search(LedgerFilter filter, Set<LedgerExpansion> expand) {
+        List<Transaction> rows = find(Store.LEDGER, filter, null, 0, expand);
+        if(!filter.readsArchive()) {
+            return rows;
+        }
+        return merge(rows, find(Store.ARCHIVE, filter, null, 0, expand), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Transaction> search(LedgerFilter filter, LedgerCursor cursor, int limit,
+                                    Set<LedgerExpansion> expand) {
+        if(cursor != null && cursor.transactionDate() != null) {
+            return dated(filter, cursor, limit, expand);
+        }
+        List<Transaction> rows = new ArrayList<>(limit);
+        if(!filter.hasDateBounds()) {
+            LedgerCursor undatedCursor = cursor != null ? cursor : new LedgerCursor(null, Long.MIN_VALUE);
+            rows.addAll(find(Store.LEDGER, filter, undatedCursor, limit, expand, Criterion.UNDATED_AFTER));
+        }
+        if(rows.size() < limit) {
+            rows.addAll(dated(filter, null, limit - rows.size(), expand));
+        }
+        return rows;
+    }
+
+    /**
+     * Up to {@code limit} dated rows after the cursor. Undated rows are only ever in the ledger.
+     */
+    private List<Transaction> dated(LedgerFilter filter, LedgerCursor cursor, int limit,
+                                    Set<LedgerExpansion> expand) {
+        Criterion keyset = cursor == null ? Criterion.DATED : Criterion.DATED_AFTER;
+        List<Transaction> rows = find(Store.LEDGER, filter, cursor, limit, expand, keyset);
+        if(!filter.readsArchive()) {
+            return rows;
+        }
+        return merge(rows, find(Store.ARCHIVE, filter, cursor, limit, expand, keyset), limit);
+    }
+
+    private static List<Transaction> merge(List<Transaction> a, List<Transaction> b, int limit) {
+        List<Transaction> rows = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while(rows.size() < limit && (i < a.size() || j < b.size())) {
+            if(j == b.size() || (i < a.size() && KEYSET.compare(a.get(i), b.get(j)) <= 0)) {
+                rows.add(a.get(i++));
+            } else {
+                rows.add(b.get(j++));
+            }
+        }
+        return rows;
+    }
+
+    private EnumSet<Criterion> criteria(Store store, LedgerFilter filter, Criterion... keyset) {
+        EnumSet<Criterion> shape = EnumSet.noneOf(Criterion.class);
+        if(filter.description() != null) {
+            shape.add(Criterion.DESCRIPTION);
+        }
+        if(filter.startDate() != null) {
+            shape.add(filter.endDate() != null ? Criterion.FROM_DATE : Criterion.ON_DATE);
+        }
+        if(filter.endDate() != null) {
+            shape.add(Criterion.TO_DATE);
+        }
+        if(filter.isExpense() != null) {
+            shape.add(Criterion.EXPENSE);
+        }
+        if(filter.isRecurring() != null) {
+            shape.add(Criterion.RECURRING);
+        }
+        if(filter.recurringDate() != null) {
+            shape.add(Criterion.RECURRING_DATE);
+        }
+        if(filter.accountId() != null) {
+            shape.add(Criterion.ACCOUNT);
+        }
+        if(filter.categoryId() != null) {
+            shape.add(Criterion.CATEGORY);
+        }
+        if(filter.minAmount() != null) {
+            shape.add(Criterion.MIN_AMOUNT);
+        }
+        if(filter.maxAmount() != null) {
+            shape.add(Criterion.MAX_AMOUNT);
+        }
+        if(filter.ids() != null) {
+            shape.add(Criterion.IDS);
+        }
+        if(store == Store.ARCHIVE) {
+            shape.add(Criterion.ARCHIVED);
+        } else if(filter.readsArchive()) {
+            shape.add(Criterion.ACTIVE);
+        }
+        shape.addAll(List.of(keyset));
+        return shape;
+    }
+
+    /**
+     * @param limit largest number of rows to return, or 0 for all of them
+     */
+    private List<Transaction> find(Store store, LedgerFilter filter, LedgerCursor cursor, int limit,
+                                   Set<LedgerExpansion> expand, Criterion... keyset) {
+        EnumSet<Criterion> shape = criteria(store, filter, keyset);
+        int key = (store.ordinal() << LedgerExpansion.values().length | key(expand)) << Criterion.values().length
+                | key(shape);
+        TypedQuery<?> query = bind(entityManager.createQuery(
+                plans.computeIfAbsent(key, k -> render(store, shape, expand)), store.type), shape, filter, cursor);
+        if(limit > 0) {
+            query.setMaxResults(limit);
+        }
+        List<?> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> row instanceof ArchivedTransaction archived ? archived.toTransaction() : (Transaction) row)
+                .toList();
+    }
+
+    private static int key(Set<? extends Enum<?>> shape) {
+        return shape.stream().mapToInt(element -> 1 << element.ordinal()).sum();
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, EnumSet<Criterion> shape, LedgerFilter filter,
+                                          LedgerCursor cursor) {
+        for(Criterion criterion : shape) {
+            switch(criterion) {
+                case DESCRIPTION -> query.setParameter("description", "%" + escape(filter.description()) + "%");
+                case ON_DATE, FROM_DATE -> query.setParameter("startDate", filter.startDate());
+                case TO_DATE -> query.setParameter("endDate", filter.endDate());
+                case EXPENSE -> query.setParameter("isExpense", filter.isExpense());
+                case RECURRING -> query.setParameter("isRecurring", filter.isRecurring());
+                case RECURRING_DATE -> query.setParameter("recurringDate", filter.recurringDate());
+                case ACCOUNT -> query.setParameter("accountId", filter.accountId());
+                case CATEGORY -> query.setParameter("categoryId", filter.categoryId());
+                case MIN_AMOUNT -> query.setParameter("minAmount", filter.minAmount());
+                case MAX_AMOUNT -> query.setParameter("maxAmount", filter.maxAmount());
+                case IDS -> query.setParameter("ids", filter.ids());
+                case UNDATED_AFTER -> query.setParameter("cursorId", cursor.id());
+                case DATED_AFTER -> query.setParameter("cursorDate", cursor.transactionDate())
+                        .setParameter("cursorId", cursor.id());
+                case ACTIVE, ARCHIVED -> query.setParameter("archivedBefore", filter.archivedBefore());
+                case DATED -> {
+                }
+            }
+        }
+        return query;
+    }
+
+    private static String render(Store store, EnumSet<Criterion> shape, Set<LedgerExpansion> expand) {
+        String joins = expand.stream()
+                .sorted()
+                .map(expansion -> " left join fetch t." + expansion.attribute())
+                .collect(Collectors.joining());
+        return "select t from " + store.entity + " t" + joins + where(shape)
+                + (shape.contains(Criterion.UNDATED_AFTER) ? UNDATED_ORDER : KEYSET_ORDER);
+    }
+
+    private static String where(EnumSet<Criterion> shape) {
+        return shape.isEmpty() ? "" : shape.stream()
+                .map(criterion -> criterion.clause)
+                .collect(Collectors.joining(" and ", " where ", ""));
+    }
+
+    /**
+     * Weeks are grouped by day in the database and folded into ISO weeks here, which avoids the differences in how
+     * databases number weeks while still returning no more than one row per day.
+     */
+    @Override
+    public List<LedgerAggregate> aggregate(LedgerFilter filter, Set<LedgerDimension> groupBy) {
+        EnumSet<LedgerDimension> dimensions = groupBy.isEmpty() ? EnumSet.noneOf(LedgerDimension.class)
+                : EnumSet.copyOf(groupBy);
+        if(dimensions.remove(LedgerDimension.WEEK)) {
+            dimensions.add(LedgerDimension.DAY);
+        }
+        Map<List<Object>, LedgerAggregate> aggregates = new LinkedHashMap<>();
+        aggregate(Store.LEDGER, filter, groupBy, dimensions, aggregates);
+        if(!filter.readsArchive()) {
+            return aggregates.values().stream().map(LedgerQueryRepositoryImpl::withAverage).toList();
+        }
+        aggregate(Store.ARCHIVE, filter, groupBy, dimensions, aggregates);
+        return aggregates.values().stream().sorted(GROUP_ORDER).map(LedgerQueryRepositoryImpl::withAverage).toList();
+    }
+
+    private void aggregate(Store store, LedgerFilter filter, Set<LedgerDimension> groupBy,
+                           EnumSet<LedgerDimension> dimensions, Map<List<Object>, LedgerAggregate> aggregates) {
+        EnumSet<Criterion> shape = criteria(store, filter);
+        int key = (store.ordinal() << Criterion.values().length | key(shape)) << LedgerDimension.values().length
+                | key(dimensions);
+        String jpql = aggregatePlans.computeIfAbsent(key, k -> renderAggregate(store, shape, dimensions));
+        List<Object[]> rows = bind(entityManager.createQuery(jpql, Object[].class), shape, filter, null)
+                .getResultList();
+
+        for(Object[] row : rows) {
+            int column = 0;
+            Long accountId = null;
+            Long categoryId = null;
+            String period = null;
+            Boolean isExpense = null;
+            for(LedgerDimension dimension : dimensions) {
+                switch(dimension) {
+                    case ACCOUNT -> accountId = (Long) row[column++];
+                    case CATEGORY -> categoryId = (Long) row[column++];
+                    case DAY -> period = day((Date) row[column++], groupBy.contains(LedgerDimension.WEEK));
+                    case MONTH -> {
+                        period = row[column] == null ? null
+                                : YearMonth.of((Integer) row[column], (Integer) row[column + 1]).toString();
+                        column += 2;
+                    }
+                    case EXPENSE -> isExpense = (Boolean) row[column++];
+                    case WEEK -> {
+                    }
+                }
+            }
+            LedgerAggregate aggregate = new LedgerAggregate(accountId, categoryId, period, isExpense,
+                    (Long) row[column + 2], (BigDecimal) row[column], (BigDecimal) row[column + 1], null,
+                    (BigDecimal) row[column + 3], (BigDecimal) row[column + 4]);
+            aggregates.merge(Arrays.asList(accountId, categoryId, period, isExpense), aggregate,
+                    LedgerQueryRepositoryImpl::combine);
+        }
+    }
+
+    private static String renderAggregate(Store store, EnumSet<Criterion> shape,
+                                          EnumSet<LedgerDimension> dimensions) {
+        String groups = dimensions.stream().map(dimension -> switch(dimension) {
+            case ACCOUNT -> "t.account.id";
+            case CATEGORY -> "t.category.id";
+            case DAY, WEEK -> "t.transactionDate";
+            case MONTH -> "year(t.transactionDate), month(t.transactionDate)";
+            case EXPENSE -> "coalesce(t.isExpense, false)";
+        }).collect(Collectors.joining(", "));
+        String from = " from " + store.entity + " t";
+        if(groups.isEmpty()) {
+            return "select " + AGGREGATES + from + where(shape);
+        }
+        return "select " + groups + ", " + AGGREGATES + from + where(shape)
+                + " group by " + groups + " order by " + groups;
+    }
+
+    private static String day(Date date, boolean week) {
+        if(date == null) {
+            return null;
+        }
+        LocalDate day = date.toLocalDate();
+        return week ? String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR),
+                day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)) : day.toString();
+    }
+
+    private static LedgerAggregate combine(LedgerAggregate a, LedgerAggregate b) {
+        return new LedgerAggregate(a.accountId(), a.categoryId(), a.period(), a.isExpense(), a.count() + b.count(),
+                add(a.sum(), b.sum()), add(a.net(), b.net()), null, least(a.min(), b.min()), greatest(a.max(), b.max()));
+    }
+
+    private static LedgerAggregate withAverage(LedgerAggregate a) {
+        BigDecimal avg = a.sum() == null || a.count() == 0 ? null
+                : a.sum().divide(BigDecimal.valueOf(a.count()), a.sum().scale() + 2, RoundingMode.HALF_EVEN);
+        return new LedgerAggregate(a.accountId(), a.categoryId(), a.period(), a.isExpense(), a.count(), a.sum(),
+                a.net(), avg, a.min(), a.max());
+    }
+
+    private static BigDecimal add(BigDecimal a, BigDecimal b) {
+        return a == null ? b : b == null ? a : a.add(b);
+    }
+
+    private static BigDecimal least(BigDecimal a, BigDecimal b) {
+        return a == null ? b : b == null ? a : a.min(b);
+    }
+
+    private static BigDecimal greatest(BigDecimal a, BigDecimal b) {
+        return a == null ? b : b == null ? a : a.max(b);
+    }
+
+    private static String escape(String value) {
+        return value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
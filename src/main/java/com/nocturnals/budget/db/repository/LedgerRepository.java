@@ -1,69 +1,104 @@
 package com.nocturnals.budget.db.repository;
 
+import com.nocturnals.budget.db.dto.AccountBalance;
+import com.nocturnals.budget.db.dto.LedgerDayTotal;
+import com.nocturnals.budget.db.dto.LedgerDescription;
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.LedgerRollupTotal;
+import com.nocturnals.budget.db.dto.RecurringTemplate;
 import com.nocturnals.budget.db.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface LedgerRepository extends JpaRepository<Transaction, Long> {
-
-    List<Transaction> findByDescriptionContainingIgnoreCase(String description);
-
-    List<Transaction> findByTransactionDate(Date date);
-
-    List<Transaction> findByTransactionDateBetween(Date startDate, Date endDate);
-
-    List<Transaction> findByAmount(BigDecimal amount);
-
-    List<Transaction> findByAmountGreaterThanOrEqual(BigDecimal amount);
-
-    List<Transaction> findByAmountLessThanOrEqual(BigDecimal amount);
-
-    List<Transaction> findByAmountBetween(BigDecimal minAmount, BigDecimal maxAmount);
-
-    List<Transaction> findByIsRecurring(Boolean isRecurring);
-
-    List<Transaction> findByIsExpense(Boolean isExpense);
-
-    List<Transaction> findByRecurringDate(Integer recurringDate);
-
-    List<Transaction> findByRecurringDateGreaterThanOrEqual(Integer recurringDate);
-
-    List<Transaction> findByRecurringDateLessThanOrEqual(Integer recurringDate);
-
-    List<Transaction> findByRecurringDateBetween(Integer minRecurringDate, Integer maxRecurringDate);
-
-    List<Transaction> findByIsRecurringAndIsExpense(Boolean isRecurring, Boolean isExpense);
-
-    List<Transaction> findByIsExpenseAndRecurringDate(Integer recurringDate, Boolean isExpense);
-
-    List<Transaction> findByIsExpenseAndRecurringDateBetween(
-            Integer minRecurringDate, Integer maxRecurringDate, Boolean isExpense);
-
-    List<Transaction> findByAccount_Id(Long id);
-
-    List<Transaction> findByCategory_Id(Long id);
-
-    List<Transaction> findByAccount_IdAndCategory_Id(Long accountId, Long categoryId);
-
-    List<Transaction> findByDescriptionContainingIgnoreCaseAndTransactionDateBetween(String description, Date startDate, Date endDate);
-
-    List<Transaction> findByDescriptionContainingIgnoreCaseAndTransactionDate(String description, Date date);
-
-    List<Transaction> findByAccount_IdAndTransactionDate(Long accountId, Date date);
-
-    List<Transaction> findByCategory_IdAndTransactionDate(Long categoryId, Date date);
-
-    List<Transaction> findByAccount_IdAndCategory_IdAndTransactionDate(Long accountId, Long categoryId, Date date);
-
-    List<Transaction> findByAccount_IdAndTransactionDateBetween(Long accountId, Date startDate, Date endDate);
-
-    List<Transaction> findByCategory_IdAndTransactionDateBetween(Long categoryId, Date startDate, Date endDate);
-
-    List<Transaction> findByAccount_IdAndCategory_IdAndTransactionDateBetween(
-            Long accountId, Long categoryId, Date startDate, Date endDate);
+public interface LedgerRepository extends JpaRepository<Transaction, Long>, LedgerQueryRepository {
+    /**
+     * Rows that belong to the ledger rather than the archive: undated rows, recurring templates, and rows dated on or
+     * after {@code archivedBefore}.
+     */
+    String ACTIVE = "(t.transactionDate is null or t.transactionDate >= :archivedBefore or t.isRecurring = true)";
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) "
+            + "from Transaction t where t.account.id in :accountIds group by t.account.id")
+    List<AccountBalance> sumByAccount(List<Long> accountIds);
+
+    /**
+     * {@link #sumByAccount} without the rows dated before {@code archivedBefore}, which the archive counts.
+     */
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) "
+            + "from Transaction t where t.account.id in :accountIds and " + ACTIVE + " group by t.account.id")
+    List<AccountBalance> sumActiveByAccount(List<Long> accountIds, Date archivedBefore);
+
+    /**
+     * Credits to each account dated on or before {@code asOf}, which on a loan account are its repayments.
+     */
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, sum(t.amount)) from Transaction t "
+            + "where t.account.id in :accountIds and t.transactionDate <= :asOf "
+            + "and (t.isExpense is null or t.isExpense = false) group by t.account.id")
+    List<AccountBalance> sumCreditsByAccount(Collection<Long> accountIds, Date asOf);
+
+    @Query("select new com.nocturnals.budget.db.dto.AccountBalance(t.account.id, sum(t.amount)) from Transaction t "
+            + "where t.account.id in :accountIds and t.transactionDate <= :asOf "
+            + "and (t.isExpense is null or t.isExpense = false) and " + ACTIVE + " group by t.account.id")
+    List<AccountBalance> sumActiveCreditsByAccount(Collection<Long> accountIds, Date asOf, Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerEntry(t.id, t.account.id, t.category.id, t.amount, "
+            + "t.isExpense, t.transactionDate, t.description) from Transaction t "
+            + "where t.account.id in :accountIds and t.transactionDate between :start and :end "
+            + "and (t.createdAt is null or t.createdAt < :createdBefore)")
+    List<LedgerEntry> findEntries(Collection<Long> accountIds, Date start, Date end, Timestamp createdBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerRollupTotal(t.account.id, t.category.id, "
+            + "year(t.transactionDate), month(t.transactionDate), t.isExpense, sum(t.amount), count(t)) "
+            + "from Transaction t where t.transactionDate is not null and t.amount is not null "
+            + "group by t.account.id, t.category.id, year(t.transactionDate), month(t.transactionDate), t.isExpense")
+    List<LedgerRollupTotal> sumByMonth();
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerRollupTotal(t.account.id, t.category.id, "
+            + "year(t.transactionDate), month(t.transactionDate), t.isExpense, sum(t.amount), count(t)) "
+            + "from Transaction t where t.transactionDate is not null and t.amount is not null and " + ACTIVE
+            + " group by t.account.id, t.category.id, year(t.transactionDate), month(t.transactionDate), t.isExpense")
+    List<LedgerRollupTotal> sumActiveByMonth(Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDayTotal(t.account.id, t.transactionDate, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) from Transaction t "
+            + "where t.account.id is not null and t.transactionDate is not null and t.amount is not null "
+            + "group by t.account.id, t.transactionDate")
+    List<LedgerDayTotal> sumByDay();
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDayTotal(t.account.id, t.transactionDate, "
+            + "sum(case when t.isExpense = true then -t.amount else t.amount end)) from Transaction t "
+            + "where t.account.id is not null and t.transactionDate is not null and t.amount is not null and "
+            + ACTIVE + " group by t.account.id, t.transactionDate")
+    List<LedgerDayTotal> sumActiveByDay(Date archivedBefore);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDescription(t.id, t.description) from Transaction t "
+            + "where t.id > :afterId order by t.id")
+    List<LedgerDescription> findDescriptionsAfter(Long afterId, Pageable pageable);
+
+    @Query("select new com.nocturnals.budget.db.dto.LedgerDescription(t.id, t.description) from Transaction t "
+            + "where t.id in :ids")
+    List<LedgerDescription> findDescriptions(Collection<Long> ids);
+
+    @Query("select t from Transaction t where t.isRecurring = true and t.recurringDate in :days "
+            + "and (t.transactionDate is null or t.transactionDate < :day) order by t.id")
+    List<Transaction> findRecurringTemplates(Collection<Integer> days, Date day);
+
+    @Query("select new com.nocturnals.budget.db.dto.RecurringTemplate(t.id, t.account.id, t.category.id, t.amount, "
+            + "t.isExpense, t.transactionDate, t.recurringDate) from Transaction t where t.isRecurring = true "
+            + "and t.recurringDate is not null and t.amount is not null order by t.id")
+    List<RecurringTemplate> findTemplates();
+
+    @Query("select t from Transaction t where (t.updatedAt > :after or (t.updatedAt = :after and t.id > :afterId)) "
+            + "and t.updatedAt <= :until order by t.updatedAt, t.id")
+    List<Transaction> findChangedAfter(Timestamp after, long afterId, Timestamp until, Pageable pageable);
 }
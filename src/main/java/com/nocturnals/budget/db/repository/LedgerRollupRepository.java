@@ -0,0 +1,20 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.entity.LedgerRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerRollupRepository extends JpaRepository<LedgerRollup, Long> {
+
+    List<LedgerRollup> findByPeriodBetween(Integer start, Integer end);
+
+    List<LedgerRollup> findByAccountIdAndPeriodBetween(Long accountId, Integer start, Integer end);
+
+    List<LedgerRollup> findByCategoryIdAndPeriodBetween(Long categoryId, Integer start, Integer end);
+
+    List<LedgerRollup> findByAccountIdAndCategoryIdAndPeriodBetween(Long accountId, Long categoryId, Integer start,
+                                                                    Integer end);
+}
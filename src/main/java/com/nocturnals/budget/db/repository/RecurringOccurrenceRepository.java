@@ -0,0 +1,33 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.dto.LedgerRollupTotal;
+import com.nocturnals.budget.db.entity.RecurringOccurrence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecurringOccurrenceRepository extends JpaRepository<RecurringOccurrence, Long> {
+
+    @Query("select o.templateId from RecurringOccurrence o "
+            + "where o.occurrenceDate = :occurrenceDate and o.templateId in :templateIds")
+    List<Long> findPostedTemplateIds(Date occurrenceDate, Collection<Long> templateIds);
+
+    List<RecurringOccurrence> findByTemplateIdOrderByOccurrenceDate(Long templateId);
+
+    /**
+     * Monthly totals of the ledger rows posted for recurring templates between {@code start} and {@code end}, keyed
+     * like the rollups so they can be taken out of them.
+     */
+    @Query("select new com.nocturnals.budget.db.dto.LedgerRollupTotal(t.account.id, t.category.id, "
+            + "year(t.transactionDate), month(t.transactionDate), t.isExpense, sum(t.amount), count(t)) "
+            + "from RecurringOccurrence o join Transaction t on t.id = o.ledgerId "
+            + "where o.occurrenceDate between :start and :end and t.transactionDate is not null "
+            + "and t.amount is not null "
+            + "group by t.account.id, t.category.id, year(t.transactionDate), month(t.transactionDate), t.isExpense")
+    List<LedgerRollupTotal> sumPostedByMonth(Date start, Date end);
+}
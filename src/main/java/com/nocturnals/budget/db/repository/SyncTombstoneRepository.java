@@ -0,0 +1,24 @@
+package com.nocturnals.budget.db.repository;
+
+import com.nocturnals.budget.db.entity.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    @Query("select t from SyncTombstone t where t.resource = :resource and (t.deletedAt > :after "
+            + "or (t.deletedAt = :after and t.id > :afterId)) and t.deletedAt <= :until order by t.deletedAt, t.id")
+    List<SyncTombstone> findDeletedAfter(String resource, Timestamp after, long afterId, Timestamp until,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("delete from SyncTombstone t where t.deletedAt < :before")
+    int deleteBefore(Timestamp before);
+}
@@ -0,0 +1,119 @@
+package com.nocturnals.budget.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Asks the database for the plan of a slow query, replaying its bind parameters on a separate connection from a
+ * background thread so the request that ran the query is not held up. H2 and most databases answer {@code EXPLAIN};
+ * SQL Server returns its estimated plan as XML under {@code SHOWPLAN_XML}. Only queries are explained, never
+ * statements that write. One capture thread serves every proxied data source; requests that arrive while its queue
+ * is full, or after shutdown, are refused.
+ */
+public class ExplainPlanCapture {
+    private static final Logger log = LoggerFactory.getLogger(ExplainPlanCapture.class);
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private final ThreadPoolExecutor executor;
+
+    public ExplainPlanCapture() {
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "explain-plan-capture");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static boolean explainable(String sql) {
+        String start = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return start.startsWith("select") || start.startsWith("with");
+    }
+
+    /**
+     * Queues a plan capture whose result is handed to {@code plan}.
+     *
+     * @param dataSource the unproxied data source the query ran on, so plan queries are not themselves timed
+     * @return false if the queue was full or the capture has shut down, and nothing will be handed over
+     */
+    public boolean explainLater(DataSource dataSource, String sql, List<ParameterSetOperation> parameters,
+                                Consumer<String> plan) {
+        try {
+            executor.execute(() -> {
+                try {
+                    plan.accept(explain(dataSource, sql, parameters));
+                } catch (SQLException | RuntimeException e) {
+                    log.debug("Could not capture a plan for {}", sql, e);
+                    plan.accept("Plan unavailable: " + e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    String explain(DataSource dataSource, String sql, List<ParameterSetOperation> parameters) throws SQLException {
+        try(Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            String product = connection.getMetaData().getDatabaseProductName();
+            if(product.startsWith("Microsoft SQL Server")) {
+                try(Statement statement = connection.createStatement()) {
+                    statement.execute("set showplan_xml on");
+                    try {
+                        return run(connection, sql, parameters);
+                    } finally {
+                        statement.execute("set showplan_xml off");
+                    }
+                }
+            }
+            return run(connection, "explain " + sql, parameters);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String run(Connection connection, String sql, List<ParameterSetOperation> parameters)
+            throws SQLException {
+        try(PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setQueryTimeout(TIMEOUT_SECONDS);
+            for(ParameterSetOperation parameter : parameters) {
+                try {
+                    parameter.getMethod().invoke(statement, parameter.getArgs());
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new SQLException("Could not bind " + parameter.getMethod().getName(), e);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try(ResultSet rows = statement.executeQuery()) {
+                while(rows.next()) {
+                    if(!plan.isEmpty()) {
+                        plan.append('\n');
+                    }
+                    plan.append(rows.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
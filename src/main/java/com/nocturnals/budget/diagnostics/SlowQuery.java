@@ -0,0 +1,12 @@
+package com.nocturnals.budget.diagnostics;
+
+import java.time.Instant;
+
+/**
+ * One execution over the slow-query threshold.
+ *
+ * @param parameters the bind parameters' types in order, never their values
+ * @param origin     the application method that issued the statement
+ */
+public record SlowQuery(String sql, long nanos, String parameters, String origin, Instant at) {
+}
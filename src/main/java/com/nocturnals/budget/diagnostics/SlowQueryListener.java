@@ -0,0 +1,114 @@
+package com.nocturnals.budget.diagnostics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Times every statement run through the proxied data source and hands those over the threshold to the
+ * {@link SlowQueryLog}, requesting a plan the first time each one is seen.
+ */
+public class SlowQueryListener implements QueryExecutionListener {
+    private static final String STARTED = SlowQueryListener.class.getName() + ".started";
+    private static final String APPLICATION_PACKAGE = "com.nocturnals.budget.";
+    private static final StackWalker STACK = StackWalker.getInstance();
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+    private final ObjectProvider<ExplainPlanCapture> explainPlanCapture;
+    private final DataSource dataSource;
+
+    /**
+     * @param dataSource the unproxied data source, whose connections plan captures use
+     */
+    public SlowQueryListener(ObjectProvider<SlowQueryLog> slowQueryLog,
+                             ObjectProvider<ExplainPlanCapture> explainPlanCapture, DataSource dataSource) {
+        this.slowQueryLog = slowQueryLog;
+        this.explainPlanCapture = explainPlanCapture;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long started = execInfo.getCustomValue(STARTED, Long.class);
+        if(started == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - started;
+        SlowQueryLog log = slowQueryLog.getIfAvailable();
+        if(log == null || !log.isSlow(nanos)) {
+            return;
+        }
+        String origin = origin();
+        ExplainPlanCapture capture = explainPlanCapture.getIfAvailable();
+        for(QueryInfo query : queryInfoList) {
+            List<ParameterSetOperation> parameters = query.getParametersList().isEmpty() ? List.of()
+                    : List.copyOf(query.getParametersList().get(0));
+            SlowQuery slow = new SlowQuery(query.getQuery(), nanos, shape(parameters), origin, Instant.now());
+            if(log.record(slow) && ExplainPlanCapture.explainable(query.getQuery())) {
+                boolean queued = capture != null && capture.explainLater(dataSource, query.getQuery(), parameters,
+                        plan -> log.plan(query.getQuery(), plan));
+                if(!queued) {
+                    log.planDropped(query.getQuery());
+                }
+            }
+        }
+    }
+
+    /**
+     * The parameter types in index order, with repeats collapsed, e.g. {@code Long, Date, Long x40}.
+     */
+    static String shape(List<ParameterSetOperation> parameters) {
+        List<String> types = parameters.stream()
+                .sorted(Comparator.comparingInt(parameter -> parameter.getArgs()[0] instanceof Integer index
+                        ? index : 0))
+                .map(SlowQueryListener::type)
+                .toList();
+        StringBuilder shape = new StringBuilder();
+        for(int i = 0; i < types.size(); ) {
+            int run = 1;
+            while(i + run < types.size() && types.get(i + run).equals(types.get(i))) {
+                run++;
+            }
+            if(!shape.isEmpty()) {
+                shape.append(", ");
+            }
+            shape.append(types.get(i));
+            if(run > 1) {
+                shape.append(" x").append(run);
+            }
+            i += run;
+        }
+        return shape.toString();
+    }
+
+    private static String type(ParameterSetOperation parameter) {
+        Object[] args = parameter.getArgs();
+        if(ParameterSetOperation.isSetNullParameterOperation(parameter) || args.length < 2 || args[1] == null) {
+            return "null";
+        }
+        return args[1].getClass().getSimpleName();
+    }
+
+    private static String origin() {
+        Optional<StackWalker.StackFrame> frame = STACK.walk(frames -> frames
+                .filter(candidate -> candidate.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !candidate.getClassName().startsWith(SlowQueryListener.class.getPackageName())
+                        && !candidate.getClassName().contains("$$"))
+                .findFirst());
+        return frame.map(found -> found.getClassName().substring(found.getClassName().lastIndexOf('.') + 1)
+                + "." + found.getMethodName()).orElse(null);
+    }
+}
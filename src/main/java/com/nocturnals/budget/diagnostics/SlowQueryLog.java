@@ -0,0 +1,128 @@
+package com.nocturnals.budget.diagnostics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Ring buffer of the most recent statements that ran longer than {@code budget.diagnostics.slow-query.threshold}.
+ * Statements are grouped by their SQL, with bind-parameter lists of any length treated as the same statement, and one
+ * execution plan is kept per statement for the most recently seen ones.
+ */
+@Component
+public class SlowQueryLog {
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final int MAX_PLANS = 200;
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final SlowQuery[] buffer;
+    private final Map<String, String> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_PLANS;
+        }
+    };
+    private int next;
+    private int size;
+
+    public SlowQueryLog(@Value("${budget.diagnostics.slow-query.threshold:200ms}") Duration threshold,
+                        @Value("${budget.diagnostics.slow-query.buffer-size:1000}") int bufferSize,
+                        @Value("${budget.diagnostics.slow-query.explain:true}") boolean explain) {
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.buffer = new SlowQuery[bufferSize];
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    /**
+     * Adds an execution to the buffer, overwriting the oldest once it is full. Returns true the first time a plan is
+     * wanted for the statement, in which case the caller should capture one and hand it to {@link #plan}, or call
+     * {@link #planDropped} if it cannot.
+     */
+    public synchronized boolean record(SlowQuery query) {
+        buffer[next] = query;
+        next = (next + 1) % buffer.length;
+        size = Math.min(size + 1, buffer.length);
+        String key = normalize(query.sql());
+        if(!explain || plans.containsKey(key)) {
+            return false;
+        }
+        plans.put(key, null);
+        return true;
+    }
+
+    public synchronized void plan(String sql, String plan) {
+        plans.put(normalize(sql), plan);
+    }
+
+    /**
+     * Withdraws a plan request that was never started, so the next slow execution of the statement asks again.
+     */
+    public synchronized void planDropped(String sql) {
+        String key = normalize(sql);
+        if(plans.containsKey(key) && plans.get(key) == null) {
+            plans.remove(key);
+        }
+    }
+
+    /**
+     * Statements in the buffer ordered by the total time spent in them, longest first.
+     */
+    public List<SlowQueryOffender> offenders(int limit) {
+        List<SlowQuery> queries;
+        Map<String, String> planSnapshot;
+        synchronized(this) {
+            queries = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) {
+                queries.add(buffer[(next - size + i + buffer.length) % buffer.length]);
+            }
+            planSnapshot = new LinkedHashMap<>(plans);
+        }
+        Map<String, List<SlowQuery>> bySql = new LinkedHashMap<>();
+        for(SlowQuery query : queries) {
+            bySql.computeIfAbsent(normalize(query.sql()), key -> new ArrayList<>()).add(query);
+        }
+        List<SlowQueryOffender> offenders = new ArrayList<>(bySql.size());
+        bySql.forEach((sql, executions) -> {
+            long total = 0;
+            long max = 0;
+            for(SlowQuery execution : executions) {
+                total += execution.nanos();
+                max = Math.max(max, execution.nanos());
+            }
+            SlowQuery last = executions.get(executions.size() - 1);
+            offenders.add(new SlowQueryOffender(sql, executions.size(), millis(total), millis(max),
+                    millis(total / executions.size()), last.parameters(), last.origin(), last.at(),
+                    planSnapshot.get(sql)));
+        });
+        offenders.sort(Comparator.comparingDouble(SlowQueryOffender::totalMillis).reversed());
+        return offenders.subList(0, Math.min(limit, offenders.size()));
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+        Arrays.fill(buffer, null);
+        plans.clear();
+    }
+
+    static String normalize(String sql) {
+        return PARAMETER_LIST.matcher(sql.strip()).replaceAll("(?...)");
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
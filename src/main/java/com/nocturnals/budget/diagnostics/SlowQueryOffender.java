@@ -0,0 +1,10 @@
+package com.nocturnals.budget.diagnostics;
+
+import java.time.Instant;
+
+/**
+ * The slow executions of one statement still held in the buffer, with the plan captured for it, if any.
+ */
+public record SlowQueryOffender(String sql, int count, double totalMillis, double maxMillis, double meanMillis,
+                                String parameters, String origin, Instant lastSeen, String plan) {
+}
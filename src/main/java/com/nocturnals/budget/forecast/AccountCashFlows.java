@@ -0,0 +1,18 @@
+package com.nocturnals.budget.forecast;
+
+import java.util.List;
+
+/**
+ * What an account's forecast is simulated from.
+ *
+ * @param scheduled balance at the end of each forecast month if only the recurring templates posted
+ * @param history   variable (non-recurring) totals of the account's rows, by category and expense flag
+ */
+public record AccountCashFlows(Long accountId, double balance, double[] scheduled, List<CategoryHistory> history) {
+
+    /**
+     * @param totals unsigned total for each month of the lookback window, oldest first
+     */
+    public record CategoryHistory(long categoryId, boolean expense, double[] totals) {
+    }
+}
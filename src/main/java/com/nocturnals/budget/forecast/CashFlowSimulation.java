@@ -0,0 +1,100 @@
+package com.nocturnals.budget.forecast;
+
+import com.nocturnals.budget.db.dto.CashFlowForecast.Point;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Bootstrap simulation of variable cash flow. Each path fills every forecast month with the variable totals of a
+ * month drawn at random from the lookback window, so the spread, skew and cross-category correlation of real months
+ * carry over without assuming a distribution. The draws are made once from a fixed seed and shared by every account
+ * and scenario: accounts move together the way they did historically, which is what makes the total's percentiles
+ * meaningful, and scenarios differ only by their factors, never by sampling noise.
+ * <p>
+ * The current month only gets the share of a drawn month that is still ahead of {@code asOf}.
+ */
+public class CashFlowSimulation {
+    private final List<LocalDate> monthEnds;
+    private final double firstShare;
+    private final int lookback;
+    private final int[][] draws;
+
+    public CashFlowSimulation(LocalDate asOf, int months, int paths, int lookback, long seed) {
+        YearMonth month = YearMonth.from(asOf);
+        this.monthEnds = new ArrayList<>(months);
+        for(int i = 0; i < months; i++) {
+            monthEnds.add(month.plusMonths(i).atEndOfMonth());
+        }
+        this.firstShare = (double) (asOf.lengthOfMonth() - asOf.getDayOfMonth()) / asOf.lengthOfMonth();
+        this.lookback = lookback;
+        this.draws = new int[paths][months];
+        SplittableRandom random = new SplittableRandom(seed);
+        for(int[] path : draws) {
+            for(int i = 0; i < months; i++) {
+                path[i] = lookback == 0 ? 0 : random.nextInt(lookback);
+            }
+        }
+    }
+
+    public int months() {
+        return monthEnds.size();
+    }
+
+    public int paths() {
+        return draws.length;
+    }
+
+    /**
+     * The account's balance at the end of each forecast month on each path, indexed {@code [month][path]}.
+     */
+    public double[][] simulate(AccountCashFlows account, ForecastScenario scenario) {
+        double[] variable = new double[lookback];
+        for(AccountCashFlows.CategoryHistory category : account.history()) {
+            double factor = scenario.factor(category.categoryId(), category.expense());
+            for(int k = 0; k < lookback; k++) {
+                variable[k] += (category.expense() ? -factor : factor) * category.totals()[k];
+            }
+        }
+        double[][] balances = new double[months()][paths()];
+        for(int p = 0; p < paths(); p++) {
+            double drift = 0;
+            for(int i = 0; i < months(); i++) {
+                if(lookback > 0) {
+                    drift += (i == 0 ? firstShare : 1) * variable[draws[p][i]];
+                }
+                balances[i][p] = account.scheduled()[i] + drift;
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Mean and nearest-rank percentiles of each month's balances.
+     */
+    public List<Point> points(double[] scheduled, double[][] balances) {
+        List<Point> points = new ArrayList<>(months());
+        for(int i = 0; i < months(); i++) {
+            double[] sorted = balances[i].clone();
+            Arrays.sort(sorted);
+            points.add(new Point(monthEnds.get(i), money(scheduled[i]), money(Arrays.stream(sorted).average()
+                    .orElse(scheduled[i])), money(percentile(sorted, 10)), money(percentile(sorted, 50)),
+                    money(percentile(sorted, 90))));
+        }
+        return points;
+    }
+
+    private static double percentile(double[] sorted, int percent) {
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * percent / 100.0) - 1)];
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
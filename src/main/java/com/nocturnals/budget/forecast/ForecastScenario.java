@@ -0,0 +1,42 @@
+package com.nocturnals.budget.forecast;
+
+import java.util.Map;
+
+/**
+ * A what-if applied to the variable part of a forecast. Historical income and spend are scaled by {@code income} and
+ * {@code spend}, and each category listed in {@code categories} by its own factor on top. Scheduled recurring
+ * postings are never scaled.
+ *
+ * @param categories factor by category id; uncategorized rows are under id 0
+ */
+public record ForecastScenario(String name, Double income, Double spend, Map<Long, Double> categories) {
+    public static final ForecastScenario BASELINE = new ForecastScenario("baseline", null, null, null);
+
+    public ForecastScenario {
+        if(name == null || name.isBlank()) {
+            throw new IllegalArgumentException("A scenario needs a name");
+        }
+        income = factor(income, "income");
+        spend = factor(spend, "spend");
+        if(categories == null) {
+            categories = Map.of();
+        } else {
+            categories.forEach((categoryId, value) -> factor(value == null ? -1 : value, "category " + categoryId));
+            categories = Map.copyOf(categories);
+        }
+    }
+
+    private static double factor(Double factor, String of) {
+        if(factor == null) {
+            return 1;
+        }
+        if(factor < 0 || factor.isInfinite() || factor.isNaN()) {
+            throw new IllegalArgumentException("The " + of + " factor must be a non-negative number");
+        }
+        return factor;
+    }
+
+    public double factor(long categoryId, boolean expense) {
+        return (expense ? spend : income) * categories.getOrDefault(categoryId, 1.0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.nocturnals.budget.forecast;
+
+import com.nocturnals.budget.db.dto.CashFlowForecast.AccountForecast;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Forecasts a range of accounts under one scenario by halving the range until it is small enough to simulate
+ * directly. Each account's forecast is stored at its index in {@code results}; the task returns the sum of the
+ * accounts' simulated balances, path by path, from which the total's percentiles are taken.
+ */
+public class ForecastTask extends RecursiveTask<double[][]> {
+    static final int LEAF_SIZE = 4;
+
+    private final CashFlowSimulation simulation;
+    private final ForecastScenario scenario;
+    private final List<AccountCashFlows> accounts;
+    private final AccountForecast[] results;
+    private final int from;
+    private final int to;
+
+    public ForecastTask(CashFlowSimulation simulation, ForecastScenario scenario, List<AccountCashFlows> accounts,
+                        AccountForecast[] results) {
+        this(simulation, scenario, accounts, results, 0, accounts.size());
+    }
+
+    private ForecastTask(CashFlowSimulation simulation, ForecastScenario scenario, List<AccountCashFlows> accounts,
+                         AccountForecast[] results, int from, int to) {
+        this.simulation = simulation;
+        this.scenario = scenario;
+        this.accounts = accounts;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected double[][] compute() {
+        if(to - from > LEAF_SIZE) {
+            int middle = (from + to) >>> 1;
+            ForecastTask left = new ForecastTask(simulation, scenario, accounts, results, from, middle);
+            left.fork();
+            double[][] total = new ForecastTask(simulation, scenario, accounts, results, middle, to).compute();
+            add(total, left.join());
+            return total;
+        }
+        double[][] total = new double[simulation.months()][simulation.paths()];
+        for(int i = from; i < to; i++) {
+            AccountCashFlows account = accounts.get(i);
+            double[][] balances = simulation.simulate(account, scenario);
+            results[i] = new AccountForecast(account.accountId(), simulation.points(account.scheduled(), balances));
+            add(total, balances);
+        }
+        return total;
+    }
+
+    private static void add(double[][] total, double[][] balances) {
+        for(int i = 0; i < total.length; i++) {
+            for(int p = 0; p < total[i].length; p++) {
+                total[i][p] += balances[i][p];
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, double-quoted fields may contain commas, doubled quotes and line breaks.
+ * Reads one record at a time so arbitrarily large inputs are parsed in constant memory.
+ */
+public class CsvReader {
+    private final Reader reader;
+    private int peeked = -2;
+    private long recordNumber;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * @return the fields of the next record, or null at end of input
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if(c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while(true) {
+            if(quoted) {
+                if(c == -1) {
+                    throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                } else if(c == '"') {
+                    if(peek() == '"') {
+                        field.append('"');
+                        read();
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if(c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if(c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if(c == '\n' || c == '\r' || c == -1) {
+                if(c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                recordNumber++;
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if(peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if(peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
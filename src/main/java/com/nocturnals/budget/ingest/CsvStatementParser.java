@@ -0,0 +1,102 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads bank CSV exports with a header row. Columns are matched case-insensitively against common names: a date, a
+ * description, and either a signed amount or separate debit and credit columns; an account column is optional when
+ * the options name the account. Amounts may carry currency symbols, thousands separators or accounting parentheses.
+ */
+public class CsvStatementParser implements StatementParser {
+    private static final List<String> DATE = List.of("date", "transaction_date", "posted_date", "posting_date");
+    private static final List<String> DESCRIPTION = List.of("description", "payee", "name", "memo", "details");
+    private static final List<String> AMOUNT = List.of("amount");
+    private static final List<String> DEBIT = List.of("debit", "withdrawal");
+    private static final List<String> CREDIT = List.of("credit", "deposit");
+    private static final List<String> ACCOUNT = List.of("account", "account_name");
+
+    private final CsvReader reader;
+    private final StatementOptions options;
+    private Map<String, Integer> columns;
+
+    public CsvStatementParser(Reader reader, StatementOptions options) {
+        this.reader = new CsvReader(reader);
+        this.options = options;
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        if(columns == null && !readHeader()) {
+            return null;
+        }
+        List<String> fields;
+        do {
+            fields = reader.next();
+            if(fields == null) {
+                return null;
+            }
+        } while(fields.size() == 1 && fields.get(0).isBlank());
+        long row = reader.recordNumber();
+        String account = options.account() != null ? options.account() : column(fields, ACCOUNT);
+        String date = column(fields, DATE);
+        if(date == null) {
+            return StatementLine.invalid(row, "Date is required");
+        }
+        try {
+            BigDecimal amount;
+            String signed = column(fields, AMOUNT);
+            if(signed != null) {
+                amount = parseAmount(signed);
+            } else {
+                String debit = column(fields, DEBIT);
+                String credit = column(fields, CREDIT);
+                if(debit == null && credit == null) {
+                    return StatementLine.invalid(row, "Amount is required");
+                }
+                amount = (credit == null ? BigDecimal.ZERO : parseAmount(credit).abs())
+                        .subtract(debit == null ? BigDecimal.ZERO : parseAmount(debit).abs());
+            }
+            return StatementLine.of(row, account, LocalDate.parse(date, options.dateFormat()), amount,
+                    column(fields, DESCRIPTION));
+        } catch (DateTimeParseException e) {
+            return StatementLine.invalid(row, "Invalid date: " + date);
+        } catch (NumberFormatException e) {
+            return StatementLine.invalid(row, "Invalid amount");
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        List<String> header = reader.next();
+        if(header == null) {
+            return false;
+        }
+        columns = new HashMap<>();
+        for(int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase().replace(' ', '_'), i);
+        }
+        return true;
+    }
+
+    private String column(List<String> fields, List<String> names) {
+        for(String name : names) {
+            Integer index = columns.get(name);
+            if(index != null && index < fields.size() && !fields.get(index).isBlank()) {
+                return fields.get(index).trim();
+            }
+        }
+        return null;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        boolean parenthesized = value.startsWith("(") && value.endsWith(")");
+        BigDecimal amount = new BigDecimal(value.replaceAll("[^0-9.+-]", ""));
+        return parenthesized ? amount.negate() : amount;
+    }
+}
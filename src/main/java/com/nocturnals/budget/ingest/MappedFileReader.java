@@ -0,0 +1,99 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes a file through a sliding memory-mapped window, so files far larger than the heap are read without copying
+ * them through Java buffers. A character split across two windows is carried over by starting the next window at its
+ * first byte. Malformed input is replaced rather than rejected, and a leading UTF-8 byte order mark is skipped.
+ */
+public class MappedFileReader extends Reader {
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long size;
+    private final int windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+    private boolean finished;
+    private int pending = -1;
+
+    public MappedFileReader(Path path, Charset charset) throws IOException {
+        this(path, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileReader(Path path, Charset charset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+        if(charset.equals(StandardCharsets.UTF_8) && window.remaining() >= 3 && (window.get(0) & 0xFF) == 0xEF
+                && (window.get(1) & 0xFF) == 0xBB && (window.get(2) & 0xFF) == 0xBF) {
+            window.position(3);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+        if(pending != -1) {
+            cbuf[off] = (char) pending;
+            pending = -1;
+            return 1;
+        }
+        if(finished) {
+            return -1;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while(true) {
+            boolean endOfInput = windowStart + window.limit() == size;
+            CoderResult result = decoder.decode(window, out, endOfInput);
+            if(result.isOverflow() && out.position() == off) {
+                // Only a surrogate pair fails to fit, when one char is asked for; the low half is kept for next time
+                CharBuffer pair = CharBuffer.allocate(2);
+                decoder.decode(window, pair, endOfInput);
+                cbuf[off] = pair.get(0);
+                pending = pair.get(1);
+                return 1;
+            }
+            if(out.position() > off || result.isOverflow()) {
+                break;
+            }
+            if(endOfInput) {
+                decoder.flush(out);
+                finished = true;
+                break;
+            }
+            map(windowStart + window.position());
+        }
+        int read = out.position() - off;
+        return read == 0 && finished ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams {@code STMTTRN} elements out of an OFX file. Handles both the SGML flavour (OFX 1.x, where leaf elements
+ * are not closed) and XML (OFX 2.x) by treating any text after an opening tag as that element's value. Entries are
+ * attributed to the most recent {@code ACCTID} unless the options name the account.
+ */
+public class OfxStatementParser implements StatementParser {
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private final Reader reader;
+    private final StatementOptions options;
+    private final StringBuilder token = new StringBuilder();
+    private String accountId;
+    private long row;
+    private boolean atTag;
+
+    public OfxStatementParser(Reader reader, StatementOptions options) {
+        this.reader = reader;
+        this.options = options;
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        Map<String, String> fields = null;
+        String tag;
+        while((tag = nextTag()) != null) {
+            if(tag.equals("STMTTRN")) {
+                fields = new HashMap<>();
+            } else if(tag.equals("/STMTTRN")) {
+                if(fields != null) {
+                    return toLine(++row, fields);
+                }
+            } else if(!tag.startsWith("/")) {
+                String value = text();
+                if(value.isEmpty()) {
+                    continue;
+                }
+                if(fields != null) {
+                    fields.put(tag, value);
+                } else if(tag.equals("ACCTID")) {
+                    accountId = value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private StatementLine toLine(long row, Map<String, String> fields) {
+        String posted = fields.get("DTPOSTED");
+        String amount = fields.get("TRNAMT");
+        if(posted == null || posted.length() < 8) {
+            return StatementLine.invalid(row, "DTPOSTED is required");
+        } else if(amount == null) {
+            return StatementLine.invalid(row, "TRNAMT is required");
+        }
+        try {
+            LocalDate date = LocalDate.parse(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+            String description = fields.containsKey("NAME") ? fields.get("NAME") : fields.get("MEMO");
+            return StatementLine.of(row, options.account() != null ? options.account() : accountId, date,
+                    new BigDecimal(amount.indexOf('.') < 0 ? amount.replace(',', '.') : amount), description);
+        } catch (DateTimeParseException e) {
+            return StatementLine.invalid(row, "Invalid DTPOSTED: " + posted);
+        } catch (NumberFormatException e) {
+            return StatementLine.invalid(row, "Invalid TRNAMT: " + amount);
+        }
+    }
+
+    /**
+     * Skips to the next tag and returns its upper-cased name, with a leading slash for closing tags.
+     */
+    private String nextTag() throws IOException {
+        int c;
+        while(!atTag && (c = reader.read()) != '<') {
+            if(c == -1) {
+                return null;
+            }
+        }
+        atTag = false;
+        token.setLength(0);
+        while((c = reader.read()) != '>') {
+            if(c == -1) {
+                throw new IOException("Unterminated OFX tag after entry " + row);
+            }
+            append(c);
+        }
+        String tag = token.toString().trim();
+        int space = tag.indexOf(' ');
+        return (space < 0 ? tag : tag.substring(0, space)).toUpperCase();
+    }
+
+    /**
+     * Reads the text up to the next tag, leaving the reader positioned just after its {@code <}.
+     */
+    private String text() throws IOException {
+        token.setLength(0);
+        int c;
+        while((c = reader.read()) != -1 && c != '<') {
+            append(c);
+        }
+        atTag = c == '<';
+        return decode(token.toString().trim());
+    }
+
+    private void append(int c) throws IOException {
+        if(token.length() == MAX_TOKEN_LENGTH) {
+            throw new IOException("OFX element longer than " + MAX_TOKEN_LENGTH + " characters after entry " + row);
+        }
+        token.append((char) c);
+    }
+
+    private static String decode(String value) {
+        if(value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+}
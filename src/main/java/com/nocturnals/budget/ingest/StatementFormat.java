@@ -0,0 +1,20 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.Reader;
+
+public enum StatementFormat {
+    CSV {
+        @Override
+        public StatementParser open(Reader reader, StatementOptions options) {
+            return new CsvStatementParser(reader, options);
+        }
+    },
+    OFX {
+        @Override
+        public StatementParser open(Reader reader, StatementOptions options) {
+            return new OfxStatementParser(reader, options);
+        }
+    };
+
+    public abstract StatementParser open(Reader reader, StatementOptions options);
+}
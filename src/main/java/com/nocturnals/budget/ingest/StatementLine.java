@@ -0,0 +1,20 @@
+package com.nocturnals.budget.ingest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One parsed statement entry. The amount is signed from the account holder's side: negative values are money out.
+ * Entries that could not be parsed carry only their row and the reason.
+ */
+public record StatementLine(long row, String account, LocalDate date, BigDecimal amount, String description,
+                            String error) {
+
+    public static StatementLine of(long row, String account, LocalDate date, BigDecimal amount, String description) {
+        return new StatementLine(row, account, date, amount, description, null);
+    }
+
+    public static StatementLine invalid(long row, String error) {
+        return new StatementLine(row, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package com.nocturnals.budget.ingest;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * @param account    account name used for every entry, overriding whatever the file names
+ * @param dateFormat format of CSV date columns; OFX dates have a fixed format
+ */
+public record StatementOptions(String account, DateTimeFormatter dateFormat, Charset charset) {
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+    /**
+     * @throws IllegalArgumentException if the date format is not a valid pattern
+     */
+    public static StatementOptions of(String account, String dateFormat, Charset charset) {
+        return new StatementOptions(account == null || account.isBlank() ? null : account.trim(),
+                DateTimeFormatter.ofPattern(dateFormat == null ? DEFAULT_DATE_FORMAT : dateFormat),
+                charset == null ? StandardCharsets.UTF_8 : charset);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nocturnals.budget.ingest;
+
+import java.io.IOException;
+
+public interface StatementParser {
+
+    /**
+     * @return the next statement entry, or null at end of input
+     */
+    StatementLine next() throws IOException;
+}
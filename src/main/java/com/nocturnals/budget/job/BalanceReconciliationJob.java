@@ -0,0 +1,45 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.AccountBalanceService;
+import com.nocturnals.budget.db.dao.AccountBalanceService.BalanceMismatch;
+import com.nocturnals.budget.db.dao.AccountBalanceService.ReconciliationChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies stored account balances against ledger sums, one bounded chunk of accounts per transaction.
+ */
+@Component
+public class BalanceReconciliationJob {
+    private static final Logger log = LoggerFactory.getLogger(BalanceReconciliationJob.class);
+
+    private final AccountBalanceService accountBalanceService;
+    private final int chunkSize;
+    private final boolean repair;
+
+    public BalanceReconciliationJob(AccountBalanceService accountBalanceService,
+                                    @Value("${budget.balance.reconciliation.chunk-size:500}") int chunkSize,
+                                    @Value("${budget.balance.reconciliation.repair:false}") boolean repair) {
+        this.accountBalanceService = accountBalanceService;
+        this.chunkSize = chunkSize;
+        this.repair = repair;
+    }
+
+    @Scheduled(cron = "${budget.balance.reconciliation.cron:0 30 2 * * *}")
+    public void reconcile() {
+        int mismatches = 0;
+        ReconciliationChunk chunk = accountBalanceService.reconcile(Long.MIN_VALUE, chunkSize, repair);
+        while(chunk.lastAccountId() != null) {
+            for(BalanceMismatch mismatch : chunk.mismatches()) {
+                log.warn("Account {} balance {} does not match ledger total {}{}", mismatch.accountId(),
+                        mismatch.stored(), mismatch.expected(), mismatch.repaired() ? " (repaired)" : "");
+            }
+            mismatches += chunk.mismatches().size();
+            chunk = accountBalanceService.reconcile(chunk.lastAccountId(), chunkSize, repair);
+        }
+        log.info("Balance reconciliation finished with {} mismatched accounts", mismatches);
+    }
+}
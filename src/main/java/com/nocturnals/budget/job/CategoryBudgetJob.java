@@ -0,0 +1,29 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.CategoryBudgetService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CategoryBudgetJob {
+    private static final Logger log = LoggerFactory.getLogger(CategoryBudgetJob.class);
+
+    private final CategoryBudgetService categoryBudgetService;
+
+    public CategoryBudgetJob(CategoryBudgetService categoryBudgetService) {
+        this.categoryBudgetService = categoryBudgetService;
+    }
+
+    @Scheduled(fixedDelayString = "${budget.category.flush-interval:5000}")
+    public void flush() {
+        categoryBudgetService.flush();
+    }
+
+    @Scheduled(cron = "${budget.category.rollover.cron:0 0 0 1 * *}")
+    public void rollover() {
+        log.info("Started budget period {} for {} categories", CategoryBudgetService.currentPeriod(),
+                categoryBudgetService.rollover());
+    }
+}
@@ -0,0 +1,40 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.ChangeEventService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes outbox events to the change feed shortly after they commit, answers long polls woken by another node's
+ * relay, and trims the feed nightly.
+ */
+@Component
+public class ChangeRelayJob {
+    private static final Logger log = LoggerFactory.getLogger(ChangeRelayJob.class);
+
+    private final ChangeEventService changeEventService;
+
+    public ChangeRelayJob(ChangeEventService changeEventService) {
+        this.changeEventService = changeEventService;
+    }
+
+    @Scheduled(fixedDelayString = "${budget.changes.relay-interval:500}")
+    public void relay() {
+        int published = changeEventService.relay();
+        if(published > 0) {
+            log.debug("Published {} change events", published);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${budget.changes.poll:PT1S}")
+    public void pollWaiters() {
+        changeEventService.pollWaiters();
+    }
+
+    @Scheduled(cron = "${budget.changes.purge.cron:0 15 4 * * *}")
+    public void purge() {
+        log.info("Purged {} change events past retention", changeEventService.purge());
+    }
+}
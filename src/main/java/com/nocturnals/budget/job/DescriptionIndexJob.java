@@ -0,0 +1,29 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.DescriptionSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings this node's description index up to date with ledger writes published to the change feed.
+ */
+@Component
+public class DescriptionIndexJob {
+    private static final Logger log = LoggerFactory.getLogger(DescriptionIndexJob.class);
+
+    private final DescriptionSearchService descriptionSearchService;
+
+    public DescriptionIndexJob(DescriptionSearchService descriptionSearchService) {
+        this.descriptionSearchService = descriptionSearchService;
+    }
+
+    @Scheduled(fixedDelayString = "${budget.search.follow-interval:1000}")
+    public void follow() {
+        int changed = descriptionSearchService.follow();
+        if(changed > 0) {
+            log.debug("Re-indexed {} changed ledger descriptions", changed);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.LedgerArchiveService;
+import com.nocturnals.budget.db.dao.LedgerArchiveService.ArchiveRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Archives closed years nightly. A run copies the months that have become due and purges the ones copied by an
+ * earlier run, so a month leaves the ledger the night after it is archived.
+ */
+@Component
+public class LedgerArchiveJob {
+    private static final Logger log = LoggerFactory.getLogger(LedgerArchiveJob.class);
+
+    private final LedgerArchiveService ledgerArchiveService;
+
+    public LedgerArchiveJob(LedgerArchiveService ledgerArchiveService) {
+        this.ledgerArchiveService = ledgerArchiveService;
+    }
+
+    @Scheduled(cron = "${budget.archive.cron:0 45 3 * * *}")
+    public void archive() {
+        ArchiveRun run = ledgerArchiveService.run(LocalDate.now());
+        if(run == null) {
+            log.debug("The ledger is being archived by another node");
+        } else if(run.copiedMonths() > 0 || run.purgedMonths() > 0) {
+            log.info("Archived {} rows from {} months and purged {} months; the archive now ends before {}",
+                    run.copiedRows(), run.copiedMonths(), run.purgedMonths(), run.archivedBefore());
+        }
+    }
+}
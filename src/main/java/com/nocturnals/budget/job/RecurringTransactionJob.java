@@ -0,0 +1,35 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.RecurringTransactionService;
+import com.nocturnals.budget.db.dao.RecurringTransactionService.RecurringRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Posts due recurring transactions. Runs hourly by default so a node that was down at midnight catches up soon after
+ * it starts; runs with nothing left to post cost two queries.
+ */
+@Component
+public class RecurringTransactionJob {
+    private static final Logger log = LoggerFactory.getLogger(RecurringTransactionJob.class);
+
+    private final RecurringTransactionService recurringTransactionService;
+
+    public RecurringTransactionJob(RecurringTransactionService recurringTransactionService) {
+        this.recurringTransactionService = recurringTransactionService;
+    }
+
+    @Scheduled(cron = "${budget.recurring.cron:0 5 * * * *}")
+    public void post() {
+        RecurringRun run = recurringTransactionService.run(LocalDate.now());
+        if(run == null) {
+            log.debug("Recurring transactions are being posted by another node");
+        } else if(run.from() != null) {
+            log.info("Posted {} recurring transactions for {} to {}", run.posted(), run.from(), run.to());
+        }
+    }
+}
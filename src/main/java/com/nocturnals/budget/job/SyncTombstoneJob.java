@@ -0,0 +1,26 @@
+package com.nocturnals.budget.job;
+
+import com.nocturnals.budget.db.dao.SyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops sync tombstones past retention every night.
+ */
+@Component
+public class SyncTombstoneJob {
+    private static final Logger log = LoggerFactory.getLogger(SyncTombstoneJob.class);
+
+    private final SyncService syncService;
+
+    public SyncTombstoneJob(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @Scheduled(cron = "${budget.sync.purge.cron:0 45 4 * * *}")
+    public void purge() {
+        log.info("Purged {} sync tombstones past retention", syncService.purge());
+    }
+}
@@ -0,0 +1,97 @@
+package com.nocturnals.budget.loan;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed-rate schedule of equal monthly payments. Interest is rounded to the cent each month and the last payment
+ * absorbs the rounding, so the balance ends at exactly zero.
+ */
+public record AmortizationSchedule(LoanTerms terms, BigDecimal payment, BigDecimal totalInterest,
+                                   List<Installment> installments) {
+
+    public record Installment(int number, LocalDate dueDate, BigDecimal payment, BigDecimal interest,
+                              BigDecimal principal, BigDecimal balance) {
+    }
+
+    public static AmortizationSchedule of(LoanTerms terms) {
+        int count = terms.payments();
+        double rate = terms.monthlyRate();
+        return amortize(terms, payment(terms.principal(), rate, count), terms.principal(), 0, count, true);
+    }
+
+    /**
+     * The level payment that repays {@code principal} in {@code count} months at {@code rate} per month.
+     */
+    static BigDecimal payment(BigDecimal principal, double rate, int count) {
+        if(rate == 0) {
+            return principal.divide(BigDecimal.valueOf(count), 2, RoundingMode.UP);
+        }
+        double payment = principal.doubleValue() * rate / (1 - Math.pow(1 + rate, -count));
+        return BigDecimal.valueOf(payment).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Pays {@code balance} down with {@code payment} starting with the month after installment {@code after}, for
+     * at most {@code limit} months, stopping early if the payment no longer covers the interest. With {@code settle}
+     * the last month pays off whatever is left.
+     */
+    private static AmortizationSchedule amortize(LoanTerms terms, BigDecimal payment, BigDecimal balance, int after,
+                                                 int limit, boolean settle) {
+        BigDecimal rate = BigDecimal.valueOf(terms.monthlyRate());
+        List<Installment> installments = new ArrayList<>();
+        BigDecimal totalInterest = BigDecimal.ZERO;
+        for(int number = 1; number <= limit && balance.signum() > 0; number++) {
+            BigDecimal interest = balance.multiply(rate).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal principal = payment.subtract(interest);
+            if(settle && number == limit || principal.compareTo(balance) >= 0) {
+                principal = balance;
+            }
+            if(principal.signum() <= 0) {
+                break;
+            }
+            balance = balance.subtract(principal);
+            totalInterest = totalInterest.add(interest);
+            installments.add(new Installment(after + number, terms.startDate().plusMonths(after + number),
+                    principal.add(interest), interest, principal, balance));
+        }
+        return new AmortizationSchedule(terms, payment, totalInterest, Collections.unmodifiableList(installments));
+    }
+
+    /**
+     * Balance still owed after the last installment due on or before {@code date}.
+     */
+    public BigDecimal balanceOn(LocalDate date) {
+        BigDecimal balance = terms.principal();
+        for(Installment installment : installments) {
+            if(installment.dueDate().isAfter(date)) {
+                break;
+            }
+            balance = installment.balance();
+        }
+        return balance;
+    }
+
+    /**
+     * What paying {@code balance} down with this schedule's payment after installment {@code after} would take. Up
+     * to twice the loan's term is simulated; a balance the payment cannot clear in that time has no payoff date.
+     */
+    public Payoff payoff(BigDecimal balance, int after) {
+        if(balance.signum() <= 0) {
+            return new Payoff(terms.startDate().plusMonths(after), BigDecimal.ZERO.setScale(2));
+        }
+        AmortizationSchedule remaining = amortize(terms, payment, balance, after, terms.payments() * 2, false);
+        List<Installment> rows = remaining.installments();
+        if(rows.isEmpty() || rows.get(rows.size() - 1).balance().signum() > 0) {
+            return new Payoff(null, remaining.totalInterest());
+        }
+        return new Payoff(rows.get(rows.size() - 1).dueDate(), remaining.totalInterest());
+    }
+
+    public record Payoff(LocalDate date, BigDecimal interest) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.nocturnals.budget.loan;
+
+/**
+ * How often a loan's nominal annual rate compounds. Payments are monthly whatever the compounding.
+ */
+public enum Compounding {
+    ANNUAL(1), SEMI_ANNUAL(2), QUARTERLY(4), MONTHLY(12), DAILY(365);
+
+    private final int periodsPerYear;
+
+    Compounding(int periodsPerYear) {
+        this.periodsPerYear = periodsPerYear;
+    }
+
+    /**
+     * The rate per monthly payment period equivalent to {@code annualRate} (a fraction, not a percentage)
+     * compounded this often.
+     */
+    public double monthlyRate(double annualRate) {
+        return Math.pow(1 + annualRate / periodsPerYear, periodsPerYear / 12.0) - 1;
+    }
+
+    /**
+     * Accepts the constant names in any case, with hyphens in place of underscores.
+     */
+    public static Compounding parse(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
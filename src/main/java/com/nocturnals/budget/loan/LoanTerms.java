@@ -0,0 +1,50 @@
+package com.nocturnals.budget.loan;
+
+import com.nocturnals.budget.db.entity.Account;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Everything an amortization schedule depends on. Two loans with equal terms share a schedule, so the terms are used
+ * as its cache key: editing any of them on the account produces a new key, while balance changes do not.
+ *
+ * @param annualRate nominal yearly rate as a percentage, as stored on the account
+ */
+public record LoanTerms(BigDecimal principal, BigDecimal annualRate, LocalDate startDate, LocalDate endDate,
+                        Compounding compounding) {
+
+    public LoanTerms {
+        if(principal == null || principal.signum() <= 0) {
+            throw new IllegalArgumentException("A loan needs a positive total amount");
+        }
+        if(startDate == null || endDate == null || ChronoUnit.MONTHS.between(startDate, endDate) < 1) {
+            throw new IllegalArgumentException("A loan needs a start date at least a month before its end date");
+        }
+        principal = principal.stripTrailingZeros();
+        annualRate = annualRate == null ? BigDecimal.ZERO : annualRate.stripTrailingZeros();
+    }
+
+    public static LoanTerms of(Account account, Compounding compounding) {
+        if(!Boolean.TRUE.equals(account.getIsLoanAccount())) {
+            throw new IllegalArgumentException("Account " + account.getId() + " is not a loan account");
+        }
+        return new LoanTerms(account.getTotalAmount(),
+                account.getInterestRate() == null ? null : BigDecimal.valueOf(account.getInterestRate()),
+                account.getStartDate() == null ? null : account.getStartDate().toLocalDate(),
+                account.getEndDate() == null ? null : account.getEndDate().toLocalDate(),
+                compounding);
+    }
+
+    /**
+     * Monthly payments from one month after the start date up to the end date.
+     */
+    public int payments() {
+        return (int) ChronoUnit.MONTHS.between(startDate, endDate);
+    }
+
+    public double monthlyRate() {
+        return compounding.monthlyRate(annualRate.doubleValue() / 100);
+    }
+}
@@ -0,0 +1,278 @@
+package com.nocturnals.budget.perf;
+
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService;
+import com.nocturnals.budget.db.dao.CategoryBudgetService;
+import com.nocturnals.budget.db.dao.LedgerRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills an empty database with synthetic banks, accounts, categories and ledger rows when the {@code perf} profile
+ * starts. Activity is skewed the way real ledgers are: a few accounts and merchants take most of the rows, amounts
+ * are log-normal per merchant, and recent months are busier than old ones. Rows are written with plain JDBC batches;
+ * balances, this month's remaining budgets, the monthly rollups and the balance snapshots are then set to match them,
+ * and the description index is built by the usual startup rebuild. Dates run back from {@code budget.perf.anchor}
+ * rather than today, so the same seed and anchor produce the same rows on any day.
+ */
+@Component
+@Profile("perf")
+public class SyntheticLedgerGenerator implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(SyntheticLedgerGenerator.class);
+
+    private static final String[] BANKS = {"First Federal", "Harborview Credit Union", "Summit Savings",
+            "Northgate Bank", "Pioneer Trust", "Lakeshore Financial", "Redwood Mutual", "Keystone Bank"};
+    private static final String[] ACCOUNT_TYPES = {"Checking", "Savings", "Credit Card", "Loan", "Brokerage"};
+    private static final String[] CATEGORIES = {"Income", "Groceries", "Dining", "Transport", "Fuel", "Utilities",
+            "Rent", "Insurance", "Health", "Entertainment", "Shopping", "Travel", "Education", "Subscriptions",
+            "Home", "Gifts", "Fitness", "Pets", "Kids", "Personal Care"};
+    private static final String[] PLACES = {"Blue Harbor", "Pinecrest", "Northside", "Lakeside", "Metro", "Summit",
+            "Riverbend", "Oakwood", "Granite", "Sunrise", "Maple", "Westfield", "Cedar", "Brightline", "Golden",
+            "Silver", "Evergreen", "Willow", "Ironwood", "Bayview", "Highland", "Meadow", "Stonebridge", "Fairview"};
+    private static final String[] KINDS = {"Market", "Cafe", "Station", "Supply", "Outlet", "Co", "Store", "Depot",
+            "Express", "Hall"};
+    private static final String INSERT_LEDGER = "insert into ledger (id, description, amount, transaction_date, "
+            + "is_expense, is_recurring, recurring_date, account_id, category_id, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int LEDGER_ID_BLOCK = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerRollupService ledgerRollupService;
+    private final AccountBalanceHistoryService accountBalanceHistoryService;
+    private final int rows;
+    private final int accounts;
+    private final int years;
+    private final double skew;
+    private final long seed;
+    private final int batchSize;
+    private final LocalDate anchor;
+
+    public SyntheticLedgerGenerator(JdbcTemplate jdbcTemplate, LedgerRollupService ledgerRollupService,
+                                    AccountBalanceHistoryService accountBalanceHistoryService,
+                                    @Value("${budget.perf.rows:1000000}") int rows,
+                                    @Value("${budget.perf.accounts:50}") int accounts,
+                                    @Value("${budget.perf.years:5}") int years,
+                                    @Value("${budget.perf.skew:1.1}") double skew,
+                                    @Value("${budget.perf.seed:42}") long seed,
+                                    @Value("${budget.perf.batch-size:10000}") int batchSize,
+                                    @Value("${budget.perf.anchor:2024-12-31}") String anchor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledgerRollupService = ledgerRollupService;
+        this.accountBalanceHistoryService = accountBalanceHistoryService;
+        this.rows = rows;
+        this.accounts = accounts;
+        this.years = years;
+        this.skew = skew;
+        this.seed = seed;
+        this.batchSize = batchSize;
+        this.anchor = LocalDate.parse(anchor);
+    }
+
+    private record Merchant(String name, int category, double median) {
+    }
+
+    private static class LedgerRow {
+        long id;
+        String description;
+        long cents;
+        Date date;
+        boolean expense;
+        boolean recurring;
+        Integer recurringDay;
+        long accountId;
+        long categoryId;
+        Timestamp created;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long existing = jdbcTemplate.queryForObject("select count(*) from ledger", Long.class);
+        if(existing != null && existing > 0) {
+            log.info("Ledger already holds {} rows; skipping synthetic data", existing);
+            return;
+        }
+        long started = System.nanoTime();
+        generate();
+        log.info("Generated {} ledger rows across {} accounts in {} ms", rows, accounts,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Inserts the reference data and {@code budget.perf.rows} ledger rows dated up to the anchor, then brings balances, budgets, rollups,
+     * balance snapshots and the ledger sequence in line with them.
+     */
+    public void generate() {
+        Random random = new Random(seed);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> bankIds = new ArrayList<>();
+        for(String bank : BANKS) {
+            bankIds.add(insert("insert into bank (name, created_at, updated_at) values (?, ?, ?)", bank, now, now));
+        }
+        List<Long> typeIds = new ArrayList<>();
+        for(String type : ACCOUNT_TYPES) {
+            typeIds.add(insert("insert into account_type (type, created_at, updated_at) values (?, ?, ?)",
+                    type, now, now));
+        }
+        LocalDate firstDay = anchor.minusYears(years).withDayOfMonth(1);
+        List<Long> accountIds = new ArrayList<>();
+        long[] openingCents = new long[accounts];
+        for(int i = 0; i < accounts; i++) {
+            int type = i % ACCOUNT_TYPES.length;
+            boolean loan = "Loan".equals(ACCOUNT_TYPES[type]);
+            openingCents[i] = loan ? 0 : random.nextInt(500_000) * 100L;
+            BigDecimal opening = BigDecimal.valueOf(openingCents[i], 2);
+            accountIds.add(insert("insert into account (name, balance, opening_balance, is_loan_account, "
+                            + "total_amount, interest_rate, start_date, end_date, bank_id, account_type_id, version, "
+                            + "created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)",
+                    BANKS[i % BANKS.length] + " " + ACCOUNT_TYPES[type] + " " + (i + 1), opening, opening, loan,
+                    loan ? BigDecimal.valueOf(10_000 + random.nextInt(490_000)) : null,
+                    loan ? 2 + random.nextInt(600) / 100.0 : null,
+                    loan ? Date.valueOf(firstDay) : null, loan ? Date.valueOf(firstDay.plusYears(15)) : null,
+                    bankIds.get(i % bankIds.size()), typeIds.get(type), now, now));
+        }
+        List<Long> categoryIds = new ArrayList<>();
+        YearMonth anchorMonth = YearMonth.from(anchor);
+        int period = CategoryBudgetService.period(anchorMonth);
+        for(int i = 0; i < CATEGORIES.length; i++) {
+            BigDecimal budget = i == 0 ? null : BigDecimal.valueOf((50 + random.nextInt(20) * 50) * 100L, 2);
+            categoryIds.add(insert("insert into category (name, budget, remaining_budget, is_rolling_budget, "
+                            + "budget_period, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?)",
+                    CATEGORIES[i], budget, budget, i % 3 == 0, budget == null ? null : period, now, now));
+        }
+
+        List<Merchant> merchants = new ArrayList<>();
+        for(String place : PLACES) {
+            for(String kind : KINDS) {
+                int category = 1 + random.nextInt(CATEGORIES.length - 1);
+                merchants.add(new Merchant(place + " " + kind, category, 5 + Math.pow(random.nextDouble(), 3) * 400));
+            }
+        }
+        ZipfSampler merchantSampler = new ZipfSampler(merchants.size(), skew);
+        ZipfSampler accountSampler = new ZipfSampler(accounts, skew);
+        ZipfSampler storeSampler = new ZipfSampler(200, skew);
+        long days = ChronoUnit.DAYS.between(firstDay, anchor) + 1;
+
+        long firstId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from ledger", Long.class) + 1;
+        long[] ledgerCents = new long[accounts];
+        long[] monthSpendCents = new long[CATEGORIES.length];
+        LedgerRow[] batch = new LedgerRow[batchSize];
+        int filled = 0;
+        for(int i = 0; i < rows; i++) {
+            int account = accountSampler.next(random);
+            LedgerRow row = new LedgerRow();
+            row.id = firstId + i;
+            row.accountId = accountIds.get(account);
+            LocalDate day = firstDay.plusDays((long) (Math.sqrt(random.nextDouble()) * days));
+            row.date = Date.valueOf(day);
+            row.created = Timestamp.valueOf(day.atTime(random.nextInt(24), random.nextInt(60)));
+            if(random.nextInt(40) == 0) {
+                row.description = "Payroll " + PLACES[account % PLACES.length] + " Ltd";
+                row.categoryId = categoryIds.get(0);
+                row.cents = 150_000 + random.nextInt(400_000);
+                row.expense = false;
+            } else {
+                Merchant merchant = merchants.get(merchantSampler.next(random));
+                row.description = merchant.name() + " #" + (storeSampler.next(random) + 1);
+                row.categoryId = categoryIds.get(merchant.category());
+                row.cents = Math.max(1, Math.round(Math.exp(Math.log(merchant.median()) + 0.6 * random.nextGaussian())
+                        * 100));
+                row.expense = true;
+                if(random.nextInt(200) == 0) {
+                    row.recurring = true;
+                    row.recurringDay = day.getDayOfMonth();
+                }
+                if(YearMonth.from(day).equals(anchorMonth)) {
+                    monthSpendCents[merchant.category()] += row.cents;
+                }
+            }
+            ledgerCents[account] += row.expense ? -row.cents : row.cents;
+            batch[filled++] = row;
+            if(filled == batchSize) {
+                insertLedger(batch, filled);
+                filled = 0;
+            }
+        }
+        insertLedger(batch, filled);
+
+        List<Object[]> balances = new ArrayList<>(accounts);
+        for(int i = 0; i < accounts; i++) {
+            balances.add(new Object[]{BigDecimal.valueOf(openingCents[i] + ledgerCents[i], 2), accountIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate("update account set balance = ? where id = ?", balances);
+        List<Object[]> spend = new ArrayList<>(CATEGORIES.length);
+        for(int i = 0; i < CATEGORIES.length; i++) {
+            spend.add(new Object[]{BigDecimal.valueOf(monthSpendCents[i], 2), categoryIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate("update category set remaining_budget = budget - ? where id = ? "
+                + "and budget is not null", spend);
+        // Hibernate's pooled optimizer treats each sequence value as the top of a block of allocationSize ids
+        jdbcTemplate.execute("alter sequence ledger_seq restart with " + (firstId + rows + LEDGER_ID_BLOCK - 1));
+        ledgerRollupService.rebuild();
+        accountBalanceHistoryService.rebuild();
+    }
+
+    private void insertLedger(LedgerRow[] batch, int size) {
+        if(size == 0) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LEDGER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LedgerRow row = batch[i];
+                ps.setLong(1, row.id);
+                ps.setString(2, row.description);
+                ps.setBigDecimal(3, BigDecimal.valueOf(row.cents, 2));
+                ps.setDate(4, row.date);
+                ps.setBoolean(5, row.expense);
+                ps.setBoolean(6, row.recurring);
+                if(row.recurringDay == null) {
+                    ps.setNull(7, Types.INTEGER);
+                } else {
+                    ps.setInt(7, row.recurringDay);
+                }
+                ps.setLong(8, row.accountId);
+                ps.setLong(9, row.categoryId);
+                ps.setTimestamp(10, row.created);
+                ps.setTimestamp(11, row.created);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+    }
+
+    private Long insert(String sql, Object... args) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
+            for(int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+}
@@ -0,0 +1,189 @@
+package com.nocturnals.budget.search;
+
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * In-memory Lucene index of ledger descriptions, one document per ledger id. Descriptions are split into lower-cased
+ * words by the standard analyzer and every word of a query must match. Each description's lower-cased three-character
+ * sequences are indexed too, so substring searches can be narrowed to the rows holding every sequence of the text;
+ * those are candidates, which the caller still has to confirm. Writes are visible to the next search.
+ */
+public class DescriptionIndex implements Closeable {
+    private static final String ID = "id";
+    private static final String DESCRIPTION = "description";
+    private static final String GRAM = "gram";
+    private static final int GRAM_LENGTH = 3;
+    private static final int MAX_GRAMS = 64;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public DescriptionIndex() throws IOException {
+        this.writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Adds or replaces the document for {@code id}; a null description removes it.
+     */
+    public void put(long id, String description) throws IOException {
+        if(description == null || description.isBlank()) {
+            writer.deleteDocuments(idTerm(id));
+            return;
+        }
+        Document document = new Document();
+        document.add(new StringField(ID, Long.toString(id), Field.Store.NO));
+        document.add(new StoredField(ID, id));
+        document.add(new TextField(DESCRIPTION, description, Field.Store.NO));
+        for(String gram : grams(description, Integer.MAX_VALUE)) {
+            document.add(new StringField(GRAM, gram, Field.Store.NO));
+        }
+        writer.updateDocument(idTerm(id), document);
+    }
+
+    public void remove(long id) throws IOException {
+        writer.deleteDocuments(idTerm(id));
+    }
+
+    public void clear() throws IOException {
+        writer.deleteAll();
+    }
+
+    /**
+     * Makes the preceding writes visible to searches.
+     */
+    public void refresh() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    public int size() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Returns the ids of up to {@code limit} matching documents, best match first. A query without any words
+     * matches nothing. For {@code CONTAINS} the ids are candidates that hold every three-character sequence of the
+     * text, and null is returned for text shorter than three characters, which the index cannot narrow.
+     */
+    public List<Long> search(String text, DescriptionMatch match, int limit) throws IOException {
+        if(match == DescriptionMatch.CONTAINS) {
+            Query query = substringQuery(text);
+            return query == null ? null : search(query, limit);
+        }
+        Query query = query(text, match);
+        return query == null ? List.of() : search(query, limit);
+    }
+
+    private List<Long> search(Query query, int limit) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query, limit);
+            StoredFields fields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>(top.scoreDocs.length);
+            for(ScoreDoc hit : top.scoreDocs) {
+                ids.add(fields.document(hit.doc).getField(ID).numericValue().longValue());
+            }
+            return ids;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Query query(String text, DescriptionMatch match) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        int words = 0;
+        try(TokenStream tokens = analyzer.tokenStream(DESCRIPTION, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while(tokens.incrementToken()) {
+                Term word = new Term(DESCRIPTION, term.toString());
+                query.add(switch(match) {
+                    case PREFIX -> new PrefixQuery(word);
+                    case FUZZY -> new FuzzyQuery(word, maxEdits(word.text()));
+                    case TOKEN, CONTAINS -> new TermQuery(word);
+                }, BooleanClause.Occur.MUST);
+                words++;
+            }
+            tokens.end();
+        }
+        return words == 0 ? null : query.build();
+    }
+
+    /**
+     * Every sequence of the text is required, up to {@link #MAX_GRAMS} of them; fewer still only ever widen the
+     * candidates.
+     */
+    private static Query substringQuery(String text) {
+        Set<String> grams = grams(text, MAX_GRAMS);
+        if(grams.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        grams.forEach(gram -> query.add(new TermQuery(new Term(GRAM, gram)), BooleanClause.Occur.FILTER));
+        return query.build();
+    }
+
+    private static Set<String> grams(String text, int max) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<String> grams = new LinkedHashSet<>();
+        for(int i = 0; i + GRAM_LENGTH <= lower.length() && grams.size() < max; i++) {
+            grams.add(lower.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Short words tolerate fewer typos, so "cat" does not match every three letter word.
+     */
+    private static int maxEdits(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    private static Term idTerm(long id) {
+        return new Term(ID, Long.toString(id));
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+}
@@ -0,0 +1,108 @@
+-- Schema as of the first versioned release. Databases created earlier by ddl-auto=update are baselined at version 0
+-- (spring.flyway.baseline-on-migrate) and run this script too, so every object is created only when missing and
+-- every column added after the first release is added to tables that predate it.
+
+create sequence if not exists ledger_seq start with 1 increment by 50;
+
+create table if not exists bank (
+    id bigint generated by default as identity,
+    name varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint pk_bank primary key (id),
+    constraint uk_bank_name unique (name)
+);
+
+create table if not exists account_type (
+    id bigint generated by default as identity,
+    type varchar(255),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint pk_account_type primary key (id),
+    constraint uk_account_type_type unique (type)
+);
+
+create table if not exists account (
+    id bigint generated by default as identity,
+    name varchar(255),
+    balance numeric(38,2),
+    opening_balance numeric(38,2),
+    is_loan_account boolean,
+    total_amount numeric(38,2),
+    interest_rate float(53),
+    start_date date,
+    end_date date,
+    bank_id bigint,
+    account_type_id bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    version bigint default 0 not null,
+    constraint pk_account primary key (id),
+    constraint uk_account_name unique (name),
+    constraint fk_account_bank foreign key (bank_id) references bank,
+    constraint fk_account_account_type foreign key (account_type_id) references account_type
+);
+
+alter table account add column if not exists opening_balance numeric(38,2);
+alter table account add column if not exists version bigint default 0 not null;
+
+create table if not exists category (
+    id bigint generated by default as identity,
+    name varchar(255),
+    budget numeric(38,2),
+    remaining_budget numeric(38,2),
+    is_rolling_budget boolean,
+    budget_period integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint pk_category primary key (id),
+    constraint uk_category_name unique (name)
+);
+
+alter table category add column if not exists budget_period integer;
+
+create table if not exists ledger (
+    id bigint not null,
+    description varchar(255),
+    amount numeric(38,2),
+    transaction_date date,
+    is_expense boolean,
+    is_recurring boolean,
+    recurring_date integer,
+    account_id bigint,
+    category_id bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint pk_ledger primary key (id),
+    constraint fk_ledger_account foreign key (account_id) references account,
+    constraint fk_ledger_category foreign key (category_id) references category
+);
+
+create table if not exists ledger_rollup (
+    id bigint generated by default as identity,
+    account_id bigint not null,
+    category_id bigint not null,
+    period integer not null,
+    is_expense boolean not null,
+    total numeric(38,2) not null,
+    entry_count bigint not null,
+    constraint pk_ledger_rollup primary key (id),
+    constraint uk_ledger_rollup_key unique (account_id, category_id, period, is_expense)
+);
+
+create table if not exists recurring_occurrence (
+    id bigint generated by default as identity,
+    template_id bigint not null,
+    occurrence_date date not null,
+    ledger_id bigint,
+    constraint pk_recurring_occurrence primary key (id),
+    constraint uk_recurring_occurrence unique (template_id, occurrence_date)
+);
+
+create table if not exists job_lease (
+    name varchar(100) not null,
+    owner varchar(200),
+    expires_at timestamp(6),
+    last_completed date,
+    constraint pk_job_lease primary key (name)
+);
@@ -0,0 +1,11 @@
+-- H2 has no included columns, so the covered columns trail the keys.
+
+create index ix_ledger_account_date on ledger (account_id, transaction_date, id, amount, is_expense, category_id);
+
+create index ix_ledger_category_date on ledger (category_id, transaction_date, id, amount, is_expense, account_id);
+
+create index ix_ledger_date on ledger (transaction_date, id, amount, is_expense, account_id, category_id);
+
+create index ix_ledger_recurring_date on ledger (is_recurring, recurring_date, transaction_date);
+
+create index ix_ledger_amount on ledger (amount, transaction_date, is_expense);
@@ -0,0 +1,33 @@
+create table ledger_archive (
+    id bigint not null,
+    description varchar(255),
+    amount numeric(38,2),
+    transaction_date date not null,
+    is_expense boolean,
+    is_recurring boolean,
+    recurring_date integer,
+    account_id bigint,
+    category_id bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint pk_ledger_archive primary key (id),
+    constraint fk_ledger_archive_account foreign key (account_id) references account,
+    constraint fk_ledger_archive_category foreign key (category_id) references category
+);
+
+create index ix_ledger_archive_date on ledger_archive (transaction_date, id, amount, is_expense, account_id,
+    category_id);
+
+create index ix_ledger_archive_account_date on ledger_archive (account_id, transaction_date, id, amount, is_expense,
+    category_id);
+
+create index ix_ledger_archive_category_date on ledger_archive (category_id, transaction_date, id, amount,
+    is_expense, account_id);
+
+create table ledger_archive_period (
+    period integer not null,
+    row_count bigint not null,
+    archived_at timestamp(6) not null,
+    purged_at timestamp(6),
+    constraint pk_ledger_archive_period primary key (period)
+);
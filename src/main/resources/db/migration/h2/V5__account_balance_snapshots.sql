@@ -0,0 +1,23 @@
+create table account_balance_snapshot (
+    id bigint generated by default as identity,
+    account_id bigint not null,
+    balance_date date not null,
+    ledger_total numeric(38,2) not null,
+    constraint pk_account_balance_snapshot primary key (id),
+    constraint uk_account_balance_snapshot unique (account_id, balance_date)
+);
+
+insert into account_balance_snapshot (account_id, balance_date, ledger_total)
+select account_id, transaction_date,
+       sum(sum(signed_amount)) over (partition by account_id order by transaction_date rows unbounded preceding)
+from (select account_id, transaction_date,
+             case when is_expense then -amount else amount end as signed_amount
+      from ledger
+      where account_id is not null and transaction_date is not null and amount is not null
+        and not exists (select 1 from ledger_archive a where a.id = ledger.id)
+      union all
+      select account_id, transaction_date,
+             case when is_expense then -amount else amount end
+      from ledger_archive
+      where account_id is not null and amount is not null) entries
+group by account_id, transaction_date;
@@ -0,0 +1,16 @@
+-- Transactional outbox behind the change feed. Rows are written with the change they describe and numbered by the
+-- relay once committed. In MSSQLServer mode H2 allows a single null in a unique index and has no filtered indexes, so
+-- the sequence number index is not unique here; the relay, holding its lease, is what keeps the numbers distinct.
+
+create table change_event (
+    id bigint generated by default as identity,
+    resource varchar(32) not null,
+    resource_id bigint not null,
+    operation varchar(16) not null,
+    payload varchar(4000),
+    created_at timestamp(6) not null,
+    sequence_number bigint,
+    constraint pk_change_event primary key (id)
+);
+
+create index ix_change_event_sequence on change_event (sequence_number);
@@ -0,0 +1,125 @@
+-- Schema as of the first versioned release. Databases created earlier by ddl-auto=update are baselined at version 0
+-- (spring.flyway.baseline-on-migrate) and run this script too, so every object is created only when missing and
+-- every column added after the first release is added to tables that predate it. Such tables keep the unique
+-- constraints Hibernate generated for them alongside the named indexes created here. Their identity ledger is
+-- replaced by V2.
+
+if object_id('ledger_seq', 'SO') is null
+    exec('create sequence ledger_seq start with 1 increment by 50');
+
+if object_id('bank', 'U') is null
+    create table bank (
+        id bigint identity not null,
+        name varchar(255),
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        constraint pk_bank primary key (id)
+    );
+if not exists (select 1 from sys.indexes where name = 'uk_bank_name' and object_id = object_id('bank'))
+    create unique nonclustered index uk_bank_name on bank (name) where name is not null;
+
+if object_id('account_type', 'U') is null
+    create table account_type (
+        id bigint identity not null,
+        type varchar(255),
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        constraint pk_account_type primary key (id)
+    );
+if not exists (select 1 from sys.indexes where name = 'uk_account_type_type'
+        and object_id = object_id('account_type'))
+    create unique nonclustered index uk_account_type_type on account_type (type) where type is not null;
+
+if object_id('account', 'U') is null
+    create table account (
+        id bigint identity not null,
+        name varchar(255),
+        balance numeric(38,2),
+        opening_balance numeric(38,2),
+        is_loan_account bit,
+        total_amount numeric(38,2),
+        interest_rate float(53),
+        start_date date,
+        end_date date,
+        bank_id bigint,
+        account_type_id bigint,
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        version bigint default 0 not null,
+        constraint pk_account primary key (id),
+        constraint fk_account_bank foreign key (bank_id) references bank,
+        constraint fk_account_account_type foreign key (account_type_id) references account_type
+    );
+if col_length('account', 'opening_balance') is null
+    alter table account add opening_balance numeric(38,2);
+if col_length('account', 'version') is null
+    alter table account add version bigint constraint df_account_version default 0 not null;
+if not exists (select 1 from sys.indexes where name = 'uk_account_name' and object_id = object_id('account'))
+    create unique nonclustered index uk_account_name on account (name) where name is not null;
+
+if object_id('category', 'U') is null
+    create table category (
+        id bigint identity not null,
+        name varchar(255),
+        budget numeric(38,2),
+        remaining_budget numeric(38,2),
+        is_rolling_budget bit,
+        budget_period int,
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        constraint pk_category primary key (id)
+    );
+if col_length('category', 'budget_period') is null
+    alter table category add budget_period int;
+if not exists (select 1 from sys.indexes where name = 'uk_category_name' and object_id = object_id('category'))
+    create unique nonclustered index uk_category_name on category (name) where name is not null;
+
+if object_id('ledger', 'U') is null
+    create table ledger (
+        id bigint not null,
+        description varchar(255),
+        amount numeric(38,2),
+        transaction_date date,
+        is_expense bit,
+        is_recurring bit,
+        recurring_date int,
+        account_id bigint,
+        category_id bigint,
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        constraint pk_ledger primary key (id),
+        constraint fk_ledger_account foreign key (account_id) references account,
+        constraint fk_ledger_category foreign key (category_id) references category
+    );
+
+if object_id('ledger_rollup', 'U') is null
+    create table ledger_rollup (
+        id bigint identity not null,
+        account_id bigint not null,
+        category_id bigint not null,
+        period int not null,
+        is_expense bit not null,
+        total numeric(38,2) not null,
+        entry_count bigint not null,
+        constraint pk_ledger_rollup primary key (id),
+        constraint uk_ledger_rollup_key unique (account_id, category_id, period, is_expense)
+    );
+
+if object_id('recurring_occurrence', 'U') is null
+    create table recurring_occurrence (
+        id bigint identity not null,
+        template_id bigint not null,
+        occurrence_date date not null,
+        ledger_id bigint,
+        constraint pk_recurring_occurrence primary key (id),
+        constraint uk_recurring_occurrence unique (template_id, occurrence_date)
+    );
+
+if object_id('job_lease', 'U') is null
+    create table job_lease (
+        name varchar(100) not null,
+        owner varchar(200),
+        expires_at datetime2(6),
+        last_completed date,
+        constraint pk_job_lease primary key (name)
+    );
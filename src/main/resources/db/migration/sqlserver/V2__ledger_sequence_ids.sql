@@ -0,0 +1,37 @@
+-- Ledger ids come from ledger_seq so inserts can be batched. Databases baselined from ddl-auto=update still have an
+-- identity id column, which rejects the ids Hibernate assigns; copy those ledgers into a table without one. The copy
+-- rewrites the whole table, so run it in a maintenance window on large ledgers.
+
+if object_id('ledger_seq', 'SO') is null
+    exec('create sequence ledger_seq start with 1 increment by 50');
+
+if columnproperty(object_id('ledger'), 'id', 'IsIdentity') = 1
+begin
+    exec sp_rename 'ledger', 'ledger_identity';
+    exec('create table ledger (
+        id bigint not null,
+        description varchar(255),
+        amount numeric(38,2),
+        transaction_date date,
+        is_expense bit,
+        is_recurring bit,
+        recurring_date int,
+        account_id bigint,
+        category_id bigint,
+        created_at datetime2(6),
+        updated_at datetime2(6),
+        constraint pk_ledger_sequence primary key (id)
+    )');
+    exec('insert into ledger (id, description, amount, transaction_date, is_expense, is_recurring, recurring_date,
+            account_id, category_id, created_at, updated_at)
+        select id, description, amount, transaction_date, is_expense, is_recurring, recurring_date,
+            account_id, category_id, created_at, updated_at
+        from ledger_identity');
+    exec('drop table ledger_identity');
+    exec('alter table ledger add constraint fk_ledger_account foreign key (account_id) references account');
+    exec('alter table ledger add constraint fk_ledger_category foreign key (category_id) references category');
+end;
+
+-- Hibernate's pooled optimizer hands out the 50 ids up to each value it draws, so start one block past the top id
+declare @next bigint = (select coalesce(max(id), 0) + 50 from ledger);
+exec('alter sequence ledger_seq restart with ' + cast(@next as varchar(20)));
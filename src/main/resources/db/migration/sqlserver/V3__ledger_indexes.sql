@@ -0,0 +1,19 @@
+-- Covering indexes for the ledger's access paths. Filters on account or category are served with rows in
+-- (transaction_date, id) keyset order, and the included columns answer balance, budget and aggregate queries without
+-- touching the table.
+
+create index ix_ledger_account_date on ledger (account_id, transaction_date, id)
+    include (amount, is_expense, category_id, created_at);
+
+create index ix_ledger_category_date on ledger (category_id, transaction_date, id)
+    include (amount, is_expense, account_id);
+
+create index ix_ledger_date on ledger (transaction_date, id)
+    include (amount, is_expense, account_id, category_id);
+
+create index ix_ledger_recurring_date on ledger (recurring_date)
+    include (transaction_date)
+    where is_recurring = 1;
+
+create index ix_ledger_amount on ledger (amount)
+    include (transaction_date, is_expense);
@@ -0,0 +1,54 @@
+-- Closed years moved out of the ledger by the archive job. The archive is partitioned by year, so a date range only
+-- reads the years it covers, and page compressed, which suits rows that are written once and then only read.
+
+declare @boundaries nvarchar(max) = '';
+declare @year int = 2000;
+while @year <= 2060
+begin
+    set @boundaries = @boundaries + case when @year > 2000 then ', ' else '' end
+        + '''' + cast(@year as varchar(4)) + '-01-01''';
+    set @year = @year + 1;
+end;
+exec('create partition function pf_ledger_archive_year (date) as range right for values (' + @boundaries + ')');
+GO
+
+create partition scheme ps_ledger_archive_year as partition pf_ledger_archive_year all to ([primary]);
+GO
+
+create table ledger_archive (
+    id bigint not null,
+    description varchar(255),
+    amount numeric(38,2),
+    transaction_date date not null,
+    is_expense bit,
+    is_recurring bit,
+    recurring_date int,
+    account_id bigint,
+    category_id bigint,
+    created_at datetime2(6),
+    updated_at datetime2(6),
+    constraint pk_ledger_archive primary key clustered (transaction_date, id)
+        with (data_compression = page) on ps_ledger_archive_year (transaction_date),
+    constraint fk_ledger_archive_account foreign key (account_id) references account,
+    constraint fk_ledger_archive_category foreign key (category_id) references category
+) on ps_ledger_archive_year (transaction_date);
+
+-- Lookups by id come from the description index and single-row reads; this index is not partitioned
+create unique nonclustered index uk_ledger_archive_id on ledger_archive (id)
+    with (data_compression = page) on [primary];
+
+create index ix_ledger_archive_account_date on ledger_archive (account_id, transaction_date, id)
+    include (amount, is_expense, category_id)
+    with (data_compression = page);
+
+create index ix_ledger_archive_category_date on ledger_archive (category_id, transaction_date, id)
+    include (amount, is_expense, account_id)
+    with (data_compression = page);
+
+create table ledger_archive_period (
+    period int not null,
+    row_count bigint not null,
+    archived_at datetime2(6) not null,
+    purged_at datetime2(6),
+    constraint pk_ledger_archive_period primary key (period)
+);
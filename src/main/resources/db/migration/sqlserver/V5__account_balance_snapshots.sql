@@ -0,0 +1,26 @@
+-- End-of-day ledger totals per account. The table is clustered on (account_id, balance_date), so a point-in-time
+-- lookup is one seek and a back-dated write shifts one contiguous range of the account's rows.
+
+create table account_balance_snapshot (
+    id bigint identity not null,
+    account_id bigint not null,
+    balance_date date not null,
+    ledger_total numeric(38,2) not null,
+    constraint pk_account_balance_snapshot primary key nonclustered (id),
+    constraint uk_account_balance_snapshot unique clustered (account_id, balance_date)
+);
+
+insert into account_balance_snapshot (account_id, balance_date, ledger_total)
+select account_id, transaction_date,
+       sum(sum(signed_amount)) over (partition by account_id order by transaction_date rows unbounded preceding)
+from (select account_id, transaction_date,
+             case when is_expense = 1 then -amount else amount end as signed_amount
+      from ledger
+      where account_id is not null and transaction_date is not null and amount is not null
+        and not exists (select 1 from ledger_archive a where a.id = ledger.id)
+      union all
+      select account_id, transaction_date,
+             case when is_expense = 1 then -amount else amount end
+      from ledger_archive
+      where account_id is not null and amount is not null) entries
+group by account_id, transaction_date;
@@ -0,0 +1,18 @@
+-- Transactional outbox behind the change feed. Rows are written with the change they describe and numbered by the
+-- relay once committed. The filtered indexes keep the relay's scan down to unpublished rows and let any number of
+-- them share a null sequence number.
+
+create table change_event (
+    id bigint identity not null,
+    resource varchar(32) not null,
+    resource_id bigint not null,
+    operation varchar(16) not null,
+    payload nvarchar(max),
+    created_at datetime2(6) not null,
+    sequence_number bigint,
+    constraint pk_change_event primary key (id)
+);
+
+create unique index uk_change_event_sequence on change_event (sequence_number) where sequence_number is not null;
+
+create index ix_change_event_pending on change_event (id) where sequence_number is null;
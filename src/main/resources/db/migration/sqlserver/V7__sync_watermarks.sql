@@ -0,0 +1,29 @@
+-- Incremental sync pages each resource by (updated_at, id). Rows written before auditing stamped updated_at are
+-- given their creation time so they are not skipped, and deletions are kept as tombstones.
+
+update bank set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+update account_type set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+update account set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+update category set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+update ledger set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+update ledger_archive set updated_at = coalesce(created_at, sysdatetime()) where updated_at is null;
+
+create index ix_bank_updated on bank (updated_at, id);
+create index ix_account_type_updated on account_type (updated_at, id);
+create index ix_account_updated on account (updated_at, id);
+create index ix_category_updated on category (updated_at, id);
+create index ix_ledger_updated on ledger (updated_at, id);
+
+-- Aligned with the yearly partitions like the archive's other secondary indexes
+create index ix_ledger_archive_updated on ledger_archive (updated_at, id)
+    with (data_compression = page);
+
+create table sync_tombstone (
+    id bigint identity not null,
+    resource varchar(32) not null,
+    resource_id bigint not null,
+    deleted_at datetime2(6) not null,
+    constraint pk_sync_tombstone primary key (id)
+);
+
+create index ix_sync_tombstone_deleted on sync_tombstone (resource, deleted_at, id);
@@ -0,0 +1,9 @@
+-- Balances are kept as the opening balance plus the account's ledger rows. Accounts created before the opening
+-- balance was recorded get the one that makes their current balance agree with the rows already posted to them.
+
+update account set opening_balance = coalesce(balance, 0)
+    - coalesce((select sum(case when l.is_expense = 1 then -l.amount else l.amount end) from ledger l
+        where l.account_id = account.id), 0)
+    - coalesce((select sum(case when a.is_expense = 1 then -a.amount else a.amount end) from ledger_archive a
+        where a.account_id = account.id and not exists (select 1 from ledger l where l.id = a.id)), 0)
+where opening_balance is null;
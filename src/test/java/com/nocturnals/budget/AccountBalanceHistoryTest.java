@@ -0,0 +1,93 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService;
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService.Interval;
+import com.nocturnals.budget.db.dto.AccountBalancePoint;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps balance snapshots for one account while rows are written out of date order.
+ */
+public class AccountBalanceHistoryTest extends LedgerFixture {
+    @Autowired
+    private AccountBalanceHistoryService accountBalanceHistoryService;
+
+    private Long accountId;
+
+    @BeforeEach
+    public void fillLedger() {
+        accountId = account("History checking", 100);
+
+        save("Salary", "50", false, "2024-01-10");
+        save("Groceries", "30", true, "2024-01-20");
+        save("Refund", "10", false, "2024-02-05");
+        save("Undated", "7", false, null);
+    }
+
+    private Transaction save(String description, String amount, boolean expense, String date) {
+        return ledgerService.save(transaction(description, amount, date, expense, null, accountId, null));
+    }
+
+    private BigDecimal balanceOn(String date) {
+        return accountBalanceHistoryService.balanceOn(accountId, LocalDate.parse(date)).balance();
+    }
+
+    private List<Map<String, Object>> snapshots() {
+        return jdbcTemplate.queryForList("select balance_date, ledger_total from account_balance_snapshot "
+                + "where account_id = ? order by balance_date", accountId);
+    }
+
+    // Back-dated, moved and deleted rows shift only the snapshots from their own dates on
+    @Test
+    public void AccountBalanceHistory_backdatedWrites_shiftLaterBalances() {
+        Assertions.assertEquals(0, new BigDecimal("100").compareTo(balanceOn("2023-12-31")));
+        Assertions.assertEquals(0, new BigDecimal("150").compareTo(balanceOn("2024-01-15")));
+        Assertions.assertEquals(0, new BigDecimal("130").compareTo(balanceOn("2024-03-01")));
+
+        Transaction backdated = save("Late fee", "5", true, "2024-01-12");
+        Assertions.assertEquals(0, new BigDecimal("150").compareTo(balanceOn("2024-01-11")));
+        Assertions.assertEquals(0, new BigDecimal("145").compareTo(balanceOn("2024-01-15")));
+        Assertions.assertEquals(0, new BigDecimal("125").compareTo(balanceOn("2024-03-01")));
+
+        backdated.setTransactionDate(Date.valueOf("2024-02-01"));
+        ledgerService.save(backdated);
+        Assertions.assertEquals(0, new BigDecimal("150").compareTo(balanceOn("2024-01-15")));
+        Assertions.assertEquals(0, new BigDecimal("115").compareTo(balanceOn("2024-02-01")));
+
+        ledgerService.deleteById(backdated.getId());
+        Assertions.assertEquals(0, new BigDecimal("130").compareTo(balanceOn("2024-03-01")));
+        BigDecimal stored = jdbcTemplate.queryForObject("select balance from account where id = ?",
+                BigDecimal.class, accountId);
+        Assertions.assertEquals(0, stored.subtract(new BigDecimal("7")).compareTo(balanceOn("2024-03-01")));
+    }
+
+    // A series steps by the interval, and a rebuild reproduces the incrementally kept snapshots
+    @Test
+    public void AccountBalanceHistory_history_matchesRebuild() {
+        save("Rent", "40", true, "2023-12-01");
+        List<AccountBalancePoint> months = accountBalanceHistoryService.history(accountId, LocalDate.of(2023, 11, 30),
+                LocalDate.of(2024, 2, 29), Interval.MONTH);
+        Assertions.assertEquals(List.of(Date.valueOf("2023-11-30"), Date.valueOf("2023-12-30"),
+                Date.valueOf("2024-01-30"), Date.valueOf("2024-02-29")),
+                months.stream().map(AccountBalancePoint::date).toList());
+        Assertions.assertEquals(List.of(100, 60, 80, 90),
+                months.stream().map(point -> point.balance().intValueExact()).toList());
+
+        List<Map<String, Object>> incremental = snapshots();
+        Assertions.assertEquals(4, accountBalanceHistoryService.rebuild());
+        Assertions.assertEquals(incremental, snapshots());
+        Assertions.assertNull(accountBalanceHistoryService.balanceOn(-1L, LocalDate.of(2024, 1, 1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> accountBalanceHistoryService
+                .history(accountId, LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1), Interval.DAY));
+    }
+}
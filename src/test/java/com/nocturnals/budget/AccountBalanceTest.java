@@ -0,0 +1,126 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountBalanceService;
+import com.nocturnals.budget.db.dao.AccountBalanceService.BalanceMismatch;
+import com.nocturnals.budget.db.dto.StoredBalance;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.AccountRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Posts ledger rows against real accounts and checks the stored balances.
+ */
+public class AccountBalanceTest extends LedgerFixture {
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long checkingId;
+    private Long savingsId;
+
+    @BeforeEach
+    public void createAccounts() {
+        checkingId = account("Checking", 100);
+        savingsId = account("Savings", 0);
+    }
+
+    private Transaction save(Long id, Long accountId, String amount, boolean expense) {
+        return ledgerService.save(withId(id, transaction("Posting " + amount, amount, null, expense, null, accountId,
+                null)));
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return jdbcTemplate.queryForObject("select balance from account where id = ?", BigDecimal.class, accountId);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    // Inserts, edits that change amount, sign or account, and deletes each move the balances by their difference
+    @Test
+    public void AccountBalance_ledgerWrites_applyDeltas() {
+        save(null, checkingId, "50", false);
+        Transaction groceries = save(null, checkingId, "30", true);
+        assertAmount("120", balance(checkingId));
+
+        save(groceries.getId(), checkingId, "35", true);
+        assertAmount("115", balance(checkingId));
+        save(groceries.getId(), checkingId, "35", false);
+        assertAmount("185", balance(checkingId));
+        save(groceries.getId(), savingsId, "35", false);
+        assertAmount("150", balance(checkingId));
+        assertAmount("35", balance(savingsId));
+
+        ledgerService.deleteById(groceries.getId());
+        assertAmount("0", balance(savingsId));
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+    }
+
+    // An account already loaded in the writing transaction shows the balance and version the update left
+    @Test
+    public void AccountBalance_loadedAccount_refreshedAfterDelta() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Account account = accountRepository.findById(checkingId).orElseThrow();
+            assertAmount("100", account.getBalance());
+
+            save(null, checkingId, "25", true);
+
+            assertAmount("75", account.getBalance());
+            Assertions.assertEquals(1L, account.getVersion());
+        });
+        assertAmount("75", balance(checkingId));
+    }
+
+    // Reconciliation reports a drifted balance and repairs it to the opening balance plus the ledger
+    @Test
+    public void AccountBalance_reconcileWithRepair_fixesDrift() {
+        save(null, checkingId, "40", true);
+        jdbcTemplate.update("update account set balance = 999 where id = ?", checkingId);
+
+        List<BalanceMismatch> mismatches = accountBalanceService.reconcile(Long.MIN_VALUE, 10, true).mismatches();
+
+        Assertions.assertEquals(1, mismatches.size());
+        Assertions.assertTrue(mismatches.get(0).repaired());
+        assertAmount("60", mismatches.get(0).expected());
+        assertAmount("60", balance(checkingId));
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+    }
+
+    // A repair is refused once the account has been written since it was read, even if the balance came back to the
+    // value that was observed
+    @Test
+    public void AccountBalance_repairAfterConcurrentWrites_refused() {
+        StoredBalance observed = accountRepository.findBalancesAfter(Long.MIN_VALUE, PageRequest.ofSize(10)).get(0);
+        Transaction posting = save(null, observed.accountId(), "5", true);
+        ledgerService.deleteById(posting.getId());
+        assertAmount(observed.balance().toPlainString(), balance(observed.accountId()));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer stale = transactionTemplate.execute(status -> accountRepository.repairBalance(observed.accountId(),
+                observed.balance(), observed.version(), BigDecimal.ONE, Timestamp.from(Instant.now())));
+        Integer current = transactionTemplate.execute(status -> accountRepository.repairBalance(observed.accountId(),
+                observed.balance(), observed.version() + 2, observed.balance(), Timestamp.from(Instant.now())));
+
+        Assertions.assertEquals(0, stale);
+        Assertions.assertEquals(1, current);
+        assertAmount(observed.balance().toPlainString(), balance(observed.accountId()));
+    }
+}
@@ -2,7 +2,10 @@ package com.nocturnals.budget;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nocturnals.budget.controller.AccountController;
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService;
+import com.nocturnals.budget.db.dao.AccountBalanceHistoryService.Interval;
 import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dto.AccountBalancePoint;
 import com.nocturnals.budget.db.entity.Account;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,9 +17,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -32,6 +39,9 @@ public class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private AccountBalanceHistoryService accountBalanceHistoryService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -189,4 +199,42 @@ public class AccountControllerTest {
 
         Mockito.reset(accountService);
     }
+
+    // Saving an account with a stale version is rejected as a conflict
+    @Test
+    public void AccountController_saveStaleVersion_returnConflict() throws Exception {
+        Account account = new Account();
+        account.setId(1L);
+        account.setName("test");
+        account.setVersion(3L);
+        Mockito.when(accountService.save(Mockito.any(Account.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+        mockMvc.perform(post("/api/v1/account")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(account)))
+                .andExpect(status().isConflict());
+
+        Mockito.verify(accountService, Mockito.times(1)).save(Mockito.any(Account.class));
+
+        Mockito.reset(accountService);
+    }
+
+    // A balance series is returned for a valid range, and an unknown interval is rejected
+    @Test
+    public void AccountController_balanceHistory_returnSeries() throws Exception {
+        Mockito.when(accountBalanceHistoryService.history(1L, LocalDate.of(2024, 1, 31), LocalDate.of(2024, 3, 31),
+                Interval.MONTH)).thenReturn(List.of(
+                        new AccountBalancePoint(Date.valueOf("2024-01-31"), BigDecimal.valueOf(100)),
+                        new AccountBalancePoint(Date.valueOf("2024-02-29"), BigDecimal.valueOf(80))));
+        mockMvc.perform(get("/api/v1/account/balance-history?account-id=1&from=2024-01-31&to=2024-03-31"
+                        + "&interval=month"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].date").value("2024-02-29"))
+                .andExpect(jsonPath("$[1].balance").value(80));
+        mockMvc.perform(get("/api/v1/account/balance-history?account-id=1&from=2024-01-31&to=2024-03-31"
+                        + "&interval=year"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.reset(accountBalanceHistoryService);
+    }
 }
@@ -0,0 +1,149 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.CategoryBudgetService;
+import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Posts expenses through the ledger on its own in-memory database and checks the remaining budgets that are flushed.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:category-budget;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.category.flush-interval=3600000"})
+@ActiveProfiles("test")
+public class CategoryBudgetServiceTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private CategoryBudgetService categoryBudgetService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clearLedger() {
+        categoryBudgetService.flush();
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.update("delete from category");
+    }
+
+    private Category category(String name, boolean rolling) {
+        Category category = new Category();
+        category.setName(name);
+        category.setBudget(BigDecimal.valueOf(100));
+        category.setIsRollingBudget(rolling);
+        return categoryService.save(category);
+    }
+
+    private void spend(Category category, String amount, LocalDate date) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("Spend " + amount + " on " + date);
+        transaction.setCategory(category);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setIsExpense(true);
+        transaction.setTransactionDate(Date.valueOf(date));
+        ledgerService.save(transaction);
+    }
+
+    private void startedIn(Category category, YearMonth month, String remaining) {
+        jdbcTemplate.update("update category set budget_period = ?, remaining_budget = ? where id = ?",
+                month.getYear() * 100 + month.getMonthValue(), new BigDecimal(remaining), category.getId());
+    }
+
+    private BigDecimal remaining(Category category) {
+        return jdbcTemplate.queryForObject("select remaining_budget from category where id = ?", BigDecimal.class,
+                category.getId());
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+
+    // Spend is pending until flushed, and readers see it subtracted either way
+    @Test
+    public void CategoryBudget_spend_pendingUntilFlushed() {
+        Category category = category("Groceries", false);
+        spend(category, "30", TODAY);
+
+        assertAmount("100", remaining(category));
+        assertAmount("70", categoryBudgetService.budgetOf(categoryService.findById(category.getId()))
+                .remainingBudget());
+        Assertions.assertEquals(1, categoryBudgetService.flush());
+        assertAmount("70", remaining(category));
+        assertAmount("70", categoryService.findBudget(category.getId()).remainingBudget());
+    }
+
+    // Spend booked late against last month reduces a rolling budget, which carried that month forward, but not a
+    // budget that was reset since
+    @Test
+    public void CategoryBudget_lateSpend_countsForRollingBudgetsOnly() {
+        Category rolling = category("Savings pot", true);
+        Category reset = category("Dining", false);
+        LocalDate lastMonth = TODAY.minusMonths(1);
+        spend(rolling, "30", lastMonth);
+        spend(reset, "30", lastMonth);
+        spend(rolling, "10", TODAY);
+        spend(reset, "10", TODAY);
+
+        assertAmount("60", categoryService.findBudget(rolling.getId()).remainingBudget());
+        assertAmount("90", categoryService.findBudget(reset.getId()).remainingBudget());
+        categoryBudgetService.flush();
+        assertAmount("60", remaining(rolling));
+        assertAmount("90", remaining(reset));
+    }
+
+    // A rollover after several missed months adds one budget per month to rolling budgets and is not repeated
+    @Test
+    public void CategoryBudget_rolloverAfterMissedMonths_appliedPerMonth() {
+        Category rolling = category("Holidays", true);
+        Category reset = category("Fuel", false);
+        YearMonth threeMonthsAgo = YearMonth.now().minusMonths(3);
+        startedIn(rolling, threeMonthsAgo, "20");
+        startedIn(reset, threeMonthsAgo, "-15");
+
+        Assertions.assertEquals(2, categoryBudgetService.rollover());
+        assertAmount("320", remaining(rolling));
+        assertAmount("100", remaining(reset));
+
+        Assertions.assertEquals(0, categoryBudgetService.rollover());
+        assertAmount("320", remaining(rolling));
+    }
+
+    // Spend from the new month that a node flushes before it has rolled over lands in the new period instead of being
+    // applied to the old one and reset away
+    @Test
+    public void CategoryBudget_newMonthSpendBeforeRollover_keptInNewPeriod() {
+        Category category = category("Utilities", false);
+        spend(category, "30", TODAY);
+        startedIn(category, YearMonth.now().minusMonths(1), "5");
+        ReflectionTestUtils.setField(categoryBudgetService, "rolledPeriod", 0);
+
+        categoryBudgetService.flush();
+
+        assertAmount("70", remaining(category));
+        Assertions.assertEquals(YearMonth.now().getYear() * 100 + YearMonth.now().getMonthValue(),
+                jdbcTemplate.queryForObject("select budget_period from category where id = ?", Integer.class,
+                        category.getId()));
+    }
+}
@@ -3,6 +3,7 @@ package com.nocturnals.budget;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nocturnals.budget.controller.CategoryController;
 import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dto.CategoryBudget;
 import com.nocturnals.budget.db.entity.Category;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +16,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -168,4 +171,21 @@ public class CategoryControllerTest {
 
         Mockito.reset(categoryService);
     }
+
+    // The budget endpoint reports what is left of the category's budget for the current period
+    @Test
+    public void CategoryController_findBudget_returnRemainingBudget() throws Exception {
+        Mockito.when(categoryService.findBudget(1L))
+                .thenReturn(new CategoryBudget(1L, BigDecimal.valueOf(500), BigDecimal.valueOf(120), 202401));
+        mockMvc.perform(get("/api/v1/category/1/budget"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.budget").value(500))
+                .andExpect(jsonPath("$.remainingBudget").value(120));
+
+        Mockito.when(categoryService.findBudget(2L)).thenReturn(null);
+        mockMvc.perform(get("/api/v1/category/2/budget"))
+                .andExpect(status().isNotFound());
+
+        Mockito.reset(categoryService);
+    }
 }
@@ -0,0 +1,199 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dao.ChangeEventService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.ChangeEventView;
+import com.nocturnals.budget.db.dto.ChangePage;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Writes through the services on its own in-memory database and follows the change feed they produce.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:changes;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ChangeFeedTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeEventService changeEventService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clear() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.update("delete from account_balance_snapshot");
+        jdbcTemplate.update("delete from account");
+        jdbcTemplate.update("delete from category");
+        jdbcTemplate.update("delete from change_event");
+    }
+
+    private Account account(String name) {
+        Account account = new Account();
+        account.setName(name);
+        account.setBalance(BigDecimal.ZERO);
+        return accountService.save(account);
+    }
+
+    private Transaction save(Account account, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setAccount(account);
+        return ledgerService.save(transaction);
+    }
+
+    private static List<String> describe(ChangePage page) {
+        return page.events().stream().map(event -> event.resource() + " " + event.operation()).toList();
+    }
+
+    // Every mutation becomes one event, visible in commit order once the relay has numbered it
+    @Test
+    public void ChangeFeed_mutations_publishedInOrder() {
+        Account account = account("Feed checking");
+        Category category = new Category();
+        category.setName("Feed groceries");
+        categoryService.save(category);
+        Transaction transaction = save(account, "Coffee");
+        transaction.setDescription("Coffee beans");
+        ledgerService.save(transaction);
+        ledgerService.deleteById(transaction.getId());
+        categoryService.deleteById(category.getId());
+
+        Assertions.assertTrue(changeEventService.changes(0, 100).events().isEmpty());
+        Assertions.assertEquals(6, changeEventService.relay());
+
+        ChangePage page = changeEventService.changes(0, 100);
+        Assertions.assertEquals(List.of("account CREATED", "category CREATED", "transaction CREATED",
+                "transaction UPDATED", "transaction DELETED", "category DELETED"), describe(page));
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L),
+                page.events().stream().map(ChangeEventView::sequence).toList());
+        Assertions.assertEquals(6, page.checkpoint());
+        Assertions.assertTrue(page.events().get(3).payload().contains("\"description\":\"Coffee beans\""));
+        Assertions.assertNull(page.events().get(4).payload());
+
+        ChangePage second = changeEventService.changes(2, 2);
+        Assertions.assertEquals(List.of(3L, 4L), second.events().stream().map(ChangeEventView::sequence).toList());
+        Assertions.assertEquals(4, second.checkpoint());
+        Assertions.assertEquals(0, changeEventService.relay());
+    }
+
+    // A waiting reader is answered as soon as a change is relayed, and rolled back changes never appear
+    @Test
+    public void ChangeFeed_longPoll_wakesOnRelay() throws Exception {
+        Account account = account("Poll checking");
+        save(account, "Rent");
+        changeEventService.relay();
+        long checkpoint = changeEventService.checkpoint();
+
+        Assertions.assertThrows(RuntimeException.class, () -> accountService.deleteById(account.getId()));
+        changeEventService.relay();
+        Assertions.assertEquals(checkpoint, changeEventService.checkpoint());
+
+        CompletableFuture<ChangePage> waiting = changeEventService.awaitChanges(checkpoint, 10, Duration.ofSeconds(20));
+        changeEventService.pollWaiters();
+        Assertions.assertFalse(waiting.isDone());
+        save(account, "Groceries");
+        changeEventService.relay();
+
+        ChangePage page = waiting.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(List.of("transaction CREATED"), describe(page));
+        Assertions.assertEquals(checkpoint + 1, page.checkpoint());
+    }
+
+    // A wait that runs out is answered with no events and the same checkpoint, and a cancelled wait is dropped
+    @Test
+    public void ChangeFeed_longPollTimeout_returnsEmptyPage() throws Exception {
+        CompletableFuture<ChangePage> expiring = changeEventService.awaitChanges(0, 10, Duration.ofMillis(100));
+        CompletableFuture<ChangePage> cancelled = changeEventService.awaitChanges(0, 10, Duration.ofSeconds(20));
+        cancelled.cancel(false);
+        Thread.sleep(150);
+        changeEventService.pollWaiters();
+
+        ChangePage page = expiring.get(1, TimeUnit.SECONDS);
+        Assertions.assertEquals(List.of(), page.events());
+        Assertions.assertEquals(0, page.checkpoint());
+        Assertions.assertEquals(0, changeEventService.awaitChanges(0, 10, Duration.ZERO).get().events().size());
+    }
+
+    // Over HTTP the long poll is asynchronous and its response is written once the relay publishes
+    @Test
+    public void ChangeFeed_httpLongPoll_answeredAfterRelay() throws Exception {
+        Account account = account("Http checking");
+        changeEventService.relay();
+        long checkpoint = changeEventService.checkpoint();
+
+        MvcResult waiting = mockMvc.perform(get("/api/v1/changes")
+                        .param("after", Long.toString(checkpoint))
+                        .param("wait", "20s"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        save(account, "Books");
+        changeEventService.relay();
+
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events[0].resource").value("transaction"))
+                .andExpect(jsonPath("$.checkpoint").value(checkpoint + 1));
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/api/v1/changes")
+                        .param("wait", "31s")).andReturn()))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Purging keeps the newest event, and consumers whose checkpoint fell behind are told to copy everything again
+    @Test
+    public void ChangeFeed_purge_expiresOldCheckpoints() {
+        Account account = account("Purge checking");
+        save(account, "Old");
+        save(account, "New");
+        changeEventService.relay();
+        jdbcTemplate.update("update change_event set created_at = dateadd('day', -30, created_at)");
+
+        Assertions.assertTrue(changeEventService.isRetained(0));
+        Assertions.assertEquals(2, changeEventService.purge());
+        Assertions.assertFalse(changeEventService.isRetained(1));
+        Assertions.assertTrue(changeEventService.isRetained(2));
+        Assertions.assertEquals(3, changeEventService.checkpoint());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> changeEventService.changes(0, 0));
+    }
+}
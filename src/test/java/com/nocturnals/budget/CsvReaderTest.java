@@ -0,0 +1,84 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.ingest.CsvReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records from strings, without a Spring context.
+ */
+public class CsvReaderTest {
+
+    private static List<List<String>> readAll(CsvReader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields;
+        while((fields = reader.next()) != null) {
+            records.add(fields);
+        }
+        return records;
+    }
+
+    private static List<List<String>> readAll(String content) throws IOException {
+        return readAll(new CsvReader(new StringReader(content)));
+    }
+
+    // Quoted fields keep their commas, doubled quotes and line breaks, and quotes inside an unquoted field are literal
+    @Test
+    public void CsvReader_quotedFields_keepDelimiters() throws IOException {
+        List<List<String>> records = readAll("""
+                "Coffee, large",1.50
+                "Say ""hi"\"",2
+                "Two
+                lines",3
+                5" screen,4
+                """);
+
+        Assertions.assertEquals(List.of(
+                List.of("Coffee, large", "1.50"),
+                List.of("Say \"hi\"", "2"),
+                List.of("Two\nlines", "3"),
+                List.of("5\" screen", "4")), records);
+    }
+
+    // Empty fields are kept, CRLF ends a record like LF does and the last record needs no line break
+    @Test
+    public void CsvReader_emptyFieldsAndLineEndings_splitRecords() throws IOException {
+        List<List<String>> records = readAll("a,,c\r\n,\r\n\"\",x\nlast,row");
+
+        Assertions.assertEquals(List.of(
+                List.of("a", "", "c"),
+                List.of("", ""),
+                List.of("", "x"),
+                List.of("last", "row")), records);
+    }
+
+    // A blank line is a record with one empty field, and record numbers count every record read
+    @Test
+    public void CsvReader_blankLines_countedAsRecords() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a\n\nb\n"));
+
+        Assertions.assertEquals(List.of(List.of("a"), List.of(""), List.of("b")), readAll(reader));
+        Assertions.assertEquals(3, reader.recordNumber());
+    }
+
+    // Empty input has no records
+    @Test
+    public void CsvReader_emptyInput_returnsNull() throws IOException {
+        Assertions.assertNull(new CsvReader(new StringReader("")).next());
+    }
+
+    // A quote left open to the end of the input is an error naming the record it started in
+    @Test
+    public void CsvReader_unterminatedQuote_throws() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("ok,1\n\"open,2\n"));
+
+        Assertions.assertEquals(List.of("ok", "1"), reader.next());
+        IOException e = Assertions.assertThrows(IOException.class, reader::next);
+        Assertions.assertEquals("Unterminated quoted field in record 2", e.getMessage());
+    }
+}
@@ -0,0 +1,135 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.ChangeEventService;
+import com.nocturnals.budget.db.dao.DescriptionSearchService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs description searches through the index against a seeded ledger and checks that writes keep it current.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DescriptionSearchTest {
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private DescriptionSearchService descriptionSearchService;
+
+    @Autowired
+    private ChangeEventService changeEventService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long coffeeId;
+
+    @BeforeAll
+    public void seed() {
+        List<Transaction> transactions = new ArrayList<>();
+        for(String description : List.of("Blue Harbor Coffee Roasters", "Harbor Freight Tools", "Pinecrest Pharmacy",
+                "Payroll Pinecrest Ltd")) {
+            Transaction transaction = new Transaction();
+            transaction.setDescription(description);
+            transaction.setAmount(BigDecimal.TEN);
+            transactions.add(transaction);
+        }
+        coffeeId = ledgerService.insertAll(transactions).get(0).getId();
+    }
+
+    private List<String> search(String text, DescriptionMatch match) {
+        return ledgerService.search(LedgerFilter.builder().description(text).descriptionMatch(match).build(),
+                        LedgerExpansion.NONE).stream()
+                .map(TransactionView::description)
+                .sorted()
+                .toList();
+    }
+
+    // Prefix, token and fuzzy matching each require every word of the query
+    @Test
+    public void DescriptionSearch_matchModes_returnMatchingRows() {
+        Assertions.assertEquals(List.of("Pinecrest Pharmacy"), search("pine phar", DescriptionMatch.PREFIX));
+        Assertions.assertEquals(List.of("Blue Harbor Coffee Roasters", "Harbor Freight Tools"),
+                search("harbor", DescriptionMatch.TOKEN));
+        Assertions.assertEquals(List.of(), search("harb", DescriptionMatch.TOKEN));
+        Assertions.assertEquals(List.of("Payroll Pinecrest Ltd", "Pinecrest Pharmacy"),
+                search("pinecrset", DescriptionMatch.FUZZY));
+        Assertions.assertEquals(List.of("Blue Harbor Coffee Roasters"), search("arbor cof", DescriptionMatch.CONTAINS));
+    }
+
+    // Saving and deleting a transaction updates the index once the write commits
+    @Test
+    public void DescriptionSearch_saveAndDelete_updateIndex() {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("Lakeside Bakery");
+        transaction.setAmount(BigDecimal.ONE);
+        Long id = ledgerService.save(transaction).getId();
+        Assertions.assertEquals(List.of("Lakeside Bakery"), search("lakesid", DescriptionMatch.PREFIX));
+
+        transaction.setDescription("Lakeside Deli");
+        ledgerService.save(transaction);
+        Assertions.assertEquals(List.of(), search("bakery", DescriptionMatch.TOKEN));
+        Assertions.assertEquals(List.of("Lakeside Deli"), search("deli", DescriptionMatch.TOKEN));
+
+        ledgerService.deleteById(id);
+        Assertions.assertEquals(List.of(), search("lakeside", DescriptionMatch.TOKEN));
+    }
+
+    // Substring searches are narrowed to candidates holding every three-character sequence; shorter text scans
+    @Test
+    public void DescriptionSearch_contains_returnsCandidates() {
+        Assertions.assertTrue(descriptionSearchService.search("arbor cof", DescriptionMatch.CONTAINS)
+                .contains(coffeeId));
+        Assertions.assertFalse(descriptionSearchService.search("harbor free", DescriptionMatch.CONTAINS)
+                .contains(coffeeId));
+        Assertions.assertNull(descriptionSearchService.search("rb", DescriptionMatch.CONTAINS));
+        Assertions.assertEquals(List.of("Blue Harbor Coffee Roasters", "Harbor Freight Tools"),
+                search("rb", DescriptionMatch.CONTAINS));
+    }
+
+    // A write committed on another node reaches the index once its change event is published and followed
+    @Test
+    public void DescriptionSearch_follow_indexesOtherNodesWrites() {
+        Long id = 9100L;
+        jdbcTemplate.update("insert into ledger (id, description, amount) values (?, 'Orchard Cider Mill', 5)", id);
+        jdbcTemplate.update("insert into change_event (resource, resource_id, operation, payload, created_at) "
+                + "values ('transaction', ?, 'CREATED', null, current_timestamp)", id);
+        changeEventService.relay();
+        Assertions.assertEquals(List.of(), descriptionSearchService.search("cider", DescriptionMatch.TOKEN));
+
+        Assertions.assertTrue(descriptionSearchService.follow() >= 1);
+        Assertions.assertEquals(List.of(id), descriptionSearchService.search("cider", DescriptionMatch.TOKEN));
+
+        jdbcTemplate.update("delete from ledger where id = ?", id);
+        jdbcTemplate.update("insert into change_event (resource, resource_id, operation, payload, created_at) "
+                + "values ('transaction', ?, 'DELETED', null, current_timestamp)", id);
+        changeEventService.relay();
+        descriptionSearchService.follow();
+        Assertions.assertEquals(List.of(), descriptionSearchService.search("cider", DescriptionMatch.TOKEN));
+    }
+
+    // A rebuild indexes every row again
+    @Test
+    public void DescriptionSearch_rebuild_indexAllRows() {
+        Assertions.assertTrue(descriptionSearchService.rebuild() >= 4);
+        Assertions.assertEquals(List.of(coffeeId), descriptionSearchService.search("coffee", DescriptionMatch.TOKEN));
+    }
+}
@@ -0,0 +1,130 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.ForecastService;
+import com.nocturnals.budget.db.dto.CashFlowForecast;
+import com.nocturnals.budget.db.dto.CashFlowForecast.AccountForecast;
+import com.nocturnals.budget.db.dto.CashFlowForecast.Point;
+import com.nocturnals.budget.db.dto.ForecastRequest;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.forecast.ForecastScenario;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forecasts balances from recurring templates and a year of variable history.
+ */
+public class ForecastServiceTest extends LedgerFixture {
+    private static final LocalDate AS_OF = LocalDate.of(2024, 6, 15);
+
+    @Autowired
+    private ForecastService forecastService;
+
+    private Transaction save(Long accountId, Long categoryId, int amount, boolean expense, String date,
+                             Integer recurringDate) {
+        return ledgerService.save(transaction(expense ? "Spend" : "Income", String.valueOf(amount), date, expense,
+                recurringDate, accountId, categoryId));
+    }
+
+    private CashFlowForecast forecast(List<Long> accountIds, int months, ForecastScenario... scenarios) {
+        return forecastService.forecast(new ForecastRequest(accountIds, months, List.of(scenarios)), AS_OF);
+    }
+
+    private static BigDecimal variable(Point point) {
+        return point.expected().subtract(point.scheduled());
+    }
+
+    // Templates post on their clamped day after the as-of date, and postings already made are not taken for variance
+    @Test
+    public void ForecastService_recurringOnly_followsSchedule() {
+        Long checking = account("Checking", 1000);
+        Long savings = account("Savings", 500);
+        Transaction salary = save(checking, null, 3000, false, "2024-01-31", 31);
+        save(checking, null, 1200, true, "2024-02-01", 1);
+        Transaction posted = save(checking, null, 3000, false, "2024-02-29", null);
+        jdbcTemplate.update("insert into recurring_occurrence (template_id, occurrence_date, ledger_id) "
+                + "values (?, ?, ?)", salary.getId(), Date.valueOf("2024-02-29"), posted.getId());
+
+        CashFlowForecast forecast = forecast(null, 2);
+        CashFlowForecast.Scenario baseline = forecast.scenarios().get(0);
+        Assertions.assertEquals("baseline", baseline.name());
+        Assertions.assertEquals(List.of(checking, savings),
+                baseline.accounts().stream().map(AccountForecast::accountId).toList());
+        List<Point> points = baseline.accounts().get(0).points();
+        Assertions.assertEquals(List.of(LocalDate.of(2024, 6, 30), LocalDate.of(2024, 7, 31)),
+                points.stream().map(Point::date).toList());
+        Assertions.assertEquals(List.of(8800, 10600),
+                points.stream().map(point -> point.scheduled().intValueExact()).toList());
+        for(Point point : points) {
+            Assertions.assertEquals(0, point.scheduled().compareTo(point.p10()));
+            Assertions.assertEquals(0, point.scheduled().compareTo(point.p90()));
+        }
+        Assertions.assertEquals(List.of(9300, 11100),
+                baseline.total().stream().map(point -> point.expected().intValueExact()).toList());
+    }
+
+    // Variable spend is drawn from the lookback months, and a scenario scales it on exactly the same draws
+    @Test
+    public void ForecastService_variableSpend_scaledByScenario() {
+        Long checking = account("Checking", 10000);
+        Long groceries = category("Groceries");
+        LocalDate month = LocalDate.of(2023, 6, 10);
+        for(int i = 0; i < 12; i++) {
+            save(checking, groceries, i % 2 == 0 ? 100 : 300, true, month.plusMonths(i).toString(), null);
+        }
+        save(checking, groceries, 5000, true, "2024-06-01", null);
+
+        CashFlowForecast forecast = forecast(List.of(checking), 3, ForecastScenario.BASELINE,
+                new ForecastScenario("frugal", null, null, Map.of(groceries, 0.5)),
+                new ForecastScenario("no spend", null, 0.0, null));
+        List<Point> baseline = forecast.scenarios().get(0).accounts().get(0).points();
+        List<Point> frugal = forecast.scenarios().get(1).accounts().get(0).points();
+        List<Point> none = forecast.scenarios().get(2).accounts().get(0).points();
+
+        Assertions.assertEquals(-300, variable(baseline.get(1)).doubleValue(), 15);
+        Assertions.assertEquals(-500, variable(baseline.get(2)).doubleValue(), 20);
+        Assertions.assertTrue(baseline.get(2).p10().compareTo(baseline.get(2).p90()) < 0);
+        for(int i = 0; i < 3; i++) {
+            Assertions.assertEquals(variable(baseline.get(i)).doubleValue() / 2, variable(frugal.get(i)).doubleValue(),
+                    0.01);
+            Assertions.assertEquals(0, none.get(i).p10().compareTo(none.get(i).scheduled()));
+        }
+    }
+
+    // Many accounts are simulated in parallel into a consistent total, which is memoized until the next ledger write
+    @Test
+    public void ForecastService_manyAccounts_memoizedUntilLedgerChanges() {
+        List<Long> ids = new ArrayList<>();
+        for(int i = 0; i < 30; i++) {
+            Long id = account("Account " + i, 100 * i);
+            ids.add(id);
+            save(id, null, 50 + i, true, "2024-0" + (1 + i % 5) + "-10", null);
+            save(id, null, 20 * i, false, "2024-0" + (1 + i % 4) + "-20", null);
+        }
+
+        CashFlowForecast forecast = forecast(ids, 6, ForecastScenario.BASELINE);
+        CashFlowForecast.Scenario baseline = forecast.scenarios().get(0);
+        Assertions.assertEquals(ids, baseline.accounts().stream().map(AccountForecast::accountId).toList());
+        for(int i = 0; i < 6; i++) {
+            int month = i;
+            BigDecimal sum = baseline.accounts().stream()
+                    .map(account -> account.points().get(month).expected())
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            Assertions.assertEquals(sum.doubleValue(), baseline.total().get(i).expected().doubleValue(), 0.3);
+        }
+        Assertions.assertSame(forecast, forecast(ids, 6, ForecastScenario.BASELINE));
+
+        save(ids.get(0), null, 10, true, "2024-06-14", null);
+        Assertions.assertNotSame(forecast, forecast(ids, 6, ForecastScenario.BASELINE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> forecast(ids, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> forecast(ids, 6, ForecastScenario.BASELINE, ForecastScenario.BASELINE));
+    }
+}
@@ -0,0 +1,122 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregates a small ledger and checks the count, sum, net, average, minimum and maximum of every group, including
+ * ISO weeks that span a year boundary.
+ */
+public class LedgerAggregateTest extends LedgerFixture {
+    private Long checkingId;
+    private Long savingsId;
+    private Long foodId;
+    private Long salaryId;
+
+    @BeforeEach
+    public void fillLedger() {
+        checkingId = account("Checking", 0);
+        savingsId = account("Savings", 0);
+        foodId = category("Food");
+        salaryId = category("Salary");
+
+        ledgerService.insertAll(List.of(
+                transaction("Aggregate", "10", "2024-12-30", true, null, checkingId, foodId),
+                transaction("Aggregate", "30", "2025-01-02", true, null, checkingId, foodId),
+                transaction("Aggregate", "100", "2025-01-05", false, null, checkingId, salaryId),
+                transaction("Aggregate", "5", "2025-01-06", true, null, savingsId, foodId),
+                transaction("Aggregate", "7.50", "2025-02-10", true, null, savingsId, null),
+                transaction("Aggregate", "2", null, true, null, checkingId, foodId)));
+    }
+
+    /**
+     * Each group as "account/category/period/expense" mapped to "count sum net avg min max", amounts without trailing
+     * zeros, in the order the aggregation returned them.
+     */
+    private Map<String, String> aggregate(LedgerFilter filter, Set<LedgerDimension> groupBy) {
+        Map<String, String> groups = new LinkedHashMap<>();
+        for(LedgerAggregate aggregate : ledgerService.aggregate(filter, groupBy)) {
+            String key = aggregate.accountId() + "/" + aggregate.categoryId() + "/" + aggregate.period() + "/"
+                    + aggregate.isExpense();
+            Assertions.assertNull(groups.put(key, aggregate.count() + " " + plain(aggregate.sum()) + " "
+                    + plain(aggregate.net()) + " " + plain(aggregate.avg()) + " " + plain(aggregate.min()) + " "
+                    + plain(aggregate.max())), key);
+        }
+        return groups;
+    }
+
+    private static String plain(BigDecimal amount) {
+        return amount == null ? "null" : amount.stripTrailingZeros().toPlainString();
+    }
+
+    // Without a grouping the whole ledger is one group, with expenses counted negative in the net
+    @Test
+    public void LedgerAggregate_noGrouping_totalsLedger() {
+        Assertions.assertEquals(Map.of("null/null/null/null", "6 154.5 45.5 25.75 2 100"),
+                aggregate(LedgerFilter.NONE, EnumSet.noneOf(LedgerDimension.class)));
+    }
+
+    // Grouping by account and expense flag totals each combination that has rows
+    @Test
+    public void LedgerAggregate_byAccountAndExpense_totalsEachGroup() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put(checkingId + "/null/null/false", "1 100 100 100 100 100");
+        expected.put(checkingId + "/null/null/true", "3 42 -42 14 2 30");
+        expected.put(savingsId + "/null/null/true", "2 12.5 -12.5 6.25 5 7.5");
+
+        Assertions.assertEquals(expected, aggregate(LedgerFilter.NONE,
+                EnumSet.of(LedgerDimension.ACCOUNT, LedgerDimension.EXPENSE)));
+    }
+
+    // Days are folded into ISO weeks, so the last days of 2024 join the first week of 2025 and the average is taken
+    // over the whole week rather than per day
+    @Test
+    public void LedgerAggregate_byWeek_foldsDaysAcrossYearEnd() {
+        Map<String, String> weeks = aggregate(LedgerFilter.NONE, EnumSet.of(LedgerDimension.WEEK));
+
+        Assertions.assertEquals(Map.of(
+                "null/null/null/null", "1 2 -2 2 2 2",
+                "null/null/2025-W01/null", "3 140 60 46.6667 10 100",
+                "null/null/2025-W02/null", "1 5 -5 5 5 5",
+                "null/null/2025-W07/null", "1 7.5 -7.5 7.5 7.5 7.5"), weeks);
+    }
+
+    // Filters apply before grouping, here by month and category for one account
+    @Test
+    public void LedgerAggregate_filteredByMonthAndCategory_totalsMatchingRows() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("null/" + foodId + "/null/null", "1 2 -2 2 2 2");
+        expected.put("null/" + foodId + "/2024-12/null", "1 10 -10 10 10 10");
+        expected.put("null/" + foodId + "/2025-01/null", "1 30 -30 30 30 30");
+        expected.put("null/" + salaryId + "/2025-01/null", "1 100 100 100 100 100");
+
+        Map<String, String> months = aggregate(LedgerFilter.builder().accountId(checkingId).build(),
+                EnumSet.of(LedgerDimension.CATEGORY, LedgerDimension.MONTH));
+
+        Assertions.assertEquals(Map.copyOf(expected), Map.copyOf(months));
+    }
+
+    // Grouping by day within a date range leaves out undated rows and rows outside the range
+    @Test
+    public void LedgerAggregate_byDayInRange_totalsEachDay() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("null/null/2024-12-30/null", "1 10 -10 10 10 10");
+        expected.put("null/null/2025-01-02/null", "1 30 -30 30 30 30");
+        expected.put("null/null/2025-01-06/null", "1 5 -5 5 5 5");
+
+        Assertions.assertEquals(expected, aggregate(LedgerFilter.builder().startDate(Date.valueOf("2024-12-01"))
+                .endDate(Date.valueOf("2025-01-31")).isExpense(true).build(), EnumSet.of(LedgerDimension.DAY)));
+    }
+}
@@ -0,0 +1,192 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountBalanceService;
+import com.nocturnals.budget.db.dao.LedgerArchiveService;
+import com.nocturnals.budget.db.dao.LedgerArchiveService.ArchiveRun;
+import com.nocturnals.budget.db.dao.LedgerRollupService;
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Archives closed years of a small ledger and reads it back through the ledger API.
+ */
+public class LedgerArchiveTest extends LedgerFixture {
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    @Autowired
+    private LedgerArchiveService ledgerArchiveService;
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private LedgerRollupService ledgerRollupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long accountId;
+    private Transaction template;
+
+    @BeforeEach
+    public void fillLedger() {
+        accountId = account("Archived checking", 0);
+
+        LocalDate end = LocalDate.of(2024, 7, 1);
+        for(LocalDate day = LocalDate.of(2021, 1, 10); day.isBefore(end); day = day.plusMonths(1)) {
+            save("Groceries " + day, day, day.getMonthValue() % 3 == 0, null);
+        }
+        save("Undated refund", null, false, null);
+        template = save("Gym membership", LocalDate.of(2021, 5, 1), true, 1);
+    }
+
+    private Transaction save(String description, LocalDate day, boolean expense, Integer recurringDate) {
+        return ledgerService.save(transaction(description, String.valueOf(10 + description.length()),
+                day == null ? null : day.toString(), expense, recurringDate, accountId, null));
+    }
+
+    private record Reads(List<Long> all, List<Long> paged, List<Long> range, List<LedgerAggregate> months) {
+    }
+
+    private Reads read() {
+        List<Long> paged = new ArrayList<>();
+        LedgerCursor cursor = null;
+        do {
+            LedgerPage<TransactionView> page = ledgerService.findPage(LedgerFilter.NONE, cursor, 7,
+                    LedgerExpansion.NONE);
+            page.items().forEach(view -> paged.add(view.id()));
+            cursor = page.next() == null ? null : LedgerCursor.decode(page.next());
+        } while(cursor != null);
+        LedgerFilter range = LedgerFilter.builder()
+                .startDate(Date.valueOf("2022-06-01"))
+                .endDate(Date.valueOf("2023-06-30"))
+                .accountId(accountId)
+                .build();
+        return new Reads(ids(ledgerService.search(LedgerFilter.NONE, LedgerExpansion.NONE)), paged,
+                ids(ledgerService.search(range, LedgerExpansion.NONE)),
+                ledgerService.aggregate(LedgerFilter.NONE, EnumSet.of(LedgerDimension.MONTH)));
+    }
+
+    private static List<Long> ids(List<TransactionView> views) {
+        return views.stream().map(TransactionView::id).toList();
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    // Reads return the same rows in the same order while a month is in both stores and after it leaves the ledger
+    @Test
+    public void LedgerArchive_run_keepsReadsUnchanged() {
+        Reads before = read();
+        int rollups = ledgerRollupService.rebuild();
+
+        ArchiveRun copied = ledgerArchiveService.run(TODAY);
+        Assertions.assertEquals(24, copied.copiedMonths());
+        Assertions.assertEquals(24, copied.copiedRows());
+        Assertions.assertEquals(Date.valueOf("2023-01-01"), copied.archivedBefore());
+        Assertions.assertEquals(before, read());
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+
+        ArchiveRun purged = ledgerArchiveService.run(TODAY);
+        Assertions.assertEquals(0, purged.copiedMonths());
+        Assertions.assertEquals(24, purged.purgedMonths());
+        Assertions.assertEquals(24, count("ledger_archive"));
+        Assertions.assertEquals(20, count("ledger"));
+        Assertions.assertEquals(before, read());
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+        Assertions.assertEquals(rollups, ledgerRollupService.rebuild());
+        Assertions.assertEquals(before.months(), read().months());
+    }
+
+    // A range after the boundary skips the archive, and archived rows are still found by id
+    @Test
+    public void LedgerArchive_search_prunesArchiveOutsideRange() {
+        ledgerArchiveService.run(TODAY);
+        ledgerArchiveService.run(TODAY);
+        LedgerFilter recent = LedgerFilter.builder()
+                .startDate(Date.valueOf("2024-01-01"))
+                .endDate(Date.valueOf("2024-12-31"))
+                .build();
+        Assertions.assertEquals(6, ledgerService.search(recent, LedgerExpansion.NONE).size());
+        Assertions.assertNotNull(meterRegistry.find("budget.ledger.query")
+                .tags("operation", "search", "archive", "pruned").timer());
+
+        Long archivedId = jdbcTemplate.queryForObject("select min(id) from ledger_archive", Long.class);
+        TransactionView archived = ledgerService.findById(archivedId, Set.of(LedgerExpansion.ACCOUNT));
+        Assertions.assertEquals(Date.valueOf("2021-01-10"), archived.transactionDate());
+        Assertions.assertEquals(accountId, archived.account().id());
+    }
+
+    // Archived rows cannot be written, but an old recurring template can still be stopped
+    @Test
+    public void LedgerArchive_write_rejectsArchivedPeriods() {
+        ledgerArchiveService.run(TODAY);
+        ledgerArchiveService.run(TODAY);
+        Long archivedId = jdbcTemplate.queryForObject("select min(id) from ledger_archive", Long.class);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> save("Backdated", LocalDate.of(2022, 5, 1), true, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ledgerService.deleteById(archivedId));
+
+        template.setIsRecurring(false);
+        ledgerService.save(template);
+        Assertions.assertTrue(ledgerArchiveService.exists(template.getId()));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from ledger where id = ?",
+                Long.class, template.getId()));
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+    }
+
+    // Writes made between copy and purge by a node still reading the month from the ledger survive the purge
+    @Test
+    public void LedgerArchive_purge_appliesWritesFromStaleNodes() {
+        ledgerArchiveService.run(TODAY);
+        Long deleted = jdbcTemplate.queryForObject("select id from ledger where description = ?", Long.class,
+                "Groceries 2021-02-10");
+        Long updated = jdbcTemplate.queryForObject("select id from ledger where description = ?", Long.class,
+                "Groceries 2021-04-10");
+        // A node with the old boundary takes these from the ledger; it keeps the account balance in step itself
+        jdbcTemplate.update("update account set balance = balance - (select amount from ledger where id = ?) + 5 "
+                + "where id = ?", deleted, accountId);
+        jdbcTemplate.update("delete from ledger where id = ?", deleted);
+        jdbcTemplate.update("update ledger set amount = amount + 5 where id = ?", updated);
+        template.setIsRecurring(false);
+        ledgerService.save(template);
+        Assertions.assertTrue(ledgerArchiveService.exists(template.getId()));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("select count(*) from ledger where id = ?",
+                Long.class, template.getId()));
+        Assertions.assertEquals(1, ledgerService.search(LedgerFilter.builder()
+                .startDate(Date.valueOf("2021-05-01")).endDate(Date.valueOf("2021-05-01")).build(),
+                LedgerExpansion.NONE).size());
+
+        ArchiveRun purged = ledgerArchiveService.run(TODAY);
+        Assertions.assertEquals(24, purged.purgedMonths());
+        Assertions.assertFalse(ledgerArchiveService.exists(deleted));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from ledger where id in (?, ?)",
+                Long.class, deleted, template.getId()));
+        Assertions.assertEquals(0, BigDecimal.valueOf(15 + "Groceries 2021-04-10".length()).compareTo(
+                ledgerService.findById(updated, LedgerExpansion.NONE).amount()));
+        Assertions.assertTrue(ledgerArchiveService.exists(template.getId()));
+        Assertions.assertEquals(24, count("ledger_archive"));
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 10, false).mismatches());
+    }
+}
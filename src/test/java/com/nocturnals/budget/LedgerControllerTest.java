@@ -2,8 +2,24 @@ package com.nocturnals.budget;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nocturnals.budget.controller.LedgerController;
+import com.nocturnals.budget.db.dao.DescriptionSearchService;
+import com.nocturnals.budget.db.dao.LedgerImportService;
 import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dao.StatementImportService;
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.dto.LedgerAggregate;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerDimension;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Account;
 import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.ingest.StatementFormat;
+import com.nocturnals.budget.ingest.StatementOptions;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -14,15 +30,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(LedgerController.class)
 @AutoConfigureMockMvc(addFilters = false)
@@ -38,6 +58,15 @@ public class LedgerControllerTest {
     @MockBean
     private LedgerService ledgerService;
 
+    @MockBean
+    private LedgerImportService ledgerImportService;
+
+    @MockBean
+    private StatementImportService statementImportService;
+
+    @MockBean
+    private DescriptionSearchService descriptionSearchService;
+
     @Test
     public void LedgerController_save_returnSaved() throws Exception {
         Transaction transaction = new Transaction();
@@ -73,7 +102,9 @@ public class LedgerControllerTest {
         transaction2.setAmount(BigDecimal.valueOf(200));
         transaction2.setTransactionDate(Date.valueOf("2022-01-15"));
         transactions.add(transaction2);
-        Mockito.when(ledgerService.findByDateRange(Mockito.any(), Mockito.any())).thenReturn(transactions);
+        Mockito.when(ledgerService.findPage(Mockito.any(), Mockito.isNull(),
+                Mockito.eq(LedgerService.DEFAULT_PAGE_SIZE), Mockito.any()))
+                .thenReturn(new LedgerPage<>(transactions.stream().map(TransactionView::of).toList(), null));
         mockMvc.perform(get("/api/v1/transaction")
                         .param("start-date", "2022-01-01")
                         .param("end-date", "2022-01-31"))
@@ -87,7 +118,10 @@ public class LedgerControllerTest {
                 .andExpect(jsonPath("$[1].amount").value(200))
                 .andExpect(jsonPath("$[1].transactionDate").value("2022-01-15"));
 
-        Mockito.verify(ledgerService, Mockito.times(1)).findByDateRange(Mockito.any(), Mockito.any());
+        Mockito.verify(ledgerService, Mockito.times(1)).findPage(LedgerFilter.builder()
+                .startDate(Date.valueOf("2022-01-01"))
+                .endDate(Date.valueOf("2022-01-31"))
+                .build(), null, LedgerService.DEFAULT_PAGE_SIZE, LedgerExpansion.NONE);
 
         Mockito.reset(ledgerService);
     }
@@ -109,12 +143,12 @@ public class LedgerControllerTest {
     @Test
     public void LedgerController_getTransactionByInvalidId_returnNotFound() throws Exception {
         Long invalidId = 9999L;
-        Mockito.when(ledgerService.findById(Mockito.eq(invalidId))).thenReturn(null);
+        Mockito.when(ledgerService.findById(Mockito.eq(invalidId), Mockito.any())).thenReturn(null);
         mockMvc.perform(get("/api/v1/transaction")
                         .param("transaction-id", String.valueOf(invalidId)))
                 .andExpect(status().isNotFound());
 
-        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.eq(invalidId));
+        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.eq(invalidId), Mockito.any());
 
         Mockito.reset(ledgerService);
     }
@@ -139,7 +173,8 @@ public class LedgerControllerTest {
         transaction.setId(1L);
         transaction.setDescription("test");
         transaction.setAmount(BigDecimal.valueOf(100));
-        Mockito.when(ledgerService.findById(Mockito.anyLong())).thenReturn(transaction);
+        Mockito.when(ledgerService.findById(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(TransactionView.of(transaction));
         mockMvc.perform(get("/api/v1/transaction")
                         .param("transaction-id", "1"))
                 .andExpect(status().isOk())
@@ -147,7 +182,7 @@ public class LedgerControllerTest {
                 .andExpect(jsonPath("$[0].description").value("test"))
                 .andExpect(jsonPath("$[0].amount").value(100));
 
-        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.anyLong());
+        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.anyLong(), Mockito.any());
 
         Mockito.reset(ledgerService);
     }
@@ -190,7 +225,8 @@ public class LedgerControllerTest {
         transaction.setId(1L);
         transaction.setDescription("test");
         transaction.setAmount(BigDecimal.valueOf(100));
-        Mockito.when(ledgerService.findById(Mockito.anyLong())).thenReturn(transaction);
+        Mockito.when(ledgerService.findById(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(TransactionView.of(transaction));
         mockMvc.perform(get("/api/v1/transaction")
                         .param("transaction-id", "1"))
                 .andExpect(status().isOk())
@@ -198,8 +234,330 @@ public class LedgerControllerTest {
                 .andExpect(jsonPath("$[0].description").value("test"))
                 .andExpect(jsonPath("$[0].amount").value(100));
 
-        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.anyLong());
+        Mockito.verify(ledgerService, Mockito.times(1)).findById(Mockito.anyLong(), Mockito.any());
+
+        Mockito.reset(ledgerService);
+    }
+
+    // Paging through transactions returns a bounded page and an opaque cursor for the next one
+    @Test
+    public void LedgerController_getTransactionPage_returnPageWithCursor() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(7L);
+        transaction.setDescription("test");
+        transaction.setTransactionDate(Date.valueOf("2022-01-05"));
+        String next = LedgerCursor.after(transaction).encode();
+        Mockito.when(ledgerService.findPage(Mockito.eq(LedgerFilter.NONE), Mockito.isNull(), Mockito.eq(2),
+                Mockito.eq(LedgerExpansion.NONE)))
+                .thenReturn(new LedgerPage<>(List.of(TransactionView.of(transaction)), next));
+        mockMvc.perform(get("/api/v1/transaction/page")
+                        .param("page-size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.next").value(next));
+
+        Mockito.when(ledgerService.findPage(Mockito.eq(LedgerFilter.NONE), Mockito.eq(LedgerCursor.decode(next)),
+                Mockito.eq(LedgerService.MAX_PAGE_SIZE), Mockito.eq(LedgerExpansion.NONE)))
+                .thenReturn(new LedgerPage<>(List.of(), null));
+        mockMvc.perform(get("/api/v1/transaction/page")
+                        .param("cursor", next)
+                        .param("page-size", "1000000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+
+        Mockito.reset(ledgerService);
+    }
+
+    // Listing without an id returns only the first page, with a link to the rest through the page endpoint
+    @Test
+    public void LedgerController_getTransactionsBeyondFirstPage_returnNextLink() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(7L);
+        transaction.setTransactionDate(Date.valueOf("2022-01-05"));
+        String next = LedgerCursor.after(transaction).encode();
+        Mockito.when(ledgerService.findPage(Mockito.any(), Mockito.isNull(),
+                        Mockito.eq(LedgerService.DEFAULT_PAGE_SIZE), Mockito.any()))
+                .thenReturn(new LedgerPage<>(List.of(TransactionView.of(transaction)), next));
+        mockMvc.perform(get("/api/v1/transaction?account-id=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(header().string("Link", "<http://localhost/api/v1/transaction/page?account-id=3&cursor="
+                        + next + ">; rel=\"next\""));
+
+        Mockito.verify(ledgerService, Mockito.never()).search(Mockito.any(), Mockito.any());
+
+        Mockito.reset(ledgerService);
+    }
+
+    // Paging with a cursor that was not issued by the server is rejected
+    @Test
+    public void LedgerController_getTransactionPageWithInvalidCursor_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/transaction/page")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    // Streaming the ledger writes one JSON document per line, chunk by chunk
+    @Test
+    @SuppressWarnings("unchecked")
+    public void LedgerController_streamTransactions_returnNdjson() throws Exception {
+        Transaction transaction1 = new Transaction();
+        transaction1.setId(1L);
+        Transaction transaction2 = new Transaction();
+        transaction2.setId(2L);
+        Mockito.doAnswer(invocation -> {
+            Consumer<List<TransactionView>> consumer = invocation.getArgument(3);
+            consumer.accept(List.of(TransactionView.of(transaction1)));
+            consumer.accept(List.of(TransactionView.of(transaction2)));
+            return null;
+        }).when(ledgerService).streamAll(Mockito.eq(LedgerFilter.NONE), Mockito.eq(LedgerService.DEFAULT_PAGE_SIZE),
+                Mockito.eq(LedgerExpansion.NONE), Mockito.any(Consumer.class));
+        MvcResult result = mockMvc.perform(get("/api/v1/transaction/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(2L, objectMapper.readValue(lines[1], Transaction.class).getId());
+
+        Mockito.reset(ledgerService);
+    }
+
+    // Combining filters pushes every supplied parameter into a single search
+    @Test
+    public void LedgerController_getTransactionWithCombinedFilters_searchOnce() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        Mockito.when(ledgerService.findPage(Mockito.any(), Mockito.isNull(),
+                Mockito.eq(LedgerService.DEFAULT_PAGE_SIZE), Mockito.any()))
+                .thenReturn(new LedgerPage<>(List.of(TransactionView.of(transaction)), null));
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("account-id", "3")
+                        .param("is-expense", "true")
+                        .param("start-amount", "50")
+                        .param("amount-comparison", "greater"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        Mockito.verify(ledgerService, Mockito.times(1)).findPage(LedgerFilter.builder()
+                .accountId(3L)
+                .isExpense(true)
+                .minAmount(BigDecimal.valueOf(50))
+                .build(), null, LedgerService.DEFAULT_PAGE_SIZE, LedgerExpansion.NONE);
+
+        Mockito.reset(ledgerService);
+    }
+
+    // An unknown amount comparison is rejected instead of silently returning nothing
+    @Test
+    public void LedgerController_getTransactionWithInvalidAmountComparison_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("start-amount", "50")
+                        .param("amount-comparison", "around"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    // Bulk JSON import answers with one result per submitted row
+    @Test
+    public void LedgerController_bulkImport_returnResults() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(BigDecimal.valueOf(100));
+        transaction.setTransactionDate(Date.valueOf("2024-03-01"));
+        Mockito.when(ledgerImportService.importAll(Mockito.anyList()))
+                .thenReturn(List.of(ImportResult.saved(1, 10L), ImportResult.failed(2, "Amount is required")));
+        mockMvc.perform(post("/api/v1/transaction/bulk")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(List.of(transaction, new Transaction()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(10))
+                .andExpect(jsonPath("$[1].error").value("Amount is required"));
+
+        Mockito.reset(ledgerImportService);
+    }
+
+    // A CSV upload is streamed through the importer and reported back as NDJSON
+    @Test
+    @SuppressWarnings("unchecked")
+    public void LedgerController_bulkImportCsv_returnNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<ImportResult> results = invocation.getArgument(1);
+            results.accept(ImportResult.saved(2, 10L));
+            results.accept(ImportResult.failed(3, "Transaction date is required"));
+            return null;
+        }).when(ledgerImportService).importCsv(Mockito.any(Reader.class), Mockito.any(Consumer.class));
+        MvcResult result = mockMvc.perform(post("/api/v1/transaction/bulk")
+                        .contentType("text/csv")
+                        .content("amount,transaction_date\n100,2024-03-01\n50,\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(3L, objectMapper.readValue(lines[1], ImportResult.class).row());
+
+        Mockito.verify(ledgerImportService, Mockito.never()).importNdjson(Mockito.any(), Mockito.any());
+        Mockito.reset(ledgerImportService);
+    }
+
+    // An OFX statement is imported for the named account and duplicates are reported against the existing row
+    @Test
+    @SuppressWarnings("unchecked")
+    public void LedgerController_importOfxStatement_returnNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            StatementOptions options = invocation.getArgument(2);
+            Assertions.assertEquals("Checking", options.account());
+            Consumer<ImportResult> results = invocation.getArgument(3);
+            results.accept(ImportResult.saved(1, 10L));
+            results.accept(ImportResult.duplicate(2, 4L));
+            return null;
+        }).when(statementImportService).importStream(Mockito.any(InputStream.class), Mockito.eq(StatementFormat.OFX),
+                Mockito.any(StatementOptions.class), Mockito.any(Consumer.class));
+        MvcResult result = mockMvc.perform(post("/api/v1/transaction/statement")
+                        .param("account", "Checking")
+                        .contentType("application/x-ofx")
+                        .content("<OFX><STMTTRN><TRNAMT>-1.00<DTPOSTED>20240301</STMTTRN></OFX>"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(4L, objectMapper.readValue(lines[1], ImportResult.class).duplicateOf());
+
+        Mockito.reset(statementImportService);
+    }
+
+    // An invalid date format is rejected before the upload is read
+    @Test
+    public void LedgerController_importStatementWithInvalidDateFormat_returnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/transaction/statement")
+                        .param("date-format", "yyyy-MM-dd'")
+                        .contentType("text/csv")
+                        .content("date,amount\n"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statementImportService);
+    }
+
+    // Aggregates are grouped by the requested dimensions and filtered like a search
+    @Test
+    public void LedgerController_aggregateByCategoryAndMonth_returnAggregates() throws Exception {
+        LedgerAggregate aggregate = new LedgerAggregate(null, 7L, "2024-03", null, 2L, BigDecimal.valueOf(30),
+                BigDecimal.valueOf(-30), BigDecimal.valueOf(15), BigDecimal.valueOf(10), BigDecimal.valueOf(20));
+        Mockito.when(ledgerService.aggregate(LedgerFilter.builder().isExpense(true).build(),
+                EnumSet.of(LedgerDimension.CATEGORY, LedgerDimension.MONTH))).thenReturn(List.of(aggregate));
+        mockMvc.perform(get("/api/v1/transaction/aggregate")
+                        .param("is-expense", "true")
+                        .param("group-by", "category,month"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].categoryId").value(7))
+                .andExpect(jsonPath("$[0].period").value("2024-03"))
+                .andExpect(jsonPath("$[0].accountId").doesNotExist())
+                .andExpect(jsonPath("$[0].sum").value(30));
+
+        Mockito.reset(ledgerService);
+    }
+
+    // Grouping by two date dimensions at once is rejected
+    @Test
+    public void LedgerController_aggregateByDayAndMonth_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/transaction/aggregate")
+                        .param("group-by", "day,month"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    // Expanded associations are embedded while ids are always present
+    @Test
+    public void LedgerController_getTransactionByIdWithExpand_returnEmbeddedAccount() throws Exception {
+        Account account = new Account();
+        account.setId(3L);
+        account.setName("Checking");
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setAccount(account);
+        Mockito.when(ledgerService.findById(1L, EnumSet.of(LedgerExpansion.ACCOUNT)))
+                .thenReturn(TransactionView.of(transaction, EnumSet.of(LedgerExpansion.ACCOUNT)));
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("transaction-id", "1")
+                        .param("expand", "account"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].accountId").value(3))
+                .andExpect(jsonPath("$[0].account.name").value("Checking"))
+                .andExpect(jsonPath("$[0].category").doesNotExist());
+
+        Mockito.reset(ledgerService);
+    }
+
+    // An unknown expansion is rejected
+    @Test
+    public void LedgerController_getTransactionWithInvalidExpand_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("expand", "bank"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    // Description filters match as a substring unless another match is requested
+    @Test
+    public void LedgerController_getTransactionByDescription_searchWithMatch() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        Mockito.when(ledgerService.findPage(Mockito.any(), Mockito.isNull(),
+                Mockito.eq(LedgerService.DEFAULT_PAGE_SIZE), Mockito.any()))
+                .thenReturn(new LedgerPage<>(List.of(TransactionView.of(transaction)), null));
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("description", "coff"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("description", "cofee")
+                        .param("description-match", "fuzzy"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(ledgerService, Mockito.times(1)).findPage(LedgerFilter.builder()
+                .description("coff")
+                .descriptionMatch(DescriptionMatch.CONTAINS)
+                .build(), null, LedgerService.DEFAULT_PAGE_SIZE, LedgerExpansion.NONE);
+        Mockito.verify(ledgerService, Mockito.times(1)).findPage(LedgerFilter.builder()
+                .description("cofee")
+                .descriptionMatch(DescriptionMatch.FUZZY)
+                .build(), null, LedgerService.DEFAULT_PAGE_SIZE, LedgerExpansion.NONE);
 
         Mockito.reset(ledgerService);
     }
+
+    // An unknown description match is rejected before searching
+    @Test
+    public void LedgerController_getTransactionWithInvalidDescriptionMatch_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("description", "coffee")
+                        .param("description-match", "soundex"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerService);
+    }
+
+    // Rebuilding the description index reports how many rows were indexed
+    @Test
+    public void LedgerController_rebuildDescriptionIndex_returnCount() throws Exception {
+        Mockito.when(descriptionSearchService.rebuild()).thenReturn(42);
+        mockMvc.perform(post("/api/v1/transaction/description-index/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("42"));
+
+        Mockito.verify(descriptionSearchService, Mockito.times(1)).rebuild();
+
+        Mockito.reset(descriptionSearchService);
+    }
 }
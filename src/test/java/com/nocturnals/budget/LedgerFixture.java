@@ -0,0 +1,86 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Base for tests that need the ledger to themselves. They share one database and application context, emptied of
+ * ledger rows, their derived tables, accounts and categories before each test. Archiving runs with no grace period
+ * and no cached boundary so archive tests see their moves at once.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:ledger-fixture;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.archive.keep-years=2", "budget.archive.grace=PT0S", "budget.archive.refresh=PT0S"})
+@ActiveProfiles("test")
+public abstract class LedgerFixture {
+    private static final List<String> TABLES = List.of("recurring_occurrence", "ledger_archive_period",
+            "ledger_archive", "ledger", "ledger_rollup", "account_balance_snapshot", "job_lease", "account",
+            "category");
+
+    @Autowired
+    protected LedgerService ledgerService;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clearLedger() {
+        for(String table : TABLES) {
+            jdbcTemplate.update("delete from " + table);
+        }
+    }
+
+    protected Long account(String name, int balance) {
+        jdbcTemplate.update("insert into account (name, balance, opening_balance, version) values (?, ?, ?, 0)",
+                name, balance, balance);
+        return jdbcTemplate.queryForObject("select id from account where name = ?", Long.class, name);
+    }
+
+    protected Long category(String name) {
+        jdbcTemplate.update("insert into category (name) values (?)", name);
+        return jdbcTemplate.queryForObject("select id from category where name = ?", Long.class, name);
+    }
+
+    /**
+     * A new ledger row; a null date, recurring date, account or category is left unset.
+     */
+    protected static Transaction transaction(String description, String amount, String date, boolean expense,
+                                             Integer recurringDate, Long accountId, Long categoryId) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionDate(date == null ? null : Date.valueOf(date));
+        transaction.setIsExpense(expense);
+        transaction.setIsRecurring(recurringDate != null);
+        transaction.setRecurringDate(recurringDate);
+        if(accountId != null) {
+            Account account = new Account();
+            account.setId(accountId);
+            transaction.setAccount(account);
+        }
+        if(categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            transaction.setCategory(category);
+        }
+        return transaction;
+    }
+
+    /**
+     * The same row written over an existing id, for edits.
+     */
+    protected static Transaction withId(Long id, Transaction transaction) {
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,153 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerImportService;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Imports CSV, NDJSON and lists of transactions into their own in-memory database, with batches of two rows so that
+ * every input spans several.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:ledger-import;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.import.batch-size=2"})
+@ActiveProfiles("test")
+public class LedgerImportTest {
+    @Autowired
+    private LedgerImportService ledgerImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clearLedger() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+    }
+
+    private List<ImportResult> importCsv(String content) throws IOException {
+        List<ImportResult> results = new ArrayList<>();
+        ledgerImportService.importCsv(new StringReader(content), results::add);
+        return results;
+    }
+
+    private List<String> descriptions() {
+        return jdbcTemplate.queryForList("select description from ledger order by id", String.class);
+    }
+
+    private static List<Long> rows(List<ImportResult> results) {
+        return results.stream().map(ImportResult::row).toList();
+    }
+
+    // Quoted descriptions keep their commas, quotes and line breaks, and row numbers follow the records of the file
+    @Test
+    public void LedgerImport_quotedCsvFields_savedVerbatim() throws IOException {
+        List<ImportResult> results = importCsv("""
+                description,amount,transaction_date,is_expense
+                "Coffee, large",4.50,2026-01-05,true
+                "The ""Corner"" Shop",12.00,2026-01-06,true
+                "Rent
+                January",1200,2026-01-01,true
+                """);
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L), rows(results));
+        Assertions.assertTrue(results.stream().allMatch(result -> result.id() != null && result.error() == null));
+        Assertions.assertEquals(List.of("Coffee, large", "The \"Corner\" Shop", "Rent\nJanuary"), descriptions());
+    }
+
+    // Rows with bad values or unknown references are reported while the rest of the file, including the rest of
+    // their batch, is saved
+    @Test
+    public void LedgerImport_badCsvRows_reportedNotFatal() throws IOException {
+        List<ImportResult> results = importCsv("""
+                description,amount,transaction_date,account_id
+                Good one,1.00,2026-01-05,
+                Bad amount,abc,2026-01-05,
+                No date,2.00,,
+                Bad date,2.00,2026-13-45,
+                No account,3.00,2026-01-05,999999
+
+                Good two,4.00,2026-01-06,
+                """);
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 8L), rows(results));
+        Assertions.assertNotNull(results.get(0).id());
+        Assertions.assertTrue(results.get(1).error().startsWith("Invalid value"));
+        Assertions.assertEquals("Transaction date is required", results.get(2).error());
+        Assertions.assertTrue(results.get(3).error().startsWith("Invalid value"));
+        Assertions.assertEquals("Account 999999 does not exist", results.get(4).error());
+        Assertions.assertNotNull(results.get(5).id());
+        Assertions.assertEquals(List.of("Good one", "Good two"), descriptions());
+    }
+
+    // A batch whose insert fails reports each of its rows; the batches before and after it are still saved
+    @Test
+    public void LedgerImport_failedBatch_onlyThatBatchLost() throws IOException {
+        String tooLong = "x".repeat(300);
+        List<ImportResult> results = importCsv("""
+                description,amount,transaction_date
+                One,1,2026-01-01
+                Two,2,2026-01-02
+                %s,3,2026-01-03
+                Four,4,2026-01-04
+                Five,5,2026-01-05
+                """.formatted(tooLong));
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L, 5L, 6L), rows(results));
+        Assertions.assertEquals(List.of(true, true, false, false, true),
+                results.stream().map(result -> result.id() != null).toList());
+        Assertions.assertTrue(results.get(2).error().startsWith("Batch failed"));
+        Assertions.assertEquals(results.get(2).error(), results.get(3).error());
+        Assertions.assertEquals(List.of("One", "Two", "Five"), descriptions());
+    }
+
+    // A list that is not a multiple of the batch size saves every row once, in order, with its position as the row
+    @Test
+    public void LedgerImport_importAllAcrossBatches_savesEveryRow() {
+        List<Transaction> transactions = new ArrayList<>();
+        for(int i = 1; i <= 5; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setDescription("Row " + i);
+            transaction.setAmount(BigDecimal.valueOf(i));
+            transaction.setTransactionDate(Date.valueOf("2026-02-0" + i));
+            transactions.add(transaction);
+        }
+
+        List<ImportResult> results = ledgerImportService.importAll(transactions);
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L), rows(results));
+        Assertions.assertEquals(5, results.stream().map(ImportResult::id).filter(Objects::nonNull).distinct().count());
+        Assertions.assertEquals(List.of("Row 1", "Row 2", "Row 3", "Row 4", "Row 5"), descriptions());
+        Assertions.assertEquals(List.of(), ledgerImportService.importAll(List.of()));
+    }
+
+    // NDJSON lines that do not parse are reported by line number, blank lines are skipped and the rest are saved
+    @Test
+    public void LedgerImport_badNdjsonLine_reportedNotFatal() throws IOException {
+        List<ImportResult> results = new ArrayList<>();
+        ledgerImportService.importNdjson(new StringReader("""
+                {"description":"First","amount":1,"transactionDate":"2026-01-01"}
+                {"description":
+
+                {"description":"Second","amount":2,"transactionDate":"2026-01-02"}
+                """), results::add);
+
+        Assertions.assertEquals(List.of(1L, 2L, 4L), rows(results));
+        Assertions.assertTrue(results.get(1).error().startsWith("Invalid JSON"));
+        Assertions.assertEquals(List.of("First", "Second"), descriptions());
+    }
+}
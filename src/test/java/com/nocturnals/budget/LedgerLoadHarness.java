@@ -0,0 +1,97 @@
+package com.nocturnals.budget;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives concurrent ledger reads against a running application and reports throughput and latency percentiles. Not a
+ * unit test; compare the same data set started with and without {@code --spring.profiles.active=virtual}:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.mainClass=com.nocturnals.budget.LedgerLoadHarness \
+ *     -Dexec.classpathScope=test -Dexec.args="http://localhost:8080 400 60"
+ * </pre>
+ * Arguments are the base URL, the number of concurrent clients (default 200) and the run time in seconds (default
+ * 30). Each client issues one request at a time, picked at random from a mix of page, description, aggregate and
+ * summary queries.
+ */
+public class LedgerLoadHarness {
+    private static final List<String> PATHS = List.of(
+            "/api/v1/transaction/page?page-size=50",
+            "/api/v1/transaction/page?page-size=50&is-expense=true",
+            "/api/v1/transaction?description=coffee&description-match=prefix",
+            "/api/v1/transaction?description=pay&description-match=contains",
+            "/api/v1/transaction/aggregate?group-by=category,month",
+            "/api/v1/summary?group-by=account");
+
+    public static void main(String[] args) throws InterruptedException {
+        if(args.length < 1) {
+            System.err.println("Usage: LedgerLoadHarness <base-url> [concurrency] [seconds]");
+            System.exit(2);
+        }
+        String baseUrl = args[0].replaceAll("/$", "");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Duration runTime = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<List<Long>> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + runTime.toNanos();
+        try(ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(int i = 0; i < concurrency; i++) {
+                List<Long> own = new ArrayList<>();
+                latencies.add(own);
+                clients.submit(() -> {
+                    while(System.nanoTime() < deadline) {
+                        String path = PATHS.get(ThreadLocalRandom.current().nextInt(PATHS.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if(response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        own.add(System.nanoTime() - sent);
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> all = new ArrayList<>();
+        latencies.forEach(all::addAll);
+        Collections.sort(all);
+        System.out.printf("clients=%d requests=%d errors=%d seconds=%.1f%n", concurrency, all.size(), errors.get(),
+                seconds);
+        System.out.printf("throughput=%.1f req/s%n", all.size() / seconds);
+        System.out.printf("p50=%.1f ms p99=%.1f ms max=%.1f ms%n", percentile(all, 0.50), percentile(all, 0.99),
+                percentile(all, 1.0));
+    }
+
+    private static double percentile(List<Long> sorted, double fraction) {
+        if(sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+}
@@ -0,0 +1,111 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.DescriptionMatch;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.entity.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the meters recorded for ledger reads and the repository and Hibernate metrics bound at startup.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class LedgerMetricsTest {
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // A search records its time and result size, tagged by how the description filter was answered
+    @Test
+    public void LedgerService_search_recordsTimerAndRowCount() {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("Quillfeather Stationers");
+        transaction.setAmount(BigDecimal.TEN);
+        ledgerService.insertAll(List.of(transaction));
+
+        ledgerService.search(LedgerFilter.builder().description("quillfeather")
+                .descriptionMatch(DescriptionMatch.TOKEN).build(), LedgerExpansion.NONE);
+        ledgerService.search(LedgerFilter.builder().description("ll")
+                .descriptionMatch(DescriptionMatch.CONTAINS).build(), LedgerExpansion.NONE);
+
+        Timer indexed = meterRegistry.find("budget.ledger.query")
+                .tags("operation", "search", "description", "index", "dates", "open").timer();
+        Assertions.assertNotNull(indexed);
+        Assertions.assertTrue(indexed.count() >= 1);
+        DistributionSummary scanned = meterRegistry.find("budget.ledger.rows")
+                .tags("operation", "search", "description", "scan").summary();
+        Assertions.assertNotNull(scanned);
+        Assertions.assertTrue(scanned.max() >= 1);
+    }
+
+    // Streaming is timed on its reads only, not on the time spent handing chunks to the consumer
+    @Test
+    public void LedgerService_stream_excludesConsumerTime() {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("Slow reader");
+        transaction.setAmount(BigDecimal.ONE);
+        ledgerService.insertAll(List.of(transaction));
+        Timer stream = meterRegistry.find("budget.ledger.query").tags("operation", "stream", "outcome", "success")
+                .timer();
+        double before = stream == null ? 0 : stream.totalTime(TimeUnit.MILLISECONDS);
+
+        ledgerService.streamAll(LedgerFilter.builder().description("Slow reader").build(), 1, LedgerExpansion.NONE,
+                chunk -> sleep(200));
+
+        stream = meterRegistry.find("budget.ledger.query").tags("operation", "stream", "outcome", "success").timer();
+        Assertions.assertNotNull(stream);
+        Assertions.assertTrue(stream.totalTime(TimeUnit.MILLISECONDS) - before < 200);
+    }
+
+    // A read that fails is still timed, tagged with the error and the exception's class
+    @Test
+    public void LedgerService_failedStream_recordedAsError() {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("Disconnected reader");
+        transaction.setAmount(BigDecimal.ONE);
+        ledgerService.insertAll(List.of(transaction));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> ledgerService.streamAll(
+                LedgerFilter.builder().description("Disconnected reader").build(), 10, LedgerExpansion.NONE, chunk -> {
+                    throw new IllegalStateException("Client went away");
+                }));
+
+        Timer failed = meterRegistry.find("budget.ledger.query").tags("operation", "stream", "outcome", "error",
+                "exception", "IllegalStateException").timer();
+        Assertions.assertNotNull(failed);
+        Assertions.assertTrue(failed.count() >= 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Repository calls and Hibernate statistics are published as meters
+    @Test
+    public void LedgerService_startup_bindsRepositoryAndHibernateMeters() {
+        ledgerService.findPage(LedgerFilter.builder().build(), null, 10, LedgerExpansion.NONE);
+
+        Assertions.assertNotNull(meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "LedgerRepository").timer());
+        Assertions.assertNotNull(meterRegistry.find("hibernate.statements").functionCounter());
+    }
+}
@@ -0,0 +1,100 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.LedgerCursor;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.LedgerPage;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages and streams a ledger where many rows share a date, on its own in-memory database, and checks that the keyset
+ * walk returns every row once in (transaction_date, id) order whatever the page size.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:paging;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class LedgerPagingTest {
+    private static final List<String> DATES = List.of("2024-03-02", "2024-03-01", "2024-03-03");
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> ordered;
+
+    @BeforeEach
+    public void fillLedger() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+        List<Transaction> transactions = new ArrayList<>();
+        for(int i = 0; i < 15; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setDescription("Row " + i);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setTransactionDate(i % 5 == 4 ? null : Date.valueOf(DATES.get(i % 3)));
+            transactions.add(transaction);
+        }
+        ledgerService.insertAll(transactions);
+        ordered = jdbcTemplate.queryForList("select id from ledger order by case when transaction_date is null "
+                + "then 0 else 1 end, transaction_date, id", Long.class);
+    }
+
+    private List<Long> walk(LedgerFilter filter, int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        LedgerCursor cursor = null;
+        do {
+            LedgerPage<TransactionView> page = ledgerService.findPage(filter, cursor, pageSize, LedgerExpansion.NONE);
+            page.items().forEach(transaction -> ids.add(transaction.id()));
+            cursor = page.next() == null ? null : LedgerCursor.decode(page.next());
+        } while(cursor != null);
+        return ids;
+    }
+
+    // Every page size walks the whole ledger once in order, including cursors that fall inside a run of equal dates
+    @Test
+    public void LedgerPaging_tiedDates_eachRowOnce() {
+        Assertions.assertEquals(15, ordered.size());
+        for(int pageSize = 1; pageSize <= 16; pageSize++) {
+            Assertions.assertEquals(ordered, walk(LedgerFilter.NONE, pageSize), "page size " + pageSize);
+        }
+    }
+
+    // Filtered walks seek within the matching rows only
+    @Test
+    public void LedgerPaging_filteredTiedDates_eachMatchOnce() {
+        LedgerFilter march2 = LedgerFilter.builder().startDate(Date.valueOf("2024-03-02"))
+                .endDate(Date.valueOf("2024-03-02")).build();
+        List<Long> expected = jdbcTemplate.queryForList("select id from ledger where transaction_date = ? order by id",
+                Long.class, Date.valueOf("2024-03-02"));
+
+        Assertions.assertEquals(4, expected.size());
+        Assertions.assertEquals(expected, walk(march2, 1));
+        Assertions.assertEquals(expected, walk(march2, 3));
+    }
+
+    // Streaming reads the same rows in the same order, one chunk per transaction
+    @Test
+    public void LedgerPaging_stream_matchesPages() {
+        for(int chunkSize : List.of(1, 4, 5, 15, 100)) {
+            List<Long> ids = new ArrayList<>();
+            ledgerService.streamAll(LedgerFilter.NONE, chunkSize, LedgerExpansion.NONE,
+                    chunk -> chunk.forEach(transaction -> ids.add(transaction.id())));
+            Assertions.assertEquals(ordered, ids, "chunk size " + chunkSize);
+        }
+    }
+}
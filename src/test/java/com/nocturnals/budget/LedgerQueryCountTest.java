@@ -0,0 +1,142 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements behind ledger reads, so a change that reintroduces per-row loading of accounts,
+ * categories or their collections fails here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class LedgerQueryCountTest {
+    private static final int ROWS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long firstId;
+
+    @BeforeAll
+    public void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Account> accounts = new ArrayList<>();
+        List<Category> categories = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            Account account = new Account();
+            account.setName("count-account-" + i);
+            accounts.add(accountService.save(account));
+            Category category = new Category();
+            category.setName("count-category-" + i);
+            category.setBudget(BigDecimal.valueOf(100));
+            categories.add(categoryService.save(category));
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        for(int i = 0; i < ROWS; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setDescription("count " + i);
+            transaction.setAmount(BigDecimal.valueOf(i + 1));
+            transaction.setIsExpense(i % 2 == 0);
+            transaction.setTransactionDate(i % 5 == 0 ? null : Date.valueOf("2024-01-" + (10 + i % 15)));
+            transaction.setAccount(accounts.get(i % 3));
+            transaction.setCategory(categories.get(i % 3));
+            transactions.add(transaction);
+        }
+        firstId = ledgerService.insertAll(transactions).get(0).getId();
+    }
+
+    // A page with accounts and categories expanded is read by the undated and dated keyset queries alone
+    @Test
+    public void LedgerQueryCount_pageWithExpand_twoStatements() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/transaction/page")
+                        .param("page-size", "100")
+                        .param("expand", "account,category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(ROWS))
+                .andExpect(jsonPath("$.items[0].account.name").exists())
+                .andExpect(jsonPath("$.items[0].category.name").exists());
+
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    // Listing without expansion reads its first page with the same two keyset queries, references stay id-only and no
+    // association is loaded
+    @Test
+    public void LedgerQueryCount_listWithoutExpand_twoStatements() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("description", "count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ROWS))
+                .andExpect(jsonPath("$[0].accountId").exists())
+                .andExpect(jsonPath("$[0].account").doesNotExist());
+
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    // A single expanded transaction is fetched with its associations in one statement
+    @Test
+    public void LedgerQueryCount_findByIdWithExpand_oneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/transaction")
+                        .param("transaction-id", firstId.toString())
+                        .param("expand", "account,category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].account.name").exists())
+                .andExpect(jsonPath("$[0].category.name").exists());
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // Listing accounts no longer walks their transaction collections
+    @Test
+    public void LedgerQueryCount_findAllAccounts_oneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/account/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].transactions").doesNotExist());
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
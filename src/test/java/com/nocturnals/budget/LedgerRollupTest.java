@@ -0,0 +1,172 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerRollupService;
+import com.nocturnals.budget.db.dao.LedgerRollupService.Grouping;
+import com.nocturnals.budget.db.dto.LedgerSummary;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes to the ledger and checks that the monthly rollups the write listener keeps always equal the totals grouped
+ * from the ledger itself, and that summaries read them correctly.
+ */
+public class LedgerRollupTest extends LedgerFixture {
+    private static final String LEDGER_TOTALS = "select coalesce(account_id, 0) as account_id, "
+            + "coalesce(category_id, 0) as category_id, "
+            + "year(transaction_date) * 100 + month(transaction_date) as period, "
+            + "coalesce(is_expense, false) as is_expense, sum(amount) as total, count(*) as entry_count "
+            + "from ledger where transaction_date is not null and amount is not null "
+            + "group by coalesce(account_id, 0), coalesce(category_id, 0), "
+            + "year(transaction_date) * 100 + month(transaction_date), coalesce(is_expense, false)";
+    private static final String ROLLUPS = "select account_id, category_id, period, is_expense, total, entry_count "
+            + "from ledger_rollup where entry_count <> 0";
+
+    @Autowired
+    private LedgerRollupService ledgerRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long checkingId;
+    private Long savingsId;
+    private Long foodId;
+
+    @BeforeEach
+    public void createReferences() {
+        checkingId = account("Checking", 0);
+        savingsId = account("Savings", 0);
+        foodId = category("Food");
+    }
+
+    /**
+     * Totals keyed by account/category/period/expense, as "total x count" with the total's trailing zeros removed.
+     */
+    private Map<String, String> totals(String sql) {
+        Map<String, String> totals = new TreeMap<>();
+        jdbcTemplate.query(sql, row -> {
+            String key = row.getLong("account_id") + "/" + row.getLong("category_id") + "/" + row.getInt("period")
+                    + "/" + row.getBoolean("is_expense");
+            String total = row.getBigDecimal("total").stripTrailingZeros().toPlainString();
+            totals.put(key, total + " x " + row.getLong("entry_count"));
+        });
+        return totals;
+    }
+
+    private void assertRollupsMatchLedger() {
+        Assertions.assertEquals(totals(LEDGER_TOTALS), totals(ROLLUPS));
+    }
+
+    private List<Transaction> seed() {
+        return ledgerService.insertAll(List.of(
+                transaction("Rollup", "12.50", "2024-03-04", true, null, checkingId, foodId),
+                transaction("Rollup", "7.50", "2024-03-20", true, null, checkingId, foodId),
+                transaction("Rollup", "2000", "2024-03-25", false, null, checkingId, null),
+                transaction("Rollup", "40", "2024-04-02", true, null, savingsId, foodId),
+                transaction("Rollup", "5", "2024-04-03", false, null, null, null),
+                transaction("Rollup", "99", null, true, null, checkingId, foodId)));
+    }
+
+    // Inserts add to the month's rollup; undated rows and rows without references are kept apart correctly
+    @Test
+    public void LedgerRollup_inserts_matchLedgerTotals() {
+        seed();
+
+        Map<String, String> rollups = totals(ROLLUPS);
+        Assertions.assertEquals("20 x 2", rollups.get(checkingId + "/" + foodId + "/202403/true"));
+        Assertions.assertEquals("2000 x 1", rollups.get(checkingId + "/0/202403/false"));
+        Assertions.assertEquals("5 x 1", rollups.get("0/0/202404/false"));
+        Assertions.assertEquals(4, rollups.size());
+        assertRollupsMatchLedger();
+    }
+
+    // Edits that change the amount, sign, account, category or month, and deletes, move the totals between rollups
+    @Test
+    public void LedgerRollup_editsAndDeletes_matchLedgerTotals() {
+        List<Transaction> saved = seed();
+        Long groceries = saved.get(0).getId();
+        Long salary = saved.get(2).getId();
+
+        ledgerService.save(withId(groceries, transaction("Rollup", "15", "2024-03-04", true, null,
+                checkingId, foodId)));
+        assertRollupsMatchLedger();
+        ledgerService.save(withId(groceries, transaction("Rollup", "15", "2024-03-04", false, null,
+                checkingId, foodId)));
+        assertRollupsMatchLedger();
+        ledgerService.save(withId(groceries, transaction("Rollup", "15", "2024-05-01", false, null, savingsId, null)));
+        assertRollupsMatchLedger();
+        ledgerService.save(withId(groceries, transaction("Rollup", "15", null, false, null, savingsId, null)));
+        assertRollupsMatchLedger();
+        ledgerService.save(withId(saved.get(5).getId(), transaction("Rollup", "99", "2024-03-31", true, null,
+                checkingId, foodId)));
+        assertRollupsMatchLedger();
+        ledgerService.deleteById(salary);
+        assertRollupsMatchLedger();
+
+        Assertions.assertEquals("106.5 x 2", totals(ROLLUPS).get(checkingId + "/" + foodId + "/202403/true"));
+        Assertions.assertNull(totals(ROLLUPS).get(checkingId + "/0/202403/false"));
+    }
+
+    // A write that rolls back leaves the rollups as they were
+    @Test
+    public void LedgerRollup_rolledBackWrite_leavesRollups() {
+        seed();
+        Map<String, String> before = totals(ROLLUPS);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ledgerService.insertAll(List.of(transaction("Rollup", "1000", "2024-03-10", true, null,
+                    checkingId, foodId)));
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals(before, totals(ROLLUPS));
+    }
+
+    // A rebuild reproduces the incrementally kept rollups, and repairs ones that drifted
+    @Test
+    public void LedgerRollup_rebuild_matchesIncremental() {
+        seed();
+        Map<String, String> incremental = totals(ROLLUPS);
+        jdbcTemplate.update("update ledger_rollup set total = 0, entry_count = entry_count + 1");
+
+        Assertions.assertEquals(4, ledgerRollupService.rebuild());
+
+        Assertions.assertEquals(incremental, totals(ROLLUPS));
+        assertRollupsMatchLedger();
+    }
+
+    // Summaries total income and expense per month, filtered and broken down as asked
+    @Test
+    public void LedgerRollup_summarize_returnMonthlyTotals() {
+        seed();
+        YearMonth march = YearMonth.of(2024, 3);
+        YearMonth april = YearMonth.of(2024, 4);
+
+        List<LedgerSummary> months = ledgerRollupService.summarize(null, null, march, april, Grouping.PERIOD);
+        Assertions.assertEquals(List.of(
+                new LedgerSummary(202403, null, null, new BigDecimal("2000.00"), new BigDecimal("20.00"),
+                        new BigDecimal("1980.00"), 3L),
+                new LedgerSummary(202404, null, null, new BigDecimal("5.00"), new BigDecimal("40.00"),
+                        new BigDecimal("-35.00"), 2L)), months);
+
+        List<LedgerSummary> byAccount = ledgerRollupService.summarize(null, foodId, march, april, Grouping.ACCOUNT);
+        Assertions.assertEquals(List.of(
+                new LedgerSummary(202403, checkingId, null, new BigDecimal("0"), new BigDecimal("20.00"),
+                        new BigDecimal("-20.00"), 2L),
+                new LedgerSummary(202404, savingsId, null, new BigDecimal("0"), new BigDecimal("40.00"),
+                        new BigDecimal("-40.00"), 1L)), byAccount);
+
+        Assertions.assertEquals(List.of(), ledgerRollupService.summarize(savingsId, null, march, march,
+                Grouping.PERIOD));
+    }
+}
@@ -0,0 +1,135 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs ledger searches against a small ledger and checks exactly which rows each filter, and each combination of
+ * filters, returns.
+ */
+public class LedgerSearchTest extends LedgerFixture {
+    private Long checkingId;
+    private Long savingsId;
+    private Long coffeeId;
+    private Long groceriesId;
+
+    @BeforeEach
+    public void fillLedger() {
+        checkingId = account("Checking", 0);
+        savingsId = account("Savings", 0);
+        coffeeId = category("Coffee");
+        groceriesId = category("Groceries");
+
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction("Coffee 100% arabica", "4.50", "2024-03-01", true, null, checkingId, coffeeId));
+        transactions.add(transaction("Grocery_run", "80.00", "2024-03-02", true, null, checkingId, groceriesId));
+        transactions.add(transaction("Salary", "2000.00", "2024-03-01", false, 1, savingsId, null));
+        transactions.add(transaction("coffee beans", "12.00", "2024-03-15", true, null, savingsId, coffeeId));
+        transactions.add(transaction("Rent", "1200.00", "2024-04-01", true, 1, checkingId, null));
+        transactions.add(transaction("Refund COFFEE", "4.50", "2024-04-02", false, null, checkingId, coffeeId));
+        transactions.add(transaction("Undated coffee", "3.00", null, true, null, null, null));
+        ledgerService.insertAll(transactions);
+    }
+
+    private List<String> search(LedgerFilter filter) {
+        return ledgerService.search(filter, LedgerExpansion.NONE).stream()
+                .map(TransactionView::description)
+                .sorted()
+                .toList();
+    }
+
+    private static List<String> sorted(String... descriptions) {
+        return List.of(descriptions).stream().sorted().toList();
+    }
+
+    // Each filter on its own keeps exactly the rows it describes; a start date without an end date is one day
+    @Test
+    public void LedgerSearch_eachFilter_returnMatchingRows() {
+        Map<LedgerFilter, List<String>> expected = new LinkedHashMap<>();
+        expected.put(LedgerFilter.builder().description("COFFEE").build(),
+                sorted("Coffee 100% arabica", "coffee beans", "Refund COFFEE", "Undated coffee"));
+        expected.put(LedgerFilter.builder().startDate(Date.valueOf("2024-03-01")).build(),
+                sorted("Coffee 100% arabica", "Salary"));
+        expected.put(LedgerFilter.builder().startDate(Date.valueOf("2024-03-01")).endDate(Date.valueOf("2024-03-31"))
+                .build(), sorted("Coffee 100% arabica", "Grocery_run", "Salary", "coffee beans"));
+        expected.put(LedgerFilter.builder().endDate(Date.valueOf("2024-03-02")).build(),
+                sorted("Coffee 100% arabica", "Grocery_run", "Salary"));
+        expected.put(LedgerFilter.builder().isExpense(false).build(), sorted("Salary", "Refund COFFEE"));
+        expected.put(LedgerFilter.builder().isRecurring(true).build(), sorted("Salary", "Rent"));
+        expected.put(LedgerFilter.builder().recurringDate(1).build(), sorted("Salary", "Rent"));
+        expected.put(LedgerFilter.builder().accountId(checkingId).build(),
+                sorted("Coffee 100% arabica", "Grocery_run", "Rent", "Refund COFFEE"));
+        expected.put(LedgerFilter.builder().accountId(savingsId).build(), sorted("Salary", "coffee beans"));
+        expected.put(LedgerFilter.builder().categoryId(coffeeId).build(),
+                sorted("Coffee 100% arabica", "coffee beans", "Refund COFFEE"));
+        expected.put(LedgerFilter.builder().minAmount(new BigDecimal("100")).build(), sorted("Salary", "Rent"));
+        expected.put(LedgerFilter.builder().maxAmount(new BigDecimal("4.50")).build(),
+                sorted("Coffee 100% arabica", "Refund COFFEE", "Undated coffee"));
+        expected.put(LedgerFilter.NONE, sorted("Coffee 100% arabica", "Grocery_run", "Salary", "coffee beans", "Rent",
+                "Refund COFFEE", "Undated coffee"));
+
+        expected.forEach((filter, descriptions) -> Assertions.assertEquals(descriptions, search(filter),
+                filter::toString));
+    }
+
+    // Filters supplied together all apply, whichever of them are present
+    @Test
+    public void LedgerSearch_combinedFilters_returnIntersection() {
+        Assertions.assertEquals(List.of("Coffee 100% arabica"), search(LedgerFilter.builder().description("coffee")
+                .accountId(checkingId).isExpense(true).build()));
+        Assertions.assertEquals(List.of("Coffee 100% arabica"), search(LedgerFilter.builder()
+                .startDate(Date.valueOf("2024-03-01")).endDate(Date.valueOf("2024-03-31")).categoryId(coffeeId)
+                .maxAmount(BigDecimal.TEN).build()));
+        Assertions.assertEquals(List.of("Rent"), search(LedgerFilter.builder().isRecurring(true).isExpense(true)
+                .accountId(checkingId).build()));
+        Assertions.assertEquals(List.of(), search(LedgerFilter.builder().categoryId(groceriesId)
+                .accountId(savingsId).build()));
+    }
+
+    // Wildcard characters in a description are matched literally
+    @Test
+    public void LedgerSearch_wildcardsInDescription_matchedLiterally() {
+        Assertions.assertEquals(List.of("Coffee 100% arabica"), search(LedgerFilter.builder().description("%")
+                .build()));
+        Assertions.assertEquals(List.of("Grocery_run"), search(LedgerFilter.builder().description("_").build()));
+        Assertions.assertEquals(List.of(), search(LedgerFilter.builder().description("\\").build()));
+    }
+
+    // The legacy amount parameters become a range, a lower bound, an upper bound or an exact amount
+    @Test
+    public void LedgerSearch_legacyAmountParameters_returnMatchingRows() {
+        BigDecimal twelve = new BigDecimal("12");
+
+        Assertions.assertEquals(sorted("Grocery_run", "Salary", "coffee beans", "Rent"),
+                search(LedgerFilter.NONE.withAmount(twelve, null, "greater")));
+        Assertions.assertEquals(sorted("Coffee 100% arabica", "coffee beans", "Refund COFFEE", "Undated coffee"),
+                search(LedgerFilter.NONE.withAmount(twelve, null, "lesser")));
+        Assertions.assertEquals(sorted("Coffee 100% arabica", "Refund COFFEE"),
+                search(LedgerFilter.NONE.withAmount(new BigDecimal("4.5"), null, "equal")));
+        Assertions.assertEquals(sorted("Coffee 100% arabica", "coffee beans", "Refund COFFEE"),
+                search(LedgerFilter.NONE.withAmount(new BigDecimal("4"), new BigDecimal("15"), null)));
+    }
+
+    // Results come back undated first, then by date and id
+    @Test
+    public void LedgerSearch_results_orderedByDateAndId() {
+        List<Long> expected = jdbcTemplate.queryForList("select id from ledger order by case when transaction_date "
+                + "is null then 0 else 1 end, transaction_date, id", Long.class);
+
+        Assertions.assertEquals(expected, ledgerService.search(LedgerFilter.NONE, LedgerExpansion.NONE).stream()
+                .map(TransactionView::id)
+                .toList());
+    }
+}
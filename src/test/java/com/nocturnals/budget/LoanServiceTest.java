@@ -0,0 +1,151 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dao.LoanService;
+import com.nocturnals.budget.db.dto.LoanProjection;
+import com.nocturnals.budget.db.dto.LoanReconciliation;
+import com.nocturnals.budget.db.dto.LoanReconciliation.Status;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.loan.AmortizationSchedule;
+import com.nocturnals.budget.loan.AmortizationSchedule.Installment;
+import com.nocturnals.budget.loan.Compounding;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes schedules for loan accounts on their own in-memory database and sets ledger repayments against them.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:loan;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class LoanServiceTest {
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void clear() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from account_balance_snapshot");
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.update("delete from account");
+    }
+
+    private Long loan(String name, String amount, Double rate, String start, String end) {
+        jdbcTemplate.update("insert into account (name, balance, opening_balance, is_loan_account, total_amount, "
+                + "interest_rate, start_date, end_date, version) values (?, 0, 0, ?, ?, ?, ?, ?, 0)", name,
+                amount != null, amount == null ? null : new BigDecimal(amount), rate,
+                start == null ? null : Date.valueOf(start), end == null ? null : Date.valueOf(end));
+        return jdbcTemplate.queryForObject("select id from account where name = ?", Long.class, name);
+    }
+
+    private void pay(Long accountId, String amount, boolean expense, String date) {
+        Account account = new Account();
+        account.setId(accountId);
+        Transaction transaction = new Transaction();
+        transaction.setDescription(expense ? "Late fee" : "Repayment");
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setIsExpense(expense);
+        transaction.setTransactionDate(Date.valueOf(date));
+        transaction.setAccount(account);
+        ledgerService.save(transaction);
+    }
+
+    // A thirty-year mortgage gets the textbook payment and ends at exactly zero
+    @Test
+    public void LoanService_schedule_amortizesToZero() {
+        Long id = loan("Mortgage", "100000", 6.0, "2020-01-15", "2050-01-15");
+        AmortizationSchedule schedule = loanService.schedule(id, Compounding.MONTHLY);
+
+        Assertions.assertEquals(new BigDecimal("599.55"), schedule.payment());
+        Assertions.assertEquals(360, schedule.installments().size());
+        Installment last = schedule.installments().get(359);
+        Assertions.assertEquals(LocalDate.of(2050, 1, 15), last.dueDate());
+        Assertions.assertEquals(0, last.balance().signum());
+        Assertions.assertEquals(0, new BigDecimal("100000").compareTo(schedule.installments().stream()
+                .map(Installment::principal).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        Assertions.assertTrue(loanService.schedule(id, Compounding.DAILY).payment()
+                .compareTo(schedule.payment()) > 0);
+    }
+
+    // Schedules are served from the cache until the account's loan terms change
+    @Test
+    public void LoanService_schedule_cachedByTerms() {
+        Long id = loan("Car loan", "24000", 4.5, "2024-03-01", "2029-03-01");
+        AmortizationSchedule first = loanService.schedule(id, Compounding.MONTHLY);
+        Assertions.assertSame(first, loanService.schedule(id, Compounding.MONTHLY));
+
+        jdbcTemplate.update("update account set balance = 500, version = version + 1 where id = ?", id);
+        Assertions.assertSame(first, loanService.schedule(id, Compounding.MONTHLY));
+
+        jdbcTemplate.update("update account set interest_rate = 3.9, version = version + 1 where id = ?", id);
+        AmortizationSchedule repriced = loanService.schedule(id, Compounding.MONTHLY);
+        Assertions.assertNotSame(first, repriced);
+        Assertions.assertTrue(repriced.payment().compareTo(first.payment()) < 0);
+    }
+
+    // Repayments cover the oldest installments first, and the shortfall pushes the projected payoff back
+    @Test
+    public void LoanService_reconcile_appliesPaymentsInOrder() {
+        Long id = loan("Personal loan", "12000", null, "2024-01-01", "2025-01-01");
+        pay(id, "1000", false, "2024-02-01");
+        pay(id, "1000", false, "2024-03-01");
+        pay(id, "500", false, "2024-04-01");
+        pay(id, "25", true, "2024-04-02");
+
+        LoanReconciliation reconciliation = loanService.reconcile(id, LocalDate.of(2024, 5, 15),
+                Compounding.MONTHLY);
+        Assertions.assertEquals(List.of(Status.PAID, Status.PAID, Status.PARTIAL, Status.MISSED),
+                reconciliation.installments().stream().map(LoanReconciliation.Installment::status).toList());
+        Assertions.assertEquals(0, new BigDecimal("2500").compareTo(reconciliation.paidToDate()));
+        Assertions.assertEquals(0, new BigDecimal("1500").compareTo(reconciliation.arrears()));
+
+        LoanProjection projection = loanService.project(List.of(id), LocalDate.of(2024, 5, 15),
+                Compounding.MONTHLY).get(0);
+        Assertions.assertEquals(0, new BigDecimal("9500").compareTo(projection.outstanding()));
+        Assertions.assertEquals(LocalDate.of(2025, 3, 1), projection.payoffDate());
+        Assertions.assertEquals(LocalDate.of(2025, 1, 1), projection.scheduledPayoffDate());
+    }
+
+    // Hundreds of loans are projected with a fixed number of statements, skipping ids that are not loans
+    @Test
+    public void LoanService_project_batchesQueries() {
+        List<Long> ids = new ArrayList<>();
+        for(int i = 0; i < 300; i++) {
+            ids.add(loan("Loan " + i, String.valueOf(5000 + i * 100), 3 + i % 5 * 0.5, "2023-06-01", "2033-06-01"));
+        }
+        pay(ids.get(7), "2000", false, "2023-07-01");
+        ids.add(loan("Checking", null, null, null, null));
+        ids.add(-1L);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<LoanProjection> projections = loanService.project(ids, LocalDate.of(2024, 6, 1), Compounding.MONTHLY);
+        Assertions.assertEquals(300, projections.size());
+        Assertions.assertEquals(ids.subList(0, 300), projections.stream().map(LoanProjection::accountId).toList());
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 2, statistics.toString());
+        Assertions.assertTrue(projections.get(7).payoffDate().isBefore(projections.get(8).payoffDate()));
+    }
+}
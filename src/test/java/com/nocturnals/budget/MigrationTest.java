@@ -0,0 +1,93 @@
+package com.nocturnals.budget;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Builds the schema from the H2 migrations instead of Hibernate and has Hibernate validate the entities against it.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:migration;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate"})
+@ActiveProfiles("test")
+public class MigrationTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.flyway.baseline-version}")
+    private String baselineVersion;
+
+    // Every migration applies and the context starts with validation on
+    @Test
+    public void Migrations_startup_applyAllVersions() {
+        List<String> versions = jdbcTemplate.queryForList("select \"version\" from \"flyway_schema_history\" "
+                + "where \"version\" is not null order by \"installed_rank\"", String.class);
+        Assertions.assertEquals(List.of("1", "3", "4", "5", "6", "7", "8"), versions);
+    }
+
+    // The ledger's covering indexes are in place
+    @Test
+    public void Migrations_startup_createLedgerIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList("select lower(index_name) from information_schema.indexes "
+                + "where lower(table_name) = 'ledger' and lower(index_name) like 'ix_ledger_%'", String.class);
+        Assertions.assertEquals(List.of("ix_ledger_account_date", "ix_ledger_amount", "ix_ledger_category_date",
+                "ix_ledger_date", "ix_ledger_recurring_date", "ix_ledger_updated"), indexes.stream().sorted().toList());
+    }
+
+    // A schema left by ddl-auto=update before the first release is baselined and brought up to the entities
+    @Test
+    public void Migrations_legacySchema_upgradedFromBaseline() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy;MODE=MSSQLServer;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.execute("create table bank (id bigint generated by default as identity primary key, "
+                + "name varchar(255) unique, created_at timestamp(6), updated_at timestamp(6))");
+        legacy.execute("create table account_type (id bigint generated by default as identity primary key, "
+                + "type varchar(255) unique, created_at timestamp(6), updated_at timestamp(6))");
+        legacy.execute("create table account (id bigint generated by default as identity primary key, "
+                + "name varchar(255) unique, balance numeric(38,2), is_loan_account boolean, "
+                + "total_amount numeric(38,2), interest_rate float(53), start_date date, end_date date, "
+                + "bank_id bigint references bank, account_type_id bigint references account_type, "
+                + "created_at timestamp(6), updated_at timestamp(6))");
+        legacy.execute("create table category (id bigint generated by default as identity primary key, "
+                + "name varchar(255) unique, budget numeric(38,2), remaining_budget numeric(38,2), "
+                + "is_rolling_budget boolean, created_at timestamp(6), updated_at timestamp(6))");
+        legacy.execute("create table ledger (id bigint generated by default as identity primary key, "
+                + "description varchar(255), amount numeric(38,2), transaction_date date, is_expense boolean, "
+                + "is_recurring boolean, recurring_date integer, account_id bigint references account, "
+                + "category_id bigint references category, created_at timestamp(6), updated_at timestamp(6))");
+        legacy.update("insert into account (name, balance) values ('Legacy checking', 10)");
+        legacy.update("insert into ledger (description, amount, is_expense, account_id) "
+                + "select 'Groceries', 3, true, id from account");
+        legacy.update("insert into ledger (description, amount, is_expense, account_id) "
+                + "select 'Refund', 1, false, id from account");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion(baselineVersion)
+                .load()
+                .migrate();
+
+        Assertions.assertEquals(0, legacy.queryForObject("select version from account", Long.class));
+        Assertions.assertEquals(0, legacy.queryForObject("select opening_balance from account", BigDecimal.class)
+                .compareTo(BigDecimal.valueOf(12)));
+        Assertions.assertEquals(1, legacy.queryForObject("select count(*) from information_schema.columns "
+                + "where lower(table_name) = 'category' and lower(column_name) = 'budget_period'", Long.class));
+        for(String table : List.of("ledger_rollup", "recurring_occurrence", "job_lease", "ledger_archive",
+                "account_balance_snapshot", "change_event", "sync_tombstone")) {
+            Assertions.assertEquals(0, legacy.queryForObject("select count(*) from " + table, Long.class), table);
+        }
+        Assertions.assertNotNull(legacy.queryForObject("select next value for ledger_seq", Long.class));
+    }
+}
@@ -0,0 +1,112 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dao.RecurringTransactionService;
+import com.nocturnals.budget.db.dao.RecurringTransactionService.RecurringRun;
+import com.nocturnals.budget.db.entity.RecurringOccurrence;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.repository.RecurringOccurrenceRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Posts recurring templates through the scheduler's service against an in-memory database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RecurringTransactionTest {
+    @Autowired
+    private RecurringTransactionService recurringTransactionService;
+
+    @Autowired
+    private RecurringOccurrenceRepository recurringOccurrenceRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void resetLease() {
+        jdbcTemplate.update("delete from job_lease");
+        jdbcTemplate.update("delete from recurring_occurrence");
+        jdbcTemplate.update("update ledger set is_recurring = false where is_recurring = true");
+    }
+
+    private Transaction template(String description, int day, String since) {
+        Transaction template = new Transaction();
+        template.setDescription(description);
+        template.setAmount(BigDecimal.valueOf(25));
+        template.setIsExpense(true);
+        template.setIsRecurring(true);
+        template.setRecurringDate(day);
+        template.setTransactionDate(Date.valueOf(since));
+        return ledgerService.save(template);
+    }
+
+    private void completedThrough(String day) {
+        jdbcTemplate.update("insert into job_lease (name, last_completed) values (?, ?)",
+                RecurringTransactionService.JOB, Date.valueOf(day));
+    }
+
+    private List<Date> postedDates(Transaction template) {
+        return recurringOccurrenceRepository.findByTemplateIdOrderByOccurrenceDate(template.getId()).stream()
+                .map(RecurringOccurrence::getOccurrenceDate)
+                .toList();
+    }
+
+    // Days missed since the last run are caught up, and months shorter than the day post on their last day
+    @Test
+    public void RecurringTransaction_catchUp_postMissedDays() {
+        Transaction rent = template("rent", 15, "2024-01-15");
+        Transaction gym = template("gym", 31, "2024-01-31");
+        completedThrough("2024-02-14");
+
+        RecurringRun run = recurringTransactionService.run(LocalDate.of(2024, 3, 16));
+
+        Assertions.assertEquals(LocalDate.of(2024, 2, 15), run.from());
+        Assertions.assertEquals(3, run.posted());
+        Assertions.assertEquals(List.of(Date.valueOf("2024-02-15"), Date.valueOf("2024-03-15")), postedDates(rent));
+        Assertions.assertEquals(List.of(Date.valueOf("2024-02-29")), postedDates(gym));
+    }
+
+    // Running a day again, even after the checkpoint is lost, never posts an occurrence twice
+    @Test
+    public void RecurringTransaction_rerun_postNothingTwice() {
+        Transaction rent = template("rent", 5, "2024-01-05");
+        completedThrough("2024-03-01");
+        Assertions.assertEquals(1, recurringTransactionService.run(LocalDate.of(2024, 3, 10)).posted());
+
+        Assertions.assertNull(recurringTransactionService.run(LocalDate.of(2024, 3, 10)).from());
+        jdbcTemplate.update("update job_lease set last_completed = ?", Date.valueOf("2024-03-01"));
+        Assertions.assertEquals(0, recurringTransactionService.run(LocalDate.of(2024, 3, 10)).posted());
+
+        Assertions.assertEquals(List.of(Date.valueOf("2024-03-05")), postedDates(rent));
+    }
+
+    // Another node's unexpired lease keeps this one from posting
+    @Test
+    public void RecurringTransaction_leaseHeldElsewhere_skipRun() {
+        template("rent", 5, "2024-01-05");
+        jdbcTemplate.update("insert into job_lease (name, owner, expires_at, last_completed) values (?, ?, ?, ?)",
+                RecurringTransactionService.JOB, "other-node", Timestamp.from(Instant.now().plus(1, ChronoUnit.HOURS)),
+                Date.valueOf("2024-03-01"));
+
+        Assertions.assertNull(recurringTransactionService.run(LocalDate.of(2024, 3, 10)));
+        Assertions.assertEquals(0, recurringOccurrenceRepository.count());
+    }
+}
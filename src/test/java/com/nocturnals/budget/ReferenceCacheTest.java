@@ -0,0 +1,206 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.configuration.CacheConfiguration;
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.BankService;
+import com.nocturnals.budget.db.dao.CategoryBudgetService;
+import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Bank;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Checks that reference lookups are answered from the cache and that every write path that changes a cached row,
+ * including the ledger's balance and budget bookkeeping, drops the stale copy.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReferenceCacheTest {
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryBudgetService categoryBudgetService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeAll
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Repeated lookups by name or id do not reach the database
+    @Test
+    public void ReferenceCache_repeatedLookup_noStatements() {
+        Account account = new Account();
+        account.setName("cache-lookup");
+        Long id = accountService.save(account).getId();
+        Bank bank = new Bank();
+        bank.setName("cache-bank");
+        bankService.save(bank);
+
+        accountService.findByName("Cache-Lookup");
+        bankService.findByName("cache-bank");
+        statistics.clear();
+        Assertions.assertEquals(id, accountService.findByName("CACHE-LOOKUP").getId());
+        Assertions.assertEquals(id, accountService.findById(id).getId());
+        Assertions.assertEquals("cache-bank", bankService.findByName("Cache-Bank").getName());
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    // Category names resolve case-insensitively like account names, and the cached id serves every spelling
+    @Test
+    public void ReferenceCache_categoryNameDifferentCase_noStatements() {
+        Category category = new Category();
+        category.setName("cache-Groceries");
+        Long id = categoryService.save(category).getId();
+
+        Assertions.assertEquals(id, categoryService.findByName("CACHE-GROCERIES").getId());
+        statistics.clear();
+        Assertions.assertEquals(id, categoryService.findByName("cache-groceries").getId());
+        Assertions.assertEquals(id, categoryService.findByName("Cache-Groceries").getId());
+
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    // Changing a returned account or category, or the entity the miss loaded, leaves what the next lookup sees intact
+    @Test
+    public void ReferenceCache_mutatedResult_notShared() {
+        Account account = new Account();
+        account.setName("cache-copy");
+        account.setBalance(BigDecimal.valueOf(10));
+        Long accountId = accountService.save(account).getId();
+        Category category = new Category();
+        category.setName("cache-copy");
+        category.setBudget(BigDecimal.valueOf(30));
+        Long categoryId = categoryService.save(category).getId();
+
+        Account loaded = accountService.findById(accountId);
+        loaded.setBalance(BigDecimal.ONE);
+        Account cached = accountService.findById(accountId);
+        cached.setName("changed");
+        categoryService.findById(categoryId).setRemainingBudget(BigDecimal.ONE);
+
+        Account again = accountService.findById(accountId);
+        Assertions.assertNotSame(cached, again);
+        Assertions.assertEquals("cache-copy", again.getName());
+        Assertions.assertEquals(0, BigDecimal.valueOf(10).compareTo(again.getBalance()));
+        Assertions.assertNull(again.getTransactions());
+        Assertions.assertEquals(0, BigDecimal.valueOf(30).compareTo(categoryService.findById(categoryId)
+                .getRemainingBudget()));
+    }
+
+    // A saved account is visible by name even after a miss for that name was cached
+    @Test
+    public void ReferenceCache_saveAfterMiss_returnAccount() {
+        Assertions.assertNull(accountService.findByName("cache-late"));
+        Account account = new Account();
+        account.setName("cache-late");
+        accountService.save(account);
+
+        Assertions.assertNotNull(accountService.findByName("cache-late"));
+    }
+
+    // Ledger writes evict the cached account so its balance is current
+    @Test
+    public void ReferenceCache_ledgerWrite_returnCurrentBalance() {
+        Account account = new Account();
+        account.setName("cache-balance");
+        account.setBalance(BigDecimal.valueOf(100));
+        account = accountService.save(account);
+        Assertions.assertEquals(0, BigDecimal.valueOf(100).compareTo(accountService.findById(account.getId())
+                .getBalance()));
+
+        Transaction transaction = new Transaction();
+        transaction.setAccount(account);
+        transaction.setAmount(BigDecimal.valueOf(40));
+        transaction.setIsExpense(true);
+        ledgerService.insertAll(List.of(transaction));
+
+        Assertions.assertEquals(0, BigDecimal.valueOf(60).compareTo(accountService.findById(account.getId())
+                .getBalance()));
+    }
+
+    // Flushing pending spend evicts the cached category so its stored remaining budget is current
+    @Test
+    public void ReferenceCache_budgetFlush_returnCurrentRemaining() {
+        Category category = new Category();
+        category.setName("cache-budget");
+        category.setBudget(BigDecimal.valueOf(200));
+        category = categoryService.save(category);
+        Assertions.assertEquals(0, BigDecimal.valueOf(200).compareTo(categoryService.findById(category.getId())
+                .getRemainingBudget()));
+
+        Transaction transaction = new Transaction();
+        transaction.setCategory(category);
+        transaction.setAmount(BigDecimal.valueOf(50));
+        transaction.setIsExpense(true);
+        transaction.setTransactionDate(Date.valueOf(LocalDate.now()));
+        ledgerService.insertAll(List.of(transaction));
+        categoryBudgetService.flush();
+
+        Assertions.assertEquals(0, BigDecimal.valueOf(150).compareTo(categoryService.findById(category.getId())
+                .getRemainingBudget()));
+        Assertions.assertEquals(0, BigDecimal.valueOf(150).compareTo(categoryService.findBudget(category.getId())
+                .remainingBudget()));
+    }
+
+    // An annotated eviction inside a transaction waits for the commit, so the cache cannot be refilled with the old row
+    @Test
+    public void ReferenceCache_evictInTransaction_appliedOnCommit() {
+        Bank bank = new Bank();
+        bank.setName("cache-evict");
+        Long id = bankService.save(bank).getId();
+        bankService.findById(id);
+        Cache banks = cacheManager.getCache(CacheConfiguration.BANKS);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bankService.deleteById(id);
+            Assertions.assertNotNull(banks.get("id:" + id));
+        });
+
+        Assertions.assertNull(banks.get("id:" + id));
+        Assertions.assertNull(bankService.findById(id));
+    }
+}
@@ -0,0 +1,222 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Transaction;
+import com.nocturnals.budget.db.replica.ReplicaRouter;
+import com.nocturnals.budget.db.replica.StickyReadFilter;
+import jakarta.servlet.http.Cookie;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two embedded databases standing in for a primary and a replica that never catches up, so where a
+ * read was served can be told from what it returns. A third replica URL points at a database that does not exist.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=" + ReplicaRoutingTest.PRIMARY,
+        "budget.datasource.replica.urls=" + ReplicaRoutingTest.ABSENT + "," + ReplicaRoutingTest.REPLICA,
+        "budget.datasource.replica.sticky=PT0.3S", "budget.datasource.replica.retry=PT1M",
+        "budget.datasource.replica.connection-timeout=PT0.25S"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+    static final String PRIMARY = "jdbc:h2:mem:primary;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+    static final String REPLICA = "jdbc:h2:mem:replica;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+    static final String ABSENT = "jdbc:h2:mem:absent;IFEXISTS=TRUE";
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA, "sa", ""));
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    public static void createReplica() {
+        Flyway.configure().dataSource(REPLICA, "sa", "").locations("classpath:db/migration/h2").load().migrate();
+    }
+
+    @BeforeEach
+    public void fillDatabases() {
+        jdbcTemplate.update("delete from ledger");
+        replica.update("delete from ledger");
+        replica.update("delete from account");
+        replica.update("insert into account (id, name, balance, opening_balance, version) values (1, ?, 0, 0, 0)",
+                "Replica checking");
+        replica.update("insert into ledger (id, description, amount, account_id) values (9000, ?, 12.50, 1)",
+                "Replica only");
+        save("Primary only");
+    }
+
+    private Transaction save(String description) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(BigDecimal.TEN);
+        return ledgerService.save(transaction);
+    }
+
+    private void awaitReplicaReads() throws InterruptedException {
+        while(replicaRouter.isSticky()) {
+            Thread.sleep(50);
+        }
+    }
+
+    private List<String> descriptions() {
+        return ledgerService.search(LedgerFilter.NONE, LedgerExpansion.NONE).stream()
+                .map(TransactionView::description)
+                .toList();
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("budget.datasource.reads").tag("target", target).counter().count();
+    }
+
+    // Read-only service calls are answered by the replica once no write is recent
+    @Test
+    public void ReplicaRouting_readOnlyFind_readsReplica() throws InterruptedException {
+        awaitReplicaReads();
+        double before = reads("replica-2");
+
+        Assertions.assertEquals(List.of("Replica only"), descriptions());
+        Assertions.assertEquals(List.of("Replica checking"),
+                StreamSupport.stream(accountService.findAll().spliterator(), false).map(Account::getName).toList());
+        Assertions.assertEquals(before + 2, reads("replica-2"));
+    }
+
+    private <T> T asCaller(Callable<T> work) throws Exception {
+        replicaRouter.bind(0, until -> {
+        });
+        try {
+            return work.call();
+        } finally {
+            replicaRouter.release();
+        }
+    }
+
+    // A caller's save is visible to the reads that follow it until the sticky window closes
+    @Test
+    public void ReplicaRouting_findAfterSave_readsOwnWrite() throws Exception {
+        asCaller(() -> {
+            Transaction saved = save("Just saved");
+            Assertions.assertNotNull(ledgerService.findById(saved.getId(), LedgerExpansion.NONE));
+            Assertions.assertEquals(List.of("Just saved", "Primary only"), descriptions().stream().sorted().toList());
+
+            awaitReplicaReads();
+            Assertions.assertNull(ledgerService.findById(saved.getId(), LedgerExpansion.NONE));
+            return null;
+        });
+    }
+
+    // A thread with no caller bound, like a scheduled job, keeps reading replicas after it writes
+    @Test
+    public void ReplicaRouting_writeWithoutCaller_notSticky() {
+        save("Job's save");
+
+        Assertions.assertFalse(replicaRouter.isSticky());
+        Assertions.assertEquals(List.of("Replica only"), descriptions());
+    }
+
+    // A replica that cannot be reached is passed over and reported down, and reads carry on from the other one
+    @Test
+    public void ReplicaRouting_unreachableReplica_isSkipped() throws InterruptedException {
+        awaitReplicaReads();
+        for(int i = 0; i < 4; i++) {
+            Assertions.assertEquals(List.of("Replica only"), descriptions());
+        }
+
+        Assertions.assertEquals(Map.of("replica-1", false, "replica-2", true), replicaRouter.replicas());
+        Assertions.assertEquals(0, reads("replica-1"));
+    }
+
+    // Of two callers running at once, only the one that wrote reads from the primary
+    @Test
+    public void ReplicaRouting_concurrentCallers_onlyWriterReadsPrimary() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch read = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<String>> writer = callers.submit(() -> asCaller(() -> {
+                save("Writer's save");
+                written.countDown();
+                List<String> seen = descriptions();
+                read.await(10, TimeUnit.SECONDS);
+                return seen;
+            }));
+            Future<List<String>> reader = callers.submit(() -> asCaller(() -> {
+                written.await(10, TimeUnit.SECONDS);
+                List<String> seen = descriptions();
+                read.countDown();
+                return seen;
+            }));
+
+            Assertions.assertEquals(List.of("Replica only"), reader.get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(List.of("Primary only", "Writer's save"),
+                    writer.get(10, TimeUnit.SECONDS).stream().sorted().toList());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    // A client's next request reads its save back only when it brings the cookie the save answered with
+    @Test
+    public void ReplicaRouting_requestWithCookie_readsOwnWrite() throws Exception {
+        MvcResult saved = mockMvc.perform(post("/api/v1/transaction").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Posted\",\"amount\":10}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie cookie = saved.getResponse().getCookie(StickyReadFilter.COOKIE);
+        Assertions.assertNotNull(cookie);
+        String id = jdbcTemplate.queryForObject("select id from ledger where description = 'Posted'", Long.class)
+                .toString();
+
+        mockMvc.perform(get("/api/v1/transaction").param("transaction-id", id).cookie(cookie))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/transaction").param("transaction-id", id))
+                .andExpect(status().isNotFound());
+    }
+}
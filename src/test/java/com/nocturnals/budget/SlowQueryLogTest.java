@@ -0,0 +1,126 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dto.LedgerExpansion;
+import com.nocturnals.budget.db.dto.LedgerFilter;
+import com.nocturnals.budget.diagnostics.ExplainPlanCapture;
+import com.nocturnals.budget.diagnostics.SlowQuery;
+import com.nocturnals.budget.diagnostics.SlowQueryEndpoint;
+import com.nocturnals.budget.diagnostics.SlowQueryLog;
+import com.nocturnals.budget.diagnostics.SlowQueryOffender;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs with a zero threshold on its own database so every statement reaches the slow-query log.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:diagnostics;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.diagnostics.slow-query.threshold=0ms"})
+@ActiveProfiles("test")
+public class SlowQueryLogTest {
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private SlowQueryEndpoint slowQueryEndpoint;
+
+    @BeforeEach
+    public void clear() {
+        slowQueryEndpoint.clear();
+    }
+
+    // A ledger query is recorded with its caller, parameter types and an execution plan
+    @Test
+    public void SlowQueryLog_ledgerSearch_recordsOriginShapeAndPlan() throws InterruptedException {
+        ledgerService.search(LedgerFilter.builder().accountId(7L).build(), LedgerExpansion.NONE);
+
+        SlowQueryOffender offender = null;
+        for(int attempt = 0; attempt < 50 && (offender == null || offender.plan() == null); attempt++) {
+            offender = slowQueryEndpoint.offenders(null).stream()
+                    .filter(candidate -> candidate.sql().contains("from ledger "))
+                    .findFirst()
+                    .orElse(null);
+            Thread.sleep(100);
+        }
+        Assertions.assertNotNull(offender);
+        Assertions.assertEquals("Long", offender.parameters());
+        Assertions.assertTrue(offender.origin().startsWith("LedgerQueryRepositoryImpl"), offender.origin());
+        Assertions.assertNotNull(offender.plan());
+        Assertions.assertTrue(offender.plan().toLowerCase().contains("ledger"), offender.plan());
+    }
+
+    // Offenders are grouped across parameter-list lengths and ordered by total time
+    @Test
+    public void SlowQueryLog_offenders_groupAndOrderByTotalTime() {
+        slowQueryLog.record(new SlowQuery("update ledger set amount = ? where id in (?, ?)", 2_000_000,
+                "BigDecimal, Long x2", "Test.one", Instant.now()));
+        slowQueryLog.record(new SlowQuery("update ledger set amount = ? where id in (?, ?, ?)", 2_000_000,
+                "BigDecimal, Long x3", "Test.one", Instant.now()));
+        slowQueryLog.record(new SlowQuery("delete from ledger where id = ?", 3_000_000, "Long", "Test.two",
+                Instant.now()));
+
+        List<SlowQueryOffender> offenders = slowQueryEndpoint.offenders(10).stream()
+                .filter(offender -> offender.origin() != null && offender.origin().startsWith("Test."))
+                .toList();
+        Assertions.assertEquals(2, offenders.size());
+        Assertions.assertEquals("update ledger set amount = ? where id in (?...)", offenders.get(0).sql());
+        Assertions.assertEquals(2, offenders.get(0).count());
+        Assertions.assertEquals(4.0, offenders.get(0).totalMillis());
+        Assertions.assertEquals("delete from ledger where id = ?", offenders.get(1).sql());
+    }
+
+    // A plan request that could not be queued is withdrawn, so the next execution asks again; a captured plan stays
+    @Test
+    public void SlowQueryLog_droppedPlan_requestedAgain() {
+        SlowQuery query = new SlowQuery("select name from bank where id = ?", 1_000_000, "Long", "Test.three",
+                Instant.now());
+        Assertions.assertTrue(slowQueryLog.record(query));
+        Assertions.assertFalse(slowQueryLog.record(query));
+
+        slowQueryLog.planDropped(query.sql());
+        Assertions.assertTrue(slowQueryLog.record(query));
+
+        slowQueryLog.plan(query.sql(), "SCAN bank");
+        slowQueryLog.planDropped(query.sql());
+        Assertions.assertFalse(slowQueryLog.record(query));
+    }
+
+    // Captures beyond the running one and the queue, and any after shutdown, are refused rather than silently
+    // discarded
+    @Test
+    public void ExplainPlanCapture_queueFull_refused() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenAnswer(invocation -> {
+            release.await();
+            return Mockito.mock(Connection.class);
+        });
+        ExplainPlanCapture capture = new ExplainPlanCapture();
+
+        int queued = 0;
+        while(queued < 100 && capture.explainLater(dataSource, "select 1", List.of(), plan -> {
+        })) {
+            queued++;
+        }
+        release.countDown();
+        capture.shutdown();
+
+        Assertions.assertEquals(17, queued);
+        Assertions.assertFalse(capture.explainLater(dataSource, "select 1", List.of(), plan -> {
+        }));
+    }
+}
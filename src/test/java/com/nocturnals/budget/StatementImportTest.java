@@ -0,0 +1,124 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.StatementImportService;
+import com.nocturnals.budget.db.dto.ImportResult;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.ingest.StatementFormat;
+import com.nocturnals.budget.ingest.StatementOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Imports statement files into their own in-memory database, with batches small enough that a file spans several.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:statement-import;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.import.batch-size=2"})
+@ActiveProfiles("test")
+public class StatementImportTest {
+    private static final String STATEMENT = """
+            Date,Description,Amount
+            2024-03-01,Coffee,-4.50
+            2024-03-01,Coffee,-4.50
+            2024-03-02,Bad amount,abc
+            2024-03-03,Salary,2500.00
+            """;
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private Long accountId;
+
+    @BeforeEach
+    public void createAccount() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.update("delete from account_balance_snapshot");
+        jdbcTemplate.update("delete from account");
+        Account account = new Account();
+        account.setName("Checking");
+        account.setBalance(BigDecimal.ZERO);
+        accountId = accountService.save(account).getId();
+    }
+
+    private List<ImportResult> importCsv(String content, String account) throws IOException {
+        Path file = Files.writeString(directory.resolve("statement.csv"), content, StandardCharsets.UTF_8);
+        List<ImportResult> results = new ArrayList<>();
+        statementImportService.importFile(file, StatementFormat.CSV, StatementOptions.of(account, null, null),
+                results::add);
+        return results;
+    }
+
+    private long ledgerRows() {
+        return jdbcTemplate.queryForObject("select count(*) from ledger", Long.class);
+    }
+
+    // The first import saves every good row, keeps identical purchases apart and reports the bad row
+    @Test
+    public void StatementImport_firstImport_savesRows() throws IOException {
+        List<ImportResult> results = importCsv(STATEMENT, "checking");
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L, 5L), results.stream().map(ImportResult::row).toList());
+        Assertions.assertTrue(results.stream().filter(result -> result.row() != 4).allMatch(
+                result -> result.id() != null && result.duplicateOf() == null));
+        Assertions.assertEquals("Invalid amount", results.get(2).error());
+        Assertions.assertEquals(3, ledgerRows());
+        Assertions.assertEquals(0, new BigDecimal("2491.00").compareTo(jdbcTemplate.queryForObject(
+                "select balance from account where id = ?", BigDecimal.class, accountId)));
+    }
+
+    // Importing the same file again inserts nothing and matches each entry to a different existing row
+    @Test
+    public void StatementImport_sameFileTwice_reportsDuplicates() throws IOException {
+        List<ImportResult> first = importCsv(STATEMENT, "Checking");
+        List<ImportResult> second = importCsv(STATEMENT, "Checking");
+
+        Assertions.assertEquals(3, ledgerRows());
+        Assertions.assertTrue(second.stream().allMatch(result -> result.id() == null));
+        Assertions.assertEquals(first.stream().map(ImportResult::id).filter(Objects::nonNull).toList(),
+                second.stream().map(ImportResult::duplicateOf).filter(Objects::nonNull).toList());
+        Assertions.assertEquals("Invalid amount", second.get(2).error());
+    }
+
+    // A later statement that overlaps the last one only adds what is new, including a third identical purchase
+    @Test
+    public void StatementImport_overlappingFile_addsOnlyNewRows() throws IOException {
+        importCsv(STATEMENT, "Checking");
+        List<ImportResult> results = importCsv("""
+                Date,Description,Amount
+                2024-03-01,  COFFEE ,-4.5
+                2024-03-01,Coffee,-4.50
+                2024-03-01,Coffee,-4.50
+                2024-03-03,Salary,2500.00
+                2024-03-04,Rent,-1200.00
+                """, "Checking");
+
+        Assertions.assertEquals(List.of(false, false, true, false, true),
+                results.stream().map(result -> result.duplicateOf() == null).toList());
+        Assertions.assertEquals(5, ledgerRows());
+    }
+}
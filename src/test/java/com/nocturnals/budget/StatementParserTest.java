@@ -0,0 +1,237 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dto.LedgerEntry;
+import com.nocturnals.budget.db.dto.LedgerFingerprint;
+import com.nocturnals.budget.ingest.MappedFileReader;
+import com.nocturnals.budget.ingest.StatementFormat;
+import com.nocturnals.budget.ingest.StatementLine;
+import com.nocturnals.budget.ingest.StatementOptions;
+import com.nocturnals.budget.ingest.StatementParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses CSV and OFX statements from strings and small files, without a Spring context.
+ */
+public class StatementParserTest {
+    private static final StatementOptions DEFAULTS = StatementOptions.of("Checking", null, null);
+
+    @TempDir
+    private Path directory;
+
+    private static List<StatementLine> parse(StatementFormat format, Reader reader, StatementOptions options)
+            throws IOException {
+        StatementParser parser = format.open(reader, options);
+        List<StatementLine> lines = new ArrayList<>();
+        StatementLine line;
+        while((line = parser.next()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static List<StatementLine> parse(StatementFormat format, String content) throws IOException {
+        return parse(format, new StringReader(content), DEFAULTS);
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[3];
+        int read;
+        while((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+
+    private Path write(byte[] content) throws IOException {
+        return Files.write(directory.resolve("statement"), content);
+    }
+
+    private static LedgerFingerprint fingerprint(String amount, boolean expense, LocalDate date, String description) {
+        return LedgerFingerprint.of(new LedgerEntry(1L, 7L, null, new BigDecimal(amount), expense, Date.valueOf(date),
+                description));
+    }
+
+    // Quoted fields keep their commas, doubled quotes and line breaks, and amounts lose their formatting
+    @Test
+    public void CsvStatement_quotedFields_parsed() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.CSV, """
+                Date,Description,Amount
+                2024-03-01,"Coffee, large",-4.50
+                2024-03-02,"Said ""hi""
+                twice","(12.00)"
+                2024-03-03,Refund,"$1,234.56"
+                """);
+
+        Assertions.assertEquals(List.of(
+                StatementLine.of(2, "Checking", LocalDate.of(2024, 3, 1), new BigDecimal("-4.50"), "Coffee, large"),
+                StatementLine.of(3, "Checking", LocalDate.of(2024, 3, 2), new BigDecimal("-12.00"),
+                        "Said \"hi\"\ntwice"),
+                StatementLine.of(4, "Checking", LocalDate.of(2024, 3, 3), new BigDecimal("1234.56"), "Refund")),
+                lines);
+    }
+
+    // Debit and credit columns are signed, the account comes from the file and the date format is configurable
+    @Test
+    public void CsvStatement_debitCreditColumns_signed() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.CSV, new StringReader("""
+                Posted Date,Payee,Debit,Credit,Account\r
+                03/01/2024,Rent,1200.00,,Checking\r
+                03/02/2024,Salary,,2500.00,Savings\r
+                """), StatementOptions.of(null, "MM/dd/yyyy", null));
+
+        Assertions.assertEquals(List.of(
+                StatementLine.of(2, "Checking", LocalDate.of(2024, 3, 1), new BigDecimal("-1200.00"), "Rent"),
+                StatementLine.of(3, "Savings", LocalDate.of(2024, 3, 2), new BigDecimal("2500.00"), "Salary")),
+                lines);
+    }
+
+    // Bad rows are reported with their row number and parsing carries on; blank lines and a missing final newline
+    // are fine
+    @Test
+    public void CsvStatement_malformedRows_reportedAndSkipped() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.CSV, """
+                Date,Description,Amount
+                not-a-date,Bad date,1.00
+
+                2024-03-04,Bad amount,abc
+                2024-03-05,No amount,
+                ,No date,1.00
+                2024-03-06,Last,-0.99""");
+
+        Assertions.assertEquals(List.of(
+                StatementLine.invalid(2, "Invalid date: not-a-date"),
+                StatementLine.invalid(4, "Invalid amount"),
+                StatementLine.invalid(5, "Amount is required"),
+                StatementLine.invalid(6, "Date is required"),
+                StatementLine.of(7, "Checking", LocalDate.of(2024, 3, 6), new BigDecimal("-0.99"), "Last")),
+                lines);
+    }
+
+    // A file with only a header, or nothing at all, has no entries
+    @Test
+    public void CsvStatement_empty_noEntries() throws IOException {
+        Assertions.assertEquals(List.of(), parse(StatementFormat.CSV, "Date,Description,Amount\n"));
+        Assertions.assertEquals(List.of(), parse(StatementFormat.CSV, ""));
+    }
+
+    // SGML entries take the account id, entities are decoded, and comma decimals and MEMO-only entries are read
+    @Test
+    public void OfxStatement_sgml_parsed() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.OFX, new StringReader("""
+                OFXHEADER:100
+                DATA:OFXSGML
+
+                <OFX>
+                <BANKACCTFROM><ACCTID>12345</BANKACCTFROM>
+                <BANKTRANLIST>
+                <STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240301120000[-5:EST]<TRNAMT>-42,10<NAME>Tom &amp; Jerry's
+                </STMTTRN>
+                <STMTTRN><TRNTYPE>INT<DTPOSTED>20240302<TRNAMT>15.00<MEMO>Interest</STMTTRN>
+                </BANKTRANLIST>
+                </OFX>
+                """), StatementOptions.of(null, null, null));
+
+        Assertions.assertEquals(List.of(
+                StatementLine.of(1, "12345", LocalDate.of(2024, 3, 1), new BigDecimal("-42.10"), "Tom & Jerry's"),
+                StatementLine.of(2, "12345", LocalDate.of(2024, 3, 2), new BigDecimal("15.00"), "Interest")),
+                lines);
+    }
+
+    // XML entries with closing tags and a prolog parse the same way, and the options override the account
+    @Test
+    public void OfxStatement_xml_parsed() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.OFX, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <?OFX OFXHEADER="200" VERSION="211"?>
+                <OFX><BANKACCTFROM><ACCTID>999</ACCTID></BANKACCTFROM>
+                <STMTTRN><DTPOSTED>20240305</DTPOSTED><TRNAMT>-3.20</TRNAMT><NAME>Bus</NAME></STMTTRN>
+                </OFX>
+                """);
+
+        Assertions.assertEquals(List.of(
+                StatementLine.of(1, "Checking", LocalDate.of(2024, 3, 5), new BigDecimal("-3.20"), "Bus")), lines);
+    }
+
+    // Entries missing or garbling their date or amount are reported, and a truncated tag fails the file
+    @Test
+    public void OfxStatement_malformedEntries_reported() throws IOException {
+        List<StatementLine> lines = parse(StatementFormat.OFX, """
+                <OFX>
+                <STMTTRN><DTPOSTED>20240301<NAME>No amount</STMTTRN>
+                <STMTTRN><DTPOSTED>2024<TRNAMT>1.00</STMTTRN>
+                <STMTTRN><DTPOSTED>20241301<TRNAMT>1.00</STMTTRN>
+                <STMTTRN><DTPOSTED>20240301<TRNAMT>abc</STMTTRN>
+                </OFX>
+                """);
+
+        Assertions.assertEquals(List.of(
+                StatementLine.invalid(1, "TRNAMT is required"),
+                StatementLine.invalid(2, "DTPOSTED is required"),
+                StatementLine.invalid(3, "Invalid DTPOSTED: 20241301"),
+                StatementLine.invalid(4, "Invalid TRNAMT: abc")), lines);
+        Assertions.assertThrows(IOException.class,
+                () -> parse(StatementFormat.OFX, "<OFX><STMTTRN><TRNAMT>1.00</STMTTRN><DTPOSTED"));
+    }
+
+    // Characters split across window boundaries come out whole and a UTF-8 byte order mark is skipped
+    @Test
+    public void MappedFileReader_smallWindow_decodesSplitCharacters() throws IOException {
+        String text = "Date,Description,Amount\n2024-03-01,Café € 🍕,-4.50\n";
+        byte[] content = ("\uFEFF" + text).getBytes(StandardCharsets.UTF_8);
+        for(int windowSize = 5; windowSize <= 9; windowSize++) {
+            try(MappedFileReader reader = new MappedFileReader(write(content), StandardCharsets.UTF_8, windowSize)) {
+                Assertions.assertEquals(text, read(reader));
+            }
+        }
+
+        try(MappedFileReader reader = new MappedFileReader(write(content), StandardCharsets.UTF_8, 7)) {
+            Assertions.assertEquals(List.of(StatementLine.of(2, "Checking", LocalDate.of(2024, 3, 1),
+                    new BigDecimal("-4.50"), "Café € 🍕")), parse(StatementFormat.CSV, reader, DEFAULTS));
+        }
+    }
+
+    // Other charsets decode as asked, invalid bytes are replaced instead of failing, and an empty file is at its end
+    @Test
+    public void MappedFileReader_encodings_decoded() throws IOException {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        try(MappedFileReader reader = new MappedFileReader(write("Café".getBytes(latin1)), latin1, 2)) {
+            Assertions.assertEquals("Café", read(reader));
+        }
+        try(MappedFileReader reader = new MappedFileReader(write(new byte[]{'A', (byte) 0xC3, 'B'}),
+                StandardCharsets.UTF_8)) {
+            Assertions.assertEquals("A\uFFFDB", read(reader));
+        }
+        try(MappedFileReader reader = new MappedFileReader(write(new byte[0]), StandardCharsets.UTF_8)) {
+            Assertions.assertEquals(-1, reader.read());
+        }
+    }
+
+    // Fingerprints ignore amount scale, case and whitespace, but not the sign, date or wording
+    @Test
+    public void LedgerFingerprint_of_normalisesDescriptionAndAmount() {
+        LocalDate date = LocalDate.of(2024, 3, 1);
+        LedgerFingerprint coffee = fingerprint("4.50", true, date, "Coffee shop");
+
+        Assertions.assertEquals(coffee, fingerprint("4.5", true, date, "  COFFEE \t shop "));
+        Assertions.assertNotEquals(coffee, fingerprint("4.50", false, date, "Coffee shop"));
+        Assertions.assertNotEquals(coffee, fingerprint("4.50", true, date.plusDays(1), "Coffee shop"));
+        Assertions.assertNotEquals(coffee, fingerprint("4.50", true, date, "Coffee shops"));
+        Assertions.assertEquals(fingerprint("1", false, date, null), fingerprint("1.00", false, date, " "));
+    }
+}
@@ -0,0 +1,104 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.controller.SummaryController;
+import com.nocturnals.budget.db.dao.LedgerRollupService;
+import com.nocturnals.budget.db.dao.LedgerRollupService.Grouping;
+import com.nocturnals.budget.db.dto.LedgerSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(SummaryController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ExtendWith(MockitoExtension.class)
+public class SummaryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LedgerRollupService ledgerRollupService;
+
+    // Summaries by category for an account come straight from the rollups
+    @Test
+    public void SummaryController_summarizeByCategory_returnSummaries() throws Exception {
+        LedgerSummary summary = new LedgerSummary(202403, null, 7L, BigDecimal.ZERO, BigDecimal.valueOf(120),
+                BigDecimal.valueOf(-120), 3L);
+        Mockito.when(ledgerRollupService.summarize(1L, null, YearMonth.of(2024, 1), YearMonth.of(2024, 3),
+                Grouping.CATEGORY)).thenReturn(List.of(summary));
+        mockMvc.perform(get("/api/v1/summary")
+                        .param("account-id", "1")
+                        .param("from", "2024-01")
+                        .param("to", "2024-03")
+                        .param("group-by", "category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].period").value(202403))
+                .andExpect(jsonPath("$[0].categoryId").value(7))
+                .andExpect(jsonPath("$[0].accountId").doesNotExist())
+                .andExpect(jsonPath("$[0].expense").value(120));
+
+        Mockito.reset(ledgerRollupService);
+    }
+
+    // Without a range the last twelve months are summarized
+    @Test
+    public void SummaryController_summarizeWithoutRange_returnLastTwelveMonths() throws Exception {
+        YearMonth now = YearMonth.now();
+        Mockito.when(ledgerRollupService.summarize(null, null, now.minusMonths(11), now, Grouping.PERIOD))
+                .thenReturn(List.of());
+        mockMvc.perform(get("/api/v1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+
+        Mockito.verify(ledgerRollupService, Mockito.times(1))
+                .summarize(null, null, now.minusMonths(11), now, Grouping.PERIOD);
+        Mockito.reset(ledgerRollupService);
+    }
+
+    // An unknown grouping is rejected
+    @Test
+    public void SummaryController_summarizeWithInvalidGrouping_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/summary")
+                        .param("group-by", "week"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerRollupService);
+    }
+
+    // A reversed range is rejected
+    @Test
+    public void SummaryController_summarizeWithReversedRange_returnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/summary")
+                        .param("from", "2024-05")
+                        .param("to", "2024-01"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(ledgerRollupService);
+    }
+
+    // Rebuilding reports how many rollups were written
+    @Test
+    public void SummaryController_rebuild_returnCount() throws Exception {
+        Mockito.when(ledgerRollupService.rebuild()).thenReturn(42);
+        mockMvc.perform(post("/api/v1/summary/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(42));
+
+        Mockito.reset(ledgerRollupService);
+    }
+}
@@ -0,0 +1,185 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountService;
+import com.nocturnals.budget.db.dao.BankService;
+import com.nocturnals.budget.db.dao.CategoryService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.dao.SyncService;
+import com.nocturnals.budget.db.dto.SyncPage;
+import com.nocturnals.budget.db.dto.SyncResource;
+import com.nocturnals.budget.db.dto.SyncWatermark;
+import com.nocturnals.budget.db.dto.TransactionView;
+import com.nocturnals.budget.db.entity.Account;
+import com.nocturnals.budget.db.entity.Bank;
+import com.nocturnals.budget.db.entity.Category;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows each resource through incremental sync on its own in-memory database, with no settle window.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:sync;MODE=MSSQLServer;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+public class SyncServiceTest {
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clear() {
+        jdbcTemplate.update("delete from ledger");
+        jdbcTemplate.update("delete from ledger_rollup");
+        jdbcTemplate.update("delete from account_balance_snapshot");
+        jdbcTemplate.update("delete from account");
+        jdbcTemplate.update("delete from bank");
+        jdbcTemplate.update("delete from category");
+        jdbcTemplate.update("delete from sync_tombstone");
+        jdbcTemplate.update("delete from change_event");
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return categoryService.save(category);
+    }
+
+    private Account account(String name) {
+        Account account = new Account();
+        account.setName(name);
+        account.setBalance(BigDecimal.ZERO);
+        return accountService.save(account);
+    }
+
+    private Transaction save(Account account, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setAccount(account);
+        return ledgerService.save(transaction);
+    }
+
+    private SyncPage sync(SyncResource resource, SyncPage previous, int limit) {
+        return syncService.changes(resource, previous == null ? null : SyncWatermark.decode(previous.watermark()),
+                limit);
+    }
+
+    private static List<Long> categoryIds(SyncPage page) {
+        return page.items().stream().map(item -> ((Category) item).getId()).toList();
+    }
+
+    // A full sync pages through every row, and later calls return only what changed or was deleted since
+    @Test
+    public void Sync_watermark_returnsOnlyChanges() throws InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            ids.add(category("Sync " + i).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        SyncPage page = null;
+        do {
+            page = sync(SyncResource.CATEGORY, page, 2);
+            seen.addAll(categoryIds(page));
+            Assertions.assertTrue(page.deleted().isEmpty());
+        } while(page.hasMore());
+        Assertions.assertEquals(ids, seen);
+
+        SyncPage idle = sync(SyncResource.CATEGORY, page, 2);
+        Assertions.assertTrue(idle.items().isEmpty());
+        Assertions.assertFalse(idle.hasMore());
+
+        Thread.sleep(5);
+        Category renamed = categoryService.findById(ids.get(1));
+        renamed.setName("Sync renamed");
+        categoryService.save(renamed);
+        categoryService.deleteById(ids.get(3));
+
+        SyncPage changes = sync(SyncResource.CATEGORY, idle, 10);
+        Assertions.assertEquals(List.of(ids.get(1)), categoryIds(changes));
+        Assertions.assertEquals("Sync renamed", ((Category) changes.items().get(0)).getName());
+        Assertions.assertEquals(List.of(ids.get(3)), changes.deleted());
+        Assertions.assertFalse(changes.hasMore());
+        Assertions.assertTrue(sync(SyncResource.CATEGORY, changes, 10).items().isEmpty());
+    }
+
+    // Ledger deletes leave tombstones, and posting to an account bumps the account for sync despite the bulk update
+    @Test
+    public void Sync_transactions_includeDeletesAndBalanceChanges() throws InterruptedException {
+        Account account = account("Sync checking");
+        Transaction rent = save(account, "Rent");
+        Transaction coffee = save(account, "Coffee");
+
+        SyncPage transactions = sync(SyncResource.TRANSACTION, null, 10);
+        Assertions.assertEquals(List.of(rent.getId(), coffee.getId()),
+                transactions.items().stream().map(item -> ((TransactionView) item).id()).toList());
+        SyncPage accounts = sync(SyncResource.ACCOUNT, null, 10);
+        Assertions.assertEquals(1, accounts.items().size());
+        Bank bank = new Bank();
+        bank.setName("Sync bank");
+        bank = bankService.save(bank);
+        SyncPage banks = sync(SyncResource.BANK, null, 10);
+        Assertions.assertEquals(1, banks.items().size());
+
+        Thread.sleep(5);
+        ledgerService.deleteById(coffee.getId());
+        bankService.deleteById(bank.getId());
+
+        SyncPage afterDelete = sync(SyncResource.TRANSACTION, transactions, 10);
+        Assertions.assertTrue(afterDelete.items().isEmpty());
+        Assertions.assertEquals(List.of(coffee.getId()), afterDelete.deleted());
+        SyncPage balance = sync(SyncResource.ACCOUNT, accounts, 10);
+        Assertions.assertEquals(List.of(account.getId()),
+                balance.items().stream().map(item -> ((Account) item).getId()).toList());
+        Assertions.assertEquals(0, BigDecimal.TEN.compareTo(((Account) balance.items().get(0)).getBalance()));
+        SyncPage bankDeleted = sync(SyncResource.BANK, banks, 10);
+        Assertions.assertTrue(bankDeleted.items().isEmpty());
+        Assertions.assertEquals(List.of(bank.getId()), bankDeleted.deleted());
+    }
+
+    // Watermarks older than tombstone retention must start over, and bad requests are rejected
+    @Test
+    public void Sync_retention_expiresOldWatermarks() {
+        Category category = category("Sync expired");
+        SyncPage page = sync(SyncResource.CATEGORY, null, 10);
+        categoryService.deleteById(category.getId());
+        jdbcTemplate.update("update sync_tombstone set deleted_at = dateadd('day', -100, deleted_at)");
+        SyncWatermark old = SyncWatermark.decode(page.watermark());
+        SyncWatermark stale = new SyncWatermark(old.changedAt(), old.changedId(),
+                Timestamp.from(old.deletedAt().toInstant().minus(Duration.ofDays(100))), 0);
+
+        Assertions.assertTrue(syncService.isRetained(old));
+        Assertions.assertFalse(syncService.isRetained(stale));
+        Assertions.assertEquals(1, syncService.purge());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from sync_tombstone", Integer.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> syncService.changes(SyncResource.BANK, null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SyncWatermark.decode("not a watermark"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SyncResource.parse("ledger"));
+        Assertions.assertEquals(SyncResource.ACCOUNT_TYPE, SyncResource.parse("account-type"));
+    }
+}
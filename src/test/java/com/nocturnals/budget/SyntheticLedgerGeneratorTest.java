@@ -0,0 +1,74 @@
+package com.nocturnals.budget;
+
+import com.nocturnals.budget.db.dao.AccountBalanceService;
+import com.nocturnals.budget.db.dao.LedgerService;
+import com.nocturnals.budget.db.entity.Transaction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Boots the perf profile on its own in-memory database with a small synthetic ledger.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:perf-test;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "budget.perf.rows=5000", "budget.perf.batch-size=700", "budget.perf.anchor=2023-06-15"})
+@ActiveProfiles({"test", "perf"})
+public class SyntheticLedgerGeneratorTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    // Startup loads the configured rows with most of them on a few accounts
+    @Test
+    public void SyntheticLedgerGenerator_startup_loadsSkewedLedger() {
+        Assertions.assertEquals(5000, jdbcTemplate.queryForObject("select count(*) from ledger where id <= 5000",
+                Long.class));
+        Assertions.assertEquals(50, jdbcTemplate.queryForObject("select count(*) from account", Long.class));
+        List<Long> perAccount = jdbcTemplate.queryForList("select count(*) from ledger where id <= 5000 "
+                + "group by account_id order by count(*) desc", Long.class);
+        Assertions.assertTrue(perAccount.get(0) > 5 * perAccount.get(perAccount.size() / 2));
+    }
+
+    // Rows are dated in the configured years up to the anchor, whatever day the test runs
+    @Test
+    public void SyntheticLedgerGenerator_startup_datesRowsBeforeAnchor() {
+        LocalDate first = jdbcTemplate.queryForObject("select min(transaction_date) from ledger where id <= 5000",
+                Date.class).toLocalDate();
+        LocalDate last = jdbcTemplate.queryForObject("select max(transaction_date) from ledger where id <= 5000",
+                Date.class).toLocalDate();
+        Assertions.assertFalse(first.isBefore(LocalDate.of(2018, 6, 1)), first::toString);
+        Assertions.assertFalse(last.isAfter(LocalDate.of(2023, 6, 15)), last::toString);
+        Assertions.assertFalse(last.isBefore(LocalDate.of(2023, 6, 1)), last::toString);
+    }
+
+    // Balances and rollups written after the bulk load agree with the ledger
+    @Test
+    public void SyntheticLedgerGenerator_startup_matchesDerivedTotals() {
+        Assertions.assertEquals(List.of(), accountBalanceService.reconcile(Long.MIN_VALUE, 100, false).mismatches());
+        Assertions.assertEquals(jdbcTemplate.queryForObject("select count(*) from ledger", Long.class),
+                jdbcTemplate.queryForObject("select sum(entry_count) from ledger_rollup", Long.class));
+    }
+
+    // The ledger sequence continues after the generated ids
+    @Test
+    public void SyntheticLedgerGenerator_startup_leavesSequenceAfterRows() {
+        Transaction transaction = new Transaction();
+        transaction.setDescription("After generation");
+        transaction.setAmount(BigDecimal.ONE);
+        transaction.setTransactionDate(Date.valueOf(LocalDate.now()));
+        Assertions.assertTrue(ledgerService.save(transaction).getId() > 5000);
+    }
+}